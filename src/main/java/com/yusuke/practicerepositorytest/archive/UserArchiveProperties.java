@@ -0,0 +1,36 @@
+package com.yusuke.practicerepositorytest.archive;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 長期間更新されていないユーザーをアーカイブテーブルへ移す設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.archive")
+public class UserArchiveProperties {
+
+    // trueの場合に定期的にアーカイブへ移す（falseでもアーカイブ済みの行の参照・復元は行う）
+    private boolean enabled = false;
+
+    // 作成・更新からこの期間が過ぎたユーザーをアーカイブへ移す
+    @NotNull
+    private Duration hotRetention = Duration.ofDays(365);
+
+    // 1トランザクションで移す件数
+    @Min(1)
+    @Max(100_000)
+    private int batchSize = 1000;
+
+    // アーカイブへ移す間隔
+    @NotNull
+    private Duration interval = Duration.ofHours(1);
+}
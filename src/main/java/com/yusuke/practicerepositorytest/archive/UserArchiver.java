@@ -0,0 +1,306 @@
+package com.yusuke.practicerepositorytest.archive;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.yusuke.practicerepositorytest.entity.ArchivedUser;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.ArchivedUserRepository;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ユーザーのホット/コールドの階層化（usersとusers_archiveの2テーブル）
+ *
+ * 作成・更新からhot-retentionが過ぎたユーザーをバッチ単位でアーカイブテーブルへ移し、ホットテーブルを小さく保つ。
+ * アーカイブした行は読み取り専用で、更新・削除の前にこのクラスでホットテーブルへ戻す。
+ * 行の移動（INSERT ... SELECTとDELETE）は1つのトランザクションで行うため、どちらか一方のテーブルにだけ存在する。
+ * IDは移動しても変わらない。
+ */
+@Slf4j
+@Component
+public class UserArchiver {
+
+    private static final String COLUMNS = "id, name, email, age, created_at, updated_at, deleted_at, version,"
+            + " name_normalized, email_domain, email_reversed";
+
+    // 2つのテーブルの候補を並べ直すときのソートのプロパティと列（SQLに埋め込むため、これ以外は受け付けない）
+    private static final Map<String, String> SORT_COLUMNS = Map.of("id", "id", "name", "name", "email", "email",
+            "age", "age", "createdAt", "created_at", "updatedAt", "updated_at");
+
+    private final UserArchiveProperties properties;
+    private final UserRepository userRepository;
+    private final ArchivedUserRepository archivedUserRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final Counter archived;
+    private final Counter restored;
+
+    public UserArchiver(UserArchiveProperties properties, UserRepository userRepository,
+            ArchivedUserRepository archivedUserRepository, JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate, PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.userRepository = userRepository;
+        this.archivedUserRepository = archivedUserRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.archived = meterRegistry.counter("users.archive.moved", "direction", "archived");
+        this.restored = meterRegistry.counter("users.archive.moved", "direction", "restored");
+    }
+
+    /**
+     * これより前に作成・更新されたユーザーがアーカイブの対象になる
+     */
+    public LocalDateTime hotCutoff() {
+        return LocalDateTime.now().minus(properties.getHotRetention());
+    }
+
+    /**
+     * 定期的にアーカイブの対象を移す（enabled=falseの場合は何もしない）
+     */
+    @Scheduled(initialDelayString = "${app.archive.interval:1h}", fixedDelayString = "${app.archive.interval:1h}")
+    public void archiveColdUsers() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long moved = archiveUsersBefore(hotCutoff());
+        if (moved > 0) {
+            log.info("Archived {} users in {} ms", moved, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * cutoffより前に作成され、それ以降に更新されていないユーザーをアーカイブへ移す
+     *
+     * @return 移した件数
+     */
+    public long archiveUsersBefore(LocalDateTime cutoff) {
+        Timestamp bound = Timestamp.valueOf(cutoff);
+        long moved = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE id > ? AND created_at < ? AND updated_at < ? ORDER BY id LIMIT ?",
+                    Long.class, afterId, bound, bound, properties.getBatchSize());
+            if (ids.isEmpty()) {
+                return moved;
+            }
+            Integer count = writeTransaction.execute(status -> moveBatch(ids, bound));
+            moved += count;
+            archived.increment(count);
+            if (ids.size() < properties.getBatchSize()) {
+                return moved;
+            }
+            afterId = ids.get(ids.size() - 1);
+        }
+    }
+
+    // 候補の行をロックして条件を確認し直し（選んだ後に更新された行は移さない）、まとめて移す
+    private int moveBatch(List<Long> candidateIds, Timestamp bound) {
+        Map<String, Object> params = Map.of("ids", candidateIds, "bound", bound);
+        List<Long> ids = namedJdbcTemplate.queryForList(
+                "SELECT id FROM users WHERE id IN (:ids) AND created_at < :bound AND updated_at < :bound FOR UPDATE",
+                params, Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> lockedParams = Map.of("ids", ids, "archivedAt", Timestamp.valueOf(LocalDateTime.now()));
+        namedJdbcTemplate.update("INSERT INTO users_archive (" + COLUMNS + ", archived_at)"
+                + " SELECT " + COLUMNS + ", :archivedAt FROM users WHERE id IN (:ids)", lockedParams);
+        return namedJdbcTemplate.update("DELETE FROM users WHERE id IN (:ids)", lockedParams);
+    }
+
+    /**
+     * アーカイブしたユーザーをホットテーブルへ戻す（呼び出し元のトランザクションがあれば参加する）
+     *
+     * @return 戻したユーザー。アーカイブになければ空
+     */
+    public Optional<User> restore(Long id) {
+        return writeTransaction.execute(status -> {
+            // 同時に戻そうとした場合は後の方がここで待ち、行がなくなっていれば何もしない
+            List<Long> locked = jdbcTemplate.queryForList("SELECT id FROM users_archive WHERE id = ? FOR UPDATE",
+                    Long.class, id);
+            if (locked.isEmpty()) {
+                return Optional.<User>empty();
+            }
+            jdbcTemplate.update("INSERT INTO users (" + COLUMNS + ") SELECT " + COLUMNS
+                    + " FROM users_archive WHERE id = ?", id);
+            jdbcTemplate.update("DELETE FROM users_archive WHERE id = ?", id);
+            restored.increment();
+            return userRepository.findById(id);
+        });
+    }
+
+    /**
+     * アーカイブからIDでユーザーを取得する
+     */
+    public Optional<User> findById(Long id) {
+        return archivedUserRepository.findById(id).map(ArchivedUser::toUser);
+    }
+
+    /**
+     * アーカイブからメールアドレスでユーザーを取得する
+     */
+    public Optional<User> findByEmail(String email) {
+        return Optional.ofNullable(archivedUserRepository.findByEmail(email)).map(ArchivedUser::toUser);
+    }
+
+    /**
+     * メールアドレスがアーカイブで使用されているか（論理削除済みを含む）
+     */
+    public boolean emailInUse(String email) {
+        return archivedUserRepository.countByEmailIncludingDeleted(email) > 0;
+    }
+
+    /**
+     * 指定したメールアドレスのうち、アーカイブで使用されているもの（論理削除済みを含む）
+     */
+    public List<String> findExistingEmails(Collection<String> emails) {
+        return archivedUserRepository.findExistingEmailsIncludingDeleted(emails);
+    }
+
+    /**
+     * 作成日時の下限がcreatedFromの検索でアーカイブを参照する必要があるか
+     *
+     * アーカイブの作成日時の最大値（インデックスの端を読むだけ）より新しい範囲にはアーカイブした行がない。
+     * ホットテーブルを検索した後に呼ぶこと。その間に移された行はホットテーブルの結果に含まれている。
+     */
+    public boolean mayContainCreatedFrom(LocalDateTime createdFrom) {
+        if (createdFrom == null) {
+            return true;
+        }
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT MAX(created_at) FROM users_archive", Timestamp.class);
+        return latest != null && !latest.toLocalDateTime().isBefore(createdFrom);
+    }
+
+    /**
+     * アーカイブをID順に最大limit件検索する
+     */
+    public List<User> findAll(Specification<ArchivedUser> spec, int limit) {
+        return toUsers(archivedUserRepository.findBy(spec,
+                query -> query.sortBy(Sort.by("id")).limit(limit).all()));
+    }
+
+    /**
+     * アーカイブをsortの順に最大limit件検索する
+     */
+    public List<User> findAll(Specification<ArchivedUser> spec, Sort sort, int limit) {
+        return toUsers(archivedUserRepository.findBy(spec,
+                query -> query.sortBy(sort).limit(limit).all()));
+    }
+
+    /**
+     * アーカイブで条件に一致する件数
+     */
+    public long count(Specification<ArchivedUser> spec) {
+        return archivedUserRepository.count(spec);
+    }
+
+    /**
+     * ホットテーブルとアーカイブの候補（それぞれsortの順に読んだもの）を合わせてsortの順に並べ、offsetからlimit件のIDを返す
+     *
+     * 並べ替えは候補のIDだけを主キーで読んだ2つのテーブルのUNION ALLで行い、DBの照合順序で並べる（ビューは使わない）。
+     * 2つの読み取りの間に移された行はホットテーブルの候補を優先して1件にする。
+     */
+    public List<Long> findPageIds(Collection<Long> hotIds, Collection<Long> archivedIds, Sort sort, long offset,
+            int limit) {
+        StringBuilder orderBy = new StringBuilder();
+        for (Sort.Order order : sort) {
+            String column = SORT_COLUMNS.get(order.getProperty());
+            if (column == null) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            }
+            orderBy.append(orderBy.isEmpty() ? " ORDER BY " : ", ").append("u.").append(column)
+                    .append(order.isAscending() ? " ASC" : " DESC");
+        }
+        // 空のIN句を避けるため、候補がない側は存在しないID（0）で代用する
+        Map<String, Object> params = Map.of(
+                "hotIds", hotIds.isEmpty() ? List.of(0L) : hotIds,
+                "archivedIds", archivedIds.isEmpty() ? List.of(0L) : archivedIds,
+                "limit", limit, "offset", offset);
+        return namedJdbcTemplate.queryForList("SELECT u.id FROM ("
+                + "SELECT " + COLUMNS + " FROM users WHERE id IN (:hotIds)"
+                + " UNION ALL SELECT " + COLUMNS + " FROM users_archive WHERE id IN (:archivedIds)"
+                + " AND id NOT IN (:hotIds)) u" + orderBy + " LIMIT :limit OFFSET :offset", params, Long.class);
+    }
+
+    /**
+     * アーカイブをID順に全件検索する
+     */
+    public List<User> findAll(Specification<ArchivedUser> spec) {
+        return toUsers(archivedUserRepository.findAll(spec, Sort.by("id")));
+    }
+
+    /**
+     * アーカイブの全ユーザーをID順に取得する
+     */
+    public List<User> findAll() {
+        return toUsers(archivedUserRepository.findAll(Sort.by("id")));
+    }
+
+    /**
+     * アーカイブを名前の部分一致（大文字小文字を区別しない）でID順に検索する
+     */
+    public List<User> findByNameContaining(String name) {
+        return toUsers(archivedUserRepository.findByNameContainingIgnoreCaseOrderByIdAsc(name));
+    }
+
+    /**
+     * アーカイブを年齢でID順に検索する
+     */
+    public List<User> findByAge(Integer age) {
+        return toUsers(archivedUserRepository.findByAgeOrderByIdAsc(age));
+    }
+
+    /**
+     * ID順の2つの結果をID順にマージし、最大limit件を返す
+     *
+     * ホットテーブルとアーカイブを別のクエリで読むと、その間に移された行は両方に現れうるため1件にする。
+     */
+    public static List<User> mergeById(List<User> first, List<User> second, int limit) {
+        List<User> all = new ArrayList<>(first);
+        all.addAll(second);
+        all.sort(Comparator.comparing(User::getId));
+        Set<Long> seen = new HashSet<>();
+        List<User> merged = new ArrayList<>(Math.min(limit, all.size()));
+        for (User user : all) {
+            if (merged.size() == limit) {
+                break;
+            }
+            if (seen.add(user.getId())) {
+                merged.add(user);
+            }
+        }
+        return merged;
+    }
+
+    private static List<User> toUsers(List<ArchivedUser> rows) {
+        List<User> users = new ArrayList<>(rows.size());
+        rows.forEach(row -> users.add(row.toUser()));
+        return users;
+    }
+}
@@ -0,0 +1,54 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * ユーザーの2層キャッシュのウォームスタートの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.cache-warmup")
+public class CacheWarmupProperties {
+
+    // trueの場合にホットキーを記録し、起動時にキャッシュへ読み込む（app.user-cache.enabled=trueの場合のみ）
+    private boolean enabled = false;
+
+    // ホットキーのスナップショットの保存先
+    @NotBlank
+    private String snapshotPath = "data/hot-keys.tsv";
+
+    // スナップショットを保存する間隔
+    @NotNull
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    // スナップショットに残すキーの数（ニアキャッシュの最大件数を超えた分は読み込まない）
+    @Min(1)
+    @Max(10_000_000)
+    private int maxKeys = 10_000;
+
+    // アクセス回数を数えるキーの数の上限
+    @Min(1)
+    @Max(10_000_000)
+    private int maxTrackedKeys = 100_000;
+
+    // 1回のINクエリで読み込むキーの数
+    @Min(1)
+    @Max(10_000)
+    private int batchSize = 500;
+
+    // 起動時の読み込みにかける時間の上限（超えた場合は残りを読み込まずに起動を続ける）
+    @NotNull
+    private Duration budget = Duration.ofSeconds(30);
+
+    // trueの場合は読み込みが終わるまでReadinessをREFUSING_TRAFFICのままにする（falseの場合はバックグラウンドで読み込む）
+    private boolean gateReadiness = true;
+}
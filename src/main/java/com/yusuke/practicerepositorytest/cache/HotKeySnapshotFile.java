@@ -0,0 +1,81 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.HotKey;
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.Kind;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ホットキーのスナップショットのファイル（1行に「種類 TAB 回数 TAB キー」、アクセス回数の多い順）
+ *
+ * 一時ファイルに書いてから置き換えるため、書き込み中に停止しても前回のスナップショットが残る。
+ */
+@Slf4j
+public class HotKeySnapshotFile {
+
+    private final Path path;
+
+    public HotKeySnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public void write(List<HotKey> keys) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("# hot keys " + Instant.now() + "\n");
+            for (HotKey key : keys) {
+                writer.write(key.kind().name() + "\t" + key.count() + "\t" + key.key() + "\n");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * スナップショットを読み込む（ファイルがない場合は空。読めない行は読み飛ばす）
+     */
+    public List<HotKey> read() throws IOException {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        List<HotKey> keys = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", 3);
+                try {
+                    Kind kind = Kind.valueOf(fields[0]);
+                    if (kind == Kind.ID) {
+                        Long.parseLong(fields[2]);
+                    }
+                    keys.add(new HotKey(kind, fields[2], Long.parseLong(fields[1])));
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    log.warn("Skipping malformed hot key line in {}: {}", path, line);
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,78 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ID・メールアドレス検索で見つかったユーザーのキーごとのアクセス回数
+ *
+ * 追跡するキーの数はmaxTrackedKeysまで（超えた間は新しいキーを数えない）。
+ * スナップショットを取るたびに回数を半分にし、0になったキーを捨てることで、最近のアクセスを重視しつつ空きを作る。
+ */
+public class HotKeyTracker {
+
+    /**
+     * キーの種類
+     */
+    public enum Kind {
+        ID, EMAIL
+    }
+
+    /**
+     * アクセス回数の多いキー
+     */
+    public record HotKey(Kind kind, String key, long count) {
+    }
+
+    private final int maxTrackedKeys;
+    private final Map<Long, AtomicLong> idCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> emailCounts = new ConcurrentHashMap<>();
+
+    public HotKeyTracker(int maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public void recordId(Long id) {
+        record(idCounts, id);
+    }
+
+    public void recordEmail(String email) {
+        record(emailCounts, email);
+    }
+
+    public int trackedKeys() {
+        return idCounts.size() + emailCounts.size();
+    }
+
+    /**
+     * アクセス回数の多い順に最大limit件のキーを返し、すべての回数を半分にする
+     */
+    public List<HotKey> snapshotAndDecay(int limit) {
+        List<HotKey> keys = new ArrayList<>(trackedKeys());
+        idCounts.forEach((id, count) -> keys.add(new HotKey(Kind.ID, id.toString(), count.get())));
+        emailCounts.forEach((email, count) -> keys.add(new HotKey(Kind.EMAIL, email, count.get())));
+        keys.sort(Comparator.comparingLong(HotKey::count).reversed());
+        decay(idCounts);
+        decay(emailCounts);
+        return List.copyOf(keys.subList(0, Math.min(limit, keys.size())));
+    }
+
+    private <K> void record(Map<K, AtomicLong> counts, K key) {
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            if (trackedKeys() >= maxTrackedKeys) {
+                return;
+            }
+            count = counts.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        count.incrementAndGet();
+    }
+
+    private static <K> void decay(Map<K, AtomicLong> counts) {
+        counts.entrySet().removeIf(entry -> entry.getValue().updateAndGet(count -> count / 2) == 0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * プロセス内で共有キャッシュ層を代替する実装
+ * 
+ * 単一ノードでの実行や、同じインスタンスを複数ノードに渡すローカルでの検証に使う。
+ */
+public class InMemorySharedUserStore implements SharedUserStore {
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<Long, Stored> entries = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+    public InMemorySharedUserStore(Duration ttl, Clock clock) {
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<UserCacheEntry> get(Long id) {
+        Stored stored = entries.get(id);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        if (stored.isExpired(clock.instant())) {
+            entries.remove(id, stored);
+            return Optional.empty();
+        }
+        return Optional.of(stored.entry);
+    }
+
+    @Override
+    public Optional<Long> findIdByEmail(String email) {
+        return Optional.ofNullable(idsByEmail.get(email.toLowerCase(Locale.ROOT)));
+    }
+
+    @Override
+    public boolean putIfNewer(UserCacheEntry entry) {
+        Instant now = clock.instant();
+        boolean[] stored = { false };
+        entries.compute(entry.getId(), (id, current) -> {
+            if (current != null && !current.isExpired(now) && current.entry.getVersion() >= entry.getVersion()) {
+                return current;
+            }
+            stored[0] = true;
+            return new Stored(entry, now.plus(ttl));
+        });
+        if (stored[0]) {
+            idsByEmail.put(entry.getEmail().toLowerCase(Locale.ROOT), entry.getId());
+        }
+        return stored[0];
+    }
+
+    private record Stored(UserCacheEntry entry, Instant expiresAt) {
+
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * プロセス内で無効化メッセージを配信する実装（購読者すべてに同期的に配信する）
+ */
+@Slf4j
+public class InMemoryUserInvalidationBus implements UserInvalidationBus {
+
+    private final List<Consumer<UserInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(UserInvalidation invalidation) {
+        for (Consumer<UserInvalidation> listener : listeners) {
+            try {
+                listener.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("Failed to deliver user invalidation {}", invalidation, e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<UserInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,26 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.util.Optional;
+
+/**
+ * 全ノードで共有するキャッシュ層（Redisなどを想定）
+ */
+public interface SharedUserStore {
+
+    /**
+     * IDでエントリを取得する（トゥームストーンを含む）
+     */
+    Optional<UserCacheEntry> get(Long id);
+
+    /**
+     * メールアドレスからIDを引く（エントリの内容と一致するかは呼び出し側で確認する）
+     */
+    Optional<Long> findIdByEmail(String email);
+
+    /**
+     * 保持しているエントリより新しいバージョンの場合だけ保存する
+     * 
+     * @return 保存した場合はtrue
+     */
+    boolean putIfNewer(UserCacheEntry entry);
+}
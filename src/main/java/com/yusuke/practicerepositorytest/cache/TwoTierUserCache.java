@@ -0,0 +1,252 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.entity.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ID・メールアドレス検索の2層キャッシュ（ノード内のニアキャッシュ + 全ノードで共有するキャッシュ）
+ *
+ * 読み込みはニアキャッシュ、共有キャッシュ、DBの順に探す。更新・削除はコミット後に共有キャッシュへ新しいバージョンを書き込み、
+ * 無効化メッセージを全ノードへ配信する。
+ *
+ * 古いデータが戻らないよう、すべての比較はエンティティのバージョンで行う。
+ * <ul>
+ * <li>無効化を受けたノードは、そのバージョンを下限として記録し、以後それより古いバージョンをキャッシュしない
+ * （無効化より前に始まったDBの読み込みが遅れて完了した場合など）</li>
+ * <li>遅れて届いた古いバージョンの無効化では、より新しいエントリを破棄しない</li>
+ * <li>共有キャッシュは保持しているものより新しいバージョンしか受け付けない</li>
+ * </ul>
+ * 未コミットのデータを共有しないよう、読み書き可能なトランザクションの中で読み込んだ結果はキャッシュしない。
+ */
+@Slf4j
+public class TwoTierUserCache {
+
+    private final String nodeId;
+    private final int nearMaxEntries;
+    private final long nearTtlMillis;
+    private final SharedUserStore sharedStore;
+    private final UserInvalidationBus invalidationBus;
+    private final Clock clock;
+
+    private final Map<Long, NearEntry> nearEntries = new ConcurrentHashMap<>();
+    private final Map<String, Long> nearIdsByEmail = new ConcurrentHashMap<>();
+    // 無効化されたバージョン（これより古いバージョンはキャッシュしない）
+    private final Map<Long, Long> versionFloors = new ConcurrentHashMap<>();
+
+    private final Counter nearHits;
+    private final Counter sharedHits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Counter staleFills;
+
+    public TwoTierUserCache(String nodeId, UserCacheProperties properties, SharedUserStore sharedStore,
+            UserInvalidationBus invalidationBus, MeterRegistry meterRegistry, Clock clock) {
+        this.nodeId = nodeId;
+        this.nearMaxEntries = properties.getNearMaxEntries();
+        this.nearTtlMillis = properties.getNearTtl().toMillis();
+        this.sharedStore = sharedStore;
+        this.invalidationBus = invalidationBus;
+        this.clock = clock;
+        this.nearHits = meterRegistry.counter("users.cache.lookups", "result", "near");
+        this.sharedHits = meterRegistry.counter("users.cache.lookups", "result", "shared");
+        this.misses = meterRegistry.counter("users.cache.lookups", "result", "miss");
+        this.invalidations = meterRegistry.counter("users.cache.invalidations");
+        this.staleFills = meterRegistry.counter("users.cache.stale-fills");
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * IDでユーザーを取得する（キャッシュにない場合はloaderでDBから読み込む）
+     */
+    public Optional<User> findById(Long id, Supplier<Optional<User>> loader) {
+        Optional<UserCacheEntry> near = nearEntry(id);
+        if (near.isPresent()) {
+            nearHits.increment();
+            return toUser(near.get());
+        }
+        // 無効化を受けたバージョンより古いものは、共有キャッシュの更新が追いついていないとみなして使わない
+        Optional<UserCacheEntry> shared = sharedStore.get(id).filter(entry -> !isStale(entry));
+        if (shared.isPresent()) {
+            sharedHits.increment();
+            putNear(shared.get());
+            return toUser(shared.get());
+        }
+        misses.increment();
+        Optional<User> loaded = loader.get();
+        loaded.ifPresent(this::fill);
+        return loaded;
+    }
+
+    /**
+     * メールアドレスでユーザーを取得する（キャッシュにない場合はloaderでDBから読み込む）
+     */
+    public Optional<User> findByEmail(String email, Supplier<Optional<User>> loader) {
+        String key = email.toLowerCase(Locale.ROOT);
+        Long nearId = nearIdsByEmail.get(key);
+        Optional<UserCacheEntry> near = nearId == null ? Optional.empty()
+                : nearEntry(nearId).filter(entry -> matchesEmail(entry, key));
+        if (near.isPresent()) {
+            nearHits.increment();
+            return toUser(near.get());
+        }
+        Optional<UserCacheEntry> shared = sharedStore.findIdByEmail(key)
+                .flatMap(sharedStore::get)
+                .filter(entry -> matchesEmail(entry, key) && !isStale(entry));
+        if (shared.isPresent()) {
+            sharedHits.increment();
+            putNear(shared.get());
+            return toUser(shared.get());
+        }
+        misses.increment();
+        Optional<User> loaded = loader.get();
+        loaded.ifPresent(this::fill);
+        return loaded;
+    }
+
+    /**
+     * DBから読み込んだユーザーをまとめてキャッシュする（起動時のウォームアップ）
+     *
+     * 通常の読み込みと同じく、無効化を受けたバージョンより古いものはキャッシュしない。
+     */
+    public void preload(Collection<User> users) {
+        users.forEach(this::fill);
+    }
+
+    /**
+     * ユーザーの作成・更新・削除（論理削除）をコミット後に反映し、他ノードへ無効化を配信する
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserWritten(UserWrittenEvent event) {
+        publish(event.getUser());
+    }
+
+    /**
+     * 他ノードからの無効化メッセージを反映する
+     */
+    void onInvalidation(UserInvalidation invalidation) {
+        if (nodeId.equals(invalidation.getSourceNodeId())) {
+            return;
+        }
+        invalidations.increment();
+        invalidate(invalidation.getId(), invalidation.getVersion());
+    }
+
+    private void publish(User user) {
+        UserCacheEntry entry = UserCacheEntry.of(user);
+        invalidate(entry.getId(), entry.getVersion());
+        putNear(entry);
+        sharedStore.putIfNewer(entry);
+        invalidationBus.publish(new UserInvalidation(nodeId, entry.getId(), entry.getEmail(), entry.getVersion()));
+    }
+
+    private void invalidate(Long id, long version) {
+        if (versionFloors.size() >= nearMaxEntries) {
+            // 下限を破棄する前にニアキャッシュも破棄し、古いエントリが残らないようにする
+            clearNear();
+            versionFloors.clear();
+        }
+        versionFloors.merge(id, version, Math::max);
+        NearEntry current = nearEntries.get(id);
+        if (current != null && current.entry.getVersion() < version) {
+            removeNear(id, current);
+        }
+    }
+
+    // DBから読み込んだ結果をキャッシュする
+    private void fill(User user) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        UserCacheEntry entry = UserCacheEntry.of(user);
+        if (isStale(entry)) {
+            staleFills.increment();
+            return;
+        }
+        sharedStore.putIfNewer(entry);
+        putNear(entry);
+    }
+
+    private void putNear(UserCacheEntry entry) {
+        if (isStale(entry)) {
+            staleFills.increment();
+            return;
+        }
+        if (nearEntries.size() >= nearMaxEntries) {
+            clearNear();
+        }
+        NearEntry nearEntry = new NearEntry(entry, clock.millis() + nearTtlMillis);
+        NearEntry stored = nearEntries.merge(entry.getId(), nearEntry,
+                (current, candidate) -> current.entry.getVersion() > candidate.entry.getVersion() ? current : candidate);
+        if (stored == nearEntry) {
+            nearIdsByEmail.put(entry.getEmail().toLowerCase(Locale.ROOT), entry.getId());
+        }
+    }
+
+    private Optional<UserCacheEntry> nearEntry(Long id) {
+        NearEntry nearEntry = nearEntries.get(id);
+        if (nearEntry == null) {
+            return Optional.empty();
+        }
+        if (nearEntry.expiresAtMillis <= clock.millis()) {
+            removeNear(id, nearEntry);
+            return Optional.empty();
+        }
+        return Optional.of(nearEntry.entry);
+    }
+
+    private void removeNear(Long id, NearEntry nearEntry) {
+        if (nearEntries.remove(id, nearEntry)) {
+            nearIdsByEmail.remove(nearEntry.entry.getEmail().toLowerCase(Locale.ROOT), id);
+        }
+    }
+
+    private void clearNear() {
+        log.debug("Near cache reached {} entries, clearing", nearMaxEntries);
+        nearEntries.clear();
+        nearIdsByEmail.clear();
+    }
+
+    private boolean isStale(UserCacheEntry entry) {
+        Long floor = versionFloors.get(entry.getId());
+        return floor != null && entry.getVersion() < floor;
+    }
+
+    private static boolean matchesEmail(UserCacheEntry entry, String email) {
+        return entry.getEmail().toLowerCase(Locale.ROOT).equals(email);
+    }
+
+    private static Optional<User> toUser(UserCacheEntry entry) {
+        return entry.isDeleted() ? Optional.empty() : Optional.of(entry.toUser());
+    }
+
+    private static final class NearEntry {
+
+        private final UserCacheEntry entry;
+        private final long expiresAtMillis;
+
+        private NearEntry(UserCacheEntry entry, long expiresAtMillis) {
+            this.entry = entry;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.UUID;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ユーザーの2層キャッシュの構成
+ * 
+ * 共有キャッシュと無効化のブローカーは、Beanが定義されていなければプロセス内の実装を使う。
+ * 複数ノードで運用する場合はRedisなどを使った実装をBeanとして定義する。
+ * app.cache-warmup.enabled=trueの場合は、ホットキーを記録して起動時にキャッシュへ読み込む。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.user-cache", name = "enabled", havingValue = "true")
+public class UserCacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SharedUserStore sharedUserStore(UserCacheProperties properties) {
+        return new InMemorySharedUserStore(properties.getSharedTtl(), Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public UserInvalidationBus userInvalidationBus() {
+        return new InMemoryUserInvalidationBus();
+    }
+
+    @Bean
+    public TwoTierUserCache twoTierUserCache(UserCacheProperties properties, SharedUserStore sharedUserStore,
+            UserInvalidationBus userInvalidationBus, MeterRegistry meterRegistry) {
+        String nodeId = StringUtils.hasText(properties.getNodeId()) ? properties.getNodeId()
+                : UUID.randomUUID().toString();
+        return new TwoTierUserCache(nodeId, properties, sharedUserStore, userInvalidationBus, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.cache-warmup", name = "enabled", havingValue = "true")
+    public HotKeyTracker hotKeyTracker(CacheWarmupProperties warmupProperties) {
+        return new HotKeyTracker(warmupProperties.getMaxTrackedKeys());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.cache-warmup", name = "enabled", havingValue = "true")
+    public UserCacheWarmer userCacheWarmer(UserRepository userRepository, TwoTierUserCache twoTierUserCache,
+            HotKeyTracker hotKeyTracker, CacheWarmupProperties warmupProperties, UserCacheProperties properties,
+            MeterRegistry meterRegistry) {
+        return new UserCacheWarmer(userRepository, twoTierUserCache, hotKeyTracker,
+                new HotKeySnapshotFile(Path.of(warmupProperties.getSnapshotPath())), warmupProperties, properties,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,43 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.time.LocalDateTime;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * キャッシュに保持するユーザーのスナップショット
+ * 
+ * エンティティは変更可能なため、キャッシュには値をコピーして保持し、取り出すたびに新しいUserを作る。
+ * 削除済みのユーザーはトゥームストーン（deleted=true）として保持し、DBに問い合わせずに「存在しない」と返す。
+ */
+@Value
+public class UserCacheEntry {
+
+    Long id;
+    String name;
+    String email;
+    Integer age;
+    LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+    Long version;
+    boolean deleted;
+
+    public static UserCacheEntry of(User user) {
+        return new UserCacheEntry(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                user.getCreatedAt(), user.getUpdatedAt(), user.getVersion(), user.getDeletedAt() != null);
+    }
+
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .age(age)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,39 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * ユーザーの2層キャッシュ（ノード内のニアキャッシュと共有キャッシュ）の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.user-cache")
+public class UserCacheProperties {
+
+    // trueの場合にID・メールアドレス検索の結果をキャッシュする
+    private boolean enabled = false;
+
+    // 無効化メッセージで自ノードを識別する名前（未指定の場合は起動ごとにランダムに決める）
+    private String nodeId;
+
+    // ニアキャッシュの最大件数（超えた場合は全件を破棄する）
+    @Min(1)
+    @Max(10_000_000)
+    private int nearMaxEntries = 10_000;
+
+    // ニアキャッシュの有効期間（無効化メッセージを取りこぼした場合に古いデータを返し続ける上限）
+    @NotNull
+    private Duration nearTtl = Duration.ofSeconds(30);
+
+    // 共有キャッシュの有効期間
+    @NotNull
+    private Duration sharedTtl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,151 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.HotKey;
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.Kind;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ホットキーのスナップショットの定期保存と、起動時のキャッシュへの読み込み
+ *
+ * 起動時はスナップショットのアクセス回数の多い順に、batch-size件ずつINクエリでユーザーを読み込んでキャッシュする。
+ * ApplicationRunnerとして実行するため、gate-readiness=trueの場合は読み込みが終わるまで
+ * ReadinessがACCEPTING_TRAFFICにならない。budgetを超えた場合は残りを読み込まずに終える（実行中のバッチは待つ）。
+ */
+@Slf4j
+public class UserCacheWarmer implements ApplicationRunner, DisposableBean {
+
+    private final UserRepository userRepository;
+    private final TwoTierUserCache userCache;
+    private final HotKeyTracker tracker;
+    private final HotKeySnapshotFile snapshotFile;
+    private final CacheWarmupProperties properties;
+    private final int maxKeys;
+    private final MeterRegistry meterRegistry;
+
+    public UserCacheWarmer(UserRepository userRepository, TwoTierUserCache userCache, HotKeyTracker tracker,
+            HotKeySnapshotFile snapshotFile, CacheWarmupProperties properties, UserCacheProperties cacheProperties,
+            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.tracker = tracker;
+        this.snapshotFile = snapshotFile;
+        this.properties = properties;
+        // ニアキャッシュは最大件数に達すると全件を破棄するため、それを超えて読み込まない
+        this.maxKeys = Math.min(properties.getMaxKeys(), cacheProperties.getNearMaxEntries());
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (properties.isGateReadiness()) {
+            warmUp();
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "user-cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * スナップショットのキーをキャッシュへ読み込み、読み込んだユーザー数を返す
+     */
+    public int warmUp() {
+        List<HotKey> keys;
+        try {
+            keys = snapshotFile.read();
+        } catch (IOException e) {
+            log.warn("Could not read hot key snapshot {}, starting cold", snapshotFile.path(), e);
+            return 0;
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + properties.getBudget().toNanos();
+        List<HotKey> targets = keys.subList(0, Math.min(maxKeys, keys.size()));
+        int loaded = 0;
+        int processedKeys = 0;
+        boolean exceeded = false;
+        for (int from = 0; from < targets.size(); from += properties.getBatchSize()) {
+            if (System.nanoTime() - deadline >= 0) {
+                exceeded = true;
+                break;
+            }
+            List<HotKey> batch = targets.subList(from, Math.min(from + properties.getBatchSize(), targets.size()));
+            List<User> users = load(batch);
+            userCache.preload(users);
+            loaded += users.size();
+            processedKeys += batch.size();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        Timer.builder("users.cache.warmup")
+                .tag("outcome", exceeded ? "budget-exceeded" : "completed")
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("users.cache.warmup.users").increment(loaded);
+        log.info("Cache warm-up loaded {} users for {}/{} hot keys in {} ms{}", loaded, processedKeys, targets.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed), exceeded ? " (budget exceeded)" : "");
+        return loaded;
+    }
+
+    /**
+     * 現在のホットキーをスナップショットに保存する
+     */
+    @Scheduled(initialDelayString = "${app.cache-warmup.snapshot-interval:1m}",
+            fixedDelayString = "${app.cache-warmup.snapshot-interval:1m}")
+    public void writeSnapshot() {
+        List<HotKey> keys = tracker.snapshotAndDecay(properties.getMaxKeys());
+        if (keys.isEmpty()) {
+            // 起動直後でまだアクセスがない場合に、前回のスナップショットを空で上書きしない
+            return;
+        }
+        try {
+            snapshotFile.write(keys);
+        } catch (IOException e) {
+            log.warn("Could not write hot key snapshot {}", snapshotFile.path(), e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // 停止時にも保存し、次の起動で直前のアクセス傾向を使えるようにする
+        writeSnapshot();
+    }
+
+    private List<User> load(List<HotKey> batch) {
+        List<Long> ids = new ArrayList<>();
+        List<String> emails = new ArrayList<>();
+        for (HotKey key : batch) {
+            if (key.kind() == Kind.ID) {
+                ids.add(Long.valueOf(key.key()));
+            } else {
+                emails.add(key.key());
+            }
+        }
+        List<User> users = new ArrayList<>(batch.size());
+        if (!ids.isEmpty()) {
+            users.addAll(userRepository.findAllById(ids));
+        }
+        if (!emails.isEmpty()) {
+            users.addAll(userRepository.findByEmailIn(emails));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,17 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import lombok.Value;
+
+/**
+ * ユーザーの更新・削除を全ノードに知らせる無効化メッセージ
+ * 
+ * versionは更新後のバージョン。受信したノードはこれより古いキャッシュを破棄し、以後も古いバージョンをキャッシュしない。
+ */
+@Value
+public class UserInvalidation {
+
+    String sourceNodeId;
+    Long id;
+    String email;
+    long version;
+}
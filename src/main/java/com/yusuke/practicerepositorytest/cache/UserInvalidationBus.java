@@ -0,0 +1,15 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 無効化メッセージを全ノードへ配信するブローカー（Redis Pub/Subなどを想定）
+ * 
+ * 配信は最善努力でよい。取りこぼした場合もニアキャッシュの有効期間が過ぎれば共有キャッシュから読み直される。
+ */
+public interface UserInvalidationBus {
+
+    void publish(UserInvalidation invalidation);
+
+    void subscribe(Consumer<UserInvalidation> listener);
+}
@@ -0,0 +1,85 @@
+package com.yusuke.practicerepositorytest.change;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.entity.AllUser;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.AllUserRepository;
+
+/**
+ * ウォーターマーク以降のユーザーの変更を差分同期のクエリで取り込む
+ *
+ * 毎回ウォーターマークと読み直しの境界（DBの現在時刻からoverlapを引いた時刻）の早い方から読み直し、ウォーターマークより
+ * 古い更新日時で後からコミットされた行も取りこぼさない。境界より前の行は読み直さないため、更新がなければ何も読まない。
+ * 読み直した行は再び渡されるため、取り込む側は版数を比較するなど冪等に反映する。
+ * ウォーターマークは前にだけ進める。スレッドセーフではないため、取り込む側で同期する。
+ */
+public class ChangeFeedFollower {
+
+    private final AllUserRepository allUserRepository;
+    private final Supplier<LocalDateTime> horizon;
+    private final int batchSize;
+
+    private ChangeWatermark watermark;
+
+    ChangeFeedFollower(AllUserRepository allUserRepository, Supplier<LocalDateTime> horizon, int batchSize,
+            ChangeWatermark from) {
+        this.allUserRepository = allUserRepository;
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+        this.watermark = from;
+    }
+
+    /**
+     * 取り込んだ最新の変更のウォーターマーク
+     */
+    public ChangeWatermark watermark() {
+        return watermark;
+    }
+
+    /**
+     * 現在の読み直しの境界のウォーターマーク（これより前の更新日時の行は後からコミットされない）
+     *
+     * 全件スキャンの開始前に求めてスキャンの後にrestartFromへ渡すと、スキャン中にコミットされた行を取りこぼさない。
+     */
+    public ChangeWatermark horizon() {
+        return new ChangeWatermark(horizon.get(), 0L);
+    }
+
+    /**
+     * ウォーターマークを置き換える（全件スキャンで構築した後に、スキャンの開始前の読み直しの境界から取り込む場合など）
+     */
+    public void restartFrom(ChangeWatermark from) {
+        watermark = from;
+    }
+
+    /**
+     * 変更を古い順にconsumerへ渡し、読み込んだ件数（さかのぼって読み直した行を含む）を返す
+     */
+    public long poll(Consumer<User> consumer) {
+        ChangeWatermark cursor = watermark.rewindTo(horizon.get(), ChangeWatermark.initial());
+        long read = 0;
+        while (true) {
+            List<User> changes = allUserRepository.findChangesSince(cursor.getUpdatedAt(), cursor.getId(), batchSize)
+                    .stream()
+                    .map(AllUser::toUser)
+                    .toList();
+            changes.forEach(consumer);
+            read += changes.size();
+            if (!changes.isEmpty()) {
+                User last = changes.get(changes.size() - 1);
+                cursor = new ChangeWatermark(last.getUpdatedAt(), last.getId());
+                if (cursor.isAfter(watermark)) {
+                    watermark = cursor;
+                }
+            }
+            if (changes.size() < batchSize) {
+                return read;
+            }
+        }
+    }
+}
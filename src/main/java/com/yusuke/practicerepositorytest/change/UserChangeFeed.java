@@ -0,0 +1,27 @@
+package com.yusuke.practicerepositorytest.change;
+
+import org.springframework.stereotype.Component;
+
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.repository.AllUserRepository;
+import com.yusuke.practicerepositorytest.service.ChangeFeedHorizon;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 差分同期のクエリ（削除済み・アーカイブ済みを含む）でユーザーの変更を取り込むフォロワーを作る
+ */
+@Component
+@RequiredArgsConstructor
+public class UserChangeFeed {
+
+    private final AllUserRepository allUserRepository;
+    private final ChangeFeedHorizon horizon;
+
+    /**
+     * fromより後の変更をbatchSize件ずつ取り込むフォロワー（読み直しの境界はChangeFeedHorizon）
+     */
+    public ChangeFeedFollower follow(ChangeWatermark from, int batchSize) {
+        return new ChangeFeedFollower(allUserRepository, horizon::current, batchSize, from);
+    }
+}
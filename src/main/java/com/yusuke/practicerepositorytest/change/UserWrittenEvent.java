@@ -0,0 +1,18 @@
+package com.yusuke.practicerepositorytest.change;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * このノードでのユーザーの作成・更新・削除（論理削除）
+ *
+ * UserServiceが書き込みのトランザクションの中で発行する。インデックス・キャッシュは@TransactionalEventListenerで
+ * コミット後に受け取り、ロールバックされた書き込みは反映しない（トランザクションの外で発行された場合はすぐに受け取る）。
+ * バージョンはフラッシュ時に確定するため、受け取った側はコミット後に読み取る。
+ */
+@Value
+public class UserWrittenEvent {
+
+    User user;
+}
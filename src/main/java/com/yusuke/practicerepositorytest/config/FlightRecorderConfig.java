@@ -0,0 +1,70 @@
+package com.yusuke.practicerepositorytest.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import com.yusuke.practicerepositorytest.jfr.FlightRecorderEndpoint;
+import com.yusuke.practicerepositorytest.jfr.FlightRecorderProperties;
+import com.yusuke.practicerepositorytest.jfr.FlightRecordingManager;
+import com.yusuke.practicerepositorytest.jfr.JfrRequestInterceptor;
+import com.yusuke.practicerepositorytest.jfr.JfrSessionEventListener;
+import com.yusuke.practicerepositorytest.jfr.JfrStatementInspector;
+import com.yusuke.practicerepositorytest.jfr.TimedArgumentResolver;
+
+/**
+ * リクエストの各段階のJFRイベントをコントローラー・Hibernateへ組み込み、記録を操作するエンドポイントを登録する設定クラス
+ *
+ * イベントは記録中でなければ発行されないため、組み込んだままでもオーバーヘッドはほとんどない。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.jfr", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class FlightRecorderConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new JfrRequestInterceptor()).addPathPatterns("/api/users/**");
+    }
+
+    @Bean
+    public static BeanPostProcessor jfrArgumentResolverPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // 既定の引数リゾルバーは初期化時に登録されるため、その後で計測用に包み直す
+                if (bean instanceof RequestMappingHandlerAdapter adapter && adapter.getArgumentResolvers() != null) {
+                    adapter.setArgumentResolvers(adapter.getArgumentResolvers().stream()
+                            .<HandlerMethodArgumentResolver>map(TimedArgumentResolver::new)
+                            .toList());
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer jfrHibernateCustomizer() {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new JfrStatementInspector());
+            hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                    JfrSessionEventListener.class.getName());
+        };
+    }
+
+    @Bean
+    public FlightRecordingManager flightRecordingManager(FlightRecorderProperties properties) {
+        return new FlightRecordingManager(properties);
+    }
+
+    @Bean
+    public FlightRecorderEndpoint flightRecorderEndpoint(FlightRecordingManager flightRecordingManager) {
+        return new FlightRecorderEndpoint(flightRecordingManager);
+    }
+}
@@ -0,0 +1,111 @@
+package com.yusuke.practicerepositorytest.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * JdbcTuningPropertiesをHikariCP、MySQL Connector/J、Hibernateへ適用する設定クラス
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.jdbc", name = "tuning-enabled", havingValue = "true")
+public class JdbcTuningConfig {
+
+    private static final int DEFAULT_MAX_REQUEST_THREADS = 200;
+
+    /**
+     * プールの接続数を自動算出する
+     * 
+     * HikariCPの推奨式 (コア数 * 2) + 有効スピンドル数 を基準にする。
+     * プラットフォームスレッドではリクエストスレッド数を超える接続は使われないため、その数で頭打ちにする。
+     * 仮想スレッドでは同時実行数の上限がプールだけになるため、推奨式の値をそのまま使う。
+     */
+    public static int autoPoolSize(int cores, boolean virtualThreads, int maxRequestThreads) {
+        int size = cores * 2 + 1;
+        if (!virtualThreads) {
+            size = Math.min(size, maxRequestThreads);
+        }
+        return Math.max(size, 2);
+    }
+
+    /**
+     * 設定と実行環境から決まるプールの最大接続数
+     */
+    public static int resolvePoolSize(JdbcTuningProperties properties, Environment environment) {
+        if (properties.getMaximumPoolSize() != null) {
+            return properties.getMaximumPoolSize();
+        }
+        boolean virtualThreads = environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false);
+        int maxRequestThreads = environment.getProperty("server.tomcat.threads.max", Integer.class,
+                DEFAULT_MAX_REQUEST_THREADS);
+        return autoPoolSize(Runtime.getRuntime().availableProcessors(), virtualThreads, maxRequestThreads);
+    }
+
+    @Bean
+    public static BeanPostProcessor hikariTuningPostProcessor(ObjectProvider<JdbcTuningProperties> properties,
+            Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                // プールは最初の接続取得時に開始されるため、この時点であれば設定を変更できる
+                if (bean instanceof HikariDataSource dataSource) {
+                    applyPoolSettings(dataSource, properties.getObject(), environment);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcTuningHibernateCustomizer(JdbcTuningProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.STATEMENT_BATCH_SIZE, properties.getBatchSize());
+            if (properties.getFetchSize() > 0) {
+                hibernateProperties.put(AvailableSettings.STATEMENT_FETCH_SIZE, properties.getFetchSize());
+            }
+            hibernateProperties.put(AvailableSettings.ORDER_INSERTS, properties.isOrderInserts());
+            hibernateProperties.put(AvailableSettings.ORDER_UPDATES, properties.isOrderUpdates());
+            hibernateProperties.put(AvailableSettings.BATCH_VERSIONED_DATA, true);
+        };
+    }
+
+    @Bean
+    public JdbcTuningEndpoint jdbcTuningEndpoint(JdbcTuningProperties properties, Environment environment,
+            ObjectProvider<HikariDataSource> dataSource,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new JdbcTuningEndpoint(properties, environment, dataSource, meterRegistry);
+    }
+
+    static void applyPoolSettings(HikariDataSource dataSource, JdbcTuningProperties properties,
+            Environment environment) {
+        int poolSize = resolvePoolSize(properties, environment);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(properties.getMinimumIdle() != null ? properties.getMinimumIdle() : poolSize);
+        dataSource.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+
+        String jdbcUrl = dataSource.getJdbcUrl();
+        if (jdbcUrl == null || !jdbcUrl.startsWith("jdbc:mysql:")) {
+            return;
+        }
+        dataSource.addDataSourceProperty("cachePrepStmts", properties.isCachePreparedStatements());
+        dataSource.addDataSourceProperty("prepStmtCacheSize", properties.getPreparedStatementCacheSize());
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", properties.getPreparedStatementCacheSqlLimit());
+        dataSource.addDataSourceProperty("useServerPrepStmts", properties.isServerPreparedStatements());
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", properties.isRewriteBatchedStatements());
+        dataSource.addDataSourceProperty("useCursorFetch", properties.isCursorFetch());
+        dataSource.addDataSourceProperty("useLocalSessionState", true);
+        dataSource.addDataSourceProperty("cacheResultSetMetadata", true);
+        dataSource.addDataSourceProperty("cacheServerConfiguration", true);
+        dataSource.addDataSourceProperty("elideSetAutoCommits", true);
+        dataSource.addDataSourceProperty("maintainTimeStats", false);
+    }
+}
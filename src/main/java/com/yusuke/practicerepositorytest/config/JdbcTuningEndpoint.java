@@ -0,0 +1,122 @@
+package com.yusuke.practicerepositorytest.config;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * JDBCチューニングの設定値と実行時の統計を返すActuatorエンドポイント（/actuator/jdbc）
+ */
+@Endpoint(id = "jdbc")
+public class JdbcTuningEndpoint {
+
+    private final JdbcTuningProperties properties;
+    private final Environment environment;
+    private final ObjectProvider<HikariDataSource> dataSource;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public JdbcTuningEndpoint(JdbcTuningProperties properties, Environment environment,
+            ObjectProvider<HikariDataSource> dataSource, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.environment = environment;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings());
+        report.put("pool", poolStatistics());
+        report.put("serverStatements", serverStatementStatistics());
+        return report;
+    }
+
+    private Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("maximumPoolSize", JdbcTuningConfig.resolvePoolSize(properties, environment));
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        settings.put("virtualThreads", environment.getProperty("spring.threads.virtual.enabled", "false"));
+        settings.put("connectionTimeout", properties.getConnectionTimeout().toString());
+        settings.put("cachePreparedStatements", properties.isCachePreparedStatements());
+        settings.put("preparedStatementCacheSize", properties.getPreparedStatementCacheSize());
+        settings.put("preparedStatementCacheSqlLimit", properties.getPreparedStatementCacheSqlLimit());
+        settings.put("serverPreparedStatements", properties.isServerPreparedStatements());
+        settings.put("rewriteBatchedStatements", properties.isRewriteBatchedStatements());
+        settings.put("batchSize", properties.getBatchSize());
+        settings.put("fetchSize", properties.getFetchSize());
+        settings.put("cursorFetch", properties.isCursorFetch());
+        settings.put("orderInserts", properties.isOrderInserts());
+        settings.put("orderUpdates", properties.isOrderUpdates());
+        return settings;
+    }
+
+    private Map<String, Object> poolStatistics() {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        HikariDataSource hikari = dataSource.getIfAvailable();
+        if (hikari != null && hikari.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+            pool.put("active", mxBean.getActiveConnections());
+            pool.put("idle", mxBean.getIdleConnections());
+            pool.put("total", mxBean.getTotalConnections());
+            pool.put("threadsAwaitingConnection", mxBean.getThreadsAwaitingConnection());
+        }
+
+        // 接続取得の待ち時間（HikariCPがMicrometerへ記録する）
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        Timer acquire = registry == null ? null : registry.find("hikaricp.connections.acquire").timer();
+        if (acquire != null) {
+            pool.put("acquireCount", acquire.count());
+            pool.put("acquireMeanMillis", acquire.mean(TimeUnit.MILLISECONDS));
+            pool.put("acquireMaxMillis", acquire.max(TimeUnit.MILLISECONDS));
+        }
+        return pool;
+    }
+
+    /**
+     * MySQLサーバー全体のプリペアドステートメントの統計
+     *
+     * SHOW GLOBAL STATUSの値のため、このプールだけでなく同じサーバーへ接続する全クライアントの合計になる
+     * （サーバーの起動からの累計）。Connector/Jのクライアント側キャッシュのヒット率は含まない。
+     */
+    private Map<String, Object> serverStatementStatistics() {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        HikariDataSource hikari = dataSource.getIfAvailable();
+        if (hikari == null || hikari.getJdbcUrl() == null || !hikari.getJdbcUrl().startsWith("jdbc:mysql:")) {
+            return cache;
+        }
+        try {
+            Map<String, Long> status = new HashMap<>();
+            List<Map<String, Object>> rows = new JdbcTemplate(hikari).queryForList(
+                    "SHOW GLOBAL STATUS WHERE Variable_name IN"
+                            + " ('Com_stmt_prepare', 'Com_stmt_execute', 'Com_stmt_close', 'Prepared_stmt_count')");
+            for (Map<String, Object> row : rows) {
+                status.put(String.valueOf(row.get("Variable_name")), Long.valueOf(String.valueOf(row.get("Value"))));
+            }
+            long prepares = status.getOrDefault("Com_stmt_prepare", 0L);
+            long executes = status.getOrDefault("Com_stmt_execute", 0L);
+            cache.put("scope", "server-wide");
+            cache.putAll(status);
+            // サーバー全体での再利用率（実行のうち準備を伴わなかった割合）
+            cache.put("serverReuseRate", executes == 0 ? 0.0 : Math.max(0.0, 1.0 - (double) prepares / executes));
+        } catch (DataAccessException e) {
+            cache.put("error", e.getMostSpecificCause().getMessage());
+        }
+        return cache;
+    }
+}
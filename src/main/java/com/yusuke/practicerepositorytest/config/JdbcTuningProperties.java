@@ -0,0 +1,78 @@
+package com.yusuke.practicerepositorytest.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * コネクションプールとJDBCドライバーのチューニング設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.jdbc")
+public class JdbcTuningProperties {
+
+    // trueの場合にJdbcTuningConfigで設定を適用する
+    private boolean tuningEnabled = false;
+
+    // プールの最大接続数。未指定の場合はCPUコア数と実行モデルから自動算出する
+    @Min(1)
+    @Max(500)
+    private Integer maximumPoolSize;
+
+    // 最小アイドル接続数。未指定の場合は最大接続数と同じ（固定サイズのプール）
+    @Min(0)
+    private Integer minimumIdle;
+
+    @NotNull
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    // MySQL Connector/J: cachePrepStmts / prepStmtCacheSize / prepStmtCacheSqlLimit
+    private boolean cachePreparedStatements = true;
+
+    @Min(0)
+    @Max(10_000)
+    private int preparedStatementCacheSize = 250;
+
+    @Min(256)
+    @Max(65_536)
+    private int preparedStatementCacheSqlLimit = 2048;
+
+    // MySQL Connector/J: useServerPrepStmts
+    private boolean serverPreparedStatements = true;
+
+    // MySQL Connector/J: rewriteBatchedStatements（バッチINSERTを複数行INSERTに書き換える）
+    private boolean rewriteBatchedStatements = true;
+
+    // Hibernate: hibernate.jdbc.batch_size
+    // IDENTITY採番のエンティティはHibernateがINSERTをバッチ化しないため、主にUPDATE/DELETEとJDBC直接のバッチに効く
+    @Min(1)
+    @Max(1000)
+    private int batchSize = 50;
+
+    // Hibernate: hibernate.jdbc.fetch_size（0の場合は設定しない）
+    // MySQL Connector/Jは既定で結果を全件読み込み、fetchSizeを無視する。MySQLではcursorFetchと組み合わせたときだけ効く
+    @Min(0)
+    @Max(100_000)
+    private int fetchSize = 0;
+
+    // MySQL Connector/J: useCursorFetch（fetchSizeを指定したクエリをサーバー側カーソルで少しずつ読む）
+    // fetchSizeを指定した全クエリで往復が増えるため、大量の結果を読むことが多い場合だけ有効にする
+    private boolean cursorFetch = false;
+
+    // Hibernate: hibernate.order_inserts / hibernate.order_updates
+    private boolean orderInserts = true;
+    private boolean orderUpdates = true;
+
+    @AssertTrue(message = "minimumIdle must not exceed maximumPoolSize")
+    public boolean isMinimumIdleWithinPoolSize() {
+        return minimumIdle == null || maximumPoolSize == null || minimumIdle <= maximumPoolSize;
+    }
+}
@@ -1,10 +1,24 @@
 package com.yusuke.practicerepositorytest.config;
 
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
+import com.yusuke.practicerepositorytest.service.QueryGuardrailProperties;
+
 @Configuration
 @EnableJpaAuditing
 public class JpaConfig {
     // JPA Auditingを有効にするための設定クラス
-}
\ No newline at end of file
+
+    /**
+     * 全てのクエリにJDBCのクエリタイムアウト（Statement#setQueryTimeout）を適用する
+     */
+    @Bean
+    public HibernatePropertiesCustomizer queryTimeoutCustomizer(QueryGuardrailProperties guardrailProperties) {
+        // jakarta.persistence.query.timeoutはミリ秒で指定する
+        return hibernateProperties -> hibernateProperties.put("jakarta.persistence.query.timeout",
+                guardrailProperties.getQueryTimeout().toMillis());
+    }
+}
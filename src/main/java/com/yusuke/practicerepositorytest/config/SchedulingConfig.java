@@ -0,0 +1,10 @@
+package com.yusuke.practicerepositorytest.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // バックグラウンドの定期処理（@Scheduled）を有効にするための設定クラス
+}
@@ -0,0 +1,40 @@
+package com.yusuke.practicerepositorytest.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 起動完了と最初のリクエスト処理までの時間をログに出力する
+ */
+@Slf4j
+@Component
+public class StartupTimeReporter {
+
+    private final AtomicBoolean firstRequestHandled = new AtomicBoolean();
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        log.info("Application ready: context {} ms, JVM uptime {} ms (AOT: {})",
+                event.getTimeTaken().toMillis(), jvmUptime(), AotDetector.useGeneratedArtifacts());
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestHandled.compareAndSet(false, true)) {
+            log.info("First request handled: JVM uptime {} ms ({} {})",
+                    jvmUptime(), event.getMethod(), event.getRequestUrl());
+        }
+    }
+
+    private static long jvmUptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,22 @@
+package com.yusuke.practicerepositorytest.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.yusuke.practicerepositorytest.web.TrafficControlInterceptor;
+
+import lombok.RequiredArgsConstructor;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final TrafficControlInterceptor trafficControlInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // レートリミットと同時実行数制限はユーザーAPIにのみ適用する
+        registry.addInterceptor(trafficControlInterceptor).addPathPatterns("/api/users/**");
+    }
+}
@@ -0,0 +1,34 @@
+package com.yusuke.practicerepositorytest.controller;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.yusuke.practicerepositorytest.service.QueryGuardrails;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * タイムアウトで中断されたクエリを503として返し、メトリクスに記録する
+ */
+@Slf4j
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class QueryGuardrailExceptionHandler {
+
+    private final QueryGuardrails guardrails;
+
+    @ExceptionHandler({ QueryTimeoutException.class, jakarta.persistence.QueryTimeoutException.class })
+    public ResponseEntity<Void> handleQueryTimeout(RuntimeException e, HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern == null ? "unknown" : pattern.toString();
+        log.warn("Query timed out: {} {}", request.getMethod(), endpoint);
+        guardrails.recordTimeout(endpoint);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+}
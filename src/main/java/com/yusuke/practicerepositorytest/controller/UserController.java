@@ -1,12 +1,18 @@
 package com.yusuke.practicerepositorytest.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,9 +23,26 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.dto.DuplicateCandidate;
+import com.yusuke.practicerepositorytest.dto.DuplicateCluster;
+import com.yusuke.practicerepositorytest.dto.EmailExistence;
+import com.yusuke.practicerepositorytest.dto.UserChanges;
+import com.yusuke.practicerepositorytest.dto.UserImportResult;
+import com.yusuke.practicerepositorytest.dto.UserSuggestion;
+import com.yusuke.practicerepositorytest.duplicate.DuplicateDetectionProperties;
 import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.index.SuggestIndexProperties;
+import com.yusuke.practicerepositorytest.service.QueryGuardrails;
 import com.yusuke.practicerepositorytest.service.UserService;
+import com.yusuke.practicerepositorytest.service.UserVersionConflictException;
+import com.yusuke.practicerepositorytest.web.CompressedPayload;
+import com.yusuke.practicerepositorytest.web.CompressedResponseCache;
+import com.yusuke.practicerepositorytest.web.ContentEncoding;
+import com.yusuke.practicerepositorytest.web.HttpCacheSupport;
 
 import lombok.RequiredArgsConstructor;
 
@@ -28,95 +51,198 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class UserController {
 
+    private static final int MAX_CHANGES_LIMIT = 1000;
+    private static final int ALL_USERS_CHUNK_SIZE = 1000;
+
+    static final String TRUNCATED_HEADER = "X-Result-Truncated";
+    static final String LIMIT_HEADER = "X-Result-Limit";
+    static final String NEXT_AFTER_ID_HEADER = "X-Next-After-Id";
+
     private final UserService userService;
+    private final HttpCacheSupport httpCache;
+    private final QueryGuardrails guardrails;
+    private final SuggestIndexProperties suggestProperties;
+    private final DuplicateDetectionProperties duplicateProperties;
+    private final CompressedResponseCache compressedCache;
 
     /**
-     * 全てのユーザーを取得
+     * 全てのユーザーを取得（IDのキーセットでページ分割。続きはX-Next-After-IdをafterIdに指定して取得する）
      */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.findAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<Iterable<User>> getAllUsers(
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(required = false) Integer limit,
+            WebRequest request) {
+        String endpoint = "all-users";
+        int pageLimit = limit == null ? guardrails.maxRows() : guardrails.clampRows(limit, endpoint);
+
+        String etag = httpCache.collectionETag(request);
+        if (httpCache.isNotModified(request, etag)) {
+            return httpCache.notModified(etag, endpoint);
+        }
+
+        // ストリーミング出力の前にヘッダーを確定させるため、ページの境界だけ先に求める
+        Optional<Long> nextAfterId = userService.findNextAfterId(afterId, pageLimit);
+        ResponseEntity.BodyBuilder builder = httpCache.okBuilder(etag, endpoint)
+                .header(TRUNCATED_HEADER, Boolean.toString(nextAfterId.isPresent()))
+                .header(LIMIT_HEADER, Integer.toString(pageLimit));
+        nextAfterId.ifPresent(id -> {
+            guardrails.recordTruncated(endpoint);
+            builder.header(NEXT_AFTER_ID_HEADER, id.toString());
+        });
+
+        // チャンク単位で取得しながらレスポンスへ逐次書き出す
+        return builder.body(userService.iterateUsers(afterId, pageLimit, ALL_USERS_CHUNK_SIZE));
     }
 
     /**
      * IDでユーザーを取得
      */
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
+    public ResponseEntity<User> getUserById(@PathVariable Long id, WebRequest request) {
+        // 読み込んだバージョンのETagで比較し、一致すればボディを返さない
         Optional<User> user = userService.findUserById(id);
-        return user.map(ResponseEntity::ok)
+        return user.map(u -> httpCache.conditional(request, httpCache.userETag(u, request), "user-by-id", u))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * 差分同期 - ウォーターマーク以降に変更・削除されたユーザーを取得
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<UserChanges> getUserChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "100") int limit) {
+        ChangeWatermark watermark;
+        try {
+            watermark = ChangeWatermark.parse(since);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_CHANGES_LIMIT));
+        UserChanges changes = userService.findUserChangesSince(watermark, boundedLimit);
+        return ResponseEntity.ok(changes);
+    }
+
     /**
      * メールアドレスでユーザーを取得
      */
     @GetMapping("/email/{email}")
-    public ResponseEntity<User> getUserByEmail(@PathVariable String email) {
+    public ResponseEntity<User> getUserByEmail(@PathVariable String email, WebRequest request) {
         Optional<User> user = userService.findUserByEmail(email);
-        return user.map(ResponseEntity::ok)
+        return user.map(u -> httpCache.conditional(request, httpCache.userETag(u, request), "user-by-email", u))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * メールアドレスが使用されているか（新規登録前の重複確認用）
+     */
+    @GetMapping("/email/{email}/exists")
+    public ResponseEntity<EmailExistence> emailExists(@PathVariable String email) {
+        return ResponseEntity.ok(new EmailExistence(email, userService.emailExists(email)));
+    }
+
+    /**
+     * 入力補完の候補（名前・メールアドレスの前方一致、幅・カナ・大文字小文字を区別しない）
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<UserSuggestion>> suggestUsers(@RequestParam String prefix,
+            @RequestParam(required = false) Integer limit) {
+        int maxResults = limit == null ? suggestProperties.getDefaultLimit()
+                : Math.max(1, Math.min(limit, suggestProperties.getMaxLimit()));
+        return ResponseEntity.ok(userService.suggestUsers(prefix, maxResults));
+    }
+
+    /**
+     * 重複アカウントの疑いがあるユーザーのまとまり（名前・メールアドレスのローカル部が似ているもの）
+     *
+     * 重複の検出が無効、またはインデックスを構築中の場合は503を返す。
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<List<DuplicateCluster>> getDuplicateClusters(@RequestParam(required = false) Integer limit) {
+        int maxClusters = limit == null ? duplicateProperties.getDefaultLimit()
+                : Math.max(1, Math.min(limit, duplicateProperties.getMaxLimit()));
+        return userService.findDuplicateClusters(maxClusters)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    /**
+     * 指定したユーザーと重複の疑いがあるユーザー
+     */
+    @GetMapping("/{id}/duplicates")
+    public ResponseEntity<List<DuplicateCandidate>> getDuplicatesOf(@PathVariable Long id) {
+        return userService.findDuplicatesOf(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
     /**
      * 名前で部分一致検索
      */
     @GetMapping("/search/name")
-    public ResponseEntity<List<User>> searchUsersByName(@RequestParam String name) {
-        List<User> users = userService.findUsersByNameContaining(name);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> searchUsersByName(@RequestParam String name, WebRequest request) {
+        return cappedCollection(request, "search-name",
+                () -> userService.findUsersByNameContaining(name, guardrails.maxRows()));
     }
 
     /**
      * 年齢で検索
      */
     @GetMapping("/search/age")
-    public ResponseEntity<List<User>> searchUsersByAge(@RequestParam Integer age) {
-        List<User> users = userService.findUsersByAge(age);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> searchUsersByAge(@RequestParam Integer age, WebRequest request) {
+        return cappedCollection(request, "search-age",
+                () -> userService.findUsersByAge(age, guardrails.maxRows()));
     }
 
     /**
      * Specificationを使用した動的クエリ - 名前で検索
      */
     @GetMapping("/spec/name")
-    public ResponseEntity<List<User>> searchUsersByNameSpec(@RequestParam String name) {
-        List<User> users = userService.findUsersByNameLike(name);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> searchUsersByNameSpec(@RequestParam String name, WebRequest request) {
+        return cappedCollection(request, "spec-name",
+                () -> userService.findUsersByNameLike(name, guardrails.maxRows()));
     }
 
     /**
      * Specificationを使用した動的クエリ - メールアドレスで検索
      */
     @GetMapping("/spec/email")
-    public ResponseEntity<List<User>> searchUsersByEmailSpec(@RequestParam String email) {
-        List<User> users = userService.findUsersByEmailLike(email);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> searchUsersByEmailSpec(@RequestParam String email, WebRequest request) {
+        return cappedCollection(request, "spec-email",
+                () -> userService.findUsersByEmailLike(email, guardrails.maxRows()));
     }
 
     /**
      * Specificationを使用した動的クエリ - 年齢範囲で検索
      */
     @GetMapping("/spec/age-range")
-    public ResponseEntity<List<User>> searchUsersByAgeRange(
+    public ResponseEntity<byte[]> searchUsersByAgeRange(
             @RequestParam(required = false) Integer minAge,
-            @RequestParam(required = false) Integer maxAge) {
-        List<User> users = userService.findUsersByAgeBetween(minAge, maxAge);
-        return ResponseEntity.ok(users);
+            @RequestParam(required = false) Integer maxAge,
+            WebRequest request) {
+        return cappedCollection(request, "spec-age-range",
+                () -> userService.findUsersByAgeBetween(minAge, maxAge, guardrails.maxRows()));
     }
 
     /**
      * Specificationを使用した動的クエリ - 複数条件で検索
+     * 
+     * アーカイブしたユーザーも検索する。createdFrom/createdTo（ISO形式の日時、from以上・to未満）を指定した場合は、
+     * その範囲にアーカイブしたユーザーが含まれうるときだけアーカイブを検索する。
      */
     @GetMapping("/spec/search")
-    public ResponseEntity<List<User>> searchUsers(
+    public ResponseEntity<byte[]> searchUsers(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String email,
             @RequestParam(required = false) Integer minAge,
-            @RequestParam(required = false) Integer maxAge) {
-        List<User> users = userService.searchUsers(name, email, minAge, maxAge);
-        return ResponseEntity.ok(users);
+            @RequestParam(required = false) Integer maxAge,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            WebRequest request) {
+        return cappedCollection(request, "spec-search", () -> userService.searchUsers(name, email, minAge, maxAge,
+                createdFrom, createdTo, guardrails.maxRows()));
     }
 
     /**
@@ -131,45 +257,78 @@ public class UserController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            WebRequest request) {
+
+        String endpoint = "spec-search-paged";
+        if (page < 0 || !guardrails.isSortAllowed(sortBy, endpoint)) {
+            return ResponseEntity.badRequest().build();
+        }
 
         Sort sort = sortDir.equalsIgnoreCase("desc")
                 ? Sort.by(sortBy).descending()
                 : Sort.by(sortBy).ascending();
 
-        Pageable pageable = PageRequest.of(page, size, sort);
-        Page<User> users = userService.searchUsersWithPagination(name, email, minAge, maxAge, pageable);
-        return ResponseEntity.ok(users);
+        Pageable pageable = PageRequest.of(page, guardrails.clampPageSize(size, endpoint), sort);
+        return httpCache.collection(request, endpoint,
+                () -> userService.searchUsersWithPagination(name, email, minAge, maxAge, pageable));
     }
 
     /**
      * 複数のSpecificationを組み合わせた検索
      */
     @GetMapping("/spec/combined")
-    public ResponseEntity<List<User>> searchUsersWithMultipleSpecs(
+    public ResponseEntity<byte[]> searchUsersWithMultipleSpecs(
             @RequestParam String name,
-            @RequestParam Integer minAge) {
-        List<User> users = userService.findUsersWithMultipleSpecifications(name, minAge);
-        return ResponseEntity.ok(users);
+            @RequestParam Integer minAge,
+            WebRequest request) {
+        return cappedCollection(request, "spec-combined",
+                () -> userService.findUsersWithMultipleSpecifications(name, minAge, guardrails.maxRows()));
     }
 
     /**
-     * ユーザーを作成
+     * ユーザーを作成（使用済みのメールアドレスの場合は409。論理削除・アーカイブしたユーザーのものを含む）
      */
     @PostMapping
-    public ResponseEntity<User> createUser(@RequestBody User user) {
-        User savedUser = userService.saveUser(user);
-        return ResponseEntity.ok(savedUser);
+    public ResponseEntity<User> createUser(@RequestBody User user, WebRequest request) {
+        try {
+            User savedUser = userService.saveUser(user);
+            return ResponseEntity.ok()
+                    .eTag(httpCache.userETag(savedUser, request))
+                    .body(savedUser);
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * ユーザーを一括登録（使用済みのメールアドレスのユーザーはスキップ）
+     */
+    @PostMapping("/import")
+    public ResponseEntity<UserImportResult> importUsers(@RequestBody List<User> users) {
+        return ResponseEntity.ok(userService.importUsers(users));
     }
 
     /**
      * ユーザーを更新
+     * 
+     * If-Matchを指定した場合はそのETagのバージョンのときだけ更新し、異なる場合は412を返す。
+     * 指定しない場合は最新の行に変更を適用し、競合が続いて再試行の上限に達した場合は409を返す。
+     * 使用済みのメールアドレスへの変更も409を返す。
      */
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
+    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails,
+            WebRequest request) {
         try {
-            User updatedUser = userService.updateUser(id, userDetails);
-            return ResponseEntity.ok(updatedUser);
+            User updatedUser = userService.updateUser(id, userDetails, httpCache.ifMatchVersion(id, request));
+            return ResponseEntity.ok()
+                    .eTag(httpCache.userETag(updatedUser, request))
+                    .body(updatedUser);
+        } catch (UserVersionConflictException e) {
+            return ResponseEntity.status(e.isPreconditionFailed() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .build();
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -183,4 +342,32 @@ public class UserController {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 行数上限付きの一覧を条件付きGETで返し、打ち切りの有無をヘッダーで通知する
+     * 
+     * ボディはシリアライズ・圧縮済みのバイト列で返し、同じ条件・同じテーブルのバージョンの再検索ではキャッシュから返す。
+     */
+    private ResponseEntity<byte[]> cappedCollection(WebRequest request, String endpoint,
+            Supplier<CappedList<User>> loader) {
+        String etag = httpCache.collectionETag(request);
+        if (httpCache.isNotModified(request, etag)) {
+            return httpCache.notModified(etag, endpoint);
+        }
+
+        CompressedPayload payload = compressedCache.get(request, endpoint, etag, httpCache.responseType(request),
+                loader);
+        if (payload.isTruncated()) {
+            guardrails.recordTruncated(endpoint);
+        }
+        boolean compressed = payload.getEncoding() != ContentEncoding.IDENTITY;
+        ResponseEntity.BodyBuilder builder = httpCache.okBuilder(compressed ? "W/" + etag : etag, endpoint)
+                .contentType(payload.getContentType())
+                .header(TRUNCATED_HEADER, Boolean.toString(payload.isTruncated()))
+                .header(LIMIT_HEADER, Integer.toString(payload.getLimit()));
+        if (compressed) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, payload.getEncoding().token());
+        }
+        return builder.body(payload.getBody());
+    }
+}
@@ -0,0 +1,29 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * 行数の上限で打ち切られた検索結果
+ */
+@Value
+public class CappedList<T> {
+
+    // 上限までの結果
+    List<T> content;
+
+    // 上限を超える結果があり、打ち切られたか
+    boolean truncated;
+
+    // 適用した上限
+    int limit;
+
+    /**
+     * 上限+1件まで取得した結果から打ち切りの有無を判定する
+     */
+    public static <T> CappedList<T> of(List<T> rows, int limit) {
+        boolean truncated = rows.size() > limit;
+        return new CappedList<>(truncated ? List.copyOf(rows.subList(0, limit)) : rows, truncated, limit);
+    }
+}
@@ -0,0 +1,77 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+import lombok.Value;
+
+/**
+ * 差分同期のウォーターマーク（updatedAt, id）
+ * 
+ * 文字列表現は "{updatedAt(ISO-8601)}_{id}"。idを省略したISO日時のみも受け付ける。
+ * 
+ * 更新日時はコミット前にアプリケーションで設定するため、先に採番された行が後からコミットされると、
+ * ウォーターマークを追い越した後に古い更新日時の行が現れる。取り込みが追いついたらrewindToで読み直しの境界まで戻して読み直す。
+ */
+@Value
+public class ChangeWatermark {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    LocalDateTime updatedAt;
+    long id;
+
+    /**
+     * 先頭から同期するためのウォーターマーク
+     */
+    public static ChangeWatermark initial() {
+        return new ChangeWatermark(EPOCH, 0L);
+    }
+
+    /**
+     * 文字列からウォーターマークを復元する
+     */
+    public static ChangeWatermark parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return initial();
+        }
+        String trimmed = value.trim();
+        int separator = trimmed.lastIndexOf('_');
+        try {
+            if (separator < 0) {
+                return new ChangeWatermark(LocalDateTime.parse(trimmed), 0L);
+            }
+            return new ChangeWatermark(
+                    LocalDateTime.parse(trimmed.substring(0, separator)),
+                    Long.parseLong(trimmed.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid watermark: " + value, e);
+        }
+    }
+
+    /**
+     * このウォーターマーク（最後に取り込んだ変更）と読み直しの境界（horizon）の早い方（floorより前には戻さない）
+     * 
+     * 境界より前の変更は後からコミットされないため、そこまで取り込んでいれば戻さない（同じ行を読み直し続けない）。
+     * 戻した範囲の行は再び返されるため、取り込む側はidとversionで重複を除く（古いバージョンでは上書きしない）。
+     */
+    public ChangeWatermark rewindTo(LocalDateTime horizon, ChangeWatermark floor) {
+        if (!updatedAt.isAfter(horizon)) {
+            return this;
+        }
+        return horizon.isAfter(floor.getUpdatedAt()) ? new ChangeWatermark(horizon, 0L) : floor;
+    }
+
+    /**
+     * このウォーターマークがotherより後か（(updatedAt, id)の順）
+     */
+    public boolean isAfter(ChangeWatermark other) {
+        int compared = updatedAt.compareTo(other.updatedAt);
+        return compared > 0 || compared == 0 && id > other.id;
+    }
+
+    @Override
+    public String toString() {
+        return updatedAt + "_" + id;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * 指定したユーザーと重複の疑いがあるユーザー
+ */
+@Value
+public class DuplicateCandidate {
+
+    User user;
+
+    // 一致率（推定Jaccard係数）
+    double similarity;
+}
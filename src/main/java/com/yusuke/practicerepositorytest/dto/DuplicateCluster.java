@@ -0,0 +1,20 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import java.util.List;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * 重複アカウントの疑いがあるユーザーのまとまり
+ */
+@Value
+public class DuplicateCluster {
+
+    // IDの昇順
+    List<User> users;
+
+    // まとまりの中で最も似ている組の一致率（推定Jaccard係数）
+    double similarity;
+}
@@ -0,0 +1,15 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import lombok.Value;
+
+/**
+ * メールアドレスの使用状況
+ */
+@Value
+public class EmailExistence {
+
+    String email;
+
+    // 論理削除済みのユーザーを含め、既に使用されているか
+    boolean exists;
+}
@@ -0,0 +1,24 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import java.util.List;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * 差分同期のレスポンス
+ */
+@Value
+public class UserChanges {
+
+    // (updatedAt, id)順の変更。deletedAtが設定されているものは削除済み
+    // 前回の最後の変更と同じバージョンの行が再び含まれうるため、idごとにversionの大きいものを採用する
+    List<User> changes;
+
+    // 次回リクエストのsinceに指定するウォーターマーク
+    String nextWatermark;
+
+    // 同じウォーターマーク以降に未取得の変更が残っているか
+    boolean hasMore;
+}
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import java.util.List;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import lombok.Value;
+
+/**
+ * 一括登録の結果
+ */
+@Value
+public class UserImportResult {
+
+    // 登録したユーザー
+    List<User> imported;
+
+    // 既に使用されている、または同じリクエスト内で重複していたため登録しなかったメールアドレス
+    List<String> duplicateEmails;
+
+    // Bloomフィルターで判定できずDBに問い合わせたメールアドレスの数
+    int databaseChecks;
+}
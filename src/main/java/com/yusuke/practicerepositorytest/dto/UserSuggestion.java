@@ -0,0 +1,28 @@
+package com.yusuke.practicerepositorytest.dto;
+
+import lombok.Value;
+
+/**
+ * 入力補完の候補
+ */
+@Value
+public class UserSuggestion {
+
+    public enum MatchedOn {
+        // 名前の先頭
+        NAME,
+        // 名前の2語目以降の先頭
+        NAME_WORD,
+        // メールアドレスの先頭
+        EMAIL
+    }
+
+    Long id;
+
+    String name;
+
+    String email;
+
+    // 入力に前方一致した項目
+    MatchedOn matchedOn;
+}
@@ -0,0 +1,85 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * MinHash/LSHによる重複ユーザーの検出の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.duplicates")
+public class DuplicateDetectionProperties {
+
+    // trueの場合に起動時に全件からインデックスを構築し、/api/users/duplicatesで候補を返す
+    private boolean enabled = false;
+
+    // シグネチャの長さ（ハッシュ関数の数）。bandsで割り切れる必要がある
+    @Min(1)
+    @Max(1024)
+    private int numHashes = 128;
+
+    // LSHのバンド数（多いほど一致率の低い組も候補になる）
+    @Min(1)
+    @Max(1024)
+    private int bands = 32;
+
+    // 重複とみなすシグネチャの一致率（推定Jaccard係数）の下限
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double similarityThreshold = 0.6;
+
+    // 名前・メールアドレスのローカル部の文字nグラムの長さ
+    @Min(1)
+    @Max(10)
+    private int nameShingleSize = 2;
+
+    @Min(1)
+    @Max(10)
+    private int emailShingleSize = 3;
+
+    // これより多くのユーザーが入ったバケットは比較しない（比較の回数が件数の2乗で増えるため）
+    @Min(2)
+    @Max(100_000)
+    private int maxBucketSize = 1000;
+
+    // 返すクラスタ数の既定値と上限
+    @Min(1)
+    @Max(10_000)
+    private int defaultLimit = 100;
+
+    @Min(1)
+    @Max(100_000)
+    private int maxLimit = 1000;
+
+    // 構築後に他ノードの更新を取り込む間隔
+    @NotNull
+    private Duration syncInterval = Duration.ofSeconds(30);
+
+    // 変更を取り込むときの1クエリあたりの件数
+    @Min(1)
+    @Max(100_000)
+    private int syncBatchSize = 10_000;
+
+    @AssertTrue(message = "num-hashes must be a multiple of bands")
+    public boolean isBandsDivideNumHashes() {
+        return numHashes % bands == 0;
+    }
+
+    /**
+     * 1バンドあたりの値の数
+     */
+    public int rows() {
+        return numHashes / bands;
+    }
+}
@@ -0,0 +1,325 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MinHashのシグネチャをバンドに分けてバケットに振り分けるLSH（locality-sensitive hashing）のインデックス
+ *
+ * シグネチャをbands個のバンド（各rows個の値）に分け、いずれかのバンドが一致したユーザーどうしを候補とする。
+ * Jaccard係数sの2人が候補となる確率は 1 - (1 - s^rows)^bands で、候補はシグネチャの一致率で絞り込む。
+ * 全組み合わせを比較せず、同じバケットに入ったユーザーだけを比較するため、件数にほぼ比例する時間で重複を探せる。
+ * max-bucket-sizeを超えたバケット（ありふれた名前など）は比較しない。
+ *
+ * 書き込みはバージョンで比較し、古いバージョンでは上書きしない。読み込みはロックを取らない。
+ */
+public class LshIndex {
+
+    /**
+     * 重複の候補
+     */
+    public record Match(long id, double similarity) {
+    }
+
+    /**
+     * 重複の候補どうしを推移的にまとめたクラスタ
+     *
+     * @param ids        ユーザーID（昇順）
+     * @param similarity クラスタ内の候補の組で最も高い一致率
+     */
+    public record Cluster(List<Long> ids, double similarity) {
+    }
+
+    private final int bands;
+    private final int rows;
+    private final int maxBucketSize;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    // バケットのキーごとの所属ユーザー（1人の場合はLong、2人以上の場合はSet<Long>として、大半を占める1人のバケットを小さく保つ）
+    private final Map<Long, Object> buckets = new ConcurrentHashMap<>();
+    // 削除したユーザーのバージョン（遅れて届いた古い書き込みで復活させない）
+    private final Map<Long, Long> deletedVersions = new ConcurrentHashMap<>();
+    private final AtomicLong skippedBuckets = new AtomicLong();
+
+    public LshIndex(int bands, int rows, int maxBucketSize) {
+        this.bands = bands;
+        this.rows = rows;
+        this.maxBucketSize = maxBucketSize;
+    }
+
+    /**
+     * ユーザーのシグネチャを登録・更新する（保持しているより古いバージョンは無視する）
+     */
+    public synchronized void put(long id, long version, int[] signature) {
+        if (isOlder(id, version)) {
+            return;
+        }
+        removeFromBuckets(id, entries.get(id));
+        deletedVersions.remove(id);
+        entries.put(id, new Entry(version, signature));
+        for (long key : bucketKeys(signature)) {
+            buckets.merge(key, id, (current, added) -> {
+                if (current instanceof Long single) {
+                    Set<Long> members = ConcurrentHashMap.newKeySet();
+                    members.add(single);
+                    members.add(id);
+                    return members;
+                }
+                members(current).add(id);
+                return current;
+            });
+        }
+    }
+
+    /**
+     * ユーザーを削除する（保持しているより古いバージョンは無視する）
+     */
+    public synchronized void remove(long id, long version) {
+        if (isOlder(id, version)) {
+            return;
+        }
+        removeFromBuckets(id, entries.remove(id));
+        deletedVersions.put(id, version);
+    }
+
+    /**
+     * 登録しているユーザー数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 直近のクラスタの計算で、大きすぎて比較しなかったバケットの数
+     */
+    public long skippedBuckets() {
+        return skippedBuckets.get();
+    }
+
+    /**
+     * ユーザーと一致率がthreshold以上の候補を一致率の高い順に返す
+     */
+    public List<Match> candidates(long id, double threshold) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return List.of();
+        }
+        Set<Long> seen = new HashSet<>();
+        List<Match> matches = new ArrayList<>();
+        for (long key : bucketKeys(entry.signature)) {
+            Object bucket = buckets.get(key);
+            if (!(bucket instanceof Set) || members(bucket).size() > maxBucketSize) {
+                continue;
+            }
+            for (Long other : members(bucket)) {
+                if (other == id || !seen.add(other)) {
+                    continue;
+                }
+                Entry otherEntry = entries.get(other);
+                if (otherEntry == null) {
+                    continue;
+                }
+                double similarity = MinHasher.similarity(entry.signature, otherEntry.signature);
+                if (similarity >= threshold) {
+                    matches.add(new Match(other, similarity));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed().thenComparingLong(Match::id));
+        return matches;
+    }
+
+    /**
+     * 一致率がthreshold以上の候補の組を推移的にまとめたクラスタを、大きい順・一致率の高い順に返す
+     *
+     * バケットごとの比較は並列に行う（共通プールを使用する）。バケット内でまとめた結果だけを全体に結合するため、
+     * 一致した組を全て保持せず、使用するメモリはユーザー数に比例する。
+     */
+    public List<Cluster> clusters(double threshold) {
+        AtomicLong skipped = new AtomicLong();
+        UnionFind unionFind = new UnionFind();
+        buckets.values().parallelStream()
+                .filter(bucket -> bucket instanceof Set)
+                .map(LshIndex::members)
+                .forEach(bucket -> {
+                    if (bucket.size() > maxBucketSize) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+                    List<Pair> edges = compareBucket(List.copyOf(bucket), threshold);
+                    if (!edges.isEmpty()) {
+                        synchronized (unionFind) {
+                            edges.forEach(edge -> unionFind.union(edge.a, edge.b, edge.similarity));
+                        }
+                    }
+                });
+        skippedBuckets.set(skipped.get());
+
+        List<Cluster> clusters = unionFind.clusters();
+        clusters.sort(Comparator.comparingInt((Cluster cluster) -> cluster.ids().size()).reversed()
+                .thenComparing(Comparator.comparingDouble(Cluster::similarity).reversed())
+                .thenComparingLong(cluster -> cluster.ids().get(0)));
+        return clusters;
+    }
+
+    // バケット内の全ての組を比較してまとめ、まとまりごとに代表と他のメンバーを結ぶ辺（一致率はまとまり内の最大値）を返す
+    private List<Pair> compareBucket(List<Long> ids, double threshold) {
+        int size = ids.size();
+        int[][] signatures = new int[size][];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(ids.get(i));
+            signatures[i] = entry == null ? null : entry.signature;
+        }
+        int[] parents = new int[size];
+        double[] similarities = new double[size];
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+        boolean matched = false;
+        for (int i = 0; i < size; i++) {
+            if (signatures[i] == null) {
+                continue;
+            }
+            for (int j = i + 1; j < size; j++) {
+                if (signatures[j] == null) {
+                    continue;
+                }
+                double similarity = MinHasher.similarity(signatures[i], signatures[j]);
+                if (similarity < threshold) {
+                    continue;
+                }
+                matched = true;
+                int rootI = findRoot(parents, i);
+                int rootJ = findRoot(parents, j);
+                int root = Math.min(rootI, rootJ);
+                parents[Math.max(rootI, rootJ)] = root;
+                similarities[root] = Math.max(similarity, Math.max(similarities[rootI], similarities[rootJ]));
+            }
+        }
+        if (!matched) {
+            return List.of();
+        }
+        List<Pair> edges = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            int root = findRoot(parents, i);
+            if (root != i) {
+                edges.add(new Pair(ids.get(root), ids.get(i), similarities[root]));
+            }
+        }
+        return edges;
+    }
+
+    private static int findRoot(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    // バンドの番号と値から求めたバケットのキー（衝突しても候補が増えるだけで、一致率で除かれる）
+    private long[] bucketKeys(int[] signature) {
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long hash = band;
+            for (int row = 0; row < rows; row++) {
+                hash = MinHasher.mix64(hash * 31 + signature[band * rows + row]);
+            }
+            keys[band] = hash;
+        }
+        return keys;
+    }
+
+    private void removeFromBuckets(long id, Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (long key : bucketKeys(entry.signature)) {
+            buckets.computeIfPresent(key, (k, current) -> {
+                if (current instanceof Long single) {
+                    return single == id ? null : current;
+                }
+                Set<Long> members = members(current);
+                members.remove(id);
+                return members.size() == 1 ? members.iterator().next() : members;
+            });
+        }
+    }
+
+    private boolean isOlder(long id, long version) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.version > version) {
+            return true;
+        }
+        Long deleted = deletedVersions.get(id);
+        return deleted != null && deleted > version;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long> members(Object bucket) {
+        return (Set<Long>) bucket;
+    }
+
+    private record Entry(long version, int[] signature) {
+    }
+
+    private record Pair(long a, long b, double similarity) {
+    }
+
+    private static class UnionFind {
+
+        private final Map<Long, Long> parents = new HashMap<>();
+        private final Map<Long, Double> similarities = new HashMap<>();
+
+        void union(long a, long b, double similarity) {
+            long rootA = find(a);
+            long rootB = find(b);
+            // 小さいIDを代表にする
+            long root = Math.min(rootA, rootB);
+            long child = Math.max(rootA, rootB);
+            double merged = Math.max(similarity, Math.max(similarities.getOrDefault(rootA, 0.0),
+                    similarities.getOrDefault(rootB, 0.0)));
+            if (root != child) {
+                parents.put(child, root);
+                similarities.remove(child);
+            }
+            similarities.put(root, merged);
+        }
+
+        long find(long id) {
+            long root = id;
+            Long parent;
+            while ((parent = parents.get(root)) != null) {
+                root = parent;
+            }
+            // 経路を圧縮する
+            long current = id;
+            while (current != root) {
+                long next = parents.get(current);
+                parents.put(current, root);
+                current = next;
+            }
+            return root;
+        }
+
+        List<Cluster> clusters() {
+            Map<Long, List<Long>> members = new HashMap<>();
+            for (Long id : parents.keySet()) {
+                members.computeIfAbsent(find(id), root -> new ArrayList<>()).add(id);
+            }
+            List<Cluster> clusters = new ArrayList<>(members.size());
+            members.forEach((root, ids) -> {
+                ids.add(root);
+                ids.sort(null);
+                clusters.add(new Cluster(List.copyOf(ids), similarities.get(root)));
+            });
+            return clusters;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.yusuke.practicerepositorytest.entity.UserTextNormalizer;
+
+/**
+ * 名前とメールアドレスのローカル部からMinHashのシグネチャを計算する
+ *
+ * 特徴量は、正規化した名前（UserTextNormalizer、空白を除く）の文字nグラムと、
+ * 小文字にしたローカル部（+以降のタグと . _ - を除く）の文字nグラムの和集合。
+ * 2人のシグネチャで値が一致する位置の割合は、特徴量の集合のJaccard係数の推定値となる。
+ * 状態を持たないため、複数のスレッドから呼び出せる。
+ */
+public class MinHasher {
+
+    // ハッシュ関数ごとのシードの間隔（黄金比の64ビット表現）
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final int numHashes;
+    private final int nameShingleSize;
+    private final int emailShingleSize;
+
+    public MinHasher(int numHashes, int nameShingleSize, int emailShingleSize) {
+        this.numHashes = numHashes;
+        this.nameShingleSize = nameShingleSize;
+        this.emailShingleSize = emailShingleSize;
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+
+    /**
+     * ユーザーのシグネチャ。特徴量がない場合はnull
+     */
+    public int[] signature(String name, String email) {
+        Set<String> features = features(name, email);
+        if (features.isEmpty()) {
+            return null;
+        }
+        int[] signature = new int[numHashes];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String feature : features) {
+            long base = hash64(feature);
+            for (int i = 0; i < numHashes; i++) {
+                int value = (int) (mix64(base + i * SEED_STEP) >>> 32);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * シグネチャから推定したJaccard係数
+     */
+    public static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    /**
+     * 特徴量の集合（名前とローカル部で同じnグラムが別の特徴量となるよう、種類を表す接頭辞を付ける）
+     */
+    Set<String> features(String name, String email) {
+        Set<String> features = new HashSet<>();
+        String normalizedName = UserTextNormalizer.normalizeName(name);
+        if (normalizedName != null) {
+            addShingles(features, "n:", normalizedName.replace(" ", ""), nameShingleSize);
+        }
+        addShingles(features, "e:", normalizeLocalPart(email), emailShingleSize);
+        return features;
+    }
+
+    /**
+     * ローカル部を正規化する（tanaka.taro+news@example.com → tanakataro）
+     */
+    static String normalizeLocalPart(String email) {
+        if (email == null) {
+            return "";
+        }
+        int at = email.lastIndexOf('@');
+        String local = (at < 0 ? email : email.substring(0, at)).toLowerCase(Locale.ROOT);
+        int tag = local.indexOf('+');
+        if (tag >= 0) {
+            local = local.substring(0, tag);
+        }
+        StringBuilder builder = new StringBuilder(local.length());
+        for (int i = 0; i < local.length(); i++) {
+            char c = local.charAt(i);
+            if (c != '.' && c != '_' && c != '-') {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    // nより短い文字列は全体を1つの特徴量とする
+    private static void addShingles(Set<String> features, String kind, String text, int n) {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (text.length() <= n) {
+            features.add(kind + text);
+            return;
+        }
+        for (int i = 0; i + n <= text.length(); i++) {
+            features.add(kind + text.substring(i, i + n));
+        }
+    }
+
+    // FNV-1a（String#hashCodeは32ビットで偏りが大きいため使わない）
+    private static long hash64(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // MurmurHash3の最終化関数
+    static long mix64(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,166 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.yusuke.practicerepositorytest.change.ChangeFeedFollower;
+import com.yusuke.practicerepositorytest.change.UserChangeFeed;
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.duplicate.LshIndex.Cluster;
+import com.yusuke.practicerepositorytest.duplicate.LshIndex.Match;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.scan.UserScanOptions;
+import com.yusuke.practicerepositorytest.scan.UserScanResult;
+import com.yusuke.practicerepositorytest.scan.UserScanner;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 名前とメールアドレスのローカル部が似ているユーザー（重複アカウントの疑い）を検出する
+ *
+ * 最初は全件スキャン（UserScanner、アーカイブを含む）でIDの範囲ごとに並列にシグネチャを計算してインデックスを構築する。
+ * 構築は専用のスレッドで行い、スケジューラーのスレッドを占有しない（他の定期処理を止めない）。
+ * 以降はこのノードの更新をコミット後に反映し、他ノードの更新はsync-intervalごとにUserChangeFeedで取り込む。
+ * 構築が終わるまでは使えない（呼び出し側は利用できないことを返す）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.duplicates", name = "enabled", havingValue = "true")
+public class UserDuplicateDetector {
+
+    private final DuplicateDetectionProperties properties;
+    private final ChangeFeedFollower follower;
+    private final UserScanner userScanner;
+    private final MinHasher minHasher;
+    private final LshIndex index;
+    private final Timer buildLatency;
+    private final Timer clusterLatency;
+    private final ExecutorService buildExecutor;
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    public UserDuplicateDetector(DuplicateDetectionProperties properties, UserChangeFeed changeFeed,
+            UserScanner userScanner, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.follower = changeFeed.follow(ChangeWatermark.initial(), properties.getSyncBatchSize());
+        this.userScanner = userScanner;
+        this.minHasher = new MinHasher(properties.getNumHashes(), properties.getNameShingleSize(),
+                properties.getEmailShingleSize());
+        this.index = new LshIndex(properties.getBands(), properties.rows(), properties.getMaxBucketSize());
+        this.buildLatency = meterRegistry.timer("users.duplicates.build");
+        this.clusterLatency = meterRegistry.timer("users.duplicates.clusters");
+        Gauge.builder("users.duplicates.entries", index, LshIndex::size).register(meterRegistry);
+        Gauge.builder("users.duplicates.buckets.skipped", index, LshIndex::skippedBuckets).register(meterRegistry);
+        this.buildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-duplicates-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * 構築済みか
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * ユーザーと重複の疑いがあるユーザーを一致率の高い順に返す
+     */
+    public List<Match> findDuplicates(long id) {
+        return index.candidates(id, properties.getSimilarityThreshold());
+    }
+
+    /**
+     * 重複の疑いがあるユーザーのクラスタを、大きい順・一致率の高い順に最大limit件返す
+     */
+    public List<Cluster> findClusters(int limit) {
+        List<Cluster> clusters = clusterLatency.record(() -> index.clusters(properties.getSimilarityThreshold()));
+        return clusters.subList(0, Math.min(limit, clusters.size()));
+    }
+
+    /**
+     * このノードでのユーザーの作成・更新・削除をコミット後に反映する
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserWritten(UserWrittenEvent event) {
+        apply(event.getUser());
+    }
+
+    /**
+     * 構築済みであればウォーターマーク以降の変更を取り込み、未構築であれば構築を専用のスレッドで始める
+     */
+    @Scheduled(fixedDelayString = "${app.duplicates.sync-interval:30s}")
+    public void sync() {
+        if (ready) {
+            syncChanges();
+        } else if (building.compareAndSet(false, true)) {
+            buildExecutor.execute(() -> {
+                try {
+                    build();
+                } catch (RuntimeException e) {
+                    log.warn("Failed to build user duplicate index; retrying on next sync", e);
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 全件から構築する（構築済みであればウォーターマーク以降の変更を取り込む）。構築が終わるまで戻らない
+     */
+    public synchronized void build() {
+        if (ready) {
+            follower.poll(this::apply);
+            return;
+        }
+        // スキャン中の更新は開始前の読み直しの境界（DBの時計で求める）からの差分同期で取り込む
+        ChangeWatermark startedAt = follower.horizon();
+        long start = System.nanoTime();
+        UserScanResult result = userScanner.scan(UserScanOptions.defaults(),
+                chunk -> chunk.forEach(this::apply));
+        follower.restartFrom(startedAt);
+        long applied = follower.poll(this::apply);
+        buildLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        ready = true;
+        log.info("User duplicate index is ready ({} users scanned at {} users/s, {} changes applied, {} users)",
+                result.getProcessedUsers(), Math.round(result.usersPerSecond()), applied, index.size());
+    }
+
+    private synchronized void syncChanges() {
+        follower.poll(this::apply);
+    }
+
+    // シグネチャの計算はロックの外で行うため、全件スキャンのワーカーごとに並列に進む
+    private void apply(User user) {
+        long version = user.getVersion() == null ? 0 : user.getVersion();
+        int[] signature = user.getDeletedAt() != null ? null : minHasher.signature(user.getName(), user.getEmail());
+        if (signature == null) {
+            index.remove(user.getId(), version);
+        } else {
+            index.put(user.getId(), version, signature);
+        }
+    }
+}
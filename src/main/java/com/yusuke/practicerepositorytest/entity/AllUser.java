@@ -0,0 +1,72 @@
+package com.yusuke.practicerepositorytest.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * ホットテーブルとアーカイブを合わせた全ユーザー（users_allビュー、読み取り専用）
+ *
+ * UNIONのビューは実体化されインデックスが効きにくいため、任意の列で並べるソート付きの検索など、
+ * 各テーブルを個別に検索してマージできない読み取りだけに使う。
+ */
+@Entity
+@Immutable
+@Subselect("SELECT id, name, email, age, created_at, updated_at, deleted_at, version,"
+        + " name_normalized, email_domain, email_reversed FROM users_all")
+@Synchronize({ "users", "users_archive" })
+@SQLRestriction("deleted_at IS NULL")
+@Data
+@NoArgsConstructor
+public class AllUser {
+
+    @Id
+    private Long id;
+
+    private String name;
+
+    private String email;
+
+    private Integer age;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime deletedAt;
+
+    private Long version;
+
+    private String nameNormalized;
+
+    private String emailDomain;
+
+    private String emailReversed;
+
+    /**
+     * APIで返すユーザーに変換する
+     */
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .age(age)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .deletedAt(deletedAt)
+                .version(version)
+                .nameNormalized(nameNormalized)
+                .emailDomain(emailDomain)
+                .emailReversed(emailReversed)
+                .build();
+    }
+}
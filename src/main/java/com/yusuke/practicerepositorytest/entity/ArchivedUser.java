@@ -0,0 +1,92 @@
+package com.yusuke.practicerepositorytest.entity;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.SQLRestriction;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * アーカイブテーブルへ移したユーザー（読み取り専用）
+ *
+ * 行の移動はUserArchiverがSQLで行うため、エンティティからは書き込まない。
+ */
+@Entity
+@Immutable
+@Table(name = "users_archive", indexes = {
+        @Index(name = "idx_users_archive_created_at", columnList = "created_at"),
+        @Index(name = "idx_users_archive_age", columnList = "age"),
+        @Index(name = "idx_users_archive_name_normalized", columnList = "name_normalized"),
+        @Index(name = "idx_users_archive_email_domain", columnList = "email_domain"),
+        @Index(name = "idx_users_archive_email_reversed", columnList = "email_reversed"),
+        @Index(name = "idx_users_archive_archived_at", columnList = "archived_at"),
+        @Index(name = "idx_users_archive_updated_at_id", columnList = "updated_at, id")
+})
+@SQLRestriction("deleted_at IS NULL")
+@Data
+@NoArgsConstructor
+public class ArchivedUser {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, unique = true, length = 255)
+    private String email;
+
+    @Column(nullable = false)
+    private Integer age;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column
+    private LocalDateTime deletedAt;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String nameNormalized;
+
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String emailDomain;
+
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String emailReversed;
+
+    // アーカイブへ移した日時
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * APIで返すユーザーに変換する
+     */
+    public User toUser() {
+        return User.builder()
+                .id(id)
+                .name(name)
+                .email(email)
+                .age(age)
+                .createdAt(createdAt)
+                .updatedAt(updatedAt)
+                .deletedAt(deletedAt)
+                .version(version)
+                .nameNormalized(nameNormalized)
+                .emailDomain(emailDomain)
+                .emailReversed(emailReversed)
+                .build();
+    }
+}
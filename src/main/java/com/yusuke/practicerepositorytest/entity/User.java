@@ -2,23 +2,39 @@ package com.yusuke.practicerepositorytest.entity;
 
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.SQLRestriction;
 import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_users_age", columnList = "age"),
+        @Index(name = "idx_users_created_at", columnList = "created_at"),
+        @Index(name = "idx_users_name_normalized", columnList = "name_normalized"),
+        @Index(name = "idx_users_email_domain", columnList = "email_domain"),
+        @Index(name = "idx_users_email_reversed", columnList = "email_reversed")
+})
+@SQLRestriction("deleted_at IS NULL")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +49,8 @@ public class User {
     @Column(nullable = false, length = 100)
     private String name;
 
+    // 一意制約（uk_users_email）は論理削除済みの行にも適用されるため、削除したユーザーのメールアドレスは再登録できない
+    // （トゥームストーンを差分同期で返すために行を残す）。重複した登録・更新は409で拒否する
     @Column(nullable = false, unique = true, length = 255)
     private String email;
 
@@ -42,4 +60,46 @@ public class User {
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
-}
\ No newline at end of file
+
+    // 差分同期のウォーターマークとして使用する
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // 論理削除日時（null以外は削除済みのトゥームストーン）
+    @Column
+    private LocalDateTime deletedAt;
+
+    // 楽観ロック用のバージョン（ETagの生成にも使用する）
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // 以下は検索用の派生カラム（書き込み時にname/emailから自動的に設定される）
+
+    // 幅・カナ・大文字小文字を正規化した名前
+    @JsonIgnore
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String nameNormalized;
+
+    // メールアドレスのドメイン部分（小文字）
+    @JsonIgnore
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String emailDomain;
+
+    // 小文字にしたメールアドレスの逆順（後方一致検索用）
+    @JsonIgnore
+    @Column(length = UserTextNormalizer.MAX_LENGTH)
+    private String emailReversed;
+
+    /**
+     * 派生カラムをname/emailから再計算する（一括更新などコールバックを通らない書き込みでは明示的に呼ぶ）
+     */
+    @PrePersist
+    @PreUpdate
+    public void deriveSearchColumns() {
+        this.nameNormalized = UserTextNormalizer.normalizeName(name);
+        this.emailDomain = UserTextNormalizer.emailDomain(email);
+        this.emailReversed = UserTextNormalizer.reverseEmail(email);
+    }
+}
@@ -0,0 +1,90 @@
+package com.yusuke.practicerepositorytest.entity;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 検索用の派生カラムと検索語の正規化
+ *
+ * 書き込み時（派生カラムの値）と検索時（検索語）で同じ正規化を使うことで、
+ * 関数でカラムを包まずにインデックスを使った比較ができるようにする。
+ */
+public final class UserTextNormalizer {
+
+    // 派生カラムの長さ（NFKCで文字数が増える場合があるため元のカラムより長くしている）
+    public static final int MAX_LENGTH = 255;
+
+    private UserTextNormalizer() {
+    }
+
+    /**
+     * 名前を正規化する
+     *
+     * NFKCで全角英数字・半角カナなどの幅の違いを統一し、カタカナをひらがなに、英字を小文字にそろえる。
+     * 連続する空白は1つにまとめ、前後の空白は取り除く。
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        String nfkc = Normalizer.normalize(name, Normalizer.Form.NFKC);
+        StringBuilder builder = new StringBuilder(nfkc.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < nfkc.length(); i++) {
+            char c = nfkc.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = builder.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                builder.append(' ');
+                pendingSpace = false;
+            }
+            builder.append(toHiragana(c));
+        }
+        return truncate(builder.toString().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * メールアドレスのドメイン部分（小文字）。@を含まない場合はnull
+     */
+    public static String emailDomain(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.lastIndexOf('@');
+        if (at < 0) {
+            return null;
+        }
+        return truncate(email.substring(at + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 小文字にしたメールアドレスを逆順にした文字列（後方一致検索を前方一致に変換するために使う）
+     */
+    public static String reverseEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return truncate(reverse(email.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * 文字列を逆順にする（サロゲートペアは保持される）
+     */
+    public static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    // カタカナ（ァ〜ヶ、ヽヾ）を対応するひらがなに変換する
+    private static char toHiragana(char c) {
+        if ((c >= 'ァ' && c <= 'ヶ') || c == 'ヽ' || c == 'ヾ') {
+            return (char) (c - 0x60);
+        }
+        return c;
+    }
+
+    private static String truncate(String value) {
+        return value.length() <= MAX_LENGTH ? value : value.substring(0, MAX_LENGTH);
+    }
+}
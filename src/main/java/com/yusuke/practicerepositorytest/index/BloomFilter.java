@@ -0,0 +1,125 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 64ビットハッシュを登録するBloomフィルター
+ * 
+ * ビット配列はAtomicLongArrayで保持し、ロックなしで複数のスレッドから登録・判定できる。
+ * k個のハッシュ値は64ビットハッシュの上位・下位32ビットから二重ハッシュ法で求める。
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    private BloomFilter(long bitCount, int hashCount, long expectedInsertions) {
+        this.bits = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * 想定件数と偽陽性率から最適なビット数・ハッシュ関数の数を決めて作成する
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid bloom filter parameters: expectedInsertions="
+                    + expectedInsertions + ", falsePositiveRate=" + falsePositiveRate);
+        }
+        double ln2 = Math.log(2);
+        long bitCount = Math.max(64, (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        if (bitCount > (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitCount + " bits");
+        }
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * ln2));
+        return new BloomFilter(bitCount, hashCount, expectedInsertions);
+    }
+
+    /**
+     * 登録する
+     * 
+     * @return ビットが1つ以上変わった場合はtrue（登録済みの値を再び登録した場合は件数に数えない）
+     */
+    public boolean put(long hash) {
+        long combined = mix(hash);
+        int h1 = (int) combined;
+        int h2 = (int) (combined >>> 32);
+        boolean changed = false;
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = bits.get(index);
+            while ((word & mask) == 0) {
+                if (bits.weakCompareAndSetVolatile(index, word, word | mask)) {
+                    changed = true;
+                    break;
+                }
+                word = bits.get(index);
+            }
+        }
+        if (changed) {
+            insertions.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * 登録されている可能性があるか（falseの場合は確実に未登録）
+     */
+    public boolean mightContain(long hash) {
+        long combined = mix(hash);
+        int h1 = (int) combined;
+        int h2 = (int) (combined >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 登録回数（同じ値の重複登録を含む）
+     */
+    public long insertions() {
+        return insertions.get();
+    }
+
+    public long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 現在の登録件数から求めた理論上の偽陽性率
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    // FNVなど下位ビットの偏りが大きいハッシュも均等に分布させる（MurmurHash3の最終処理）
+    private static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
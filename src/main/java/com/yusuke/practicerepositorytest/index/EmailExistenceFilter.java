@@ -0,0 +1,127 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.util.Locale;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.yusuke.practicerepositorytest.change.ChangeFeedFollower;
+import com.yusuke.practicerepositorytest.change.UserChangeFeed;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 登録済みのメールアドレスのBloomフィルター
+ * 
+ * 登録（saveUser・importUsers）の重複確認で「確実に未登録」と判定できたメールアドレスはDBに問い合わせない。
+ * 偽陰性でも一意制約で検出できる登録時の確認だけに使い、存在確認のAPIは常にDBで確認する。
+ * フィルターはUserChangeFeed（論理削除済み・アーカイブ済みを含む全行）で構築し、
+ * 以降はsync-intervalごとに他ノードの登録を取り込む。取り込みでは読み直しの境界（ChangeFeedHorizon）までさかのぼって読み直し、
+ * ウォーターマークより古い更新日時で後からコミットされた行も取りこぼさない（再登録は冪等）。
+ * このノードの登録はsaveUserの前に追加するため、未コミットの間は偽陽性になるが偽陰性にはならない。
+ * 他ノードの登録は取り込むまで未登録と判定されうるため、最終的な重複はDBの一意制約で検出する。
+ * 構築が終わるまでは常に「登録されている可能性がある」と判定する。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.email-filter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class EmailExistenceFilter {
+
+    private final ChangeFeedFollower follower;
+    private final Counter negatives;
+    private final Counter positives;
+    private final Counter falsePositives;
+
+    private final BloomFilter filter;
+    private volatile boolean ready;
+
+    public EmailExistenceFilter(EmailFilterProperties properties, UserChangeFeed changeFeed,
+            MeterRegistry meterRegistry) {
+        this.follower = changeFeed.follow(ChangeWatermark.initial(), properties.getSyncBatchSize());
+        this.filter = BloomFilter.create(properties.getExpectedInsertions(), properties.getFalsePositiveRate());
+        this.negatives = meterRegistry.counter("users.email.filter", "result", "negative");
+        this.positives = meterRegistry.counter("users.email.filter", "result", "positive");
+        this.falsePositives = meterRegistry.counter("users.email.filter", "result", "false-positive");
+        Gauge.builder("users.email.filter.expected-fpp", filter, BloomFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("users.email.filter.measured-fpp", this, EmailExistenceFilter::measuredFalsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登録されている可能性があるか（falseの場合は確実に未登録）
+     */
+    public boolean mightContain(String email) {
+        if (!ready) {
+            return true;
+        }
+        boolean mightContain = filter.mightContain(hash(email));
+        if (!mightContain) {
+            negatives.increment();
+        }
+        return mightContain;
+    }
+
+    /**
+     * mightContainがtrueだったメールアドレスをDBで確認した結果を記録する（偽陽性率の計測用）
+     */
+    public void recordDatabaseResult(boolean exists) {
+        if (!ready) {
+            return;
+        }
+        (exists ? positives : falsePositives).increment();
+    }
+
+    /**
+     * 登録するメールアドレスを追加する
+     */
+    public void add(String email) {
+        if (filter.put(hash(email)) && filter.insertions() == filter.expectedInsertions() + 1) {
+            // 実行中に作り直すと未コミットの登録を取りこぼすため、再起動時に設定を見直してもらう
+            log.warn("Email bloom filter exceeded {} expected insertions (expected fpp {}); "
+                    + "increase app.email-filter.expected-insertions", filter.expectedInsertions(),
+                    filter.expectedFalsePositiveRate());
+        }
+    }
+
+    /**
+     * 計測した偽陽性率（DBに問い合わせた未登録のメールアドレスのうち、フィルターが陽性と判定した割合）
+     */
+    public double measuredFalsePositiveRate() {
+        double falsePositive = falsePositives.count();
+        double total = falsePositive + negatives.count();
+        return total == 0 ? 0.0 : falsePositive / total;
+    }
+
+    /**
+     * 構築済みか
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * ウォーターマーク以降に登録・変更されたメールアドレスを取り込む（初回は全件）
+     */
+    @Scheduled(fixedDelayString = "${app.email-filter.sync-interval:5s}")
+    public synchronized void sync() {
+        // 論理削除済み・アーカイブ済みのメールアドレスも一意制約・登録時の確認で使用中のため登録する
+        long added = follower.poll(user -> add(user.getEmail()));
+
+        if (!ready) {
+            ready = true;
+            log.info("Email bloom filter is ready ({} emails, {} bits, {} hashes, expected fpp {})",
+                    added, filter.bitCount(), filter.hashCount(), filter.expectedFalsePositiveRate());
+        }
+    }
+
+    static long hash(String email) {
+        // MySQLの照合順序では大文字・小文字を区別しないため、小文字に揃えてから登録・判定する
+        return Utf8.hash(email.toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,41 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * メールアドレスの存在確認に使うBloomフィルターの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.email-filter")
+public class EmailFilterProperties {
+
+    private boolean enabled = true;
+
+    // 想定するメールアドレスの件数（超えると偽陽性率が目標より高くなる）
+    @Min(1)
+    private long expectedInsertions = 1_000_000;
+
+    // 目標とする偽陽性率
+    @DecimalMin("0.000001")
+    @DecimalMax("0.5")
+    private double falsePositiveRate = 0.01;
+
+    // 他ノードで登録されたメールアドレスを取り込む間隔
+    @NotNull
+    private Duration syncInterval = Duration.ofSeconds(5);
+
+    @Min(1)
+    @Max(100_000)
+    private int syncBatchSize = 10_000;
+}
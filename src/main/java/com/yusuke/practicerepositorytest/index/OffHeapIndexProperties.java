@@ -0,0 +1,41 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * ヒープ外のユーザーインデックスの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.offheap-index")
+public class OffHeapIndexProperties {
+
+    // trueの場合にID・メールアドレス検索をインデックスから返す
+    private boolean enabled = false;
+
+    @NotNull
+    private Path path = Path.of("data", "users.idx");
+
+    // レコード表のスロット数（2の累乗に切り上げ、75%まで使用する）。1スロットあたり272バイトのファイル領域を確保する
+    @Min(16)
+    @Max(1L << 32)
+    private long capacity = 1L << 22;
+
+    // 他ノードの更新を取り込む間隔
+    @NotNull
+    private Duration syncInterval = Duration.ofSeconds(5);
+
+    // 変更を取り込むときの1クエリあたりの件数
+    @Min(1)
+    @Max(100_000)
+    private int syncBatchSize = 10_000;
+}
@@ -0,0 +1,128 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.yusuke.practicerepositorytest.change.ChangeFeedFollower;
+import com.yusuke.practicerepositorytest.change.UserChangeFeed;
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.entity.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ID・メールアドレス検索をDBに問い合わせずに返すためのヒープ外インデックス
+ * 
+ * 起動時にファイルを開き（既存のファイルは再マップする）、UserChangeFeedでファイルに記録したウォーターマーク以降の
+ * 変更を取り込む。初回は全件の取り込みとなる。このノードの更新はコミット後に即座に反映し、他ノードの更新はsync-intervalごとに取り込む。
+ * 最初の取り込みが終わるまでは検索結果を返さない（呼び出し側がDBから取得する）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.offheap-index", name = "enabled", havingValue = "true")
+public class OffHeapUserIndex {
+
+    private final OffHeapIndexProperties properties;
+    private final UserChangeFeed changeFeed;
+    private final MeterRegistry meterRegistry;
+    private final Counter overflows;
+
+    private OffHeapUserStore store;
+    private ChangeFeedFollower follower;
+    private volatile boolean ready;
+    private boolean closed;
+
+    public OffHeapUserIndex(OffHeapIndexProperties properties, UserChangeFeed changeFeed,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.changeFeed = changeFeed;
+        this.meterRegistry = meterRegistry;
+        this.overflows = meterRegistry.counter("users.offheap.overflow");
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        Path path = properties.getPath().toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        store = OffHeapUserStore.open(path, properties.getCapacity());
+        follower = changeFeed.follow(store.watermark(), properties.getSyncBatchSize());
+        Gauge.builder("users.offheap.records", store, OffHeapUserStore::recordCount).register(meterRegistry);
+
+        if (store.isReopened()) {
+            log.info("Re-mapped off-heap user index {} ({} records, watermark {})",
+                    path, store.recordCount(), store.watermark());
+        } else {
+            log.info("Created off-heap user index {} (capacity {})", path, store.capacity());
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        ready = false;
+        closed = true;
+        store.close();
+    }
+
+    /**
+     * IDでユーザーを取得（インデックスにない場合は空）
+     */
+    public Optional<User> findById(Long id) {
+        return ready ? store.findById(id) : Optional.empty();
+    }
+
+    /**
+     * メールアドレスでユーザーを取得（インデックスにない場合は空）
+     */
+    public Optional<User> findByEmail(String email) {
+        return ready ? store.findByEmail(email) : Optional.empty();
+    }
+
+    /**
+     * このノードでのユーザーの作成・更新・削除をコミット後に反映する
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserWritten(UserWrittenEvent event) {
+        apply(event.getUser());
+    }
+
+    /**
+     * ウォーターマーク以降の変更を取り込む
+     */
+    @Scheduled(fixedDelayString = "${app.offheap-index.sync-interval:5s}")
+    public synchronized void sync() {
+        if (closed) {
+            return;
+        }
+        long applied = follower.poll(this::apply);
+        store.setWatermark(follower.watermark());
+
+        if (!ready) {
+            ready = true;
+            log.info("Off-heap user index is ready ({} changes applied, {} records)", applied, store.recordCount());
+        }
+    }
+
+    private synchronized void apply(User user) {
+        if (closed) {
+            return;
+        }
+        // 版数の比較はストアが行うため、取り込みとコミット後の反映の順序が前後しても古い内容にはならない
+        if (user.getDeletedAt() != null) {
+            store.delete(user.getId(), user.getVersion());
+        } else if (!store.put(user)) {
+            overflows.increment();
+        }
+    }
+}
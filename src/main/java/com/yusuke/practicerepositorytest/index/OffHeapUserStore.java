@@ -0,0 +1,467 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.entity.User;
+
+/**
+ * ヒープ外（メモリマップドファイル）にユーザーを保持する検索用ストア
+ *
+ * ファイルはヘッダー、IDをキーとするオープンアドレス法（線形探索）のレコード表、
+ * メールアドレスのハッシュからIDを引く表で構成される。レコードは256バイト固定長で、
+ * 名前とメールアドレスのUTF-8が合わせて216バイトを超えるユーザーは保持しない（DBから取得する）。
+ * 削除したユーザーは削除済みのレコードとして残し、古いバージョンの書き込みで復活しないようにする。
+ *
+ * ファイルは再起動後もそのまま再マップして使用する。正常に閉じられなかった場合や容量が変わった場合は作り直す。
+ */
+public class OffHeapUserStore implements Closeable {
+
+    static final int RECORD_SIZE = 256;
+    static final int MAX_TEXT_BYTES = RECORD_SIZE - 40;
+
+    private static final int EMAIL_SLOT_SIZE = 16;
+    private static final int HEADER_SIZE = 4096;
+    private static final int DEFAULT_SEGMENT_SHIFT = 30;
+    private static final long MIN_CAPACITY = 16;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final long MAGIC = 0x5553455249445831L;
+    private static final int LAYOUT_VERSION = 1;
+
+    // ヘッダー
+    private static final long H_MAGIC = 0;
+    private static final long H_LAYOUT = 8;
+    private static final long H_DIRTY = 12;
+    private static final long H_CAPACITY = 16;
+    private static final long H_RECORDS = 24;
+    private static final long H_EMAIL_SLOTS = 32;
+    private static final long H_WATERMARK_UPDATED_AT = 40;
+    private static final long H_WATERMARK_ID = 48;
+
+    // レコード（idが0のスロットは空き）
+    private static final int R_ID = 0;
+    private static final int R_VERSION = 8;
+    private static final int R_CREATED_AT = 16;
+    private static final int R_UPDATED_AT = 24;
+    private static final int R_AGE = 32;
+    private static final int R_NAME_LENGTH = 36;
+    private static final int R_EMAIL_LENGTH = 37;
+    private static final int R_FLAGS = 38;
+    private static final int R_TEXT = 40;
+
+    private static final short FLAG_LIVE = 0;
+    private static final short FLAG_DELETED = 1;
+    private static final short FLAG_OVERFLOW = 2;
+
+    // メールアドレスの表（idが0のスロットは空き、-1は削除済み）
+    private static final int E_HASH = 0;
+    private static final int E_ID = 8;
+    private static final long EMAIL_REMOVED = -1L;
+
+    private final SegmentedMappedFile file;
+    private final long capacity;
+    private final long mask;
+    private final long maxEntries;
+    private final long emailTableOffset;
+    private final boolean reopened;
+    private final StampedLock lock = new StampedLock();
+
+    private OffHeapUserStore(SegmentedMappedFile file, long capacity, boolean reopened) {
+        this.file = file;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.maxEntries = (long) (capacity * MAX_LOAD_FACTOR);
+        this.emailTableOffset = HEADER_SIZE + capacity * RECORD_SIZE;
+        this.reopened = reopened;
+    }
+
+    /**
+     * ストアを開く（capacityは2の累乗に切り上げる）
+     */
+    public static OffHeapUserStore open(Path path, long capacity) throws IOException {
+        return open(path, capacity, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    static OffHeapUserStore open(Path path, long capacity, int segmentShift) throws IOException {
+        long slots = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, capacity - 1)) << 1);
+        boolean reusable = isReusable(path, slots);
+        if (!reusable) {
+            Files.deleteIfExists(path);
+        }
+
+        long size = HEADER_SIZE + slots * RECORD_SIZE + slots * EMAIL_SLOT_SIZE;
+        SegmentedMappedFile file = new SegmentedMappedFile(path, size, segmentShift);
+        if (!reusable) {
+            file.putLong(H_MAGIC, MAGIC);
+            file.putInt(H_LAYOUT, LAYOUT_VERSION);
+            file.putLong(H_CAPACITY, slots);
+        }
+        // 閉じるまでは不完全な状態として扱う
+        file.putInt(H_DIRTY, 1);
+        file.force();
+        return new OffHeapUserStore(file, slots, reusable);
+    }
+
+    /**
+     * 既存のファイルを再マップしたか（falseの場合は空のストア）
+     */
+    public boolean isReopened() {
+        return reopened;
+    }
+
+    /**
+     * IDでユーザーを取得
+     */
+    public Optional<User> findById(long id) {
+        long stamp = lock.readLock();
+        try {
+            long slot = findRecordSlot(id);
+            return slot < 0 || flags(slot) != FLAG_LIVE ? Optional.empty() : Optional.of(decode(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * メールアドレスでユーザーを取得
+     */
+    public Optional<User> findByEmail(String email) {
+        long stamp = lock.readLock();
+        try {
+            long slot = findRecordSlotByEmail(email, Utf8.hash(email));
+            return slot < 0 ? Optional.empty() : Optional.of(decode(slot));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 保持しているユーザーのバージョン（保持していない場合は-1）
+     */
+    public long versionOf(long id) {
+        long stamp = lock.readLock();
+        try {
+            long slot = findRecordSlot(id);
+            return slot < 0 || flags(slot) != FLAG_LIVE ? -1L : file.getLong(recordPosition(slot) + R_VERSION);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * ユーザーを追加・更新する（保持しているものより古いバージョンは無視する）
+     *
+     * @return 保持できた場合はtrue。容量不足や名前・メールアドレスが長すぎる場合はfalse（DBから取得させる）
+     */
+    public boolean put(User user) {
+        long id = user.getId();
+        long version = user.getVersion();
+        int nameLength = Utf8.encodedLength(user.getName());
+        int emailLength = Utf8.encodedLength(user.getEmail());
+        long emailHash = Utf8.hash(user.getEmail());
+
+        long stamp = lock.writeLock();
+        try {
+            long slot = probeRecordSlot(id);
+            long position = recordPosition(slot);
+            boolean exists = file.getLong(position + R_ID) == id;
+            if (exists && file.getLong(position + R_VERSION) > version) {
+                return true;
+            }
+            if (!exists && records() >= maxEntries) {
+                return false;
+            }
+
+            boolean live = exists && flags(slot) == FLAG_LIVE;
+            boolean sameEmail = live && Utf8.equals(file, position + R_TEXT + nameLength(slot),
+                    emailLength(slot), user.getEmail());
+            boolean fits = nameLength + emailLength <= MAX_TEXT_BYTES
+                    && (sameEmail || emailSlots() < maxEntries);
+
+            if (live && (!sameEmail || !fits)) {
+                removeEmail(slot);
+            }
+            if (!exists) {
+                file.putLong(H_RECORDS, records() + 1);
+            }
+
+            file.putLong(position + R_ID, id);
+            file.putLong(position + R_VERSION, version);
+            if (!fits) {
+                // 古い内容を返さないよう、保持できないことだけを記録する
+                file.putShort(position + R_FLAGS, FLAG_OVERFLOW);
+                return false;
+            }
+
+            file.putLong(position + R_CREATED_AT, toMicros(user.getCreatedAt()));
+            file.putLong(position + R_UPDATED_AT, toMicros(user.getUpdatedAt()));
+            file.putInt(position + R_AGE, user.getAge());
+            file.put(position + R_NAME_LENGTH, (byte) nameLength);
+            file.put(position + R_EMAIL_LENGTH, (byte) emailLength);
+            Utf8.write(user.getName(), file, position + R_TEXT);
+            Utf8.write(user.getEmail(), file, position + R_TEXT + nameLength);
+            file.putShort(position + R_FLAGS, FLAG_LIVE);
+            if (!sameEmail) {
+                insertEmail(emailHash, id);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * ユーザーを削除済みにする（保持しているものより古いバージョンは無視する）
+     */
+    public void delete(long id, long version) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = probeRecordSlot(id);
+            long position = recordPosition(slot);
+            boolean exists = file.getLong(position + R_ID) == id;
+            if (exists && file.getLong(position + R_VERSION) > version) {
+                return;
+            }
+            if (!exists) {
+                if (records() >= maxEntries) {
+                    return;
+                }
+                file.putLong(H_RECORDS, records() + 1);
+                file.putLong(position + R_ID, id);
+            } else if (flags(slot) == FLAG_LIVE) {
+                removeEmail(slot);
+            }
+            file.putLong(position + R_VERSION, version);
+            file.putShort(position + R_FLAGS, FLAG_DELETED);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 反映済みの変更のウォーターマーク
+     */
+    public ChangeWatermark watermark() {
+        long stamp = lock.readLock();
+        try {
+            return new ChangeWatermark(fromMicros(file.getLong(H_WATERMARK_UPDATED_AT)), file.getLong(H_WATERMARK_ID));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 反映済みの変更のウォーターマークを更新する
+     */
+    public void setWatermark(ChangeWatermark watermark) {
+        long stamp = lock.writeLock();
+        try {
+            file.putLong(H_WATERMARK_UPDATED_AT, toMicros(watermark.getUpdatedAt()));
+            file.putLong(H_WATERMARK_ID, watermark.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 使用中のレコード数（削除済みを含む）
+     */
+    public long recordCount() {
+        return records();
+    }
+
+    /**
+     * レコード表の容量
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            file.force();
+            file.putInt(H_DIRTY, 0);
+            file.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private static boolean isReusable(Path path, long capacity) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate((int) H_WATERMARK_UPDATED_AT);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.read(header, 0);
+        }
+        return header.position() == header.capacity()
+                && header.getLong((int) H_MAGIC) == MAGIC
+                && header.getInt((int) H_LAYOUT) == LAYOUT_VERSION
+                && header.getInt((int) H_DIRTY) == 0
+                && header.getLong((int) H_CAPACITY) == capacity;
+    }
+
+    private long records() {
+        return file.getLong(H_RECORDS);
+    }
+
+    private long emailSlots() {
+        return file.getLong(H_EMAIL_SLOTS);
+    }
+
+    private long recordPosition(long slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private long emailPosition(long slot) {
+        return emailTableOffset + slot * EMAIL_SLOT_SIZE;
+    }
+
+    private short flags(long slot) {
+        return file.getShort(recordPosition(slot) + R_FLAGS);
+    }
+
+    private int nameLength(long slot) {
+        return file.get(recordPosition(slot) + R_NAME_LENGTH) & 0xFF;
+    }
+
+    private int emailLength(long slot) {
+        return file.get(recordPosition(slot) + R_EMAIL_LENGTH) & 0xFF;
+    }
+
+    /**
+     * IDのスロット（存在しない場合は-1）
+     */
+    private long findRecordSlot(long id) {
+        long slot = probeRecordSlot(id);
+        return file.getLong(recordPosition(slot) + R_ID) == id ? slot : -1L;
+    }
+
+    /**
+     * IDのスロット、存在しない場合は挿入先の空きスロット
+     */
+    private long probeRecordSlot(long id) {
+        long slot = mix(id) & mask;
+        while (true) {
+            long stored = file.getLong(recordPosition(slot) + R_ID);
+            if (stored == id || stored == 0) {
+                return slot;
+            }
+            // 負荷率を上限で抑えているため空きスロットが必ず見つかる
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long findRecordSlotByEmail(String email, long hash) {
+        long slot = mix(hash) & mask;
+        while (true) {
+            long position = emailPosition(slot);
+            long id = file.getLong(position + E_ID);
+            if (id == 0) {
+                return -1L;
+            }
+            if (id != EMAIL_REMOVED && file.getLong(position + E_HASH) == hash) {
+                long recordSlot = findRecordSlot(id);
+                if (recordSlot >= 0 && flags(recordSlot) == FLAG_LIVE
+                        && Utf8.equals(file, recordPosition(recordSlot) + R_TEXT + nameLength(recordSlot),
+                                emailLength(recordSlot), email)) {
+                    return recordSlot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insertEmail(long hash, long id) {
+        long slot = mix(hash) & mask;
+        while (true) {
+            long position = emailPosition(slot);
+            long stored = file.getLong(position + E_ID);
+            if (stored == 0 || stored == EMAIL_REMOVED) {
+                if (stored == 0) {
+                    file.putLong(H_EMAIL_SLOTS, emailSlots() + 1);
+                }
+                file.putLong(position + E_HASH, hash);
+                file.putLong(position + E_ID, id);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void removeEmail(long recordSlot) {
+        long id = file.getLong(recordPosition(recordSlot) + R_ID);
+        long hash = Utf8.hash(file, recordPosition(recordSlot) + R_TEXT + nameLength(recordSlot),
+                emailLength(recordSlot));
+        long slot = mix(hash) & mask;
+        while (true) {
+            long position = emailPosition(slot);
+            long stored = file.getLong(position + E_ID);
+            if (stored == 0) {
+                return;
+            }
+            if (stored == id && file.getLong(position + E_HASH) == hash) {
+                // 探索の連鎖を切らないよう削除済みの印を残す
+                file.putLong(position + E_ID, EMAIL_REMOVED);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private User decode(long slot) {
+        long position = recordPosition(slot);
+        int nameLength = nameLength(slot);
+        int emailLength = emailLength(slot);
+        byte[] text = new byte[nameLength + emailLength];
+        file.get(position + R_TEXT, text, text.length);
+
+        return User.builder()
+                .id(file.getLong(position + R_ID))
+                .version(file.getLong(position + R_VERSION))
+                .createdAt(fromMicros(file.getLong(position + R_CREATED_AT)))
+                .updatedAt(fromMicros(file.getLong(position + R_UPDATED_AT)))
+                .age(file.getInt(position + R_AGE))
+                .name(new String(text, 0, nameLength, StandardCharsets.UTF_8))
+                .email(new String(text, nameLength, emailLength, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    // 連番のIDが隣接スロットに偏らないよう、MurmurHash3の最終処理でビットを拡散する
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return 0L;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,197 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.yusuke.practicerepositorytest.dto.UserSuggestion;
+import com.yusuke.practicerepositorytest.dto.UserSuggestion.MatchedOn;
+import com.yusuke.practicerepositorytest.entity.UserTextNormalizer;
+
+/**
+ * 名前・メールアドレスの前方一致で入力補完の候補を返すメモリ上のインデックス
+ *
+ * 正規化した名前（UserTextNormalizer: 幅・カナ・大文字小文字を区別しない）、名前の2語目以降、小文字にしたメールアドレスを
+ * ソート済みの集合に持ち、前方一致の範囲を二分探索で求める。漢字は文字どおりの前方一致となる（読みは持たない）。
+ * 範囲の先頭からscan-limit件までを順位付けするため、短い入力でも一定の時間で返る。
+ *
+ * 書き込みはバージョンで比較し、古いバージョンでは上書きしない。読み込みはロックを取らない。
+ */
+public class PrefixIndex {
+
+    // 順位: 入力と完全に一致したもの、名前の先頭、名前の2語目以降、メールアドレス、短いもの、IDの順
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparing((Candidate candidate) -> !candidate.exact)
+            .thenComparing(candidate -> candidate.matchedOn)
+            .thenComparingInt(candidate -> candidate.termLength)
+            .thenComparingLong(candidate -> candidate.id);
+
+    private final int scanLimit;
+    private final NavigableSet<Term> nameTerms = new ConcurrentSkipListSet<>();
+    private final NavigableSet<Term> emailTerms = new ConcurrentSkipListSet<>();
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    // 削除したユーザーのバージョン（遅れて届いた古い書き込みで復活させない）
+    private final Map<Long, Long> deletedVersions = new ConcurrentHashMap<>();
+
+    public PrefixIndex(int scanLimit) {
+        this.scanLimit = scanLimit;
+    }
+
+    /**
+     * ユーザーを登録・更新する（保持しているより古いバージョンは無視する）
+     */
+    public synchronized void put(long id, long version, String name, String email) {
+        if (isOlder(id, version)) {
+            return;
+        }
+        removeTerms(documents.get(id));
+        deletedVersions.remove(id);
+        Document document = new Document(id, version, name, email);
+        documents.put(id, document);
+        document.nameTerms.forEach(nameTerms::add);
+        if (document.emailTerm != null) {
+            emailTerms.add(document.emailTerm);
+        }
+    }
+
+    /**
+     * ユーザーを削除する（保持しているより古いバージョンは無視する）
+     */
+    public synchronized void remove(long id, long version) {
+        if (isOlder(id, version)) {
+            return;
+        }
+        removeTerms(documents.remove(id));
+        deletedVersions.put(id, version);
+    }
+
+    /**
+     * 入力に前方一致する候補を順位の高い順に最大limit件返す
+     */
+    public List<UserSuggestion> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        Map<Long, Candidate> best = new HashMap<>();
+        collect(nameTerms, UserTextNormalizer.normalizeName(prefix), best);
+        collect(emailTerms, prefix.trim().toLowerCase(Locale.ROOT), best);
+
+        List<Candidate> ranked = new ArrayList<>(best.values());
+        ranked.sort(RANKING);
+        List<UserSuggestion> suggestions = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Candidate candidate : ranked) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            Document document = documents.get(candidate.id);
+            if (document != null) {
+                suggestions.add(new UserSuggestion(document.id, document.name, document.email, candidate.matchedOn));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * 登録しているユーザー数
+     */
+    public int size() {
+        return documents.size();
+    }
+
+    // 前方一致の範囲をscan-limit件まで走査し、ユーザーごとに最も順位の高い一致を残す
+    private void collect(NavigableSet<Term> terms, String prefix, Map<Long, Candidate> best) {
+        if (prefix.isEmpty()) {
+            return;
+        }
+        // 上限はprefixの後に最大の文字を続けたもの（prefixで始まるすべての語より後ろになる）
+        NavigableSet<Term> range = terms.subSet(new Term(prefix, null, Long.MIN_VALUE), true,
+                new Term(prefix + Character.MAX_VALUE, null, Long.MIN_VALUE), false);
+        int scanned = 0;
+        for (Term term : range) {
+            if (scanned++ == scanLimit) {
+                break;
+            }
+            Candidate candidate = new Candidate(term.id, term.matchedOn, term.text.length(), term.text.equals(prefix));
+            best.merge(term.id, candidate, (current, next) -> RANKING.compare(current, next) <= 0 ? current : next);
+        }
+    }
+
+    private boolean isOlder(long id, long version) {
+        Document current = documents.get(id);
+        if (current != null && current.version > version) {
+            return true;
+        }
+        Long deleted = deletedVersions.get(id);
+        return deleted != null && deleted > version;
+    }
+
+    private void removeTerms(Document document) {
+        if (document == null) {
+            return;
+        }
+        document.nameTerms.forEach(nameTerms::remove);
+        if (document.emailTerm != null) {
+            emailTerms.remove(document.emailTerm);
+        }
+    }
+
+    // 集合の要素（同じ語の複数ユーザーを区別するためIDを含める）
+    private record Term(String text, MatchedOn matchedOn, long id) implements Comparable<Term> {
+
+        @Override
+        public int compareTo(Term other) {
+            int compared = text.compareTo(other.text);
+            return compared != 0 ? compared : Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Term term && compareTo(term) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + Long.hashCode(id);
+        }
+    }
+
+    private record Candidate(long id, MatchedOn matchedOn, int termLength, boolean exact) {
+    }
+
+    private static final class Document {
+
+        private final long id;
+        private final long version;
+        private final String name;
+        private final String email;
+        private final List<Term> nameTerms = new ArrayList<>();
+        private final Term emailTerm;
+
+        private Document(long id, long version, String name, String email) {
+            this.id = id;
+            this.version = version;
+            this.name = name;
+            this.email = email;
+            String normalized = UserTextNormalizer.normalizeName(name);
+            if (normalized != null && !normalized.isEmpty()) {
+                nameTerms.add(new Term(normalized, MatchedOn.NAME, id));
+                // 「Taro Yamada」を「yamada」でも候補に出す（同じ語は1つにまとめる）
+                int space = normalized.indexOf(' ');
+                while (space >= 0) {
+                    String word = normalized.substring(space + 1);
+                    if (nameTerms.stream().noneMatch(term -> term.text.equals(word))) {
+                        nameTerms.add(new Term(word, MatchedOn.NAME_WORD, id));
+                    }
+                    space = normalized.indexOf(' ', space + 1);
+                }
+            }
+            this.emailTerm = email == null ? null : new Term(email.toLowerCase(Locale.ROOT), MatchedOn.EMAIL, id);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 固定長スロットを持つファイルを複数のMappedByteBufferに分割してマップする
+ * 
+ * 1つのMappedByteBufferは2GB未満しか扱えないため、セグメント単位でマップする。
+ * スロットのサイズはセグメントのサイズを割り切る2の累乗とし、1つのスロットがセグメントをまたがないようにする。
+ */
+class SegmentedMappedFile implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+
+    SegmentedMappedFile(Path path, long size, int segmentShift) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+
+        long segmentSize = 1L << segmentShift;
+        int count = (int) ((size + segmentSize - 1) >>> segmentShift);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long position = (long) i << segmentShift;
+            // 読み書きモードのマップはファイルを拡張する（未書き込みの領域は疎なまま）
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(segmentSize, size - position));
+        }
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value) {
+        segment(position).putLong(offset(position), value);
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    void putInt(long position, int value) {
+        segment(position).putInt(offset(position), value);
+    }
+
+    short getShort(long position) {
+        return segment(position).getShort(offset(position));
+    }
+
+    void putShort(long position, short value) {
+        segment(position).putShort(offset(position), value);
+    }
+
+    byte get(long position) {
+        return segment(position).get(offset(position));
+    }
+
+    void put(long position, byte value) {
+        segment(position).put(offset(position), value);
+    }
+
+    void get(long position, byte[] dst, int length) {
+        segment(position).get(offset(position), dst, 0, length);
+    }
+
+    void put(long position, byte[] src, int length) {
+        segment(position).put(offset(position), src, 0, length);
+    }
+
+    /**
+     * 変更をファイルへ書き出す
+     */
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        // MappedByteBufferはGCで解放されるまでマップが残る
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments[(int) (position >>> segmentShift)];
+    }
+
+    private int offset(long position) {
+        return (int) (position & segmentMask);
+    }
+}
@@ -0,0 +1,46 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 入力補完の候補を返すメモリ上の前方一致インデックスの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.suggest")
+public class SuggestIndexProperties {
+
+    // trueの場合に候補をインデックスから返す（falseの場合は正規化した名前の前方一致でDBを検索する）
+    private boolean enabled = true;
+
+    // 候補数の既定値と上限
+    @Min(1)
+    @Max(100)
+    private int defaultLimit = 10;
+
+    @Min(1)
+    @Max(1000)
+    private int maxLimit = 50;
+
+    // 1回の検索で順位付けする最大件数（短い入力でも応答時間を一定に保つ）
+    @Min(1)
+    @Max(100_000)
+    private int scanLimit = 1000;
+
+    // 他ノードの更新を取り込む間隔
+    @NotNull
+    private Duration syncInterval = Duration.ofSeconds(5);
+
+    // 変更を取り込むときの1クエリあたりの件数
+    @Min(1)
+    @Max(100_000)
+    private int syncBatchSize = 10_000;
+}
@@ -0,0 +1,96 @@
+package com.yusuke.practicerepositorytest.index;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.yusuke.practicerepositorytest.change.ChangeFeedFollower;
+import com.yusuke.practicerepositorytest.change.UserChangeFeed;
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.dto.UserSuggestion;
+import com.yusuke.practicerepositorytest.entity.User;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 入力補完の候補（名前・メールアドレスの前方一致）をDBに問い合わせずに返すインデックス
+ *
+ * UserChangeFeedでウォーターマーク以降の変更を取り込む（初回は全件。アーカイブ済みのユーザーも含む）。
+ * このノードの更新はコミット後に即座に反映し、他ノードの更新はsync-intervalごとに取り込む。
+ * 最初の取り込みが終わるまでは使えない（呼び出し側がDBから取得する）。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.suggest", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserSuggestIndex {
+
+    private final ChangeFeedFollower follower;
+    private final PrefixIndex index;
+    private final Timer latency;
+
+    private volatile boolean ready;
+
+    public UserSuggestIndex(SuggestIndexProperties properties, UserChangeFeed changeFeed,
+            MeterRegistry meterRegistry) {
+        this.follower = changeFeed.follow(ChangeWatermark.initial(), properties.getSyncBatchSize());
+        this.index = new PrefixIndex(properties.getScanLimit());
+        this.latency = meterRegistry.timer("users.suggest.latency");
+        Gauge.builder("users.suggest.entries", index, PrefixIndex::size).register(meterRegistry);
+    }
+
+    /**
+     * 構築済みか
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 入力に前方一致する候補を順位の高い順に最大limit件返す
+     */
+    public List<UserSuggestion> suggest(String prefix, int limit) {
+        long start = System.nanoTime();
+        List<UserSuggestion> suggestions = index.suggest(prefix, limit);
+        latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return suggestions;
+    }
+
+    /**
+     * このノードでのユーザーの作成・更新・削除をコミット後に反映する
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserWritten(UserWrittenEvent event) {
+        apply(event.getUser());
+    }
+
+    /**
+     * ウォーターマーク以降の変更を取り込む
+     */
+    @Scheduled(fixedDelayString = "${app.suggest.sync-interval:5s}")
+    public synchronized void sync() {
+        long applied = follower.poll(this::apply);
+
+        if (!ready) {
+            ready = true;
+            log.info("User suggest index is ready ({} changes applied, {} users)", applied, index.size());
+        }
+    }
+
+    private void apply(User user) {
+        // 版数の比較はインデックスが行うため、取り込みとコミット後の反映の順序が前後しても古い内容にはならない
+        long version = user.getVersion() == null ? 0 : user.getVersion();
+        if (user.getDeletedAt() != null) {
+            index.remove(user.getId(), version);
+        } else {
+            index.put(user.getId(), version, user.getName(), user.getEmail());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.yusuke.practicerepositorytest.index;
+
+/**
+ * 文字列を一時的なbyte[]を作らずにUTF-8として扱うユーティリティ
+ */
+final class Utf8 {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Utf8() {
+    }
+
+    /**
+     * UTF-8でのバイト数
+     */
+    static int encodedLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            length += count(pack(value.codePointAt(i)));
+        }
+        return length;
+    }
+
+    /**
+     * UTF-8で書き込み、書き込んだバイト数を返す
+     */
+    static int write(String value, SegmentedMappedFile file, long position) {
+        int written = 0;
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            long packed = pack(value.codePointAt(i));
+            for (int b = 0; b < count(packed); b++) {
+                file.put(position + written++, byteAt(packed, b));
+            }
+        }
+        return written;
+    }
+
+    /**
+     * UTF-8のバイト列に対するFNV-1aハッシュ
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            long packed = pack(value.codePointAt(i));
+            for (int b = 0; b < count(packed); b++) {
+                hash = (hash ^ (byteAt(packed, b) & 0xFF)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * ファイル上のUTF-8のバイト列に対するFNV-1aハッシュ（hash(String)と同じ値になる）
+     */
+    static long hash(SegmentedMappedFile file, long position, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (file.get(position + i) & 0xFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * ファイル上のUTF-8のバイト列が文字列と一致するか
+     */
+    static boolean equals(SegmentedMappedFile file, long position, int length, String value) {
+        int offset = 0;
+        for (int i = 0; i < value.length(); i += Character.charCount(value.codePointAt(i))) {
+            long packed = pack(value.codePointAt(i));
+            for (int b = 0; b < count(packed); b++) {
+                if (offset >= length || file.get(position + offset++) != byteAt(packed, b)) {
+                    return false;
+                }
+            }
+        }
+        return offset == length;
+    }
+
+    // 下位8ビットにバイト数、その上位に先頭から順にエンコード結果のバイトを詰める
+    private static long pack(int codePoint) {
+        if (codePoint < 0x80) {
+            return ((long) codePoint << 8) | 1;
+        }
+        if (codePoint < 0x800) {
+            return ((long) (0xC0 | (codePoint >> 6)) << 8)
+                    | ((long) (0x80 | (codePoint & 0x3F)) << 16) | 2;
+        }
+        if (codePoint < 0x10000) {
+            return ((long) (0xE0 | (codePoint >> 12)) << 8)
+                    | ((long) (0x80 | ((codePoint >> 6) & 0x3F)) << 16)
+                    | ((long) (0x80 | (codePoint & 0x3F)) << 24) | 3;
+        }
+        return ((long) (0xF0 | (codePoint >> 18)) << 8)
+                | ((long) (0x80 | ((codePoint >> 12) & 0x3F)) << 16)
+                | ((long) (0x80 | ((codePoint >> 6) & 0x3F)) << 24)
+                | ((long) (0x80 | (codePoint & 0x3F)) << 32) | 4;
+    }
+
+    private static int count(long packed) {
+        return (int) (packed & 0xFF);
+    }
+
+    private static byte byteAt(long packed, int index) {
+        return (byte) (packed >>> (8 * (index + 1)));
+    }
+}
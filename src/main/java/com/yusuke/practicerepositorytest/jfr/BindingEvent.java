@@ -0,0 +1,27 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * コントローラーの引数1つのバインド（型変換、@RequestBodyの読み込み、検証を含む）
+ */
+@Name("com.yusuke.users.Binding")
+@Label("Controller Binding")
+@Category({ "Users API", "Stages" })
+@Description("コントローラーの引数の解決にかかった時間")
+@StackTrace(false)
+public class BindingEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Parameter")
+    String parameter;
+
+    @Label("Parameter Type")
+    String parameterType;
+}
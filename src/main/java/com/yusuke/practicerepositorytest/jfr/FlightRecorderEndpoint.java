@@ -0,0 +1,65 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * JFRの記録を操作するActuatorエンドポイント（/actuator/jfr）
+ *
+ * <ul>
+ * <li>GET /actuator/jfr - 記録の状態</li>
+ * <li>POST /actuator/jfr/start - 記録を開始する（本文の"settings"でJDKの設定名default・profileを指定できる）</li>
+ * <li>POST /actuator/jfr/dump - 記録を続けたまま、その時点までの内容をファイルへ書き出す</li>
+ * <li>POST /actuator/jfr/stop - 記録を停止してファイルへ書き出す</li>
+ * </ul>
+ * 記録の開始・停止とファイルの書き出しができるため、本番ではアプリケーションのポートではなく
+ * 管理用のポート（management.server.port）だけで公開する。
+ */
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    private final FlightRecordingManager recordingManager;
+
+    public FlightRecorderEndpoint(FlightRecordingManager recordingManager) {
+        this.recordingManager = recordingManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return recordingManager.status();
+    }
+
+    @WriteOperation
+    public Map<String, Object> control(@Selector String action, @Nullable String settings) {
+        try {
+            return switch (action) {
+                case "start" -> recordingManager.start(settings);
+                case "dump" -> dumped(recordingManager.dump());
+                case "stop" -> dumped(recordingManager.stop());
+                default -> throw new InvalidEndpointRequestException("Unknown action: " + action,
+                        "Unknown action (expected start, dump or stop)");
+            };
+        } catch (IllegalArgumentException | ParseException e) {
+            throw new InvalidEndpointRequestException("Invalid settings: " + settings,
+                    "Invalid settings (expected default or profile)");
+        } catch (IllegalStateException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Object> dumped(Path path) {
+        return Map.of("file", path.toAbsolutePath().toString());
+    }
+}
@@ -0,0 +1,46 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * JFRのイベント（リクエストの各段階）と記録の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.jfr")
+public class FlightRecorderProperties {
+
+    // trueの場合にコントローラー・Hibernateへ計測を組み込み、/actuator/jfrを登録する
+    private boolean enabled = true;
+
+    // trueの場合は起動時から記録を開始する（max-age・max-sizeを超えた古いデータは破棄される）
+    private boolean continuous = false;
+
+    // JDKの設定（default: 常時記録向けの低負荷な設定、profile: 詳細な設定）
+    @NotBlank
+    @Pattern(regexp = "default|profile")
+    private String settings = "default";
+
+    // このアプリのイベントを記録する最小の処理時間（0の場合はすべて記録する）
+    @NotNull
+    private Duration threshold = Duration.ZERO;
+
+    @NotNull
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+
+    // ダンプの出力先
+    @NotBlank
+    private String directory = "data/jfr";
+}
@@ -0,0 +1,145 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * このアプリのイベントを含むJFRの記録の開始・停止・ダンプ
+ *
+ * 同時に扱う記録は1つだけ。ダンプは記録を続けたまま、その時点までの内容をファイルへ書き出す。
+ */
+@Slf4j
+public class FlightRecordingManager implements DisposableBean {
+
+    static final String RECORDING_NAME = "users-api";
+
+    private static final List<Class<? extends Event>> EVENT_TYPES = List.of(RequestEvent.class, BindingEvent.class,
+            SpecificationEvent.class, SqlRenderEvent.class, JdbcExecutionEvent.class, SerializationEvent.class);
+    // 記録の設定はJDKに同梱の名前付きの設定だけを受け付ける（任意のファイルを読み込ませない）
+    static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final FlightRecorderProperties properties;
+    private Recording recording;
+
+    public FlightRecordingManager(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startContinuousRecording() throws IOException, ParseException {
+        if (properties.isContinuous()) {
+            start(null);
+            log.info("Started continuous flight recording ({})", properties.getSettings());
+        }
+    }
+
+    /**
+     * 記録を開始する（記録中の場合は何もしない）
+     *
+     * @param settings JDKの設定名（defaultまたはprofile。nullの場合はapp.jfr.settings）
+     * @throws IllegalArgumentException 設定名がdefault・profile以外の場合
+     */
+    public synchronized Map<String, Object> start(String settings) throws IOException, ParseException {
+        String name = settings != null ? settings : properties.getSettings();
+        if (!SETTINGS.contains(name)) {
+            throw new IllegalArgumentException("Unsupported settings: " + name + " (expected default or profile)");
+        }
+        if (isRecording()) {
+            return status();
+        }
+        Recording next = new Recording(Configuration.getConfiguration(name));
+        next.setName(RECORDING_NAME);
+        next.setToDisk(true);
+        next.setMaxAge(properties.getMaxAge());
+        next.setMaxSize(properties.getMaxSize().toBytes());
+        for (Class<? extends Event> eventType : EVENT_TYPES) {
+            next.enable(eventType).withThreshold(properties.getThreshold());
+        }
+        next.start();
+        recording = next;
+        return status();
+    }
+
+    /**
+     * 記録中の内容をファイルへ書き出す（記録は続ける）
+     */
+    public synchronized Path dump() throws IOException {
+        if (!isRecording()) {
+            throw new IllegalStateException("No flight recording in progress");
+        }
+        Path path = dumpPath();
+        recording.dump(path);
+        log.info("Dumped flight recording to {}", path);
+        return path;
+    }
+
+    /**
+     * 記録を停止し、内容をファイルへ書き出す
+     */
+    public synchronized Path stop() throws IOException {
+        Path path = dump();
+        recording.close();
+        recording = null;
+        return path;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("recording", isRecording());
+        if (recording != null) {
+            status.put("name", recording.getName());
+            status.put("state", recording.getState().name());
+            status.put("startTime", String.valueOf(recording.getStartTime()));
+            status.put("maxAge", String.valueOf(recording.getMaxAge()));
+            status.put("maxSize", recording.getMaxSize());
+            status.put("size", recording.getSize());
+        }
+        status.put("threshold", properties.getThreshold().toString());
+        status.put("directory", Paths.get(properties.getDirectory()).toAbsolutePath().toString());
+        return status;
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private Path dumpPath() throws IOException {
+        Path directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        String baseName = RECORDING_NAME + "-" + LocalDateTime.now().format(FILE_TIMESTAMP);
+        Path path = directory.resolve(baseName + ".jfr");
+        for (int i = 1; Files.exists(path); i++) {
+            path = directory.resolve(baseName + "-" + i + ".jfr");
+        }
+        return path;
+    }
+}
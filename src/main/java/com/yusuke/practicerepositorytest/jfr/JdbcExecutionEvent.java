@@ -0,0 +1,27 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * HibernateによるJDBCのステートメントの実行（結果セットの読み込みは含まない）
+ */
+@Name("com.yusuke.users.JdbcExecution")
+@Label("JDBC Execution")
+@Category({ "Users API", "Stages" })
+@Description("JDBCのステートメントの実行時間")
+@StackTrace(false)
+public class JdbcExecutionEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Batch")
+    boolean batch;
+}
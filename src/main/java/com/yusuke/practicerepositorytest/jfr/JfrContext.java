@@ -0,0 +1,65 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+/**
+ * JFRイベントに付けるリクエストの情報（スレッドごと）
+ *
+ * 各段階のイベントはリクエストを処理するスレッドで発生するため、エンドポイント、最後に発行したSQL、
+ * 書き出した行数をスレッドローカルで受け渡す。JfrRequestInterceptorが設定し、リクエストの完了時に破棄する。
+ */
+public final class JfrContext {
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+    private JfrContext() {
+    }
+
+    /**
+     * 処理中のエンドポイント（HTTPメソッドとURIパターン）。リクエストの外ではnull
+     */
+    public static String endpoint() {
+        return STATE.get().endpoint;
+    }
+
+    static void begin(String endpoint) {
+        State state = STATE.get();
+        state.endpoint = endpoint;
+        state.rows = 0;
+    }
+
+    static long end() {
+        long rows = STATE.get().rows;
+        STATE.remove();
+        return rows;
+    }
+
+    static void addRows(long rows) {
+        STATE.get().rows += rows;
+    }
+
+    // Specificationの組み立て完了時に開始し、SQLの確定時に記録する
+    static void pendingRender(SqlRenderEvent event) {
+        STATE.get().pendingRender = event;
+    }
+
+    static SqlRenderEvent takePendingRender() {
+        State state = STATE.get();
+        SqlRenderEvent event = state.pendingRender;
+        state.pendingRender = null;
+        return event;
+    }
+
+    static void lastSql(String sql) {
+        STATE.get().lastSql = sql;
+    }
+
+    static String lastSql() {
+        return STATE.get().lastSql;
+    }
+
+    private static final class State {
+        private String endpoint;
+        private String lastSql;
+        private SqlRenderEvent pendingRender;
+        private long rows;
+    }
+}
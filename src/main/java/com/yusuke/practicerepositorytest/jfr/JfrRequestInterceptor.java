@@ -0,0 +1,61 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * リクエスト全体をRequestEventとして記録し、各段階のイベントへエンドポイントを渡す
+ */
+public class JfrRequestInterceptor implements HandlerInterceptor {
+
+    private static final String EVENT_ATTRIBUTE = JfrRequestInterceptor.class.getName() + ".event";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        JfrContext.begin(request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern));
+        RequestEvent event = new RequestEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            request.setAttribute(EVENT_ATTRIBUTE, event);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        String endpoint = JfrContext.endpoint();
+        long rows = JfrContext.end();
+        if (!(request.getAttribute(EVENT_ATTRIBUTE) instanceof RequestEvent event)) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.parameterNames = parameterNames(request.getQueryString());
+            event.status = response.getStatus();
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    // クエリ文字列からパラメーター名だけを取り出す（値は記録しない）
+    static String parameterNames(String queryString) {
+        if (queryString == null || queryString.isEmpty()) {
+            return "";
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String pair : queryString.split("&")) {
+            int separator = pair.indexOf('=');
+            names.add(separator >= 0 ? pair.substring(0, separator) : pair);
+        }
+        return String.join(",", names);
+    }
+}
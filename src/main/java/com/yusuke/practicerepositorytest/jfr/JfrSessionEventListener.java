@@ -0,0 +1,58 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * HibernateのJDBCの実行をJdbcExecutionEventとして記録する
+ *
+ * セッションごとに生成される（hibernate.session.events.auto）。セッションは1スレッドで使われるため同期しない。
+ */
+public class JfrSessionEventListener implements SessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private JdbcExecutionEvent execution;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        finish(false);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        start();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        finish(true);
+    }
+
+    private void start() {
+        JdbcExecutionEvent event = new JdbcExecutionEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            execution = event;
+        }
+    }
+
+    private void finish(boolean batch) {
+        JdbcExecutionEvent event = execution;
+        execution = null;
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = JfrContext.endpoint();
+            event.sql = JfrContext.lastSql();
+            event.batch = batch;
+            event.commit();
+        }
+    }
+}
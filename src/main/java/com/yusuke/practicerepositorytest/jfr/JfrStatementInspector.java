@@ -0,0 +1,26 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * HibernateがSQLを確定した時点でSqlRenderEventを記録し、JDBCの実行イベント向けにSQLを保持する
+ */
+public class JfrStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String inspect(String sql) {
+        JfrContext.lastSql(sql);
+        SqlRenderEvent render = JfrContext.takePendingRender();
+        if (render != null) {
+            render.end();
+            if (render.shouldCommit()) {
+                render.endpoint = JfrContext.endpoint();
+                render.sql = sql;
+                render.commit();
+            }
+        }
+        return sql;
+    }
+}
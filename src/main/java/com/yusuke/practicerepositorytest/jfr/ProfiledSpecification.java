@@ -0,0 +1,97 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * 条件の組み立て（toPredicate）をSpecificationEventとして記録するSpecification
+ *
+ * 組み立ての完了時にSqlRenderEventを開始し、HibernateがSQLを確定するまでの時間を計測する（JfrStatementInspector）。
+ * イベントが無効な場合は元のSpecificationを呼ぶだけで、パラメーターの文字列化も行わない。
+ * パラメーターは値を記録せず、型だけを記録する。
+ */
+public final class ProfiledSpecification<T> implements Specification<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final Specification<T> delegate;
+    private final Object[] parameters;
+
+    private ProfiledSpecification(String name, Specification<T> delegate, Object[] parameters) {
+        this.name = name;
+        this.delegate = delegate;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Specificationに名前とパラメーターを付けて計測の対象にする
+     */
+    public static <T> Specification<T> of(String name, Specification<T> delegate, Object... parameters) {
+        return new ProfiledSpecification<>(name, delegate, parameters);
+    }
+
+    /**
+     * 計測の対象にしたSpecification
+     */
+    public Specification<T> delegate() {
+        return delegate;
+    }
+
+    /**
+     * 元のSpecificationどうしを組み合わせ（単純化できる場合はまとめられる）、名前とパラメーターを連結する
+     */
+    @Override
+    public Specification<T> and(@Nullable Specification<T> other) {
+        if (!(other instanceof ProfiledSpecification<T> profiled)) {
+            return of(name, delegate.and(other), parameters);
+        }
+        Object[] combined = Arrays.copyOf(parameters, parameters.length + profiled.parameters.length);
+        System.arraycopy(profiled.parameters, 0, combined, parameters.length, profiled.parameters.length);
+        return of(name + "+" + profiled.name, delegate.and(profiled.delegate), combined);
+    }
+
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        SpecificationEvent event = new SpecificationEvent();
+        if (!event.isEnabled()) {
+            return delegate.toPredicate(root, query, criteriaBuilder);
+        }
+        event.begin();
+        Predicate predicate = delegate.toPredicate(root, query, criteriaBuilder);
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = JfrContext.endpoint();
+            event.specification = name;
+            event.parameterTypes = parameterTypes();
+            event.commit();
+        }
+        SqlRenderEvent render = new SqlRenderEvent();
+        if (render.isEnabled()) {
+            render.begin();
+            JfrContext.pendingRender(render);
+        }
+        return predicate;
+    }
+
+    private String parameterTypes() {
+        StringJoiner types = new StringJoiner(", ", "[", "]");
+        for (Object parameter : parameters) {
+            types.add(parameter == null ? "null" : parameter.getClass().getSimpleName());
+        }
+        return types.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name + Arrays.toString(parameters);
+    }
+}
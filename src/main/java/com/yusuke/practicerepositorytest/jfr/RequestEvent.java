@@ -0,0 +1,32 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ユーザーAPIの1リクエスト全体（ハンドラーの選択後からレスポンスの書き出し完了まで）
+ */
+@Name("com.yusuke.users.Request")
+@Label("Users API Request")
+@Category({ "Users API" })
+@Description("ユーザーAPIのリクエスト全体の処理時間")
+@StackTrace(false)
+public class RequestEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    // 検索条件の値（名前・メールアドレスなど）はファイルに残さず、パラメーター名だけを記録する
+    @Label("Parameter Names")
+    String parameterNames;
+
+    @Label("Status")
+    int status;
+
+    @Label("Rows")
+    @Description("レスポンスへ書き出した行数")
+    long rows;
+}
@@ -0,0 +1,43 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Jacksonによるレスポンスの書き出し
+ *
+ * 遅延して読み込むIterable（全件のストリーミングなど）では、書き出し中のDBからの読み込みも含む。
+ */
+@Name("com.yusuke.users.Serialization")
+@Label("Serialization")
+@Category({ "Users API", "Stages" })
+@Description("ユーザーをJSON/CBORへ書き出した時間")
+@StackTrace(false)
+public class SerializationEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Format")
+    String format;
+
+    @Label("Rows")
+    long rows;
+
+    /**
+     * 計測を終え、しきい値を超えていれば記録する
+     */
+    public void complete(String format, long rows) {
+        end();
+        if (shouldCommit()) {
+            this.endpoint = JfrContext.endpoint();
+            this.format = format;
+            this.rows = rows;
+            commit();
+        }
+        JfrContext.addRows(rows);
+    }
+}
@@ -0,0 +1,28 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SpecificationからのCriteriaの条件の組み立て（toPredicate）
+ */
+@Name("com.yusuke.users.Specification")
+@Label("Specification Criteria")
+@Category({ "Users API", "Stages" })
+@Description("SpecificationがCriteriaの条件を組み立てた時間")
+@StackTrace(false)
+public class SpecificationEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Specification")
+    String specification;
+
+    // 検索条件の値（名前・メールアドレスなど）はファイルに残さず、型だけを記録する（nullは未指定）
+    @Label("Parameter Types")
+    String parameterTypes;
+}
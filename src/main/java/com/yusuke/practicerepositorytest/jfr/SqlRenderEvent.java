@@ -0,0 +1,24 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * HibernateによるCriteriaからSQLへの変換（Specificationの組み立て完了からSQL文字列の確定まで）
+ */
+@Name("com.yusuke.users.SqlRender")
+@Label("SQL Rendering")
+@Category({ "Users API", "Stages" })
+@Description("CriteriaのクエリをSQLへ変換した時間")
+@StackTrace(false)
+public class SqlRenderEvent extends jdk.jfr.Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("SQL")
+    String sql;
+}
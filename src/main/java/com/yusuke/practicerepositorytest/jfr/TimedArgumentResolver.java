@@ -0,0 +1,48 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * 引数の解決をBindingEventとして記録するHandlerMethodArgumentResolver
+ *
+ * JfrRequestInterceptorの対象（ユーザーAPI）のリクエストだけを記録する。
+ */
+public class TimedArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final HandlerMethodArgumentResolver delegate;
+
+    public TimedArgumentResolver(HandlerMethodArgumentResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return delegate.supportsParameter(parameter);
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+            NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        BindingEvent event = new BindingEvent();
+        String endpoint = JfrContext.endpoint();
+        if (endpoint == null || !event.isEnabled()) {
+            return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+        }
+        event.begin();
+        try {
+            return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.endpoint = endpoint;
+                event.parameter = parameter.getParameterName();
+                event.parameterType = parameter.getParameterType().getSimpleName();
+                event.commit();
+            }
+        }
+    }
+}
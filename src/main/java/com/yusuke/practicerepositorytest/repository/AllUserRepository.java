@@ -0,0 +1,48 @@
+package com.yusuke.practicerepositorytest.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.yusuke.practicerepositorytest.entity.AllUser;
+
+@Repository
+public interface AllUserRepository
+        extends JpaRepository<AllUser, Long>, JpaSpecificationExecutor<AllUser> {
+
+    // 以下のネイティブクエリはアーカイブの行を含むため、書き込み可能なUserではなく読み取り専用のAllUserで返す
+    // （呼び出し側でtoUserにより永続化コンテキストに属さないUserへ変換する）
+
+    // ホットテーブルとアーカイブに共通の列（アーカイブにだけあるarchived_atを除く）
+    String TIER_COLUMNS = "id, name, email, age, created_at, updated_at, deleted_at, version,"
+            + " name_normalized, email_domain, email_reversed";
+
+    // 一覧・全件スキャン: アーカイブを含めて、IDの範囲(afterId, lastId]をキーセットでチャンク取得する
+    // 各テーブルを主キーの順に上限まで読み、1つの文（同じスナップショット）でマージする
+    @Query(value = "SELECT * FROM ("
+            + "(SELECT " + TIER_COLUMNS + " FROM users WHERE id > :afterId AND id <= :lastId"
+            + " AND deleted_at IS NULL ORDER BY id LIMIT :limit)"
+            + " UNION ALL (SELECT " + TIER_COLUMNS + " FROM users_archive WHERE id > :afterId AND id <= :lastId"
+            + " AND deleted_at IS NULL ORDER BY id LIMIT :limit)"
+            + ") u ORDER BY u.id LIMIT :limit", nativeQuery = true)
+    List<AllUser> findChunkIncludingArchived(@Param("afterId") long afterId, @Param("lastId") long lastId,
+            @Param("limit") int limit);
+
+    // 差分同期: (updatedAt, id)のキーセットで変更を取得する
+    // 更新日時はコミット前に設定されるため、追いついた呼び出し側はChangeWatermark#rewindToで戻して読み直す
+    // 論理削除済みの行もトゥームストーンとして返すため、エンティティの制約を通らないネイティブクエリを使用
+    // アーカイブへの移動では更新日時が変わらないため、アーカイブの行も同じキーセットで読んでマージする
+    @Query(value = "SELECT * FROM ("
+            + "(SELECT " + TIER_COLUMNS + " FROM users WHERE updated_at >= :since"
+            + " AND (updated_at > :since OR id > :afterId) ORDER BY updated_at, id LIMIT :limit)"
+            + " UNION ALL (SELECT " + TIER_COLUMNS + " FROM users_archive WHERE updated_at >= :since"
+            + " AND (updated_at > :since OR id > :afterId) ORDER BY updated_at, id LIMIT :limit)"
+            + ") u ORDER BY u.updated_at, u.id LIMIT :limit", nativeQuery = true)
+    List<AllUser> findChangesSince(@Param("since") LocalDateTime since, @Param("afterId") long afterId,
+            @Param("limit") int limit);
+}
@@ -0,0 +1,29 @@
+package com.yusuke.practicerepositorytest.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.yusuke.practicerepositorytest.entity.ArchivedUser;
+
+@Repository
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, Long>, JpaSpecificationExecutor<ArchivedUser> {
+
+    ArchivedUser findByEmail(String email);
+
+    List<ArchivedUser> findByNameContainingIgnoreCaseOrderByIdAsc(String name);
+
+    List<ArchivedUser> findByAgeOrderByIdAsc(Integer age);
+
+    // メールアドレスの使用状況（論理削除済みを含む）
+    @Query(value = "SELECT COUNT(*) FROM users_archive u WHERE u.email = :email", nativeQuery = true)
+    long countByEmailIncludingDeleted(@Param("email") String email);
+
+    @Query(value = "SELECT u.email FROM users_archive u WHERE u.email IN (:emails)", nativeQuery = true)
+    List<String> findExistingEmailsIncludingDeleted(@Param("emails") Collection<String> emails);
+}
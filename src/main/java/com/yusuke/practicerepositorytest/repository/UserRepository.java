@@ -1,23 +1,66 @@
 package com.yusuke.practicerepositorytest.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.yusuke.practicerepositorytest.entity.User;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>, UserRepositoryCustom {
 
     // 基本的なクエリメソッドも追加可能
     // 例: メールアドレスで検索
     User findByEmail(String email);
 
+    // キャッシュのウォームアップ: メールアドレスのINクエリでまとめて取得
+    List<User> findByEmailIn(Collection<String> emails);
+
+    // メールアドレスの使用状況: 一意制約は論理削除済みの行にも適用されるため、エンティティの制約を通らないネイティブクエリを使用
+    @Query(value = "SELECT COUNT(*) FROM users u WHERE u.email = :email", nativeQuery = true)
+    long countByEmailIncludingDeleted(@Param("email") String email);
+
+    @Query(value = "SELECT u.email FROM users u WHERE u.email IN (:emails)", nativeQuery = true)
+    List<String> findExistingEmailsIncludingDeleted(@Param("emails") Collection<String> emails);
+
     // 例: 年齢で検索
     List<User> findByAge(Integer age);
 
     // 例: 名前の部分一致検索
     List<User> findByNameContainingIgnoreCase(String name);
+
+    // 楽観ロックの条件付き更新（バージョンが一致する場合だけ更新し、更新件数を返す）
+    // 一括更新ではエンティティのコールバックや監査が動かないため、派生カラム・更新日時・バージョンも設定する
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.name = :#{#user.name}, u.email = :#{#user.email}, u.age = :#{#user.age},"
+            + " u.nameNormalized = :#{#user.nameNormalized}, u.emailDomain = :#{#user.emailDomain},"
+            + " u.emailReversed = :#{#user.emailReversed}, u.updatedAt = :#{#user.updatedAt},"
+            + " u.version = u.version + 1"
+            + " WHERE u.id = :#{#user.id} AND u.version = :expectedVersion AND u.deletedAt IS NULL")
+    int updateIfVersionMatches(@Param("user") User user, @Param("expectedVersion") long expectedVersion);
+
+    // 全件スキャンの範囲: アーカイブを含めたIDの最小値・最大値
+    @Query(value = "SELECT MIN(u.id) FROM (SELECT MIN(id) AS id FROM users WHERE deleted_at IS NULL"
+            + " UNION ALL SELECT MIN(id) FROM users_archive WHERE deleted_at IS NULL) u", nativeQuery = true)
+    Long findMinId();
+
+    @Query(value = "SELECT MAX(u.id) FROM (SELECT MAX(id) AS id FROM users WHERE deleted_at IS NULL"
+            + " UNION ALL SELECT MAX(id) FROM users_archive WHERE deleted_at IS NULL) u", nativeQuery = true)
+    Long findMaxId();
+
+    // キーセットページの境界: アーカイブを含めてoffset番目とその次のIDを返す（2件あれば次のページがある）
+    // 各テーブルからはoffset + 2件（limit）まで読めば足りる
+    @Query(value = "SELECT u.id FROM ("
+            + "(SELECT id FROM users WHERE id > :afterId AND deleted_at IS NULL ORDER BY id LIMIT :limit)"
+            + " UNION ALL (SELECT id FROM users_archive WHERE id > :afterId AND deleted_at IS NULL"
+            + " ORDER BY id LIMIT :limit)"
+            + ") u ORDER BY u.id LIMIT 2 OFFSET :offset", nativeQuery = true)
+    List<Long> findPageBoundaryIds(@Param("afterId") long afterId, @Param("offset") int offset,
+            @Param("limit") int limit);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.yusuke.practicerepositorytest.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+public interface UserRepositoryCustom {
+
+    // ページの内容のみを取得する（count(*)を実行しない）
+    List<User> findPageContent(Specification<User> spec, Pageable pageable);
+}
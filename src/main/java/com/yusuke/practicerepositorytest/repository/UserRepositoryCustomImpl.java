@@ -0,0 +1,22 @@
+package com.yusuke.practicerepositorytest.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<User> findPageContent(Specification<User> spec, Pageable pageable) {
+        return PageContentQuery.find(entityManager, User.class, spec, pageable);
+    }
+}
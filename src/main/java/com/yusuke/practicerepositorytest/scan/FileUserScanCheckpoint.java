@@ -0,0 +1,61 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * 進捗をプロパティファイルに保存するチェックポイント
+ * 
+ * 書き込み途中で中断しても壊れないよう、一時ファイルに書いてから置き換える。
+ */
+public class FileUserScanCheckpoint implements UserScanCheckpoint {
+
+    private final Path path;
+    private final Map<Long, Long> progress = new TreeMap<>();
+
+    public FileUserScanCheckpoint(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized Map<Long, Long> load() throws IOException {
+        progress.clear();
+        if (Files.exists(path)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            properties.forEach((key, value) -> progress.put(Long.valueOf((String) key), Long.valueOf((String) value)));
+        }
+        return Map.copyOf(progress);
+    }
+
+    @Override
+    public synchronized void save(long rangeStart, long lastProcessedId) throws IOException {
+        progress.put(rangeStart, lastProcessedId);
+
+        Properties properties = new Properties();
+        progress.forEach((key, value) -> properties.setProperty(key.toString(), value.toString()));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "user scan checkpoint (range start = last processed id)");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 進捗を削除する（スキャンを最初からやり直す場合）
+     */
+    public synchronized void clear() throws IOException {
+        progress.clear();
+        Files.deleteIfExists(path);
+    }
+}
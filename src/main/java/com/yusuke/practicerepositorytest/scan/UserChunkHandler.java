@@ -0,0 +1,17 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.util.List;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+/**
+ * スキャンで読み込んだチャンクの処理
+ * 
+ * 複数のスレッドから並行して呼び出される。チャンクを読み込んだトランザクションの終了後に呼び出すため、
+ * 渡されるユーザーはデタッチ済みで、処理中にDBコネクションを保持しない。
+ */
+@FunctionalInterface
+public interface UserChunkHandler {
+
+    void handle(List<User> chunk) throws Exception;
+}
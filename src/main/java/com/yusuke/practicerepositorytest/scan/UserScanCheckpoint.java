@@ -0,0 +1,37 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.util.Map;
+
+/**
+ * スキャンの進捗の保存先（中断したスキャンを再開するために使用する）
+ * 
+ * IDの範囲の開始位置ごとに、処理済みの最後のIDを保持する。
+ */
+public interface UserScanCheckpoint {
+
+    /**
+     * 保存済みの進捗（範囲の開始位置 → 処理済みの最後のID）
+     */
+    Map<Long, Long> load() throws Exception;
+
+    /**
+     * チャンクの処理後に進捗を保存する（複数のスレッドから呼び出される）
+     */
+    void save(long rangeStart, long lastProcessedId) throws Exception;
+
+    /**
+     * 進捗を保存しない
+     */
+    static UserScanCheckpoint none() {
+        return new UserScanCheckpoint() {
+            @Override
+            public Map<Long, Long> load() {
+                return Map.of();
+            }
+
+            @Override
+            public void save(long rangeStart, long lastProcessedId) {
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * スキャンのオプション（未指定の項目はapp.scan.*の設定を使用する）
+ */
+@Value
+@Builder
+public class UserScanOptions {
+
+    // 1トランザクションで読み込む件数
+    Integer chunkSize;
+
+    // 並列に処理するIDの範囲の幅
+    Long rangeSize;
+
+    // 同時に処理する範囲の数（DBコネクションプールの最大接続数以下にする）
+    Integer parallelism;
+
+    // 範囲を処理するExecutor（ForkJoinPoolなど）。未指定の場合はスキャン用のスレッドプールを使用する
+    Executor executor;
+
+    @Builder.Default
+    UserScanCheckpoint checkpoint = UserScanCheckpoint.none();
+
+    // チャンクの処理ごとに呼び出される
+    Consumer<UserScanProgress> progressListener;
+
+    public static UserScanOptions defaults() {
+        return builder().build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import lombok.Value;
+
+/**
+ * スキャンの進捗
+ */
+@Value
+public class UserScanProgress {
+
+    // 処理済みの範囲の数（チェックポイントから再開してスキップした範囲を含む）
+    long completedRanges;
+
+    long totalRanges;
+
+    // 今回のスキャンで処理したユーザー数
+    long processedUsers;
+}
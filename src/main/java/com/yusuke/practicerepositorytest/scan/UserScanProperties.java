@@ -0,0 +1,26 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * 全件スキャンの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.scan")
+public class UserScanProperties {
+
+    @Min(1)
+    private int chunkSize = 1000;
+
+    @Min(1)
+    private long rangeSize = 100_000;
+
+    // スキャン用のスレッドプールのサイズ。未指定の場合はCPUコア数
+    @Min(1)
+    private Integer parallelism;
+}
@@ -0,0 +1,29 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.time.Duration;
+
+import lombok.Value;
+
+/**
+ * スキャンの結果
+ */
+@Value
+public class UserScanResult {
+
+    long processedUsers;
+
+    long totalRanges;
+
+    // チェックポイントで処理済みだったためスキップした範囲の数
+    long skippedRanges;
+
+    Duration elapsed;
+
+    /**
+     * 1秒あたりの処理件数
+     */
+    public double usersPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return processedUsers * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,210 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.yusuke.practicerepositorytest.entity.AllUser;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.AllUserRepository;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ID空間を範囲に分割し、範囲ごとにチャンク単位で並列に読み込む全件スキャン（アーカイブを含む）
+ * 
+ * 範囲はIDの絶対値でrangeSizeごとに区切るため、再開時にも同じ範囲となり、チェックポイントの進捗をそのまま使用できる。
+ * チャンクごとに独立した読み取り専用トランザクション（永続化コンテキスト）で読み込み、トランザクションの終了後にハンドラーを呼び出す。
+ */
+@Slf4j
+@Component
+public class UserScanner {
+
+    private final UserRepository userRepository;
+    private final AllUserRepository allUserRepository;
+    private final UserScanProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService defaultExecutor;
+
+    public UserScanner(UserRepository userRepository, AllUserRepository allUserRepository,
+            UserScanProperties properties, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.allUserRepository = allUserRepository;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.defaultExecutor = Executors.newFixedThreadPool(defaultParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "user-scan-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        defaultExecutor.shutdownNow();
+    }
+
+    /**
+     * 全ユーザーをスキャンする（全ての範囲の処理が終わるまで戻らない）
+     * 
+     * ハンドラーが例外を投げた場合は残りの範囲の処理を中止し、IllegalStateExceptionを投げる。
+     * チェックポイントには完了したチャンクまでの進捗が残るため、同じチェックポイントで再実行すると続きから処理する。
+     */
+    public UserScanResult scan(UserScanOptions options, UserChunkHandler handler) {
+        long startNanos = System.nanoTime();
+        int chunkSize = options.getChunkSize() != null ? options.getChunkSize() : properties.getChunkSize();
+        long rangeSize = options.getRangeSize() != null ? options.getRangeSize() : properties.getRangeSize();
+        int parallelism = options.getParallelism() != null ? options.getParallelism() : defaultParallelism();
+        Executor executor = options.getExecutor() != null ? options.getExecutor() : defaultExecutor;
+        UserScanCheckpoint checkpoint = options.getCheckpoint();
+
+        Long minId = userRepository.findMinId();
+        Long maxId = userRepository.findMaxId();
+        if (minId == null) {
+            return new UserScanResult(0, 0, 0, elapsedSince(startNanos));
+        }
+
+        Map<Long, Long> saved;
+        try {
+            saved = checkpoint.load();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load user scan checkpoint", e);
+        }
+
+        // 範囲は(start, start + rangeSize]
+        Queue<IdRange> ranges = new ConcurrentLinkedQueue<>();
+        long totalRanges = 0;
+        long skippedRanges = 0;
+        for (long start = Math.floorDiv(minId - 1, rangeSize) * rangeSize; start < maxId; start += rangeSize) {
+            totalRanges++;
+            long end = start + rangeSize;
+            long afterId = Math.max(start, saved.getOrDefault(start, start));
+            if (afterId >= end) {
+                skippedRanges++;
+            } else {
+                ranges.add(new IdRange(start, end, afterId));
+            }
+        }
+
+        ScanState state = new ScanState(totalRanges, skippedRanges, options);
+        int workers = (int) Math.min(parallelism, ranges.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(
+                    () -> runWorker(ranges, state, chunkSize, checkpoint, handler), executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // 最初の失敗を報告する
+        }
+
+        Throwable failure = state.failure.get();
+        if (failure != null) {
+            throw new IllegalStateException("User scan failed after " + state.processedUsers.get() + " users", failure);
+        }
+
+        UserScanResult result = new UserScanResult(state.processedUsers.get(), totalRanges, skippedRanges,
+                elapsedSince(startNanos));
+        log.info("User scan finished: {} users, {} ranges ({} skipped) in {} ms ({} users/s)",
+                result.getProcessedUsers(), totalRanges, skippedRanges, result.getElapsed().toMillis(),
+                Math.round(result.usersPerSecond()));
+        return result;
+    }
+
+    private void runWorker(Queue<IdRange> ranges, ScanState state, int chunkSize, UserScanCheckpoint checkpoint,
+            UserChunkHandler handler) {
+        try {
+            IdRange range;
+            while (state.failure.get() == null && (range = ranges.poll()) != null) {
+                scanRange(range, state, chunkSize, checkpoint, handler);
+            }
+        } catch (Throwable e) {
+            state.failure.compareAndSet(null, e);
+        }
+    }
+
+    private void scanRange(IdRange range, ScanState state, int chunkSize, UserScanCheckpoint checkpoint,
+            UserChunkHandler handler) throws Exception {
+        long afterId = range.afterId();
+        while (state.failure.get() == null) {
+            long from = afterId;
+            List<User> chunk = readOnlyTransaction.execute(
+                    status -> allUserRepository.findChunkIncludingArchived(from, range.end(), chunkSize).stream()
+                            .map(AllUser::toUser)
+                            .toList());
+
+            boolean lastChunk = chunk.size() < chunkSize;
+            if (!chunk.isEmpty()) {
+                handler.handle(chunk);
+                afterId = chunk.get(chunk.size() - 1).getId();
+                state.processedUsers.addAndGet(chunk.size());
+            }
+
+            // 範囲の最後まで処理した場合は範囲の終端を記録し、再開時にスキップさせる
+            checkpoint.save(range.start(), lastChunk ? range.end() : afterId);
+            if (lastChunk) {
+                state.completedRanges.incrementAndGet();
+            }
+            state.notifyProgress();
+            if (lastChunk) {
+                return;
+            }
+        }
+    }
+
+    private int defaultParallelism() {
+        return properties.getParallelism() != null
+                ? properties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    private static Duration elapsedSince(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    private record IdRange(long start, long end, long afterId) {
+    }
+
+    private static class ScanState {
+
+        final long totalRanges;
+        final AtomicLong completedRanges;
+        final AtomicLong processedUsers = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final UserScanOptions options;
+
+        ScanState(long totalRanges, long skippedRanges, UserScanOptions options) {
+            this.totalRanges = totalRanges;
+            this.completedRanges = new AtomicLong(skippedRanges);
+            this.options = options;
+        }
+
+        void notifyProgress() {
+            if (options.getProgressListener() != null) {
+                options.getProgressListener().accept(
+                        new UserScanProgress(completedRanges.get(), totalRanges, processedUsers.get()));
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.time.LocalDateTime;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 差分同期で読み直しが不要になる時刻（DBの現在時刻からapp.changes.overlapを引いた時刻）
+ *
+ * これより前の更新日時の行は後からコミットされないため、取り込みが追いついたウォーターマークはこの時刻より前には戻さない。
+ * 更新日時と同じくDBの時計で求め、JVMとの時刻のずれに影響されない。
+ */
+@Component
+@RequiredArgsConstructor
+public class ChangeFeedHorizon {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeFeedProperties properties;
+
+    /**
+     * 現在の読み直しの境界
+     */
+    public LocalDateTime current() {
+        return jdbcTemplate.queryForObject("SELECT TIMESTAMPADD(MICROSECOND, ?, LOCALTIMESTAMP(6))",
+                LocalDateTime.class, -properties.getOverlap().toNanos() / 1000);
+    }
+}
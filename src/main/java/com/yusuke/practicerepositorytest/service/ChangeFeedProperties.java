@@ -0,0 +1,22 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 差分同期の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.changes")
+public class ChangeFeedProperties {
+
+    // 取り込みが追いついたときにウォーターマークを戻す幅（書き込みのトランザクションの最大の長さより長くする）
+    @NotNull
+    private Duration overlap = Duration.ofMinutes(1);
+}
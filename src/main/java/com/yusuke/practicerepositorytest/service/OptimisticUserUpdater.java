@@ -0,0 +1,163 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.yusuke.practicerepositorytest.archive.UserArchiver;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 楽観ロック（UPDATE ... WHERE version = ?）によるユーザーの更新
+ *
+ * 行ロックを取らずに読み込み、バージョンが変わっていない場合だけ更新する。
+ * <ul>
+ * <li>期待するバージョンを指定した場合（If-Match）は、異なれば再試行せずに失敗する</li>
+ * <li>指定しない場合は競合したら読み直して最大max-attempts回まで試行する</li>
+ * </ul>
+ * 更新は名前・メールアドレス・年齢をすべて置き換える（nullの項目もそのまま設定する）。
+ * 再試行は、最初に読み込んだ行から他の更新が変えた項目と、この更新が変える項目が重ならない場合だけ行い、
+ * 他の更新が変えた項目は最新の値を保持する。重なる場合は他の更新を上書きしないよう、再試行せずに失敗する。
+ * 試行ごとに短いトランザクションを使う。呼び出し元のトランザクションに参加している場合は、
+ * 読み直しても同じスナップショットとなるため再試行しない。
+ * アーカイブへ移した行は、同じトランザクションでホットテーブルへ戻してから更新する。
+ * メールアドレスを変更する場合は、アーカイブで使用されていないことも確認する（DataIntegrityViolationException）。
+ */
+@Component
+public class OptimisticUserUpdater {
+
+    private final UserRepository userRepository;
+    private final UserArchiver userArchiver;
+    private final UserUpdateProperties properties;
+    private final TransactionTemplate writeTransaction;
+    private final Counter retriedConflicts;
+    private final Counter rejectedConflicts;
+
+    public OptimisticUserUpdater(UserRepository userRepository, UserArchiver userArchiver,
+            UserUpdateProperties properties, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userArchiver = userArchiver;
+        this.properties = properties;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.retriedConflicts = meterRegistry.counter("users.update.conflicts", "outcome", "retried");
+        this.rejectedConflicts = meterRegistry.counter("users.update.conflicts", "outcome", "rejected");
+    }
+
+    /**
+     * ユーザーを更新する
+     *
+     * @param id              ユーザーID
+     * @param replacement     更新後の内容（名前・メールアドレス・年齢を置き換える）
+     * @param expectedVersion 期待するバージョン（nullの場合は競合しない限り最新の行に適用する）
+     * @param afterUpdate     更新に成功したトランザクション内で呼ばれる処理（コミット後の反映の登録など）
+     * @return 更新後のユーザー
+     * @throws UserVersionConflictException バージョンが一致しない、または再試行の上限に達した場合
+     */
+    public User update(Long id, User replacement, Long expectedVersion, Consumer<User> afterUpdate) {
+        boolean retryable = expectedVersion == null && !TransactionSynchronizationManager.isActualTransactionActive();
+        int maxAttempts = retryable ? properties.getMaxAttempts() : 1;
+        User firstRead = null;
+        for (int attempt = 1;; attempt++) {
+            User base = firstRead;
+            Attempt result = writeTransaction.execute(
+                    status -> tryUpdate(id, replacement, expectedVersion, base, afterUpdate));
+            if (result.updated() != null) {
+                return result.updated();
+            }
+            if (firstRead == null) {
+                firstRead = result.read();
+            }
+            if (attempt >= maxAttempts || !result.retryable()) {
+                rejectedConflicts.increment();
+                throw new UserVersionConflictException(id, expectedVersion != null);
+            }
+            retriedConflicts.increment();
+            backoff(id, attempt);
+        }
+    }
+
+    // 競合した場合はupdatedがnullの結果を返す（例外で呼び出し元のトランザクションをロールバック対象にしない）
+    private Attempt tryUpdate(Long id, User replacement, Long expectedVersion, User firstRead,
+            Consumer<User> afterUpdate) {
+        User current = userRepository.findById(id)
+                .or(() -> userArchiver.restore(id))
+                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+        long version = current.getVersion();
+        if (expectedVersion != null && expectedVersion != version) {
+            return new Attempt(current, null, false);
+        }
+        User base = firstRead != null ? firstRead : current;
+        if (overlaps(base, current, replacement)) {
+            return new Attempt(current, null, false);
+        }
+
+        // アーカイブのメールアドレスはホットテーブルの一意制約では検出できないため、変更する場合だけ確認する
+        if (replacement.getEmail() != null && !replacement.getEmail().equalsIgnoreCase(current.getEmail())
+                && userArchiver.emailInUse(replacement.getEmail())) {
+            throw new DataIntegrityViolationException("Duplicate email in archived users: " + replacement.getEmail());
+        }
+
+        User next = replace(base, current, replacement);
+        if (userRepository.updateIfVersionMatches(next, version) == 0) {
+            return new Attempt(current, null, true);
+        }
+        next.setVersion(version + 1);
+        afterUpdate.accept(next);
+        return new Attempt(current, next, false);
+    }
+
+    // 最初に読み込んだ行から他の更新が変えた項目を、この更新も変えるか
+    static boolean overlaps(User base, User current, User replacement) {
+        return changed(base.getName(), current.getName()) && changed(base.getName(), replacement.getName())
+                || changed(base.getEmail(), current.getEmail()) && changed(base.getEmail(), replacement.getEmail())
+                || changed(base.getAge(), current.getAge()) && changed(base.getAge(), replacement.getAge());
+    }
+
+    // この更新が変える項目を置き換え、それ以外は最新の行の値を保持した新しいユーザー（競合がなければreplacementと同じ内容）
+    static User replace(User base, User current, User replacement) {
+        User next = User.builder()
+                .id(current.getId())
+                .name(changed(base.getName(), replacement.getName()) ? replacement.getName() : current.getName())
+                .email(changed(base.getEmail(), replacement.getEmail()) ? replacement.getEmail() : current.getEmail())
+                .age(changed(base.getAge(), replacement.getAge()) ? replacement.getAge() : current.getAge())
+                .createdAt(current.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .version(current.getVersion())
+                .build();
+        next.deriveSearchColumns();
+        return next;
+    }
+
+    private static boolean changed(Object before, Object after) {
+        return !Objects.equals(before, after);
+    }
+
+    private void backoff(Long id, int attempt) {
+        long maxNanos = properties.getRetryBackoff().toNanos() << Math.min(attempt - 1, 10);
+        if (maxNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(maxNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserVersionConflictException(id, false);
+        }
+    }
+
+    // read: 読み込んだ行、updated: 更新後のユーザー（競合した場合はnull）、retryable: 読み直して再試行できるか
+    private record Attempt(User read, User updated, boolean retryable) {
+    }
+}
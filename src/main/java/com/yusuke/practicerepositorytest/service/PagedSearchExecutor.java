@@ -0,0 +1,184 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.yusuke.practicerepositorytest.archive.UserArchiver;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.specification.UserSpecification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * ページネーション付き検索の内容とcount(*)の実行
+ * 
+ * 全ユーザーのビュー（users_all）はUNIONが実体化されるため使わず、ホットテーブルとアーカイブをそれぞれ条件とソートで
+ * ページの末尾（offset + size）まで読む。アーカイブに一致する行がなければホットテーブルの結果をそのまま使い、
+ * あれば両方の候補をDBで並べ直してページを切り出す（UserArchiver#findPageIds）。総件数は2つのテーブルのcount(*)の和。
+ * 並びを一意にするため、ソートの最後にIDを加える。
+ * 
+ * PARALLELモードではcount(*)を専用のスレッドの別トランザクション（別コネクション）で、内容を呼び出し元のスレッドで
+ * 並行に実行し、レイテンシーを2つのクエリの合計ではなく遅い方に近づける。
+ * 2つのクエリは別のスナップショットを読むため、間に更新があると総件数と内容が食い違いうる。
+ * 呼び出し元がトランザクション（接続）を保持したまま別の接続を待つとプールを枯渇させるため、
+ * トランザクションの中から呼ばれた場合は並行に実行せず、そのトランザクションで順に実行する。
+ */
+@Component
+public class PagedSearchExecutor {
+
+    private final UserRepository userRepository;
+    private final UserArchiver userArchiver;
+    private final PagingProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor countExecutor;
+    private final Counter inconsistentPages;
+
+    public PagedSearchExecutor(UserRepository userRepository, UserArchiver userArchiver, PagingProperties properties,
+            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userArchiver = userArchiver;
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.inconsistentPages = meterRegistry.counter("users.paging.inconsistent");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 空きスレッドがない場合は呼び出し元で実行し、逐次実行と同等に縮退させる
+        this.countExecutor = new ThreadPoolExecutor(0, properties.getCountThreads(), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "paged-count-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        countExecutor.shutdownNow();
+    }
+
+    /**
+     * 設定されたモードでページを取得する
+     */
+    public Page<User> findPage(Specification<User> spec, Pageable pageable) {
+        if (properties.getMode() == PagingProperties.Mode.SEQUENTIAL || pageable.isUnpaged()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return findPageSequential(spec, pageable);
+        }
+        return findPageParallel(spec, pageable);
+    }
+
+    Page<User> findPageSequential(Specification<User> spec, Pageable pageable) {
+        return readOnlyTransaction.execute(status -> PageableExecutionUtils.getPage(findContent(spec, pageable),
+                pageable, () -> count(spec)));
+    }
+
+    Page<User> findPageParallel(Specification<User> spec, Pageable pageable) {
+        CompletableFuture<Long> count = CompletableFuture.supplyAsync(
+                () -> readOnlyTransaction.execute(status -> count(spec)), countExecutor);
+        List<User> content = readOnlyTransaction.execute(status -> findContent(spec, pageable));
+
+        long total;
+        try {
+            total = count.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        if (!isConsistent(pageable.getOffset(), pageable.getPageSize(), content.size(), total)) {
+            inconsistentPages.increment();
+            if (properties.getConsistency() == PagingProperties.Consistency.VERIFIED) {
+                return findPageSequential(spec, pageable);
+            }
+        }
+        return new PageImpl<>(content, pageable, resolveTotal(pageable.getOffset(), pageable.getPageSize(),
+                content.size(), total));
+    }
+
+    // 各テーブルをページの末尾まで読み、アーカイブに一致する行があればDBで並べ直してページを切り出す
+    private List<User> findContent(Specification<User> spec, Pageable pageable) {
+        Sort sort = pageable.getSort().getOrderFor("id") == null
+                ? pageable.getSort().and(Sort.by("id"))
+                : pageable.getSort();
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int candidates = pageable.isPaged()
+                ? (int) Math.min(Integer.MAX_VALUE, offset + pageable.getPageSize())
+                : Integer.MAX_VALUE;
+        int pageSize = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+
+        List<User> hot = userRepository.findBy(spec, query -> query.sortBy(sort).limit(candidates).all());
+        List<User> archived = userArchiver.findAll(UserSpecification.retarget(spec), sort, candidates);
+        if (archived.isEmpty()) {
+            return slice(hot, offset, pageSize);
+        }
+        if (hot.isEmpty()) {
+            return slice(archived, offset, pageSize);
+        }
+
+        Map<Long, User> byId = new HashMap<>();
+        archived.forEach(user -> byId.put(user.getId(), user));
+        hot.forEach(user -> byId.put(user.getId(), user));
+        return userArchiver.findPageIds(hot.stream().map(User::getId).toList(),
+                archived.stream().map(User::getId).toList(), sort, offset, pageSize).stream()
+                .map(byId::get)
+                .toList();
+    }
+
+    private long count(Specification<User> spec) {
+        return userRepository.count(spec) + userArchiver.count(UserSpecification.retarget(spec));
+    }
+
+    private static List<User> slice(List<User> sorted, long offset, int pageSize) {
+        int from = (int) Math.min(offset, sorted.size());
+        return sorted.subList(from, (int) Math.min(sorted.size(), from + (long) pageSize));
+    }
+
+    /**
+     * ページの内容の件数と総件数が矛盾しないか
+     */
+    static boolean isConsistent(long offset, int pageSize, int contentSize, long total) {
+        if (contentSize == pageSize) {
+            return total >= offset + contentSize;
+        }
+        if (contentSize == 0) {
+            // 範囲外のページ
+            return total <= offset;
+        }
+        // 最後のページ
+        return total == offset + contentSize;
+    }
+
+    /**
+     * 内容から総件数が確定する場合はその値を使う
+     */
+    static long resolveTotal(long offset, int pageSize, int contentSize, long total) {
+        if (contentSize > 0 && contentSize < pageSize) {
+            return offset + contentSize;
+        }
+        return Math.max(total, offset + contentSize);
+    }
+}
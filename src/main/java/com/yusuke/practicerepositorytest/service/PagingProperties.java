@@ -0,0 +1,41 @@
+package com.yusuke.practicerepositorytest.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * ページネーション付き検索の実行方法の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.paging")
+public class PagingProperties {
+
+    @NotNull
+    private Mode mode = Mode.SEQUENTIAL;
+
+    @NotNull
+    private Consistency consistency = Consistency.VERIFIED;
+
+    // count(*)を実行するスレッドの最大数（使い切った場合は呼び出し元のスレッドで順に実行する）
+    @Min(1)
+    private int countThreads = 8;
+
+    public enum Mode {
+        // 1つのトランザクションで内容とcount(*)を順に実行する
+        SEQUENTIAL,
+        // 内容とcount(*)を別々のトランザクション・コネクションで並行に実行する
+        PARALLEL
+    }
+
+    public enum Consistency {
+        // 2つのクエリの間の更新による総件数のずれを許容する（内容から総件数が確定する場合はそれを使う）
+        RELAXED,
+        // 内容と総件数が矛盾する場合は1つのトランザクションで実行し直す
+        VERIFIED
+    }
+}
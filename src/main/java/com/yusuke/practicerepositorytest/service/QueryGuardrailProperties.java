@@ -0,0 +1,40 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * クエリのガードレール設定（行数上限・ページサイズ上限・タイムアウト・ソート可能な項目）
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.query-guardrails")
+public class QueryGuardrailProperties {
+
+    // ページネーションなしの一覧・検索で返す最大行数
+    @Min(1)
+    private int maxRows = 1000;
+
+    // ページネーション付き検索のページサイズ上限
+    @Min(1)
+    private int maxPageSize = 100;
+
+    // JDBCのクエリタイムアウト
+    @NotNull
+    private Duration queryTimeout = Duration.ofSeconds(5);
+
+    // sortByに指定できるプロパティ
+    @NotEmpty
+    private Set<String> allowedSortProperties = new LinkedHashSet<>(
+            List.of("id", "name", "email", "age", "createdAt", "updatedAt"));
+}
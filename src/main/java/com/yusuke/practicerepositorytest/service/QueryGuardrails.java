@@ -0,0 +1,79 @@
+package com.yusuke.practicerepositorytest.service;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * クエリのガードレールの判定とメトリクス
+ * 
+ * 打ち切り・制限・拒否・タイムアウトはusers.query.guardrailカウンターにtypeタグ付きで記録する。
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryGuardrails {
+
+    static final String METRIC_NAME = "users.query.guardrail";
+
+    private final QueryGuardrailProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * ページネーションなしの検索で返す最大行数
+     */
+    public int maxRows() {
+        return properties.getMaxRows();
+    }
+
+    /**
+     * 要求された行数を上限内に収める
+     */
+    public int clampRows(int requested, String endpoint) {
+        if (requested > properties.getMaxRows()) {
+            count("row-cap", endpoint);
+            return properties.getMaxRows();
+        }
+        return Math.max(1, requested);
+    }
+
+    /**
+     * 要求されたページサイズを上限内に収める
+     */
+    public int clampPageSize(int requested, String endpoint) {
+        if (requested > properties.getMaxPageSize()) {
+            count("page-size", endpoint);
+            return properties.getMaxPageSize();
+        }
+        return Math.max(1, requested);
+    }
+
+    /**
+     * ソート可能なプロパティか（許可されていない場合は拒否として記録する）
+     */
+    public boolean isSortAllowed(String property, String endpoint) {
+        if (properties.getAllowedSortProperties().contains(property)) {
+            return true;
+        }
+        count("sort-rejected", endpoint);
+        return false;
+    }
+
+    /**
+     * 結果が行数上限で打ち切られたことを記録
+     */
+    public void recordTruncated(String endpoint) {
+        count("truncated", endpoint);
+    }
+
+    /**
+     * クエリがタイムアウトで中断されたことを記録
+     */
+    public void recordTimeout(String endpoint) {
+        count("timeout", endpoint);
+    }
+
+    private void count(String type, String endpoint) {
+        meterRegistry.counter(METRIC_NAME, "type", type, "endpoint", endpoint).increment();
+    }
+}
@@ -0,0 +1,71 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.yusuke.practicerepositorytest.entity.AllUser;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.AllUserRepository;
+
+/**
+ * IDのキーセットでユーザー（アーカイブを含む）をチャンク単位に遅延取得するIterator
+ * 
+ * チャンクごとに別のクエリとなるため、全体として一貫したスナップショットにはならない。
+ */
+class UserChunkIterator implements Iterator<User> {
+
+    private final AllUserRepository allUserRepository;
+    private final int chunkSize;
+
+    private Iterator<User> current = Collections.emptyIterator();
+    private long lastId;
+    private long remaining;
+    private boolean exhausted;
+
+    UserChunkIterator(AllUserRepository allUserRepository, int chunkSize) {
+        this(allUserRepository, chunkSize, 0L, Long.MAX_VALUE);
+    }
+
+    UserChunkIterator(AllUserRepository allUserRepository, int chunkSize, long afterId, long maxRows) {
+        this.allUserRepository = allUserRepository;
+        this.chunkSize = chunkSize;
+        this.lastId = afterId;
+        this.remaining = maxRows;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (current.hasNext()) {
+            return true;
+        }
+        if (exhausted || remaining <= 0) {
+            return false;
+        }
+
+        int size = (int) Math.min(chunkSize, remaining);
+        List<User> chunk = allUserRepository.findChunkIncludingArchived(lastId, Long.MAX_VALUE, size).stream()
+                .map(AllUser::toUser)
+                .toList();
+        if (chunk.size() < size) {
+            exhausted = true;
+        }
+        remaining -= chunk.size();
+        if (chunk.isEmpty()) {
+            return false;
+        }
+
+        lastId = chunk.get(chunk.size() - 1).getId();
+        current = chunk.iterator();
+        return true;
+    }
+
+    @Override
+    public User next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+}
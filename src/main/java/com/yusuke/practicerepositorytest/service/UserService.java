@@ -1,17 +1,55 @@
 package com.yusuke.practicerepositorytest.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.yusuke.practicerepositorytest.archive.UserArchiver;
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker;
+import com.yusuke.practicerepositorytest.cache.TwoTierUserCache;
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.dto.DuplicateCandidate;
+import com.yusuke.practicerepositorytest.dto.DuplicateCluster;
+import com.yusuke.practicerepositorytest.dto.UserChanges;
+import com.yusuke.practicerepositorytest.dto.UserImportResult;
+import com.yusuke.practicerepositorytest.dto.UserSuggestion;
+import com.yusuke.practicerepositorytest.duplicate.LshIndex;
+import com.yusuke.practicerepositorytest.duplicate.UserDuplicateDetector;
+import com.yusuke.practicerepositorytest.entity.AllUser;
+import com.yusuke.practicerepositorytest.entity.ArchivedUser;
 import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.index.EmailExistenceFilter;
+import com.yusuke.practicerepositorytest.index.OffHeapUserIndex;
+import com.yusuke.practicerepositorytest.index.UserSuggestIndex;
+import com.yusuke.practicerepositorytest.repository.AllUserRepository;
 import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.scan.UserChunkHandler;
+import com.yusuke.practicerepositorytest.scan.UserScanOptions;
+import com.yusuke.practicerepositorytest.scan.UserScanResult;
+import com.yusuke.practicerepositorytest.scan.UserScanner;
 import com.yusuke.practicerepositorytest.specification.UserSpecification;
 
 import lombok.RequiredArgsConstructor;
@@ -21,41 +59,193 @@ import lombok.RequiredArgsConstructor;
 @Transactional(readOnly = true)
 public class UserService {
 
+    private static final int IMPORT_CHECK_BATCH_SIZE = 1000;
+
     private final UserRepository userRepository;
+    private final AllUserRepository allUserRepository;
+    private final Optional<OffHeapUserIndex> offHeapIndex;
+    private final Optional<TwoTierUserCache> userCache;
+    private final UserScanner userScanner;
+    private final Optional<EmailExistenceFilter> emailFilter;
+    private final PagedSearchExecutor pagedSearchExecutor;
+    private final OptimisticUserUpdater userUpdater;
+    private final UserArchiver userArchiver;
+    private final Optional<UserSuggestIndex> suggestIndex;
+    private final Optional<HotKeyTracker> hotKeyTracker;
+    private final Optional<UserDuplicateDetector> duplicateDetector;
+    private final ChangeFeedHorizon changeFeedHorizon;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * 全てのユーザーを取得
+     * 全てのユーザー（アーカイブを含む）をID順に取得
      */
     public List<User> findAllUsers() {
-        return userRepository.findAll();
+        return UserArchiver.mergeById(userRepository.findAll(Sort.by("id")), userArchiver.findAll(),
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * 全てのユーザーをIDのチャンク単位で遅延取得（一覧を一度にメモリへ載せない）
+     */
+    public Iterable<User> iterateAllUsers(int chunkSize) {
+        return () -> new UserChunkIterator(allUserRepository, chunkSize);
+    }
+
+    /**
+     * afterIdより後のユーザーを最大maxRows件、IDのチャンク単位で遅延取得
+     */
+    public Iterable<User> iterateUsers(long afterId, int maxRows, int chunkSize) {
+        return () -> new UserChunkIterator(allUserRepository, chunkSize, afterId, maxRows);
+    }
+
+    /**
+     * afterIdから始まるmaxRows件のページの後に続きがあれば、次のページのafterIdを返す
+     */
+    public Optional<Long> findNextAfterId(long afterId, int maxRows) {
+        List<Long> boundary = userRepository.findPageBoundaryIds(afterId, maxRows - 1, maxRows + 1);
+        return boundary.size() > 1 ? Optional.of(boundary.get(0)) : Optional.empty();
+    }
+
+    /**
+     * 全てのユーザーをIDの範囲ごとに並列にスキャンし、チャンク単位でハンドラーに渡す
+     * 
+     * チャンクごとに短い読み取り専用トランザクションを使用するため、呼び出し元のトランザクションには参加しない。
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserScanResult scanAllUsers(UserScanOptions options, UserChunkHandler handler) {
+        return userScanner.scan(options, handler);
     }
 
     /**
-     * IDでユーザーを取得
+     * IDでユーザーを取得（ホットテーブルになければアーカイブを探す）
      */
     public Optional<User> findUserById(Long id) {
-        return userRepository.findById(id);
+        Supplier<Optional<User>> loader = () -> userRepository.findById(id).or(() -> userArchiver.findById(id));
+        Optional<User> user = offHeapIndex.flatMap(index -> index.findById(id))
+                .or(() -> userCache.map(cache -> cache.findById(id, loader)).orElseGet(loader));
+        hotKeyTracker.ifPresent(tracker -> user.ifPresent(found -> tracker.recordId(found.getId())));
+        return user;
     }
 
     /**
-     * メールアドレスでユーザーを取得
+     * メールアドレスでユーザーを取得（ホットテーブルになければアーカイブを探す）
      */
     public Optional<User> findUserByEmail(String email) {
-        return Optional.ofNullable(userRepository.findByEmail(email));
+        Supplier<Optional<User>> loader = () -> Optional.ofNullable(userRepository.findByEmail(email))
+                .or(() -> userArchiver.findByEmail(email));
+        Optional<User> user = offHeapIndex.flatMap(index -> index.findByEmail(email))
+                .or(() -> userCache.map(cache -> cache.findByEmail(email, loader)).orElseGet(loader));
+        // 保存されている表記のメールアドレスを記録する（ウォームアップのINクエリで一致させるため）
+        hotKeyTracker.ifPresent(tracker -> user.ifPresent(found -> tracker.recordEmail(found.getEmail())));
+        return user;
+    }
+
+    /**
+     * メールアドレスが使用されているか（論理削除済みを含む）
+     * 
+     * 他ノードで登録された直後のメールアドレスはBloomフィルターに取り込まれていないため、フィルターは使わず常にDBで確認する
+     * （フィルターで未使用と判定して省略するのは、一意制約で最終的に検出できる登録時の確認だけ）。
+     * 使用されていた場合は、取り込みを待たずにこのノードのフィルターへ追加する。
+     */
+    public boolean emailExists(String email) {
+        boolean exists = userRepository.countByEmailIncludingDeleted(email) > 0 || userArchiver.emailInUse(email);
+        if (exists) {
+            emailFilter.ifPresent(filter -> filter.add(email));
+        }
+        return exists;
     }
 
     /**
-     * 名前で部分一致検索
+     * 入力補完の候補（名前・メールアドレスの前方一致）を最大limit件取得
+     * 
+     * メモリ上のインデックスが使えない場合は、正規化した名前の前方一致でDBを検索する。
+     */
+    public List<UserSuggestion> suggestUsers(String prefix, int limit) {
+        if (suggestIndex.isPresent() && suggestIndex.get().isReady()) {
+            return suggestIndex.get().suggest(prefix, limit);
+        }
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return findCapped(UserSpecification.nameStartsWith(prefix), limit).getContent().stream()
+                .map(user -> new UserSuggestion(user.getId(), user.getName(), user.getEmail(),
+                        UserSuggestion.MatchedOn.NAME))
+                .toList();
+    }
+
+    /**
+     * 重複アカウントの疑いがあるユーザーのまとまりを最大limit件返す
+     *
+     * 重複の検出が無効、またはインデックスを構築中の場合は空を返す。
+     */
+    public Optional<List<DuplicateCluster>> findDuplicateClusters(int limit) {
+        return readyDuplicateDetector().map(detector -> {
+            List<LshIndex.Cluster> clusters = detector.findClusters(limit);
+            Map<Long, User> users = findUsersByIds(
+                    clusters.stream().flatMap(cluster -> cluster.ids().stream()).toList());
+            // インデックスへの反映より先に削除・アーカイブされたユーザーは除く
+            return clusters.stream()
+                    .map(cluster -> new DuplicateCluster(
+                            cluster.ids().stream().map(users::get).filter(Objects::nonNull).toList(),
+                            cluster.similarity()))
+                    .filter(cluster -> cluster.getUsers().size() > 1)
+                    .toList();
+        });
+    }
+
+    /**
+     * ユーザーと重複の疑いがあるユーザーを一致率の高い順に返す
+     *
+     * 重複の検出が無効、またはインデックスを構築中の場合は空を返す。
+     */
+    public Optional<List<DuplicateCandidate>> findDuplicatesOf(Long id) {
+        return readyDuplicateDetector().map(detector -> {
+            List<LshIndex.Match> matches = detector.findDuplicates(id);
+            Map<Long, User> users = findUsersByIds(matches.stream().map(LshIndex.Match::id).toList());
+            return matches.stream()
+                    .filter(match -> users.containsKey(match.id()))
+                    .map(match -> new DuplicateCandidate(users.get(match.id()), match.similarity()))
+                    .toList();
+        });
+    }
+
+    private Optional<UserDuplicateDetector> readyDuplicateDetector() {
+        return duplicateDetector.filter(UserDuplicateDetector::isReady);
+    }
+
+    private Map<Long, User> findUsersByIds(List<Long> ids) {
+        return allUserRepository.findAllById(ids).stream().map(AllUser::toUser)
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    /**
+     * 名前で部分一致検索（アーカイブを含めてID順）
      */
     public List<User> findUsersByNameContaining(String name) {
-        return userRepository.findByNameContainingIgnoreCase(name);
+        return UserArchiver.mergeById(userRepository.findByNameContainingIgnoreCase(name),
+                userArchiver.findByNameContaining(name), Integer.MAX_VALUE);
     }
 
     /**
-     * 年齢で検索
+     * 年齢で検索（アーカイブを含めてID順）
      */
     public List<User> findUsersByAge(Integer age) {
-        return userRepository.findByAge(age);
+        return UserArchiver.mergeById(userRepository.findByAge(age), userArchiver.findByAge(age), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 名前で部分一致検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersByNameContaining(String name, int maxRows) {
+        return findCapped(UserSpecification.nameLike(name), maxRows);
+    }
+
+    /**
+     * 年齢で検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersByAge(Integer age, int maxRows) {
+        return findCapped(UserSpecification.ageEquals(age), maxRows);
     }
 
     /**
@@ -63,7 +253,14 @@ public class UserService {
      */
     public List<User> findUsersByNameLike(String name) {
         Specification<User> spec = UserSpecification.nameLike(name);
-        return userRepository.findAll(spec);
+        return findAll(spec);
+    }
+
+    /**
+     * Specificationを使用した動的クエリ - 名前で検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersByNameLike(String name, int maxRows) {
+        return findCapped(UserSpecification.nameLike(name), maxRows);
     }
 
     /**
@@ -71,7 +268,14 @@ public class UserService {
      */
     public List<User> findUsersByEmailLike(String email) {
         Specification<User> spec = UserSpecification.emailLike(email);
-        return userRepository.findAll(spec);
+        return findAll(spec);
+    }
+
+    /**
+     * Specificationを使用した動的クエリ - メールアドレスで検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersByEmailLike(String email, int maxRows) {
+        return findCapped(UserSpecification.emailLike(email), maxRows);
     }
 
     /**
@@ -79,7 +283,14 @@ public class UserService {
      */
     public List<User> findUsersByAgeBetween(Integer minAge, Integer maxAge) {
         Specification<User> spec = UserSpecification.ageBetween(minAge, maxAge);
-        return userRepository.findAll(spec);
+        return findAll(spec);
+    }
+
+    /**
+     * Specificationを使用した動的クエリ - 年齢範囲で検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersByAgeBetween(Integer minAge, Integer maxAge, int maxRows) {
+        return findCapped(UserSpecification.ageBetween(minAge, maxAge), maxRows);
     }
 
     /**
@@ -87,24 +298,66 @@ public class UserService {
      */
     public List<User> searchUsers(String name, String email, Integer minAge, Integer maxAge) {
         Specification<User> spec = UserSpecification.searchUsers(name, email, minAge, maxAge);
-        return userRepository.findAll(spec);
+        return findAll(spec);
+    }
+
+    /**
+     * Specificationを使用した動的クエリ - 複数条件で検索（最大maxRows件）
+     */
+    public CappedList<User> searchUsers(String name, String email, Integer minAge, Integer maxAge, int maxRows) {
+        return findCapped(UserSpecification.searchUsers(name, email, minAge, maxAge), maxRows);
+    }
+
+    /**
+     * 作成日時の範囲（from以上、to未満）を含む複数条件で検索（最大maxRows件）
+     * 
+     * ホットテーブルは作成日時の条件でインデックスの範囲を絞って検索する。
+     * アーカイブは作成日時の範囲にアーカイブした行が含まれうる場合だけ検索し、ID順にマージする。
+     */
+    public CappedList<User> searchUsers(String name, String email, Integer minAge, Integer maxAge,
+            LocalDateTime createdFrom, LocalDateTime createdTo, int maxRows) {
+        Specification<User> spec = UserSpecification.searchUsers(name, email, minAge, maxAge, createdFrom, createdTo);
+        if (UserSpecification.matchesNothing(spec)) {
+            return CappedList.of(List.of(), maxRows);
+        }
+        List<User> hot = userRepository.findBy(spec, query -> query.sortBy(Sort.by("id")).limit(maxRows + 1).all());
+        if (!userArchiver.mayContainCreatedFrom(createdFrom)) {
+            return CappedList.of(hot, maxRows);
+        }
+        List<User> archived = userArchiver.findAll(
+                UserSpecification.<ArchivedUser>searchUsers(name, email, minAge, maxAge, createdFrom, createdTo),
+                maxRows + 1);
+        return CappedList.of(UserArchiver.mergeById(hot, archived, maxRows + 1), maxRows);
     }
 
     /**
      * Specificationを使用した動的クエリ - ページネーション付き
+     * 
+     * ホットテーブルとアーカイブをそれぞれページの末尾まで検索し、アーカイブに一致する行があれば並べ直してページを切り出す。
+     * 内容とcount(*)はPagedSearchExecutorがそれぞれ短い読み取り専用トランザクションで実行する。
+     * 呼び出し元のトランザクションに参加すると、その接続を保持したままcount(*)用の接続を待つため参加しない。
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Page<User> searchUsersWithPagination(String name, String email, Integer minAge, Integer maxAge,
             Pageable pageable) {
         Specification<User> spec = UserSpecification.searchUsers(name, email, minAge, maxAge);
-        return userRepository.findAll(spec, pageable);
+        if (UserSpecification.matchesNothing(spec)) {
+            return Page.empty(pageable);
+        }
+        return pagedSearchExecutor.findPage(spec, pageable);
     }
 
     /**
-     * Specificationを使用した動的クエリ - ソート付き
+     * Specificationを使用した動的クエリ - ソート付き（アーカイブを含めて任意の列で並べるため全ユーザーのビューを検索する）
      */
     public List<User> searchUsersWithSort(String name, String email, Integer minAge, Integer maxAge, Sort sort) {
         Specification<User> spec = UserSpecification.searchUsers(name, email, minAge, maxAge);
-        return userRepository.findAll(spec, sort);
+        if (UserSpecification.matchesNothing(spec)) {
+            return List.of();
+        }
+        return allUserRepository.findAll(UserSpecification.<AllUser>retarget(spec), sort).stream()
+                .map(AllUser::toUser)
+                .toList();
     }
 
     /**
@@ -117,7 +370,63 @@ public class UserService {
         // AND条件で組み合わせ
         Specification<User> combinedSpec = nameSpec.and(ageSpec);
 
-        return userRepository.findAll(combinedSpec);
+        return findAll(combinedSpec);
+    }
+
+    /**
+     * 複数のSpecificationを組み合わせた検索（最大maxRows件）
+     */
+    public CappedList<User> findUsersWithMultipleSpecifications(String name, Integer minAge, int maxRows) {
+        Specification<User> combinedSpec = UserSpecification.nameLike(name)
+                .and(UserSpecification.ageGreaterThanOrEqualTo(minAge));
+        return findCapped(combinedSpec, maxRows);
+    }
+
+    /**
+     * ホットテーブルとアーカイブをそれぞれID順に上限+1件まで取得してマージし、上限を超えた分は打ち切る
+     */
+    private CappedList<User> findCapped(Specification<User> spec, int maxRows) {
+        if (UserSpecification.matchesNothing(spec)) {
+            return CappedList.of(List.of(), maxRows);
+        }
+        List<User> hot = userRepository.findBy(spec,
+                query -> query.sortBy(Sort.by("id")).limit(maxRows + 1).all());
+        List<User> archived = userArchiver.findAll(UserSpecification.retarget(spec), maxRows + 1);
+        return CappedList.of(UserArchiver.mergeById(hot, archived, maxRows + 1), maxRows);
+    }
+
+    // 範囲が空になるなど、どの行にも一致しない条件はクエリを発行しない
+    private List<User> findAll(Specification<User> spec) {
+        if (UserSpecification.matchesNothing(spec)) {
+            return List.of();
+        }
+        return UserArchiver.mergeById(userRepository.findAll(spec, Sort.by("id")),
+                userArchiver.findAll(UserSpecification.retarget(spec)), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 指定したウォーターマーク以降の変更を(updatedAt, id)順に取得（削除済み・アーカイブ済みを含む）
+     * 
+     * 続きがない（追いついた）場合の次のウォーターマークは最後の変更と読み直しの境界（DBの現在時刻からapp.changes.overlapを
+     * 引いた時刻）の早い方に戻し、後からコミットされた古い更新日時の行を次回に取り込めるようにする。戻した範囲の行は再び返される。
+     */
+    public UserChanges findUserChangesSince(ChangeWatermark since, int limit) {
+        List<User> rows = allUserRepository.findChangesSince(since.getUpdatedAt(), since.getId(), limit + 1).stream()
+                .map(AllUser::toUser)
+                .toList();
+
+        boolean hasMore = rows.size() > limit;
+        List<User> changes = hasMore ? rows.subList(0, limit) : rows;
+
+        ChangeWatermark next = since;
+        if (!changes.isEmpty()) {
+            User last = changes.get(changes.size() - 1);
+            next = new ChangeWatermark(last.getUpdatedAt(), last.getId());
+            if (!hasMore) {
+                next = next.rewindTo(changeFeedHorizon.current(), since);
+            }
+        }
+        return new UserChanges(changes, next.toString(), hasMore);
     }
 
     /**
@@ -125,29 +434,115 @@ public class UserService {
      */
     @Transactional
     public User saveUser(User user) {
-        return userRepository.save(user);
+        // アーカイブのメールアドレスはホットテーブルの一意制約では検出できないため確認する
+        // （Bloomフィルターはアーカイブのメールアドレスも含むため、確実に未使用と判定できれば問い合わせない）
+        if (user.getEmail() != null && (emailFilter.isEmpty() || emailFilter.get().mightContain(user.getEmail()))
+                && userArchiver.emailInUse(user.getEmail())) {
+            throw new DataIntegrityViolationException("Duplicate email in archived users: " + user.getEmail());
+        }
+        return insertUser(user);
+    }
+
+    private User insertUser(User user) {
+        // コミット前に追加し、登録直後の存在確認が未使用と判定されないようにする
+        emailFilter.ifPresent(filter -> filter.add(user.getEmail()));
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(new UserWrittenEvent(savedUser));
+        return savedUser;
     }
 
     /**
-     * ユーザーを更新
+     * ユーザーを一括登録する（使用済みのメールアドレスのユーザーは登録しない）
+     * 
+     * Bloomフィルターで未使用と判定できなかったメールアドレスだけをまとめてDBで確認する。
+     * 確認の後に他のリクエストやノードが同じメールアドレスを登録した場合は一意制約で検出する。
+     * 呼び出し元にトランザクションがなければ1件ずつ別のトランザクションで登録し、一意制約に違反した行だけを重複として扱う
+     * （呼び出し元のトランザクションに参加する場合は、違反すると全体がロールバックされる）。
      */
-    @Transactional
-    public User updateUser(Long id, User userDetails) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + id));
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public UserImportResult importUsers(List<User> users) {
+        Set<String> seen = new HashSet<>();
+        List<User> candidates = new ArrayList<>();
+        List<String> uncertainEmails = new ArrayList<>();
+        List<String> duplicateEmails = new ArrayList<>();
+        for (User user : users) {
+            if (!seen.add(user.getEmail().toLowerCase(Locale.ROOT))) {
+                duplicateEmails.add(user.getEmail());
+                continue;
+            }
+            candidates.add(user);
+            if (emailFilter.isEmpty() || emailFilter.get().mightContain(user.getEmail())) {
+                uncertainEmails.add(user.getEmail());
+            }
+        }
+
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < uncertainEmails.size(); i += IMPORT_CHECK_BATCH_SIZE) {
+            List<String> batch = uncertainEmails.subList(i, Math.min(i + IMPORT_CHECK_BATCH_SIZE, uncertainEmails.size()));
+            userRepository.findExistingEmailsIncludingDeleted(batch)
+                    .forEach(email -> existing.add(email.toLowerCase(Locale.ROOT)));
+            userArchiver.findExistingEmails(batch)
+                    .forEach(email -> existing.add(email.toLowerCase(Locale.ROOT)));
+        }
+        Set<String> uncertain = new HashSet<>(uncertainEmails);
 
-        user.setName(userDetails.getName());
-        user.setEmail(userDetails.getEmail());
-        user.setAge(userDetails.getAge());
+        boolean rowTransactions = !TransactionSynchronizationManager.isActualTransactionActive();
+        List<User> imported = new ArrayList<>();
+        for (User user : candidates) {
+            boolean exists = existing.contains(user.getEmail().toLowerCase(Locale.ROOT));
+            if (uncertain.contains(user.getEmail())) {
+                emailFilter.ifPresent(filter -> filter.recordDatabaseResult(exists));
+            }
+            if (exists) {
+                duplicateEmails.add(user.getEmail());
+            } else if (!rowTransactions) {
+                imported.add(insertUser(user));
+            } else {
+                try {
+                    imported.add(transactionTemplate.execute(status -> insertUser(user)));
+                } catch (DataIntegrityViolationException e) {
+                    duplicateEmails.add(user.getEmail());
+                }
+            }
+        }
+        return new UserImportResult(imported, duplicateEmails, uncertainEmails.size());
+    }
 
-        return userRepository.save(user);
+    /**
+     * ユーザーを更新（競合した場合は、他の更新と同じ項目を変えない限り読み直して再試行する）
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public User updateUser(Long id, User userDetails) {
+        return updateUser(id, userDetails, null);
+    }
+
+    /**
+     * ユーザーを更新（楽観ロック）
+     * 
+     * expectedVersionを指定した場合はそのバージョンのときだけ更新する。
+     * 試行ごとに短いトランザクションを使うため、呼び出し元にトランザクションがなければ新しく開始しない。
+     * 
+     * @throws UserVersionConflictException バージョンが一致しない、または再試行の上限に達した場合
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public User updateUser(Long id, User userDetails, Long expectedVersion) {
+        if (userDetails.getEmail() != null) {
+            emailFilter.ifPresent(filter -> filter.add(userDetails.getEmail()));
+        }
+        return userUpdater.update(id, userDetails, expectedVersion,
+                updatedUser -> eventPublisher.publishEvent(new UserWrittenEvent(updatedUser)));
     }
 
     /**
-     * ユーザーを削除
+     * ユーザーを削除（差分同期のためトゥームストーンとして論理削除する）
+     * 
+     * アーカイブへ移したユーザーはホットテーブルへ戻してから削除する。
      */
     @Transactional
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        userRepository.findById(id).or(() -> userArchiver.restore(id)).ifPresent(user -> {
+            user.setDeletedAt(LocalDateTime.now());
+            eventPublisher.publishEvent(new UserWrittenEvent(user));
+        });
     }
 }
\ No newline at end of file
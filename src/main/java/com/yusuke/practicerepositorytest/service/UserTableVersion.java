@@ -0,0 +1,53 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.sql.Timestamp;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 一覧系のETagに使うテーブル全体のバージョン
+ *
+ * コミット済みのDBの状態（usersの最終更新日時と最大ID、users_archiveの最終アーカイブ日時）だけから求めるため、
+ * 他ノードでの更新やアーカイブへの移動も反映され、同じ状態には常に同じバージョンを返す。
+ * 更新日時を変えない書き込み（SQLで直接行うものなど）は反映されない。
+ *
+ * 更新日時はコミット前に設定されるため、DBの現在時刻からapp.changes.overlap以内の行は、より古い更新日時で
+ * 後からコミットされうる。最終更新日時はそれより前の行だけから求め、overlap以内の行は件数とバージョンの合計で表す
+ * （後からコミットされた行も、行の更新によるversionの増加も反映される）。いずれも(updated_at, id)のインデックスで求まる。
+ */
+@Component
+@RequiredArgsConstructor
+public class UserTableVersion {
+
+    // DBの現在時刻からoverlapを引いた時刻（これより前の更新日時の行は後からコミットされない）
+    private static final String SETTLED_BEFORE = "TIMESTAMPADD(MICROSECOND, ?, LOCALTIMESTAMP(6))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeFeedProperties changeFeedProperties;
+
+    /**
+     * 現在のバージョン
+     */
+    public String current() {
+        long overlapMicros = -changeFeedProperties.getOverlap().toNanos() / 1000;
+        return jdbcTemplate.queryForObject("SELECT"
+                + " (SELECT MAX(updated_at) FROM users WHERE updated_at <= " + SETTLED_BEFORE + "),"
+                + " (SELECT COUNT(*) FROM users WHERE updated_at > " + SETTLED_BEFORE + "),"
+                + " (SELECT SUM(version) FROM users WHERE updated_at > " + SETTLED_BEFORE + "),"
+                + " (SELECT MAX(id) FROM users), (SELECT MAX(archived_at) FROM users_archive)",
+                (rs, rowNum) -> micros(rs.getTimestamp(1)) + "-" + Long.toString(rs.getLong(2), 36) + "-"
+                        + Long.toString(rs.getLong(3), 36) + "-" + Long.toString(rs.getLong(4), 36) + "-"
+                        + micros(rs.getTimestamp(5)),
+                overlapMicros, overlapMicros, overlapMicros);
+    }
+
+    private static String micros(Timestamp timestamp) {
+        if (timestamp == null) {
+            return "0";
+        }
+        return Long.toString(timestamp.getTime() / 1000 * 1_000_000 + timestamp.getNanos() / 1000, 36);
+    }
+}
@@ -0,0 +1,29 @@
+package com.yusuke.practicerepositorytest.service;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * ユーザー更新の楽観ロックと再試行の設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.user-update")
+public class UserUpdateProperties {
+
+    // If-Matchなしの更新が競合した場合の最大試行回数（1の場合は再試行しない）
+    @Min(1)
+    @Max(20)
+    private int maxAttempts = 3;
+
+    // 再試行前の待ち時間の基準値（試行ごとに倍にし、0からその値までのランダムな時間だけ待つ）
+    @NotNull
+    private Duration retryBackoff = Duration.ofMillis(5);
+}
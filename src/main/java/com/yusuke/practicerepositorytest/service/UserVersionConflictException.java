@@ -0,0 +1,22 @@
+package com.yusuke.practicerepositorytest.service;
+
+import lombok.Getter;
+
+/**
+ * 楽観ロックの競合によりユーザーを更新できなかった
+ * 
+ * 呼び出し元がバージョンを指定した（If-Match）場合はpreconditionFailedがtrueとなり、412 Precondition Failedで返す。
+ * 指定せずに再試行の上限に達した場合は409 Conflictで返す。
+ */
+@Getter
+public class UserVersionConflictException extends RuntimeException {
+
+    private final Long id;
+    private final boolean preconditionFailed;
+
+    public UserVersionConflictException(Long id, boolean preconditionFailed) {
+        super("Concurrent update conflict for user id: " + id);
+        this.id = id;
+        this.preconditionFailed = preconditionFailed;
+    }
+}
@@ -0,0 +1,476 @@
+package com.yusuke.practicerepositorytest.specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.yusuke.practicerepositorytest.entity.UserTextNormalizer;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * ユーザー検索の条件（すべてAND）を単純化して保持する
+ *
+ * 条件を作る・組み合わせるたびに次の単純化を行う。
+ * <ul>
+ * <li>空白だけの入力や%だけのパターンなど、常に真になる条件は持たない</li>
+ * <li>年齢・作成日時の条件は1つの範囲にまとめ、範囲が空になった場合は「一致なし」とする（クエリを発行しない）</li>
+ * <li>他の条件から導かれる部分一致・前方一致は取り除き、両立しない前方一致・完全一致は「一致なし」とする</li>
+ * <li>メールアドレスの完全一致が決まっていれば、他のメールアドレスの条件はその場で評価する</li>
+ * </ul>
+ * インスタンスは不変。ユーザーとアーカイブしたユーザーのどちらにも使える。
+ */
+public final class UserCriteria {
+
+    /**
+     * 条件なし（全件に一致する）
+     */
+    public static final UserCriteria ALL = new UserCriteria();
+
+    /**
+     * どの行にも一致しない条件
+     */
+    public static final UserCriteria NONE = none();
+
+    private boolean matchesNothing;
+    // 正規化した名前の部分一致
+    private List<String> nameTerms = List.of();
+    // 正規化した名前の前方一致
+    private String namePrefix;
+    // 小文字にしたメールアドレスの部分一致
+    private List<String> emailTerms = List.of();
+    // 小文字にしたメールアドレスの完全一致
+    private String exactEmail;
+    // 小文字にしたメールアドレスのドメインの完全一致
+    private String emailDomain;
+    // 小文字にしたメールアドレスの後方一致
+    private String emailSuffix;
+    // 年齢の範囲（両端を含む）
+    private Integer minAge;
+    private Integer maxAge;
+    // 作成日時の範囲（from以上、to未満）
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdTo;
+
+    private UserCriteria() {
+    }
+
+    /**
+     * 名前の部分一致（幅・カナ・大文字小文字を区別しない）
+     */
+    public static UserCriteria nameContains(String name) {
+        if (name == null) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.nameTerms = List.of(UserTextNormalizer.normalizeName(name));
+        return criteria.simplify();
+    }
+
+    /**
+     * 名前の前方一致（幅・カナ・大文字小文字を区別しない）
+     */
+    public static UserCriteria nameStartsWith(String prefix) {
+        if (prefix == null) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.namePrefix = UserTextNormalizer.normalizeName(prefix);
+        return criteria.simplify();
+    }
+
+    /**
+     * メールアドレスの部分一致（大文字小文字を区別しない）。完全なメールアドレスでも部分一致のまま扱う
+     */
+    public static UserCriteria emailContains(String email) {
+        if (email == null || email.isBlank()) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.emailTerms = List.of(email.toLowerCase(Locale.ROOT));
+        return criteria.simplify();
+    }
+
+    /**
+     * メールアドレスの完全一致（大文字小文字を区別しない）
+     */
+    public static UserCriteria emailEquals(String email) {
+        if (email == null || email.isBlank()) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.exactEmail = email.toLowerCase(Locale.ROOT);
+        return criteria.simplify();
+    }
+
+    /**
+     * メールアドレスのドメインの完全一致
+     */
+    public static UserCriteria emailDomainEquals(String domain) {
+        if (domain == null || domain.isBlank()) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.emailDomain = domain.trim().toLowerCase(Locale.ROOT);
+        return criteria.simplify();
+    }
+
+    /**
+     * メールアドレスの後方一致（大文字小文字を区別しない）
+     */
+    public static UserCriteria emailEndsWith(String suffix) {
+        if (suffix == null || suffix.isBlank()) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.emailSuffix = suffix.trim().toLowerCase(Locale.ROOT);
+        return criteria.simplify();
+    }
+
+    /**
+     * 年齢の範囲（両端を含む。nullの端は制限しない）
+     */
+    public static UserCriteria ageBetween(Integer minAge, Integer maxAge) {
+        if (minAge == null && maxAge == null) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.minAge = minAge;
+        criteria.maxAge = maxAge;
+        return criteria.simplify();
+    }
+
+    /**
+     * 年齢が指定値より大きい
+     */
+    public static UserCriteria ageGreaterThan(Integer age) {
+        if (age == null) {
+            return ALL;
+        }
+        return age == Integer.MAX_VALUE ? NONE : ageBetween(age + 1, null);
+    }
+
+    /**
+     * 作成日時の範囲（from以上、to未満。nullの端は制限しない）
+     */
+    public static UserCriteria createdBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null && to == null) {
+            return ALL;
+        }
+        UserCriteria criteria = new UserCriteria();
+        criteria.createdFrom = from;
+        criteria.createdTo = to;
+        return criteria.simplify();
+    }
+
+    /**
+     * どの行にも一致しないことが確定しているか
+     */
+    public boolean matchesNothing() {
+        return matchesNothing;
+    }
+
+    /**
+     * 条件がなく全件に一致するか
+     */
+    public boolean matchesAll() {
+        return !matchesNothing && nameTerms.isEmpty() && namePrefix == null && emailTerms.isEmpty()
+                && exactEmail == null && emailDomain == null && emailSuffix == null
+                && minAge == null && maxAge == null && createdFrom == null && createdTo == null;
+    }
+
+    /**
+     * 2つの条件のANDを単純化した条件
+     *
+     * 1つの条件として表せない場合（ワイルドカードを含む前方一致・後方一致どうしなど）は空を返す。
+     */
+    public Optional<UserCriteria> and(UserCriteria other) {
+        if (matchesNothing || other.matchesNothing) {
+            return Optional.of(NONE);
+        }
+        UserCriteria merged = new UserCriteria();
+        merged.nameTerms = concat(nameTerms, other.nameTerms);
+        merged.emailTerms = concat(emailTerms, other.emailTerms);
+        merged.minAge = max(minAge, other.minAge);
+        merged.maxAge = min(maxAge, other.maxAge);
+        merged.createdFrom = max(createdFrom, other.createdFrom);
+        merged.createdTo = min(createdTo, other.createdTo);
+
+        // 完全一致どうしは同じ値でなければ一致しない
+        if (conflicts(exactEmail, other.exactEmail) || conflicts(emailDomain, other.emailDomain)) {
+            return Optional.of(NONE);
+        }
+        merged.exactEmail = exactEmail != null ? exactEmail : other.exactEmail;
+        merged.emailDomain = emailDomain != null ? emailDomain : other.emailDomain;
+
+        // 前方一致・後方一致どうしは、一方が他方を含む場合だけ長い方にまとめられる
+        if (namePrefix != null && other.namePrefix != null) {
+            if (!isLiteral(namePrefix) || !isLiteral(other.namePrefix)) {
+                return Optional.empty();
+            }
+            if (!namePrefix.startsWith(other.namePrefix) && !other.namePrefix.startsWith(namePrefix)) {
+                return Optional.of(NONE);
+            }
+        }
+        merged.namePrefix = longer(namePrefix, other.namePrefix);
+        if (emailSuffix != null && other.emailSuffix != null) {
+            if (!isLiteral(emailSuffix) || !isLiteral(other.emailSuffix)) {
+                return Optional.empty();
+            }
+            if (!emailSuffix.endsWith(other.emailSuffix) && !other.emailSuffix.endsWith(emailSuffix)) {
+                return Optional.of(NONE);
+            }
+        }
+        merged.emailSuffix = longer(emailSuffix, other.emailSuffix);
+        return Optional.of(merged.simplify());
+    }
+
+    /**
+     * 条件をCriteriaのPredicateにする（条件がない場合はnull）
+     */
+    public Predicate toPredicate(Root<?> root, CriteriaBuilder criteriaBuilder) {
+        if (matchesNothing) {
+            return criteriaBuilder.disjunction();
+        }
+        List<Predicate> predicates = new ArrayList<>();
+
+        // 一意な値で絞れる条件を先に置く
+        if (exactEmail != null) {
+            predicates.add(criteriaBuilder.equal(root.get("emailReversed"),
+                    UserTextNormalizer.reverseEmail(exactEmail)));
+        }
+        if (emailDomain != null) {
+            predicates.add(criteriaBuilder.equal(root.get("emailDomain"), emailDomain));
+        }
+        if (emailSuffix != null) {
+            // 逆順にしたメールアドレスの前方一致に変換し、インデックスを使えるようにする
+            predicates.add(criteriaBuilder.like(root.get("emailReversed"),
+                    UserTextNormalizer.reverseEmail(emailSuffix) + "%"));
+        }
+        for (String term : emailTerms) {
+            predicates.add(emailPredicate(root, criteriaBuilder, term));
+        }
+        if (namePrefix != null) {
+            predicates.add(criteriaBuilder.like(root.get("nameNormalized"), namePrefix + "%"));
+        }
+        // 関数で包まずに正規化済みの派生カラムと比較する（幅・カナ・大文字小文字を区別しない）
+        for (String term : nameTerms) {
+            predicates.add(criteriaBuilder.like(root.get("nameNormalized"), "%" + term + "%"));
+        }
+
+        if (minAge != null && minAge.equals(maxAge)) {
+            predicates.add(criteriaBuilder.equal(root.get("age"), minAge));
+        } else if (minAge != null && maxAge != null) {
+            predicates.add(criteriaBuilder.between(root.get("age"), minAge, maxAge));
+        } else if (minAge != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("age"), minAge));
+        } else if (maxAge != null) {
+            predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("age"), maxAge));
+        }
+
+        if (createdFrom != null) {
+            predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), createdFrom));
+        }
+        if (createdTo != null) {
+            predicates.add(criteriaBuilder.lessThan(root.get("createdAt"), createdTo));
+        }
+
+        if (predicates.isEmpty()) {
+            return null;
+        }
+        return predicates.size() == 1 ? predicates.get(0) : criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+    }
+
+    @Override
+    public String toString() {
+        if (matchesNothing) {
+            return "UserCriteria[none]";
+        }
+        return "UserCriteria[nameTerms=" + nameTerms + ", namePrefix=" + namePrefix + ", emailTerms=" + emailTerms
+                + ", exactEmail=" + exactEmail + ", emailDomain=" + emailDomain + ", emailSuffix=" + emailSuffix
+                + ", age=" + minAge + ".." + maxAge + ", created=" + createdFrom + ".." + createdTo + "]";
+    }
+
+    // 常に真の条件・他から導かれる条件を取り除き、矛盾があれば一致なしにする
+    private UserCriteria simplify() {
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            return NONE;
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            return NONE;
+        }
+        if (isTautology(namePrefix)) {
+            namePrefix = null;
+        }
+        if (isTautology(emailSuffix)) {
+            emailSuffix = null;
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String term : nameTerms) {
+            if (!isTautology(term) && !(namePrefix != null && implies(namePrefix, term))) {
+                names.add(term);
+            }
+        }
+        nameTerms = withoutImplied(names);
+
+        List<String> emails = new ArrayList<>();
+        for (String term : emailTerms) {
+            if (!isTautology(term)) {
+                emails.add(term);
+            }
+        }
+
+        if (exactEmail != null) {
+            // 完全一致が決まっていれば、他のメールアドレスの条件はここで評価できる
+            if (emailDomain != null) {
+                if (!emailDomain.equals(UserTextNormalizer.emailDomain(exactEmail))) {
+                    return NONE;
+                }
+                emailDomain = null;
+            }
+            if (emailSuffix != null && isLiteral(emailSuffix)) {
+                if (!exactEmail.endsWith(emailSuffix)) {
+                    return NONE;
+                }
+                emailSuffix = null;
+            }
+            List<String> remaining = new ArrayList<>();
+            for (String term : emails) {
+                if (!isLiteral(term)) {
+                    remaining.add(term);
+                } else if (!exactEmail.contains(term)) {
+                    return NONE;
+                }
+            }
+            emails = remaining;
+        }
+        emailTerms = withoutImplied(emails);
+        return this;
+    }
+
+    // メールアドレスの部分一致
+    // 検索語が@を含む場合、一致するのはドメインが@以降で始まるメールだけなので、
+    // ドメインの派生カラムの前方一致（インデックスを使える）に書き換える。
+    // @より前の部分があればローカル部の条件として元の部分一致も残す。
+    private static Predicate emailPredicate(Root<?> root, CriteriaBuilder criteriaBuilder, String term) {
+        Predicate contains = criteriaBuilder.like(criteriaBuilder.lower(root.get("email")), "%" + term + "%");
+        int at = term.indexOf('@');
+        if (at < 0 || term.indexOf('@', at + 1) >= 0) {
+            return contains;
+        }
+        String domainPrefix = term.substring(at + 1);
+        if (domainPrefix.isEmpty()) {
+            return contains;
+        }
+        Predicate domain = criteriaBuilder.like(root.get("emailDomain"), domainPrefix + "%");
+        return at == 0 ? domain : criteriaBuilder.and(domain, contains);
+    }
+
+    // 空または%だけのパターンはNOT NULLのカラムのすべての行に一致する
+    private static boolean isTautology(String pattern) {
+        return pattern != null && pattern.chars().allMatch(c -> c == '%');
+    }
+
+    // LIKEのワイルドカードを含まない（部分文字列として比較できる）
+    private static boolean isLiteral(String pattern) {
+        return pattern.indexOf('%') < 0 && pattern.indexOf('_') < 0 && pattern.indexOf('\\') < 0;
+    }
+
+    // longerの部分一致（前方一致）が成り立てばtermの部分一致も成り立つ
+    private static boolean implies(String longer, String term) {
+        return isLiteral(longer) && isLiteral(term) && longer.contains(term);
+    }
+
+    // 他の部分一致から導かれる部分一致と重複を取り除く
+    private static List<String> withoutImplied(List<String> terms) {
+        if (terms.size() <= 1) {
+            return List.copyOf(terms);
+        }
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            boolean implied = false;
+            for (int j = 0; j < terms.size() && !implied; j++) {
+                String other = terms.get(j);
+                if (i != j && implies(other, term) && (other.length() > term.length() || j < i)) {
+                    implied = true;
+                }
+            }
+            if (!implied) {
+                kept.add(term);
+            }
+        }
+        return List.copyOf(kept);
+    }
+
+    private static boolean conflicts(String value, String other) {
+        return value != null && other != null && !value.equals(other);
+    }
+
+    private static String longer(String value, String other) {
+        if (value == null) {
+            return other;
+        }
+        return other == null || value.length() >= other.length() ? value : other;
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        if (second.isEmpty()) {
+            return first;
+        }
+        List<T> all = new ArrayList<>(first);
+        all.addAll(second);
+        return all;
+    }
+
+    private static <T extends Comparable<? super T>> T max(T value, T other) {
+        if (value == null || other == null) {
+            return value != null ? value : other;
+        }
+        return value.compareTo(other) >= 0 ? value : other;
+    }
+
+    private static <T extends Comparable<? super T>> T min(T value, T other) {
+        if (value == null || other == null) {
+            return value != null ? value : other;
+        }
+        return value.compareTo(other) <= 0 ? value : other;
+    }
+
+    private static UserCriteria none() {
+        UserCriteria criteria = new UserCriteria();
+        criteria.matchesNothing = true;
+        return criteria;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserCriteria other)) {
+            return false;
+        }
+        return matchesNothing == other.matchesNothing && nameTerms.equals(other.nameTerms)
+                && Objects.equals(namePrefix, other.namePrefix) && emailTerms.equals(other.emailTerms)
+                && Objects.equals(exactEmail, other.exactEmail) && Objects.equals(emailDomain, other.emailDomain)
+                && Objects.equals(emailSuffix, other.emailSuffix) && Objects.equals(minAge, other.minAge)
+                && Objects.equals(maxAge, other.maxAge) && Objects.equals(createdFrom, other.createdFrom)
+                && Objects.equals(createdTo, other.createdTo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(matchesNothing, nameTerms, namePrefix, emailTerms, exactEmail, emailDomain, emailSuffix,
+                minAge, maxAge, createdFrom, createdTo);
+    }
+}
@@ -0,0 +1,65 @@
+package com.yusuke.practicerepositorytest.specification;
+
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+import com.yusuke.practicerepositorytest.jfr.ProfiledSpecification;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * UserCriteriaによるSpecification
+ *
+ * UserCriteriaSpecificationどうしのANDは1つのUserCriteriaにまとめて単純化する。
+ * それ以外のSpecificationとの組み合わせは通常どおり合成する。
+ */
+public final class UserCriteriaSpecification<T> implements Specification<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UserCriteria criteria;
+
+    public UserCriteriaSpecification(UserCriteria criteria) {
+        this.criteria = criteria;
+    }
+
+    public UserCriteria criteria() {
+        return criteria;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<T> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        return criteria.toPredicate(root, criteriaBuilder);
+    }
+
+    @Override
+    public Specification<T> and(@Nullable Specification<T> other) {
+        if (unwrap(other) instanceof UserCriteriaSpecification<?> userCriteria) {
+            var merged = criteria.and(userCriteria.criteria);
+            if (merged.isPresent()) {
+                return new UserCriteriaSpecification<>(merged.get());
+            }
+        }
+        return Specification.super.and(other);
+    }
+
+    /**
+     * どの行にも一致しないことが確定しているSpecificationか（クエリを発行せずに空の結果を返せる）
+     */
+    public static boolean matchesNothing(@Nullable Specification<?> spec) {
+        return unwrap(spec) instanceof UserCriteriaSpecification<?> userCriteria
+                && userCriteria.criteria.matchesNothing();
+    }
+
+    private static Specification<?> unwrap(Specification<?> spec) {
+        return spec instanceof ProfiledSpecification<?> profiled ? profiled.delegate() : spec;
+    }
+
+    @Override
+    public String toString() {
+        return criteria.toString();
+    }
+}
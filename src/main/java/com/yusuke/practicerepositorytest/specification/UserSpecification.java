@@ -1,154 +1,152 @@
 package com.yusuke.practicerepositorytest.specification;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
 
 import org.springframework.data.jpa.domain.Specification;
 
 import com.yusuke.practicerepositorytest.entity.User;
-
-import jakarta.persistence.criteria.Predicate;
-
+import com.yusuke.practicerepositorytest.jfr.ProfiledSpecification;
+
+/**
+ * ユーザー検索のSpecification
+ *
+ * 各Specificationは条件をUserCriteriaとして持ち、組み合わせたときに単純化される（UserCriteriaSpecification）。
+ * どの行にも一致しないことが確定した条件はmatchesNothingで判定でき、クエリを発行せずに空の結果を返せる。
+ * 名前とパラメーターを付けて返し、JFRの記録中は条件の組み立てをイベントとして記録する（ProfiledSpecification）。
+ */
 public class UserSpecification {
 
     /**
      * 名前で検索するSpecification
      */
     public static Specification<User> nameLike(String name) {
-        return (root, query, criteriaBuilder) -> {
-            if (name == null || name.trim().isEmpty()) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get("name")),
-                    "%" + name.toLowerCase() + "%");
-        };
+        return spec("nameLike", UserCriteria.nameContains(name), name);
+    }
+
+    /**
+     * 名前の前方一致で検索するSpecification（正規化した名前のインデックスを使える）
+     */
+    public static Specification<User> nameStartsWith(String prefix) {
+        return spec("nameStartsWith", UserCriteria.nameStartsWith(prefix), prefix);
     }
 
     /**
      * メールアドレスで検索するSpecification
+     *
+     * 完全なメールアドレスを指定した場合は完全一致（大文字小文字を区別しない）で検索する。
      */
     public static Specification<User> emailLike(String email) {
-        return (root, query, criteriaBuilder) -> {
-            if (email == null || email.trim().isEmpty()) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.like(
-                    criteriaBuilder.lower(root.get("email")),
-                    "%" + email.toLowerCase() + "%");
-        };
+        return spec("emailLike", UserCriteria.emailContains(email), email);
+    }
+
+    /**
+     * メールアドレスのドメインが指定値と等しいSpecification
+     */
+    public static Specification<User> emailDomainEquals(String domain) {
+        return spec("emailDomainEquals", UserCriteria.emailDomainEquals(domain), domain);
+    }
+
+    /**
+     * メールアドレスの後方一致で検索するSpecification
+     *
+     * 逆順にしたメールアドレスの前方一致に変換し、インデックスを使えるようにする。
+     */
+    public static Specification<User> emailEndsWith(String suffix) {
+        return spec("emailEndsWith", UserCriteria.emailEndsWith(suffix), suffix);
     }
 
     /**
      * 年齢範囲で検索するSpecification
      */
     public static Specification<User> ageBetween(Integer minAge, Integer maxAge) {
-        return (root, query, criteriaBuilder) -> {
-            if (minAge == null && maxAge == null) {
-                return criteriaBuilder.conjunction();
-            }
-
-            if (minAge != null && maxAge != null) {
-                return criteriaBuilder.between(root.get("age"), minAge, maxAge);
-            } else if (minAge != null) {
-                return criteriaBuilder.greaterThanOrEqualTo(root.get("age"), minAge);
-            } else {
-                return criteriaBuilder.lessThanOrEqualTo(root.get("age"), maxAge);
-            }
-        };
+        return spec("ageBetween", UserCriteria.ageBetween(minAge, maxAge), minAge, maxAge);
     }
 
     /**
      * 最小年齢で検索するSpecification
      */
     public static Specification<User> ageGreaterThanOrEqualTo(Integer minAge) {
-        return (root, query, criteriaBuilder) -> {
-            if (minAge == null) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.greaterThanOrEqualTo(root.get("age"), minAge);
-        };
+        return spec("ageGreaterThanOrEqualTo", UserCriteria.ageBetween(minAge, null), minAge);
     }
 
     /**
      * 最大年齢で検索するSpecification
      */
     public static Specification<User> ageLessThanOrEqualTo(Integer maxAge) {
-        return (root, query, criteriaBuilder) -> {
-            if (maxAge == null) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.lessThanOrEqualTo(root.get("age"), maxAge);
-        };
+        return spec("ageLessThanOrEqualTo", UserCriteria.ageBetween(null, maxAge), maxAge);
     }
 
     /**
      * 年齢が指定値より大きいSpecification
      */
     public static Specification<User> ageGreaterThan(Integer age) {
-        return (root, query, criteriaBuilder) -> {
-            if (age == null) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.greaterThan(root.get("age"), age);
-        };
+        return spec("ageGreaterThan", UserCriteria.ageGreaterThan(age), age);
     }
 
     /**
      * 年齢が指定値と等しいSpecification
      */
     public static Specification<User> ageEquals(Integer age) {
-        return (root, query, criteriaBuilder) -> {
-            if (age == null) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.equal(root.get("age"), age);
-        };
+        return spec("ageEquals", UserCriteria.ageBetween(age, age), age);
     }
 
     /**
-     * メールアドレスが指定値と等しいSpecification
+     * メールアドレスが指定値と等しいSpecification（大文字小文字を区別しない）
      */
     public static Specification<User> emailEquals(String email) {
-        return (root, query, criteriaBuilder) -> {
-            if (email == null || email.trim().isEmpty()) {
-                return criteriaBuilder.conjunction();
-            }
-            return criteriaBuilder.equal(root.get("email"), email);
-        };
+        return spec("emailEquals", UserCriteria.emailEquals(email), email);
+    }
+
+    /**
+     * 作成日時の範囲で検索するSpecification（from以上、to未満）
+     *
+     * ユーザーとアーカイブしたユーザーのどちらにも使える。
+     */
+    public static <T> Specification<T> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return spec("createdBetween", UserCriteria.createdBetween(from, to), from, to);
     }
 
     /**
      * 複数の条件を組み合わせるSpecification
      */
     public static Specification<User> searchUsers(String name, String email, Integer minAge, Integer maxAge) {
-        return (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // 名前の条件
-            if (name != null && !name.trim().isEmpty()) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("name")),
-                        "%" + name.toLowerCase() + "%"));
-            }
-
-            // メールアドレスの条件
-            if (email != null && !email.trim().isEmpty()) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("email")),
-                        "%" + email.toLowerCase() + "%"));
-            }
-
-            // 年齢範囲の条件
-            if (minAge != null && maxAge != null) {
-                predicates.add(criteriaBuilder.between(root.get("age"), minAge, maxAge));
-            } else if (minAge != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("age"), minAge));
-            } else if (maxAge != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("age"), maxAge));
-            }
-
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
-    }
-}
\ No newline at end of file
+        return searchUsers(name, email, minAge, maxAge, null, null);
+    }
+
+    /**
+     * 作成日時の範囲（from以上、to未満）を含む複数の条件を組み合わせるSpecification
+     *
+     * ユーザーとアーカイブしたユーザーのどちらにも使える。
+     */
+    public static <T> Specification<T> searchUsers(String name, String email, Integer minAge, Integer maxAge,
+            LocalDateTime createdFrom, LocalDateTime createdTo) {
+        // 部分一致・範囲の条件どうしは必ず1つにまとめられる
+        UserCriteria criteria = UserCriteria.nameContains(name)
+                .and(UserCriteria.emailContains(email))
+                .flatMap(next -> next.and(UserCriteria.ageBetween(minAge, maxAge)))
+                .flatMap(next -> next.and(UserCriteria.createdBetween(createdFrom, createdTo)))
+                .orElseThrow();
+        return spec("searchUsers", criteria, name, email, minAge, maxAge, createdFrom, createdTo);
+    }
+
+    /**
+     * ユーザーのSpecificationをアーカイブ・全ユーザーのエンティティに使う
+     *
+     * 条件は属性名だけで組み立てるため、同じ属性を持つエンティティであればそのまま使える。
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Specification<T> retarget(Specification<User> spec) {
+        return (Specification<T>) (Specification<?>) spec;
+    }
+
+    /**
+     * どの行にも一致しないことが確定しているか（クエリを発行せずに空の結果を返せる）
+     */
+    public static boolean matchesNothing(Specification<?> spec) {
+        return UserCriteriaSpecification.matchesNothing(spec);
+    }
+
+    private static <T> Specification<T> spec(String name, UserCriteria criteria, Object... parameters) {
+        return ProfiledSpecification.of(name, new UserCriteriaSpecification<>(criteria), parameters);
+    }
+}
@@ -0,0 +1,42 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * クライアントごとのトークンバケットによるレートリミット
+ */
+public class ClientRateLimiter {
+
+    // 一定数を超えたら、しばらく使われていないバケットを破棄する
+    private static final int SWEEP_THRESHOLD = 10_000;
+    private static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final LongSupplier nanoClock;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public ClientRateLimiter(double ratePerSecond, int burst, LongSupplier nanoClock) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * リクエストを許可する場合は0、拒否する場合は再試行までの秒数を返す
+     */
+    public long tryAcquire(String clientId) {
+        long now = nanoClock.getAsLong();
+        if (buckets.size() > SWEEP_THRESHOLD) {
+            buckets.values().removeIf(bucket -> now - bucket.lastRefillNanos() > IDLE_NANOS);
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(clientId, id -> new TokenBucket(ratePerSecond, burst, now));
+        if (bucket.tryConsume(now)) {
+            return 0;
+        }
+        return bucket.secondsUntilNextToken(now);
+    }
+}
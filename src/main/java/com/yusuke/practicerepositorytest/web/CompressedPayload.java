@@ -0,0 +1,29 @@
+package com.yusuke.practicerepositorytest.web;
+
+import org.springframework.http.MediaType;
+
+import lombok.Value;
+
+/**
+ * シリアライズ・圧縮済みの検索結果
+ */
+@Value
+public class CompressedPayload {
+
+    // レスポンスのボディ（encodingで圧縮済み）
+    byte[] body;
+
+    // 適用した圧縮形式（小さいレスポンスは圧縮せずIDENTITYになる）
+    ContentEncoding encoding;
+
+    MediaType contentType;
+
+    // 圧縮前のバイト数
+    long rawLength;
+
+    // 行数の上限で打ち切られたか
+    boolean truncated;
+
+    // 適用した行数の上限
+    int limit;
+}
@@ -0,0 +1,171 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.entity.User;
+
+/**
+ * 行数上限付きの検索結果をシリアライズ・圧縮済みのバイト列でキャッシュする
+ *
+ * キーはエンドポイント、クエリパラメーター、レスポンスの形式（JSON/CBOR）、圧縮形式、一覧のETag（DBから求めたテーブルのバージョン）。
+ * 他ノードでの更新やアーカイブへの移動でもETagが変わり、古いエントリは参照されなくなってLRUで追い出される。
+ * バージョンに反映されない書き込みに備えて、エントリはcache-ttlが過ぎたら使わない。
+ * ヒットした場合は検索・シリアライズ・圧縮のいずれも行わない。
+ */
+@Component
+public class CompressedResponseCache {
+
+    private final CompressionProperties properties;
+    private final CompressionMetrics metrics;
+    private final UserHttpMessageConverter converter;
+    private final LongSupplier nanoClock;
+
+    // アクセス順のLRU
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public CompressedResponseCache(CompressionProperties properties, CompressionMetrics metrics,
+            UserHttpMessageConverter converter) {
+        this(properties, metrics, converter, System::nanoTime);
+    }
+
+    CompressedResponseCache(CompressionProperties properties, CompressionMetrics metrics,
+            UserHttpMessageConverter converter, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.converter = converter;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * 検索結果のボディを返す（キャッシュになければloaderで検索してシリアライズ・圧縮する）
+     *
+     * @param etag ボディを取得する前に求めた一覧のETag
+     */
+    public CompressedPayload get(WebRequest request, String endpoint, String etag, MediaType contentType,
+            Supplier<CappedList<User>> loader) {
+        ContentEncoding encoding = properties.isEnabled()
+                ? ContentEncoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                : ContentEncoding.IDENTITY;
+        String uri = uri(request);
+        String key = key(endpoint, request.getParameterMap(), contentType, encoding, etag);
+
+        CompressedPayload cached = lookup(key);
+        metrics.recordCache(uri, cached != null);
+        if (cached != null) {
+            if (cached.getEncoding() != ContentEncoding.IDENTITY) {
+                metrics.recordCompression(uri, cached.getEncoding(), cached.getRawLength(), cached.getBody().length, 0);
+            }
+            return cached;
+        }
+
+        CompressedPayload payload = create(loader.get(), contentType, encoding, uri);
+        store(key, payload);
+        return payload;
+    }
+
+    /**
+     * キャッシュしている件数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String key(String endpoint, Map<String, String[]> parameters, MediaType contentType,
+            ContentEncoding encoding, String etag) {
+        StringBuilder key = new StringBuilder(endpoint).append('?');
+        // パラメーターの順序が異なるだけのリクエストは同じエントリを使う
+        new TreeMap<>(parameters).forEach((name, values) -> {
+            key.append(name).append('=');
+            for (String value : values) {
+                key.append(value).append('\u0000');
+            }
+            key.append('&');
+        });
+        return key.append('|').append(contentType).append('|').append(encoding.token()).append('|').append(etag)
+                .toString();
+    }
+
+    private CompressedPayload create(CappedList<User> result, MediaType contentType, ContentEncoding encoding,
+            String uri) {
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream();
+            converter.writeTo(result.getContent(), contentType, raw);
+            byte[] body = raw.toByteArray();
+            if (encoding == ContentEncoding.IDENTITY || body.length < properties.getMinSize().toBytes()) {
+                return new CompressedPayload(body, ContentEncoding.IDENTITY, contentType, body.length,
+                        result.isTruncated(), result.getLimit());
+            }
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+            MeteredCompressor compressor = new MeteredCompressor(encoding, properties.getLevel(), compressed);
+            compressor.write(body, 0, body.length);
+            compressor.close();
+            metrics.recordCompression(uri, encoding, compressor.rawBytes(), compressor.compressedBytes(),
+                    compressor.cpuNanos());
+            return new CompressedPayload(compressed.toByteArray(), encoding, contentType, body.length,
+                    result.isTruncated(), result.getLimit());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized CompressedPayload lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            totalBytes -= entry.payload().getBody().length;
+            return null;
+        }
+        return entry.payload();
+    }
+
+    private synchronized void store(String key, CompressedPayload payload) {
+        long maxBytes = properties.getCacheMaxSize().toBytes();
+        if (properties.getCacheMaxEntries() == 0 || payload.getBody().length > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key,
+                new Entry(payload, nanoClock.getAsLong() + properties.getCacheTtl().toNanos()));
+        if (previous != null) {
+            totalBytes -= previous.payload().getBody().length;
+        }
+        totalBytes += payload.getBody().length;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext() && (entries.size() > properties.getCacheMaxEntries() || totalBytes > maxBytes)) {
+            totalBytes -= eldest.next().payload().getBody().length;
+            eldest.remove();
+        }
+    }
+
+    private static String uri(WebRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+
+    private record Entry(CompressedPayload payload, long expiresAt) {
+    }
+}
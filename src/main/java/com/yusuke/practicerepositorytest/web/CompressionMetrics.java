@@ -0,0 +1,67 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * レスポンス圧縮のメトリクス（エンドポイントのURIパターンと圧縮形式ごと）
+ *
+ * <ul>
+ * <li>http.compression.bytes: 圧縮前（stage=raw）と送信した（stage=sent）バイト数</li>
+ * <li>http.compression.cpu: 圧縮にかかったCPU時間</li>
+ * <li>http.compression.cache: 圧縮済みレスポンスのキャッシュのヒット・ミス</li>
+ * </ul>
+ * 削減したバイト数はrawとsentの差で求める。
+ */
+@Component
+@RequiredArgsConstructor
+public class CompressionMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 圧縮した（またはキャッシュから返した）レスポンスを記録する
+     */
+    public void recordCompression(String uri, ContentEncoding encoding, long rawBytes, long sentBytes,
+            long cpuNanos) {
+        String token = encoding.token();
+        meterRegistry.counter("http.compression.bytes", "uri", uri, "encoding", token, "stage", "raw")
+                .increment(rawBytes);
+        meterRegistry.counter("http.compression.bytes", "uri", uri, "encoding", token, "stage", "sent")
+                .increment(sentBytes);
+        meterRegistry.timer("http.compression.cpu", "uri", uri, "encoding", token)
+                .record(cpuNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 圧縮済みレスポンスのキャッシュの結果を記録する
+     */
+    public void recordCache(String uri, boolean hit) {
+        meterRegistry.counter("http.compression.cache", "uri", uri, "result", hit ? "hit" : "miss").increment();
+    }
+
+    /**
+     * メトリクスのタグに使うURIパターン（/api/users/{id}など。ハンドラーが決まる前はUNKNOWN）
+     */
+    public static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+
+    /**
+     * 現在のスレッドのCPU時間（計測できないJVMでは経過時間で代用する）
+     */
+    static long currentThreadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
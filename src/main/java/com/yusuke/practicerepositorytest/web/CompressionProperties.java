@@ -0,0 +1,44 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * レスポンス圧縮と圧縮済みレスポンスのキャッシュの設定
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.compression")
+public class CompressionProperties {
+
+    // trueの場合にAccept-Encodingに応じてユーザーAPIのレスポンスを圧縮する
+    private boolean enabled = true;
+
+    // これより小さいレスポンスは圧縮しない（圧縮の効果よりCPUのコストが大きいため）
+    @NotNull
+    private DataSize minSize = DataSize.ofKilobytes(1);
+
+    // 圧縮レベル（1: 速度優先 〜 9: サイズ優先）
+    @Min(1)
+    @Max(9)
+    private int level = 6;
+
+    // 行数上限付きの検索結果を圧縮済みのバイト列でキャッシュする件数とサイズの上限（0の場合はキャッシュしない）
+    @Min(0)
+    private int cacheMaxEntries = 256;
+
+    @NotNull
+    private DataSize cacheMaxSize = DataSize.ofMegabytes(16);
+
+    // キャッシュしたエントリを使う期間（テーブルのバージョンに反映されない書き込みがあっても、この期間で読み直す）
+    @NotNull
+    private Duration cacheTtl = Duration.ofMinutes(1);
+}
@@ -0,0 +1,101 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * レスポンスの圧縮形式（JDKだけで扱えるgzip/deflate）
+ */
+public enum ContentEncoding {
+
+    GZIP("gzip"),
+    DEFLATE("deflate"),
+    IDENTITY("identity");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Content-Encodingヘッダーの値
+     */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Accept-Encodingから圧縮形式を選ぶ（q値が最も高いもの。同じ場合はgzip、deflateの順）
+     *
+     * 圧縮できる形式が受け入れられない場合はIDENTITYを返す。
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = quality(params);
+            switch (coding) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, q);
+                case "deflate" -> deflate = Math.max(deflate, q);
+                case "*" -> wildcard = Math.max(wildcard, q);
+                default -> {
+                    // brotli・zstdなどJDKにない形式は選ばない
+                }
+            }
+        }
+        // 明示されていない形式は「*」のq値に従う
+        gzip = gzip < 0 ? wildcard : gzip;
+        deflate = deflate < 0 ? wildcard : deflate;
+        if (gzip <= 0 && deflate <= 0) {
+            return IDENTITY;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * この形式で圧縮して書き込むストリーム（IDENTITYの場合はそのまま）
+     */
+    public OutputStream wrap(OutputStream out, int level) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPOutputStream(out, 8192) {
+                {
+                    def.setLevel(level);
+                }
+            };
+            // HTTPのdeflateはzlib形式（ヘッダーとチェックサム付き）
+            case DEFLATE -> new DeflaterOutputStream(out, new Deflater(level), 8192) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    def.end();
+                }
+            };
+            case IDENTITY -> out;
+        };
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,101 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * レイテンシーの変化から同時実行数の上限を調整するリミッター（Gradient方式）
+ * 
+ * 長期の平均レイテンシー（負荷がないときの基準）と直近のレイテンシーの比を勾配とし、
+ * レイテンシーが悪化すると上限を下げ、基準並みであれば少しずつ上限を上げる。
+ * 上限を超えるリクエストは待たせずに即座に拒否する。
+ */
+public class GradientConcurrencyLimiter {
+
+    // 直近のレイテンシーが基準のこの倍率までは悪化とみなさない
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double estimatedLimit;
+    private double longRttNanos;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * 実行枠を確保する
+     * 
+     * @return 確保した場合は開始時点の同時実行数、確保できなかった場合は-1
+     */
+    public int tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > (int) estimatedLimit) {
+            inFlight.decrementAndGet();
+            return -1;
+        }
+        return current;
+    }
+
+    /**
+     * 実行枠を解放し、レイテンシーを上限の調整に反映する
+     * 
+     * @param rttNanos       リクエストの処理時間
+     * @param inFlightAtStart tryAcquireが返した同時実行数
+     * @param dropped        タイムアウトなどで失敗した場合はtrue（上限を下げる）
+     */
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        onSample(rttNanos, inFlightAtStart, dropped);
+    }
+
+    /**
+     * 処理せずに終わったリクエストの実行枠を解放する（レイテンシーは上限の調整に使わない）
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) estimatedLimit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtStart, boolean dropped) {
+        double limit = estimatedLimit;
+        if (dropped) {
+            estimatedLimit = clamp(limit * 0.9);
+            return;
+        }
+
+        double shortRtt = Math.max(1, rttNanos);
+        longRttNanos = longRttNanos == 0 ? shortRtt : longRttNanos + (shortRtt - longRttNanos) / LONG_WINDOW;
+        // 基準が直近より大きく離れた場合（負荷の解消後など）は基準を直近へ寄せて早く回復させる
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // 上限の半分も使っていない場合は上限を評価できないため調整しない
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRtt));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        estimatedLimit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private double clamp(double limit) {
+        return Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+}
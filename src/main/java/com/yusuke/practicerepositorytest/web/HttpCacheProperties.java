@@ -0,0 +1,25 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * HTTPレスポンスのキャッシュ設定
+ * 
+ * 例: app.http-cache.max-age.user-by-id=30s
+ */
+@Data
+@ConfigurationProperties(prefix = "app.http-cache")
+public class HttpCacheProperties {
+
+    // エンドポイント名ごとのmax-age。未指定のエンドポイントはno-cache（毎回ETagで再検証）とする
+    private Map<String, Duration> maxAge = new HashMap<>();
+
+    // 共有キャッシュ（プロキシ/CDN）への保存を許可しない
+    private boolean privateOnly = true;
+}
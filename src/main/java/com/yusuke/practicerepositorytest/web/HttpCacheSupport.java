@@ -0,0 +1,187 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.service.UserTableVersion;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ETagと条件付きGETの処理
+ * 
+ * 単一ユーザーのETagは読み込んだユーザーの@Versionから、一覧のETagはDBから求めたテーブル全体のバージョン（UserTableVersion）から生成する。
+ * ノード内の書き込みの記録には頼らないため、他ノードでの更新やアーカイブへの移動の後に古い内容で304を返さない。
+ * JSONとCBORで表現が異なるため、ETagにはAcceptヘッダーから決まる表現の種類も含める。
+ */
+@Component
+@RequiredArgsConstructor
+public class HttpCacheSupport {
+
+    private final UserTableVersion tableVersion;
+    private final HttpCacheProperties properties;
+
+    /**
+     * ユーザー1件のETag
+     */
+    public String userETag(User user, WebRequest request) {
+        return quote("u" + user.getId() + "." + user.getVersion() + variant(request));
+    }
+
+    /**
+     * If-Matchで指定されたユーザーのバージョン
+     * 
+     * 指定がない場合と「*」の場合はnullを返す。このユーザーのETagとして解釈できる値がない場合は
+     * 一致しないことが確定しているため-1を返す（弱いETagは強い比較で一致しない）。
+     */
+    public Long ifMatchVersion(Long id, WebRequest request) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"u" + id + ".";
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (!tag.startsWith(prefix) || !tag.endsWith("\"")) {
+                continue;
+            }
+            String version = tag.substring(prefix.length(), tag.length() - 1);
+            int variant = version.indexOf('-');
+            if (variant >= 0) {
+                version = version.substring(0, variant);
+            }
+            try {
+                return Long.parseLong(version);
+            } catch (NumberFormatException e) {
+                // 他の候補を確認する
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * 一覧のETag
+     */
+    public String collectionETag(WebRequest request) {
+        return quote("t" + tableVersion.current() + variant(request));
+    }
+
+    /**
+     * Acceptヘッダーから決まるレスポンスの形式（CBORが要求されていればCBOR、それ以外はJSON）
+     */
+    public MediaType responseType(WebRequest request) {
+        return variant(request).isEmpty() ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_CBOR;
+    }
+
+    /**
+     * エンドポイントごとのCache-Control
+     */
+    public CacheControl cacheControl(String endpoint) {
+        Duration maxAge = properties.getMaxAge().get(endpoint);
+        CacheControl cacheControl = maxAge == null ? CacheControl.noCache() : CacheControl.maxAge(maxAge);
+        return properties.isPrivateOnly() ? cacheControl.cachePrivate() : cacheControl;
+    }
+
+    /**
+     * If-None-MatchがETagと一致するか
+     */
+    public boolean isNotModified(WebRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 304 Not Modifiedのレスポンス
+     */
+    public <T> ResponseEntity<T> notModified(String etag, String endpoint) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl(endpoint))
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+
+    /**
+     * If-None-MatchがETagと一致すれば304、一致しなければ200のレスポンス
+     */
+    public <T> ResponseEntity<T> conditional(WebRequest request, String etag, String endpoint, T body) {
+        return isNotModified(request, etag) ? notModified(etag, endpoint) : ok(etag, endpoint, body);
+    }
+
+    /**
+     * 200 OKのレスポンス
+     */
+    public <T> ResponseEntity<T> ok(String etag, String endpoint, T body) {
+        return okBuilder(etag, endpoint).body(body);
+    }
+
+    /**
+     * 200 OKのレスポンス（ヘッダーを追加する場合）
+     */
+    public ResponseEntity.BodyBuilder okBuilder(String etag, String endpoint) {
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl(endpoint))
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * 一覧を条件付きGETで返す（ETagが一致する場合はDBに問い合わせない）
+     */
+    public <T> ResponseEntity<T> collection(WebRequest request, String endpoint, Supplier<T> loader) {
+        // データの取得前にETagを決めておき、取得中の更新で古いデータに新しいETagが付かないようにする
+        String etag = collectionETag(request);
+        if (isNotModified(request, etag)) {
+            return notModified(etag, endpoint);
+        }
+        return ok(etag, endpoint, loader.get());
+    }
+
+    private static String variant(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) {
+            return "";
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            for (MediaType mediaType : mediaTypes) {
+                if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+                    return "-cbor";
+                }
+                if (MediaType.APPLICATION_JSON.equalsTypeAndSubtype(mediaType)) {
+                    return "";
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // 不正なAcceptヘッダーはJSONとして扱う
+        }
+        return "";
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
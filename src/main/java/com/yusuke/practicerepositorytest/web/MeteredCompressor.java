@@ -0,0 +1,82 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 圧縮しながら書き出し、圧縮前後のバイト数と圧縮にかかったCPU時間を数えるストリーム
+ *
+ * 圧縮結果をいったんメモリに受けてから書き出し先へ渡すことで、書き出し（ソケットへの送信）の時間を
+ * 圧縮のCPU時間に含めない。書き出し先は閉じない。
+ */
+class MeteredCompressor extends OutputStream {
+
+    private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(8192);
+    private final OutputStream target;
+    private final OutputStream compressor;
+    private long rawBytes;
+    private long compressedBytes;
+    private long cpuNanos;
+    private boolean closed;
+
+    MeteredCompressor(ContentEncoding encoding, int level, OutputStream target) throws IOException {
+        this.target = target;
+        long start = CompressionMetrics.currentThreadCpuNanos();
+        this.compressor = encoding.wrap(chunk, level);
+        cpuNanos += CompressionMetrics.currentThreadCpuNanos() - start;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = CompressionMetrics.currentThreadCpuNanos();
+        compressor.write(b, off, len);
+        cpuNanos += CompressionMetrics.currentThreadCpuNanos() - start;
+        rawBytes += len;
+        drain();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        target.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long start = CompressionMetrics.currentThreadCpuNanos();
+        compressor.close();
+        cpuNanos += CompressionMetrics.currentThreadCpuNanos() - start;
+        drain();
+        target.flush();
+    }
+
+    long rawBytes() {
+        return rawBytes;
+    }
+
+    long compressedBytes() {
+        return compressedBytes;
+    }
+
+    long cpuNanos() {
+        return cpuNanos;
+    }
+
+    private void drain() throws IOException {
+        if (chunk.size() > 0) {
+            compressedBytes += chunk.size();
+            chunk.writeTo(target);
+            chunk.reset();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ユーザーAPIのレスポンスをAccept-Encodingに応じてgzip/deflateで圧縮するフィルター
+ *
+ * レスポンスはストリーミングのまま圧縮する（一覧をチャンク単位で書き出す場合もメモリに溜めない）。
+ * 先頭のmin-sizeバイトまでは溜めておき、それより小さいレスポンスは圧縮しない。
+ * 既にContent-Encodingが設定されたレスポンス（圧縮済みのキャッシュ）と、200以外・JSON/CBOR以外のレスポンスはそのまま返す。
+ * 圧縮した場合、ETagは表現が変わるため弱いETagにする（If-None-Matchの比較は弱い比較なので再検証は引き続き働く）。
+ */
+@Component
+@RequiredArgsConstructor
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/users";
+
+    private final CompressionProperties properties;
+    private final CompressionMetrics metrics;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !properties.isEnabled() || !"GET".equals(request.getMethod()) || !path.startsWith(API_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // 圧縮するかどうかにかかわらず、共有キャッシュが圧縮の有無で表現を分けられるようにする
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        ContentEncoding encoding = ContentEncoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == ContentEncoding.IDENTITY) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressingResponse compressing = new CompressingResponse(response, encoding);
+        try {
+            chain.doFilter(request, compressing);
+        } finally {
+            compressing.finish(request);
+        }
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return MediaType.APPLICATION_JSON.isCompatibleWith(mediaType)
+                    || MediaType.APPLICATION_CBOR.isCompatibleWith(mediaType)
+                    || mediaType.getSubtype().endsWith("+json");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 先頭min-sizeバイトを見てから圧縮するかを決めるレスポンス
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final ContentEncoding encoding;
+        private DeferredStream stream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        private CompressingResponse(HttpServletResponse response, ContentEncoding encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                stream = new DeferredStream(this);
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                Charset charset = Charset.forName(getCharacterEncoding());
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), charset));
+            }
+            return writer;
+        }
+
+        // 圧縮する場合は長さが変わるため、決めるまで下位のレスポンスに渡さない
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.flush();
+            }
+            if (stream == null || stream.decided()) {
+                super.flushBuffer();
+            }
+        }
+
+        private boolean shouldCompress() {
+            return getStatus() == HttpStatus.OK.value() && getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                    && isCompressible(getContentType());
+        }
+
+        // 圧縮する場合はヘッダーを書き換えて圧縮ストリームを返し、しない場合は下位のストリームを返す
+        private OutputStream open(boolean large) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (large && shouldCompress()) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.token());
+                String etag = response.getHeader(HttpHeaders.ETAG);
+                if (etag != null && etag.startsWith("\"")) {
+                    response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+                }
+                return new MeteredCompressor(encoding, properties.getLevel(), response.getOutputStream());
+            }
+            if (contentLength >= 0) {
+                response.setContentLengthLong(contentLength);
+            }
+            return response.getOutputStream();
+        }
+
+        private void finish(HttpServletRequest request) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream == null) {
+                if (contentLength >= 0) {
+                    ((HttpServletResponse) getResponse()).setContentLengthLong(contentLength);
+                }
+                return;
+            }
+            stream.close();
+            if (stream.target instanceof MeteredCompressor compressor) {
+                metrics.recordCompression(CompressionMetrics.uri(request), encoding, compressor.rawBytes(),
+                        compressor.compressedBytes(), compressor.cpuNanos());
+            }
+        }
+    }
+
+    /**
+     * min-sizeバイトまで溜め、超えた時点（または閉じた時点）で書き出し先を決めるストリーム
+     */
+    private final class DeferredStream extends ServletOutputStream {
+
+        private final CompressingResponse response;
+        private final int threshold = (int) Math.min(Integer.MAX_VALUE, properties.getMinSize().toBytes());
+        private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private OutputStream target;
+        private boolean closed;
+
+        private DeferredStream(CompressingResponse response) {
+            this.response = response;
+        }
+
+        private boolean decided() {
+            return target != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.write(b, off, len);
+                return;
+            }
+            pending.write(b, off, len);
+            if (pending.size() >= threshold) {
+                decide(true);
+            }
+        }
+
+        // 決まるまではフラッシュしない（ヘッダーが確定してしまうため）
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (target == null) {
+                decide(pending.size() >= threshold);
+            }
+            if (target instanceof MeteredCompressor) {
+                target.close();
+            } else {
+                target.flush();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported while compressing");
+        }
+
+        private void decide(boolean large) throws IOException {
+            target = response.open(large);
+            pending.writeTo(target);
+            pending = null;
+        }
+    }
+}
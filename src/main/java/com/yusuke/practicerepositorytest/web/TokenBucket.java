@@ -0,0 +1,61 @@
+package com.yusuke.practicerepositorytest.web;
+
+/**
+ * トークンバケット（レートリミット用）
+ * 
+ * 1秒あたりratePerSecond個のトークンが補充され、最大でburst個まで貯まる。
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.capacity = burst;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = burst;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * トークンを1つ消費する（不足している場合はfalse）
+     */
+    public synchronized boolean tryConsume(long nowNanos) {
+        refill(nowNanos);
+        if (tokens < 1.0) {
+            return false;
+        }
+        tokens -= 1.0;
+        return true;
+    }
+
+    /**
+     * 次のトークンが補充されるまでの秒数（切り上げ）
+     */
+    public synchronized long secondsUntilNextToken(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1.0) {
+            return 0;
+        }
+        double nanos = (1.0 - tokens) / tokensPerNano;
+        return Math.max(1, (long) Math.ceil(nanos / 1_000_000_000.0));
+    }
+
+    /**
+     * 最後に使用（補充）された時刻
+     */
+    public synchronized long lastRefillNanos() {
+        return lastRefillNanos;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * UserControllerの前段でレートリミットと同時実行数制限を行う
+ * 
+ * 検索系とID検索系を別々のバルクヘッドで制限し、重い検索が軽い検索の枠を使い切らないようにする。
+ * 制限を超えたリクエストは待たせずに429 Too Many Requestsで応答する。
+ * クライアントは認証済みのユーザー名、なければ接続元アドレスで識別する。
+ * クライアントが自由に指定できるヘッダーは識別に使わず、転送ヘッダーは信頼するプロキシからの接続の場合だけ参照する。
+ */
+@Component
+public class TrafficControlInterceptor implements HandlerInterceptor {
+
+    /**
+     * リクエストの種類
+     */
+    public enum TrafficClass {
+        SEARCH, LOOKUP
+    }
+
+    private static final Pattern LOOKUP_PATH = Pattern.compile("^/api/users/(\\d+|email/[^/]+(/exists)?|suggest)$");
+
+    // 一括登録は更新系だが重いため検索系の枠で制限する
+    private static final String IMPORT_PATH = "/api/users/import";
+
+    private static final String START_ATTRIBUTE = TrafficControlInterceptor.class.getName() + ".start";
+    private static final String PERMIT_ATTRIBUTE = TrafficControlInterceptor.class.getName() + ".permit";
+    private static final String CLASS_ATTRIBUTE = TrafficControlInterceptor.class.getName() + ".class";
+
+    private final TrafficControlProperties properties;
+    private final ClientRateLimiter searchRateLimiter;
+    private final ClientRateLimiter lookupRateLimiter;
+    private final GradientConcurrencyLimiter searchConcurrencyLimiter;
+    private final GradientConcurrencyLimiter lookupConcurrencyLimiter;
+
+    public TrafficControlInterceptor(TrafficControlProperties properties) {
+        this.properties = properties;
+        TrafficControlProperties.Bulkhead search = properties.getSearch();
+        TrafficControlProperties.Bulkhead lookup = properties.getLookup();
+        this.searchRateLimiter = new ClientRateLimiter(search.getRatePerSecond(), search.getBurst(), System::nanoTime);
+        this.lookupRateLimiter = new ClientRateLimiter(lookup.getRatePerSecond(), lookup.getBurst(), System::nanoTime);
+        this.searchConcurrencyLimiter = new GradientConcurrencyLimiter(
+                search.getInitialLimit(), search.getMinLimit(), search.getMaxLimit());
+        this.lookupConcurrencyLimiter = new GradientConcurrencyLimiter(
+                lookup.getInitialLimit(), lookup.getMinLimit(), lookup.getMaxLimit());
+    }
+
+    /**
+     * リクエストの種類を判定する（ID/メールアドレスでの取得・候補の表示と更新系はLOOKUP、それ以外はSEARCH）
+     */
+    public static TrafficClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (IMPORT_PATH.equals(path)) {
+            return TrafficClass.SEARCH;
+        }
+        if (!"GET".equals(request.getMethod()) || LOOKUP_PATH.matcher(path).matches()) {
+            return TrafficClass.LOOKUP;
+        }
+        return TrafficClass.SEARCH;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+
+        TrafficClass trafficClass = classify(request);
+        // 同時実行数で拒否したリクエストがクライアントのトークンを消費しないよう、先に実行枠を確保する
+        GradientConcurrencyLimiter concurrencyLimiter = concurrencyLimiter(trafficClass);
+        int permit = concurrencyLimiter.tryAcquire();
+        if (permit < 0) {
+            reject(response, 1);
+            return false;
+        }
+
+        ClientRateLimiter rateLimiter = trafficClass == TrafficClass.SEARCH ? searchRateLimiter : lookupRateLimiter;
+        long retryAfter = rateLimiter.tryAcquire(clientId(request));
+        if (retryAfter > 0) {
+            concurrencyLimiter.cancel();
+            reject(response, retryAfter);
+            return false;
+        }
+
+        request.setAttribute(CLASS_ATTRIBUTE, trafficClass);
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        Object trafficClass = request.getAttribute(CLASS_ATTRIBUTE);
+        if (trafficClass == null) {
+            return;
+        }
+        request.removeAttribute(CLASS_ATTRIBUTE);
+
+        long rtt = System.nanoTime() - (long) request.getAttribute(START_ATTRIBUTE);
+        int permit = (int) request.getAttribute(PERMIT_ATTRIBUTE);
+        boolean dropped = ex != null || response.getStatus() >= 500;
+        concurrencyLimiter((TrafficClass) trafficClass).release(rtt, permit, dropped);
+    }
+
+    /**
+     * 種類ごとの同時実行数リミッター
+     */
+    public GradientConcurrencyLimiter concurrencyLimiter(TrafficClass trafficClass) {
+        return trafficClass == TrafficClass.SEARCH ? searchConcurrencyLimiter : lookupConcurrencyLimiter;
+    }
+
+    /**
+     * レートリミットのキーにするクライアントの識別子
+     */
+    String clientId(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+        return "addr:" + clientAddress(request);
+    }
+
+    // 信頼するプロキシからの接続の場合だけ転送ヘッダーを右（直前のプロキシ側）からたどり、
+    // 最初に現れた信頼しないアドレスを接続元とする（それより左はクライアントが偽装できる）
+    private String clientAddress(HttpServletRequest request) {
+        Set<String> trustedProxies = properties.getTrustedProxies();
+        String address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        List<String> forwarded = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(properties.getForwardedForHeader());
+        while (headers != null && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (!hop.isBlank()) {
+                    forwarded.add(hop.trim());
+                }
+            }
+        }
+        for (int i = forwarded.size() - 1; i >= 0; i--) {
+            address = forwarded.get(i);
+            if (!trustedProxies.contains(address)) {
+                return address;
+            }
+        }
+        return address;
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterSeconds) {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    }
+}
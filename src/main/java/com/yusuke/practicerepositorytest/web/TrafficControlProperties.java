@@ -0,0 +1,73 @@
+package com.yusuke.practicerepositorytest.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * レートリミットと同時実行数制限の設定
+ * 
+ * 重い検索系（search）と軽いID/メールアドレス検索・更新系（lookup）で別々の枠（バルクヘッド）を持つ。
+ */
+@Data
+@Validated
+@ConfigurationProperties(prefix = "app.traffic")
+public class TrafficControlProperties {
+
+    private boolean enabled = true;
+
+    // クライアントの接続元アドレスを転送するヘッダー（trustedProxiesからの接続の場合だけ参照する）
+    @NotBlank
+    private String forwardedForHeader = "X-Forwarded-For";
+
+    // 転送ヘッダーを信頼するリバースプロキシ・ロードバランサーのアドレス（空の場合はヘッダーを参照しない）
+    @NotNull
+    private Set<String> trustedProxies = new HashSet<>();
+
+    @Valid
+    private Bulkhead search = new Bulkhead(20, 40, 10, 2, 50);
+
+    @Valid
+    private Bulkhead lookup = new Bulkhead(200, 400, 50, 10, 200);
+
+    @Data
+    public static class Bulkhead {
+
+        // クライアントごとの1秒あたりのリクエスト数
+        @Min(1)
+        private double ratePerSecond;
+
+        // クライアントごとに連続して許可するリクエスト数
+        @Min(1)
+        private int burst;
+
+        // 同時実行数の上限（レイテンシーに応じてminLimit〜maxLimitの範囲で調整される）
+        @Min(1)
+        private int initialLimit;
+
+        @Min(1)
+        private int minLimit;
+
+        @Min(1)
+        private int maxLimit;
+
+        public Bulkhead() {
+        }
+
+        public Bulkhead(double ratePerSecond, int burst, int initialLimit, int minLimit, int maxLimit) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = burst;
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.jfr.SerializationEvent;
+
+/**
+ * UserおよびUserのコレクションのレスポンス専用のHttpMessageConverter
+ * 
+ * UserJsonWriterでレスポンスのストリームへ直接書き出す。一覧はCollection<User>と、戻り値の型がIterable<User>のもの
+ * （チャンク単位で遅延取得する一覧）を配列として書き出す。Page/Sliceは総件数などを含むオブジェクトとして
+ * 返す必要があるため扱わず、通常のJacksonのコンバーターに任せる。
+ * Acceptヘッダーでapplication/cborが要求された場合はCBORで出力する。
+ * 書き出しの時間と行数はJFRのSerializationEventとして記録する。
+ * 読み込み（@RequestBody）は通常のJacksonのコンバーターに任せる。
+ */
+@Component
+public class UserHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final JsonFactory jsonFactory;
+    private final CBORFactory cborFactory = new CBORFactory();
+
+    public UserHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return User.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (type == null) {
+            return supports(clazz);
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> declared = resolved.toClass();
+        if (User.class.isAssignableFrom(declared)) {
+            return true;
+        }
+        if (Slice.class.isAssignableFrom(declared) || Slice.class.isAssignableFrom(clazz)) {
+            return false;
+        }
+        return (Collection.class.isAssignableFrom(declared) || declared == Iterable.class)
+                && User.class.isAssignableFrom(resolved.as(Iterable.class).getGeneric(0).toClass());
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, @Nullable MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        writeTo(value, outputMessage.getHeaders().getContentType(), outputMessage.getBody());
+    }
+
+    /**
+     * UserまたはIterable<User>を指定した形式でストリームへ書き出す（ストリームは閉じない）
+     */
+    public void writeTo(Object value, @Nullable MediaType contentType, OutputStream out) throws IOException {
+        boolean cbor = MediaType.APPLICATION_CBOR.isCompatibleWith(contentType);
+        JsonFactory factory = cbor ? cborFactory : jsonFactory;
+
+        SerializationEvent event = new SerializationEvent();
+        event.begin();
+        int rows = 1;
+        try (JsonGenerator generator = factory.createGenerator(StreamUtils.nonClosing(out))) {
+            if (value instanceof User user) {
+                UserJsonWriter.writeUser(generator, user);
+            } else {
+                rows = UserJsonWriter.writeUsers(generator, (Iterable<?>) value);
+            }
+        }
+        event.complete(cbor ? "cbor" : "json", rows);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading is not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Reading is not supported", inputMessage);
+    }
+}
@@ -0,0 +1,94 @@
+package com.yusuke.practicerepositorytest.web;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.yusuke.practicerepositorytest.entity.User;
+
+/**
+ * Userをリフレクションを使わずにJsonGeneratorへ直接書き出す
+ * 
+ * 出力はObjectMapperによるデフォルトのシリアライズと同じ形式（プロパティ順、日時はISO-8601文字列）。
+ */
+public final class UserJsonWriter {
+
+    // フィールド名は事前にエンコードしておき、書き出しごとのエスケープ処理を省く
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString DELETED_AT = new SerializedString("deletedAt");
+    private static final SerializedString VERSION = new SerializedString("version");
+
+    private UserJsonWriter() {
+    }
+
+    /**
+     * ユーザー1件をJSONオブジェクトとして書き出す
+     */
+    public static void writeUser(JsonGenerator generator, User user) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeFieldName(ID);
+        if (user.getId() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(user.getId());
+        }
+
+        generator.writeFieldName(NAME);
+        generator.writeString(user.getName());
+
+        generator.writeFieldName(EMAIL);
+        generator.writeString(user.getEmail());
+
+        generator.writeFieldName(AGE);
+        if (user.getAge() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(user.getAge());
+        }
+
+        writeDateTime(generator, CREATED_AT, user.getCreatedAt());
+        writeDateTime(generator, UPDATED_AT, user.getUpdatedAt());
+        writeDateTime(generator, DELETED_AT, user.getDeletedAt());
+
+        generator.writeFieldName(VERSION);
+        if (user.getVersion() == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(user.getVersion());
+        }
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * ユーザーの一覧をJSON配列として書き出し、書き出した件数を返す（要素は逐次取得される）
+     */
+    public static int writeUsers(JsonGenerator generator, Iterable<?> users) throws IOException {
+        int count = 0;
+        generator.writeStartArray();
+        for (Object user : users) {
+            writeUser(generator, (User) user);
+            count++;
+        }
+        generator.writeEndArray();
+        return count;
+    }
+
+    private static void writeDateTime(JsonGenerator generator, SerializedString name, LocalDateTime value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+}
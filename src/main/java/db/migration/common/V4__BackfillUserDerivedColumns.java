@@ -0,0 +1,70 @@
+package db.migration.common;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import com.yusuke.practicerepositorytest.entity.UserTextNormalizer;
+
+/**
+ * 既存行の検索用派生カラムを埋める
+ *
+ * 名前の正規化（NFKC・カナ変換）はSQLでは再現できないため、エンティティと同じUserTextNormalizerで計算する。
+ * 大きなテーブルで長時間のトランザクションやロックを避けるため、id順にバッチ単位でコミットする。
+ * 論理削除済みの行も対象とし、updated_atとversionは変更しない。
+ */
+public class V4__BackfillUserDerivedColumns extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String SELECT_SQL = "SELECT id, name, email FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String UPDATE_SQL = "UPDATE users SET name_normalized = ?, email_domain = ?, email_reversed = ?"
+            + " WHERE id = ?";
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        // バッチごとにコミットする
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement select = connection.prepareStatement(SELECT_SQL);
+                PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            long afterId = 0;
+            while (true) {
+                int rows = 0;
+                select.setLong(1, afterId);
+                select.setInt(2, BATCH_SIZE);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        afterId = resultSet.getLong("id");
+                        String name = resultSet.getString("name");
+                        String email = resultSet.getString("email");
+                        update.setString(1, UserTextNormalizer.normalizeName(name));
+                        update.setString(2, UserTextNormalizer.emailDomain(email));
+                        update.setString(3, UserTextNormalizer.reverseEmail(email));
+                        update.setLong(4, afterId);
+                        update.addBatch();
+                        rows++;
+                    }
+                }
+                if (rows == 0) {
+                    break;
+                }
+                update.executeBatch();
+                connection.commit();
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
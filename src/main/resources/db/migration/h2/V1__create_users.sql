@@ -0,0 +1,14 @@
+-- usersテーブルの作成
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    age INTEGER NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    deleted_at TIMESTAMP(6),
+    version BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE INDEX idx_users_updated_at_id ON users (updated_at, id);
@@ -0,0 +1,2 @@
+-- 年齢での検索（ageBetweenなど）用のインデックス
+CREATE INDEX idx_users_age ON users (age);
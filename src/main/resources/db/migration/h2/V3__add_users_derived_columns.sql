@@ -0,0 +1,5 @@
+-- 検索用の派生カラム（正規化した名前、メールのドメイン、逆順にしたメール）
+-- 既存行の値はV4（Javaマイグレーション）で埋め、インデックスはV5で作成する。
+ALTER TABLE users ADD COLUMN name_normalized VARCHAR(255);
+ALTER TABLE users ADD COLUMN email_domain VARCHAR(255);
+ALTER TABLE users ADD COLUMN email_reversed VARCHAR(255);
@@ -0,0 +1,4 @@
+-- 派生カラムのインデックス（前方一致・等価検索用）
+CREATE INDEX idx_users_name_normalized ON users (name_normalized);
+CREATE INDEX idx_users_email_domain ON users (email_domain);
+CREATE INDEX idx_users_email_reversed ON users (email_reversed);
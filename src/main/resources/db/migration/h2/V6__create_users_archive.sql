@@ -0,0 +1,35 @@
+-- 長期間更新されていないユーザーを移すアーカイブテーブル（UserArchiverが移動する）
+CREATE TABLE users_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    age INTEGER NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    deleted_at TIMESTAMP(6),
+    version BIGINT DEFAULT 0 NOT NULL,
+    name_normalized VARCHAR(255),
+    email_domain VARCHAR(255),
+    email_reversed VARCHAR(255),
+    archived_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_users_archive_email UNIQUE (email)
+);
+
+CREATE INDEX idx_users_archive_created_at ON users_archive (created_at);
+CREATE INDEX idx_users_archive_age ON users_archive (age);
+CREATE INDEX idx_users_archive_name_normalized ON users_archive (name_normalized);
+CREATE INDEX idx_users_archive_email_domain ON users_archive (email_domain);
+CREATE INDEX idx_users_archive_email_reversed ON users_archive (email_reversed);
+
+-- アーカイブ対象の選択と作成日時で絞り込む検索用のインデックス
+CREATE INDEX idx_users_created_at ON users (created_at);
+
+-- 全ユーザーを参照するレポート・調査用のビュー
+CREATE VIEW users_all AS
+    SELECT id, name, email, age, created_at, updated_at, deleted_at, version,
+           name_normalized, email_domain, email_reversed, CAST(NULL AS TIMESTAMP(6)) AS archived_at
+    FROM users
+    UNION ALL
+    SELECT id, name, email, age, created_at, updated_at, deleted_at, version,
+           name_normalized, email_domain, email_reversed, archived_at
+    FROM users_archive;
@@ -0,0 +1,2 @@
+-- 一覧のETag（UserTableVersion）でアーカイブへの移動を検出するため、アーカイブ日時の最大値をインデックスの端から読む
+CREATE INDEX idx_users_archive_archived_at ON users_archive (archived_at);
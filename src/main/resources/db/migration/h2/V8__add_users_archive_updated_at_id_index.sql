@@ -0,0 +1,2 @@
+-- 差分同期はアーカイブも(updated_at, id)のキーセットで読むため、usersと同じインデックスを作成する
+CREATE INDEX idx_users_archive_updated_at_id ON users_archive (updated_at, id);
@@ -0,0 +1,13 @@
+-- usersテーブルの作成
+CREATE TABLE users (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    age INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    deleted_at DATETIME(6) NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_users_email UNIQUE (email),
+    INDEX idx_users_updated_at_id (updated_at, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,6 @@
+-- 年齢での検索（ageBetweenなど）用のインデックス
+-- 既存のテーブルに対してはオンライン（INPLACE, LOCK=NONE）で作成し、書き込みをブロックしない。
+-- オンラインで実行できない場合はロックせずにエラーとする。
+ALTER TABLE users
+    ADD INDEX idx_users_age (age),
+    ALGORITHM = INPLACE, LOCK = NONE;
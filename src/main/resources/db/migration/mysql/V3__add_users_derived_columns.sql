@@ -0,0 +1,8 @@
+-- 検索用の派生カラム（正規化した名前、メールのドメイン、逆順にしたメール）
+-- 末尾へのNULL許容カラムの追加はINSTANTで行い、テーブルの再構築や書き込みのブロックを避ける。
+-- 既存行の値はV4（Javaマイグレーション）で埋め、インデックスはV5で作成する。
+ALTER TABLE users
+    ADD COLUMN name_normalized VARCHAR(255) NULL,
+    ADD COLUMN email_domain VARCHAR(255) NULL,
+    ADD COLUMN email_reversed VARCHAR(255) NULL,
+    ALGORITHM = INSTANT;
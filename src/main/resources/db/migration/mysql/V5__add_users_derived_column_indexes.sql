@@ -0,0 +1,7 @@
+-- 派生カラムのインデックス（前方一致・等価検索用）
+-- 値を埋めた後にオンライン（INPLACE, LOCK=NONE）でまとめて作成し、書き込みをブロックしない。
+ALTER TABLE users
+    ADD INDEX idx_users_name_normalized (name_normalized),
+    ADD INDEX idx_users_email_domain (email_domain),
+    ADD INDEX idx_users_email_reversed (email_reversed),
+    ALGORITHM = INPLACE, LOCK = NONE;
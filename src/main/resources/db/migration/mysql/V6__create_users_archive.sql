@@ -0,0 +1,39 @@
+-- 長期間更新されていないユーザーを移すアーカイブテーブル（UserArchiverが移動する）
+-- MySQLのパーティションは全ての一意キーにパーティションキーを含める必要があり、emailの一意制約と両立しないため、
+-- created_atによるパーティションの代わりにホット（users）とアーカイブの2テーブルに分ける。
+CREATE TABLE users_archive (
+    id BIGINT NOT NULL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    age INT NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    deleted_at DATETIME(6) NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    name_normalized VARCHAR(255) NULL,
+    email_domain VARCHAR(255) NULL,
+    email_reversed VARCHAR(255) NULL,
+    archived_at DATETIME(6) NOT NULL,
+    CONSTRAINT uk_users_archive_email UNIQUE (email),
+    INDEX idx_users_archive_created_at (created_at),
+    INDEX idx_users_archive_age (age),
+    INDEX idx_users_archive_name_normalized (name_normalized),
+    INDEX idx_users_archive_email_domain (email_domain),
+    INDEX idx_users_archive_email_reversed (email_reversed)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- アーカイブ対象の選択と作成日時で絞り込む検索用のインデックス（オンラインで作成する）
+ALTER TABLE users
+    ADD INDEX idx_users_created_at (created_at),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 全ユーザーを参照するレポート・調査用のビュー
+-- UNIONのビューは実体化されインデックスが効きにくいため、アプリケーションは各テーブルを個別に検索する。
+CREATE VIEW users_all AS
+    SELECT id, name, email, age, created_at, updated_at, deleted_at, version,
+           name_normalized, email_domain, email_reversed, NULL AS archived_at
+    FROM users
+    UNION ALL
+    SELECT id, name, email, age, created_at, updated_at, deleted_at, version,
+           name_normalized, email_domain, email_reversed, archived_at
+    FROM users_archive;
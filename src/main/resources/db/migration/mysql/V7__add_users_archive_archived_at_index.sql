@@ -0,0 +1,5 @@
+-- 一覧のETag（UserTableVersion）でアーカイブへの移動を検出するため、アーカイブ日時の最大値をインデックスの端から読む
+-- 既存のテーブルに対してはオンライン（INPLACE, LOCK=NONE）で作成し、アーカイブの移動をブロックしない。
+ALTER TABLE users_archive
+    ADD INDEX idx_users_archive_archived_at (archived_at),
+    ALGORITHM = INPLACE, LOCK = NONE;
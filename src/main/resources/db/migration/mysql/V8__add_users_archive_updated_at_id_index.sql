@@ -0,0 +1,5 @@
+-- 差分同期はアーカイブも(updated_at, id)のキーセットで読むため、usersと同じインデックスを作成する
+-- 既存のテーブルに対してはオンライン（INPLACE, LOCK=NONE）で作成し、アーカイブの移動をブロックしない。
+ALTER TABLE users_archive
+    ADD INDEX idx_users_archive_updated_at_id (updated_at, id),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -1,19 +1,24 @@
 package com.yusuke.practicerepositorytest;
 
-import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.sql.Connection;
-import java.sql.SQLException;
-import java.sql.Statement;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.datasource.init.ScriptException;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
 import org.springframework.stereotype.Component;
 
+/**
+ * テストデータ投入用のSQLファイルを実行する
+ * 
+ * スキーマはFlywayのマイグレーション（db/migration/{vendor}）で作成されるため、ここではデータの投入のみに使用する。
+ */
 @Component
 public class TestSqlExecutor {
 
@@ -23,27 +28,20 @@ public class TestSqlExecutor {
     /**
      * SQLファイルを実行する
      * 
+     * テストのトランザクションと同じ接続で実行するため、@Transactionalなテストではテスト終了時にロールバックされる。
+     * 
      * @param sqlFilePath クラスパス上のSQLファイルパス
      */
     public void executeSqlFile(String sqlFilePath) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
         try {
-            ClassPathResource resource = new ClassPathResource(sqlFilePath);
-            String sql = new String(Files.readAllBytes(resource.getFile().toPath()), StandardCharsets.UTF_8);
-
-            try (Connection connection = dataSource.getConnection();
-                    Statement statement = connection.createStatement()) {
-
-                // SQLをセミコロンで分割して実行
-                String[] sqlStatements = sql.split(";");
-                for (String sqlStatement : sqlStatements) {
-                    sqlStatement = sqlStatement.trim();
-                    if (!sqlStatement.isEmpty()) {
-                        statement.execute(sqlStatement);
-                    }
-                }
-            }
-        } catch (IOException | SQLException e) {
+            // 文字列リテラルやコメント内のセミコロンを考慮して文を分割する
+            ScriptUtils.executeSqlScript(connection,
+                    new EncodedResource(new ClassPathResource(sqlFilePath), StandardCharsets.UTF_8));
+        } catch (ScriptException e) {
             throw new RuntimeException("SQLファイルの実行に失敗しました: " + sqlFilePath, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
         }
     }
 
@@ -57,4 +55,4 @@ public class TestSqlExecutor {
         populator.addScript(new ClassPathResource(sqlFilePath));
         populator.execute(dataSource);
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,36 @@
 package com.yusuke.practicerepositorytest;
 
 import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.utility.MountableFile;
 
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+import com.yusuke.practicerepositorytest.load.UserDataGenerator;
+import com.yusuke.practicerepositorytest.query.QueryCountingConfiguration;
+
+/**
+ * テスト用のMySQLコンテナ
+ *
+ * コンテナはBeanではなく静的フィールドとして持ち、JVMで1つだけ起動する。設定の異なるテストクラスごとに
+ * Springのコンテキストが作られても同じコンテナ（同じDB）を使い、コンテキストの破棄では停止しない（JVMの終了時に停止する）。
+ * そのため、コミットしたテストの後はSeededUsersTestExecutionListenerがデータを削除し、各テストは空の状態から始まる。
+ * UserDatasetFixtureのスナップショットは、Flywayが管理するスキーマ（testdb）の外のusers_fixtureに置く
+ * （初期化スクリプトでスキーマを作成し、テスト用のユーザーに権限を与える）。
+ */
 @TestConfiguration
-@Import({ TestSqlExecutor.class })
+@ImportTestcontainers
+@Import({ TestSqlExecutor.class, QueryCountingConfiguration.class, UserDataGenerator.class, UserDatasetFixture.class })
 public class TestcontainersConfiguration {
 
-    @Bean
     @ServiceConnection
-    public MySQLContainer<?> mySQLContainer() {
-        return new MySQLContainer<>("mysql:8.0")
-                .withDatabaseName("testdb")
-                .withUsername("test")
-                .withPassword("test")
-                .withInitScript("create_table.sql");
-    }
+    public static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test")
+            .withCopyFileToContainer(MountableFile.forClasspathResource("mysql/fixture-schema.sql"),
+                    "/docker-entrypoint-initdb.d/fixture-schema.sql");
 
 }
@@ -0,0 +1,226 @@
+package com.yusuke.practicerepositorytest.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+import com.yusuke.practicerepositorytest.scan.UserScanOptions;
+import com.yusuke.practicerepositorytest.scan.UserScanResult;
+import com.yusuke.practicerepositorytest.service.UserService;
+
+// アーカイブへの移動は別トランザクションで行うため、テストデータはコミットしておく
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+class UserArchiverTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserArchiverTest.class);
+
+    @Autowired
+    private UserArchiver userArchiver;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserDatasetFixture userDatasetFixture;
+
+    @Test
+    void testArchiveMovesOnlyColdUsers() {
+        LocalDateTime now = LocalDateTime.now();
+        User cold = saveUser("古い太郎", "cold@example.com", now.minusYears(2), now.minusYears(2));
+        User touched = saveUser("更新花子", "touched@example.com", now.minusYears(2), now.minusDays(1));
+        User hot = saveUser("新しい次郎", "hot@example.com", now.minusDays(1), now.minusDays(1));
+
+        assertThat(userArchiver.archiveUsersBefore(now.minusYears(1))).isEqualTo(1);
+
+        assertThat(ids("users")).containsExactlyInAnyOrder(touched.getId(), hot.getId());
+        assertThat(ids("users_archive")).containsExactly(cold.getId());
+
+        // アーカイブしたユーザーも同じIDとメールアドレスで参照できる
+        assertThat(userService.findUserById(cold.getId())).get().extracting(User::getName).isEqualTo("古い太郎");
+        assertThat(userService.findUserByEmail("cold@example.com")).isPresent();
+        assertThat(userService.emailExists("cold@example.com")).isTrue();
+        assertThatThrownBy(() -> userService.saveUser(
+                User.builder().name("重複").email("cold@example.com").age(20).build()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void testUpdateAndDeleteRestoreArchivedUsers() {
+        LocalDateTime old = LocalDateTime.now().minusYears(2);
+        User first = saveUser("古い太郎", "first@example.com", old, old);
+        User second = saveUser("古い花子", "second@example.com", old, old);
+        userArchiver.archiveUsersBefore(LocalDateTime.now().minusYears(1));
+        assertThat(ids("users")).isEmpty();
+
+        User updated = userService.updateUser(first.getId(),
+                User.builder().name(first.getName()).email(first.getEmail()).age(40).build(), first.getVersion());
+        assertThat(updated.getAge()).isEqualTo(40);
+        assertThat(updated.getVersion()).isEqualTo(first.getVersion() + 1);
+        assertThat(ids("users")).containsExactly(first.getId());
+
+        userService.deleteUser(second.getId());
+        assertThat(ids("users_archive")).isEmpty();
+        assertThat(userService.findUserById(second.getId())).isEmpty();
+        // 論理削除済みのトゥームストーンとしてホットテーブルに残る
+        assertThat(userService.emailExists("second@example.com")).isTrue();
+    }
+
+    @Test
+    void testSearchRoutesByCreatedAt() {
+        LocalDateTime now = LocalDateTime.now();
+        User cold = saveUser("田中一郎", "cold@example.com", now.minusYears(3), now.minusYears(3));
+        User warm = saveUser("田中二郎", "warm@example.com", now.minusMonths(18), now.minusDays(3));
+        User hot = saveUser("田中三郎", "hot@example.com", now.minusDays(10), now.minusDays(10));
+        userArchiver.archiveUsersBefore(now.minusYears(1));
+
+        // アーカイブの作成日時より新しい範囲はホットテーブルだけを検索する
+        assertThat(userArchiver.mayContainCreatedFrom(now.minusMonths(1))).isFalse();
+        assertThat(userService.searchUsers("田中", null, null, null, now.minusMonths(1), null, 10).getContent())
+                .extracting(User::getId).containsExactly(hot.getId());
+
+        // 古い範囲を含む検索は両方のテーブルをID順にマージする
+        assertThat(userArchiver.mayContainCreatedFrom(now.minusYears(5))).isTrue();
+        assertThat(userService.searchUsers("田中", null, null, null, now.minusYears(5), null, 10).getContent())
+                .extracting(User::getId).containsExactly(cold.getId(), warm.getId(), hot.getId());
+        assertThat(userService.searchUsers("田中", null, null, null, null, now.minusYears(2), 10).getContent())
+                .extracting(User::getId).containsExactly(cold.getId());
+
+        CappedList<User> capped = userService.searchUsers("田中", null, null, null, null, null, 2);
+        assertThat(capped.getContent()).extracting(User::getId).containsExactly(cold.getId(), warm.getId());
+        assertThat(capped.isTruncated()).isTrue();
+    }
+
+    @Test
+    void testReadsIncludeArchivedUsers() {
+        LocalDateTime now = LocalDateTime.now();
+        User cold = saveUser("田中一郎", "cold@example.com", now.minusYears(2), now.minusYears(2));
+        User hot = saveUser("田中二郎", "hot@example.com", now.minusDays(1), now.minusDays(1));
+        userArchiver.archiveUsersBefore(now.minusYears(1));
+        assertThat(ids("users_archive")).containsExactly(cold.getId());
+
+        // 一覧・検索・ページング・差分同期・全件スキャンのどれからもアーカイブしたユーザーが見える
+        assertThat(userService.findAllUsers()).extracting(User::getId).containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.findUsersByNameContaining("田中")).extracting(User::getId)
+                .containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.findUsersByNameLike("田中")).extracting(User::getId)
+                .containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.findUsersByEmailLike("cold@example.com", 10).getContent()).extracting(User::getId)
+                .containsExactly(cold.getId());
+        assertThat(userService.findUsersByAgeBetween(20, 40, 10).getContent()).extracting(User::getId)
+                .containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.searchUsersWithPagination("田中", null, null, null,
+                PageRequest.of(0, 10, Sort.by("name"))).getContent())
+                .extracting(User::getId).containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.iterateUsers(0L, 10, 1)).extracting(User::getId)
+                .containsExactly(cold.getId(), hot.getId());
+        assertThat(userService.findNextAfterId(0L, 1)).contains(cold.getId());
+        assertThat(userService.findUserChangesSince(ChangeWatermark.initial(), 10).getChanges())
+                .extracting(User::getId).containsExactly(cold.getId(), hot.getId());
+
+        List<Long> scanned = Collections.synchronizedList(new ArrayList<>());
+        UserScanResult result = userService.scanAllUsers(UserScanOptions.builder().chunkSize(1).build(),
+                chunk -> chunk.forEach(user -> scanned.add(user.getId())));
+        assertThat(result.getProcessedUsers()).isEqualTo(2);
+        assertThat(scanned).containsExactlyInAnyOrder(cold.getId(), hot.getId());
+    }
+
+    @Test
+    void testUpdateRejectsEmailUsedInArchive() {
+        LocalDateTime now = LocalDateTime.now();
+        saveUser("古い太郎", "cold@example.com", now.minusYears(2), now.minusYears(2));
+        User hot = saveUser("新しい次郎", "hot@example.com", now.minusDays(1), now.minusDays(1));
+        userArchiver.archiveUsersBefore(now.minusYears(1));
+
+        // アーカイブのメールアドレスはホットテーブルの一意制約では検出できない
+        assertThatThrownBy(() -> userService.updateUser(hot.getId(),
+                User.builder().name(hot.getName()).email("COLD@example.com").age(hot.getAge()).build()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(userService.findUserById(hot.getId())).get().extracting(User::getEmail)
+                .isEqualTo("hot@example.com");
+
+        // メールアドレスを変えない更新は確認しない
+        assertThat(userService.updateUser(hot.getId(),
+                User.builder().name(hot.getName()).email("hot@example.com").age(41).build())
+                .getAge()).isEqualTo(41);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkRecentSearchBeforeAndAfterArchiving() {
+        // ./gradlew test --tests UserArchiverTest -Dbenchmark=true -Darchive.users=5000000
+        int userCount = Integer.getInteger("archive.users", 2_000_000);
+        int iterations = 20;
+        userDatasetFixture.prepare(userCount, 23L);
+        LocalDateTime createdFrom = LocalDateTime.now().minusDays(30);
+
+        int before = userService.searchUsers(null, "@example.org", null, null, createdFrom, null, 1000).getContent().size();
+        long beforeNanos = time(iterations,
+                () -> userService.searchUsers(null, "@example.org", null, null, createdFrom, null, 1000));
+
+        long start = System.nanoTime();
+        long moved = userArchiver.archiveUsersBefore(userArchiver.hotCutoff());
+        long archiveMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int after = userService.searchUsers(null, "@example.org", null, null, createdFrom, null, 1000).getContent().size();
+        long afterNanos = time(iterations,
+                () -> userService.searchUsers(null, "@example.org", null, null, createdFrom, null, 1000));
+        assertThat(after).isEqualTo(before);
+
+        log.info("users={} archived={} in {} ms hot={}", userCount, moved, archiveMillis, count("users"));
+        log.info("recent search (last 30 days): before={} ms after={} ms",
+                String.format("%.1f", beforeNanos / 1e6), String.format("%.1f", afterNanos / 1e6));
+    }
+
+    private User saveUser(String name, String email, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        User user = userService.saveUser(User.builder().name(name).email(email).age(30).build());
+        jdbcTemplate.update("UPDATE users SET created_at = ?, updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(createdAt), Timestamp.valueOf(updatedAt), user.getId());
+        return user;
+    }
+
+    private List<Long> ids(String table) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY id", Long.class);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static long time(int iterations, Runnable query) {
+        // ウォームアップ
+        query.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+}
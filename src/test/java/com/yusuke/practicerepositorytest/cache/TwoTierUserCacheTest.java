@@ -0,0 +1,194 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.entity.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 共有キャッシュとブローカーのプロセス内実装を共有する3ノードで、無効化とバージョンによる保護を確認する
+ */
+class TwoTierUserCacheTest {
+
+    private final Map<Long, User> database = new ConcurrentHashMap<>();
+    private final AtomicInteger databaseReads = new AtomicInteger();
+    private final MutableClock clock = new MutableClock();
+
+    private TwoTierUserCache node1;
+    private TwoTierUserCache node2;
+    private TwoTierUserCache node3;
+
+    @BeforeEach
+    void setUp() {
+        UserCacheProperties properties = new UserCacheProperties();
+        properties.setNearTtl(Duration.ofSeconds(30));
+        SharedUserStore sharedStore = new InMemorySharedUserStore(Duration.ofMinutes(10), clock);
+        UserInvalidationBus bus = new InMemoryUserInvalidationBus();
+        node1 = new TwoTierUserCache("node-1", properties, sharedStore, bus, new SimpleMeterRegistry(), clock);
+        node2 = new TwoTierUserCache("node-2", properties, sharedStore, bus, new SimpleMeterRegistry(), clock);
+        node3 = new TwoTierUserCache("node-3", properties, sharedStore, bus, new SimpleMeterRegistry(), clock);
+
+        database.put(1L, user(1L, "tanaka@example.com", 25, 0L));
+    }
+
+    @Test
+    void testReadsAreServedFromCacheAfterFirstLoad() {
+        assertThat(node1.findById(1L, load(1L))).isPresent();
+        // 他ノードは共有キャッシュから、同じノードはニアキャッシュから返す
+        assertThat(node2.findById(1L, load(1L))).isPresent();
+        assertThat(node1.findByEmail("TANAKA@example.com", loadByEmail("tanaka@example.com"))).isPresent();
+
+        assertThat(databaseReads).hasValue(1);
+    }
+
+    @Test
+    void testUpdateInvalidatesOtherNodes() {
+        node1.findById(1L, load(1L));
+        node2.findById(1L, load(1L));
+        node3.findById(1L, load(1L));
+
+        // node1で更新する（トランザクション外なので即座に反映・配信される）
+        User updated = write(user(1L, "tanaka@example.org", 26, 1L));
+        node1.onUserWritten(new UserWrittenEvent(updated));
+
+        for (TwoTierUserCache node : new TwoTierUserCache[] { node1, node2, node3 }) {
+            assertThat(node.findById(1L, load(1L))).get().extracting(User::getAge).isEqualTo(26);
+            assertThat(node.findByEmail("tanaka@example.org", loadByEmail("tanaka@example.org"))).isPresent();
+        }
+        // 新しいバージョンは共有キャッシュから返され、DBへは最初の読み込みだけ
+        assertThat(databaseReads).hasValue(1);
+        // 古いメールアドレスではキャッシュから返さない
+        assertThat(node2.findByEmail("tanaka@example.com", loadByEmail("tanaka@example.com"))).isEmpty();
+    }
+
+    @Test
+    void testDeleteIsCachedAsTombstone() {
+        node2.findById(1L, load(1L));
+
+        User deleted = user(1L, "tanaka@example.com", 25, 1L);
+        deleted.setDeletedAt(LocalDateTime.now());
+        database.remove(1L);
+        node1.onUserWritten(new UserWrittenEvent(deleted));
+
+        assertThat(node2.findById(1L, load(1L))).isEmpty();
+        assertThat(node3.findById(1L, load(1L))).isEmpty();
+        assertThat(databaseReads).hasValue(1);
+    }
+
+    @Test
+    void testSlowReadDoesNotResurrectStaleVersion() {
+        // node2の読み込みがDBから古いバージョンを返すまでの間に、node1の更新がコミット・配信される
+        Supplier<Optional<User>> slowLoader = () -> {
+            Optional<User> stale = Optional.of(copy(database.get(1L)));
+            node1.onUserWritten(new UserWrittenEvent(write(user(1L, "tanaka@example.com", 30, 1L))));
+            return stale;
+        };
+
+        assertThat(node2.findById(1L, slowLoader)).get().extracting(User::getVersion).isEqualTo(0L);
+
+        // 古いバージョンはどちらの層にもキャッシュされていない
+        assertThat(node2.findById(1L, load(1L))).get().extracting(User::getVersion).isEqualTo(1L);
+        assertThat(node3.findById(1L, load(1L))).get().extracting(User::getVersion).isEqualTo(1L);
+    }
+
+    @Test
+    void testLateInvalidationDoesNotEvictNewerEntry() {
+        node1.onUserWritten(new UserWrittenEvent(write(user(1L, "tanaka@example.com", 27, 2L))));
+        assertThat(node2.findById(1L, load(1L))).get().extracting(User::getVersion).isEqualTo(2L);
+
+        // バージョン1の更新の無効化が遅れて届く
+        node2.onInvalidation(new UserInvalidation("node-3", 1L, "tanaka@example.com", 1L));
+
+        // バージョン2は破棄されず、バージョン1はキャッシュされない
+        assertThat(node2.findById(1L, load(1L))).get().extracting(User::getVersion).isEqualTo(2L);
+        assertThat(databaseReads).hasValue(0);
+    }
+
+    @Test
+    void testNearCacheExpires() {
+        node2.findById(1L, load(1L));
+        clock.advance(Duration.ofSeconds(31));
+
+        // ニアキャッシュが期限切れになっても共有キャッシュから返す
+        assertThat(node2.findById(1L, load(1L))).isPresent();
+        assertThat(databaseReads).hasValue(1);
+    }
+
+    @Test
+    void testReturnedUsersAreCopies() {
+        node1.findById(1L, load(1L)).orElseThrow().setName("変更");
+
+        assertThat(node1.findById(1L, load(1L))).get().extracting(User::getName).isEqualTo("田中太郎");
+    }
+
+    private Supplier<Optional<User>> load(Long id) {
+        return () -> {
+            databaseReads.incrementAndGet();
+            return Optional.ofNullable(database.get(id)).map(TwoTierUserCacheTest::copy);
+        };
+    }
+
+    private Supplier<Optional<User>> loadByEmail(String email) {
+        return () -> {
+            databaseReads.incrementAndGet();
+            return database.values().stream().filter(user -> user.getEmail().equals(email)).findFirst()
+                    .map(TwoTierUserCacheTest::copy);
+        };
+    }
+
+    private User write(User user) {
+        database.put(user.getId(), user);
+        return copy(user);
+    }
+
+    private static User user(Long id, String email, int age, long version) {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 1, 0, 0);
+        return User.builder().id(id).name("田中太郎").email(email).age(age)
+                .createdAt(now).updatedAt(now.plusSeconds(version)).version(version).build();
+    }
+
+    private static User copy(User user) {
+        return UserCacheEntry.of(user).toUser();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
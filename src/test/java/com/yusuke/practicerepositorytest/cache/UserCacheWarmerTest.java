@@ -0,0 +1,153 @@
+package com.yusuke.practicerepositorytest.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.HotKey;
+import com.yusuke.practicerepositorytest.cache.HotKeyTracker.Kind;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// キャッシュは読み書き可能なトランザクションの中で読み込んだ結果を保持しないため、トランザクションを使わない
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+class UserCacheWarmerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CacheWarmupProperties properties = new CacheWarmupProperties();
+    private final UserCacheProperties cacheProperties = new UserCacheProperties();
+    private final AtomicInteger databaseReads = new AtomicInteger();
+
+    private User tanaka;
+    private User sato;
+    private User suzuki;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchSize(2);
+        tanaka = userRepository.save(User.builder().name("田中太郎").email("Tanaka@example.com").age(25).build());
+        sato = userRepository.save(User.builder().name("佐藤花子").email("sato@example.com").age(30).build());
+        suzuki = userRepository.save(User.builder().name("鈴木一郎").email("suzuki@example.com").age(35).build());
+    }
+
+    @Test
+    void testTrackerKeepsHottestKeysAndDecays() {
+        HotKeyTracker tracker = new HotKeyTracker(2);
+        tracker.recordId(1L);
+        tracker.recordId(1L);
+        tracker.recordId(1L);
+        tracker.recordEmail("sato@example.com");
+        // 追跡できるキーの数を超えた新しいキーは数えない
+        tracker.recordId(2L);
+
+        assertThat(tracker.snapshotAndDecay(10)).containsExactly(new HotKey(Kind.ID, "1", 3),
+                new HotKey(Kind.EMAIL, "sato@example.com", 1));
+        // 回数は半分になり、0になったキーは捨てられる
+        assertThat(tracker.snapshotAndDecay(10)).containsExactly(new HotKey(Kind.ID, "1", 1));
+        tracker.recordId(2L);
+        assertThat(tracker.trackedKeys()).isEqualTo(2);
+    }
+
+    @Test
+    void testSnapshotIsReloadedIntoCacheOnStartup() throws Exception {
+        HotKeyTracker tracker = new HotKeyTracker(100);
+        tracker.recordId(tanaka.getId());
+        tracker.recordId(tanaka.getId());
+        tracker.recordEmail(sato.getEmail());
+        new UserCacheWarmer(userRepository, newCache(), tracker, snapshotFile(), properties, cacheProperties,
+                meterRegistry).writeSnapshot();
+
+        // 再起動後の空のキャッシュ
+        TwoTierUserCache cache = newCache();
+        UserCacheWarmer warmer = new UserCacheWarmer(userRepository, cache, new HotKeyTracker(100), snapshotFile(),
+                properties, cacheProperties, meterRegistry);
+
+        assertThat(warmer.warmUp()).isEqualTo(2);
+        assertThat(cache.findById(tanaka.getId(), loader(tanaka))).map(User::getId).contains(tanaka.getId());
+        assertThat(cache.findByEmail("SATO@example.com", loader(sato))).map(User::getId).contains(sato.getId());
+        assertThat(databaseReads).hasValue(0);
+        // スナップショットになかったユーザーはDBから読み込む
+        assertThat(cache.findById(suzuki.getId(), loader(suzuki))).isPresent();
+        assertThat(databaseReads).hasValue(1);
+        assertThat(meterRegistry.get("users.cache.warmup").tag("outcome", "completed").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testWarmUpStopsAtBudgetAndCacheCapacity() throws Exception {
+        snapshotFile().write(List.of(new HotKey(Kind.ID, sato.getId().toString(), 5),
+                new HotKey(Kind.EMAIL, tanaka.getEmail(), 3),
+                new HotKey(Kind.ID, suzuki.getId().toString(), 1)));
+
+        // ニアキャッシュに入りきらないキーは読み込まない
+        cacheProperties.setNearMaxEntries(2);
+        TwoTierUserCache cache = newCache();
+        assertThat(new UserCacheWarmer(userRepository, cache, new HotKeyTracker(100), snapshotFile(), properties,
+                cacheProperties, meterRegistry).warmUp()).isEqualTo(2);
+        assertThat(cache.findById(suzuki.getId(), loader(suzuki))).isPresent();
+        assertThat(databaseReads).hasValue(1);
+
+        // 時間の上限を超えた場合は読み込まずに終える
+        properties.setBudget(Duration.ZERO);
+        assertThat(new UserCacheWarmer(userRepository, newCache(), new HotKeyTracker(100), snapshotFile(),
+                properties, cacheProperties, meterRegistry).warmUp()).isZero();
+        assertThat(meterRegistry.get("users.cache.warmup").tag("outcome", "budget-exceeded").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testEmptyTrackerDoesNotOverwriteSnapshot() throws Exception {
+        HotKeySnapshotFile file = snapshotFile();
+        file.write(List.of(new HotKey(Kind.ID, tanaka.getId().toString(), 1)));
+
+        new UserCacheWarmer(userRepository, newCache(), new HotKeyTracker(100), file, properties, cacheProperties,
+                meterRegistry).writeSnapshot();
+
+        assertThat(file.read()).hasSize(1);
+        // 読めない行は読み飛ばす
+        Files.writeString(file.path(), "ID\t1\tnot-a-number\nEMAIL\t2\tsato@example.com\n");
+        assertThat(file.read()).containsExactly(new HotKey(Kind.EMAIL, "sato@example.com", 2));
+    }
+
+    private TwoTierUserCache newCache() {
+        return new TwoTierUserCache("node", cacheProperties,
+                new InMemorySharedUserStore(Duration.ofMinutes(10), Clock.systemUTC()),
+                new InMemoryUserInvalidationBus(), meterRegistry, Clock.systemUTC());
+    }
+
+    private HotKeySnapshotFile snapshotFile() {
+        return new HotKeySnapshotFile(directory.resolve("hot-keys.tsv"));
+    }
+
+    private Supplier<Optional<User>> loader(User user) {
+        return () -> {
+            databaseReads.incrementAndGet();
+            return Optional.of(user);
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.yusuke.practicerepositorytest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+class JdbcTuningConfigTest {
+
+    @Test
+    void testAutoPoolSizeIsCappedByRequestThreads() {
+        assertThat(JdbcTuningConfig.autoPoolSize(8, false, 200)).isEqualTo(17);
+        assertThat(JdbcTuningConfig.autoPoolSize(8, false, 10)).isEqualTo(10);
+        // 仮想スレッドではリクエストスレッド数で頭打ちにしない
+        assertThat(JdbcTuningConfig.autoPoolSize(8, true, 10)).isEqualTo(17);
+        // 最低2接続
+        assertThat(JdbcTuningConfig.autoPoolSize(1, false, 1)).isEqualTo(2);
+    }
+
+    @Test
+    void testResolvePoolSizeReadsExecutionModel() {
+        JdbcTuningProperties properties = new JdbcTuningProperties();
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        MockEnvironment platform = new MockEnvironment().withProperty("server.tomcat.threads.max", "3");
+        assertThat(JdbcTuningConfig.resolvePoolSize(properties, platform))
+                .isEqualTo(JdbcTuningConfig.autoPoolSize(cores, false, 3));
+
+        MockEnvironment virtual = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true")
+                .withProperty("server.tomcat.threads.max", "3");
+        assertThat(JdbcTuningConfig.resolvePoolSize(properties, virtual))
+                .isEqualTo(JdbcTuningConfig.autoPoolSize(cores, true, 3));
+
+        properties.setMaximumPoolSize(20);
+        assertThat(JdbcTuningConfig.resolvePoolSize(properties, virtual)).isEqualTo(20);
+    }
+
+    @Test
+    void testApplyPoolSettingsSetsMySqlDriverProperties() {
+        JdbcTuningProperties properties = new JdbcTuningProperties();
+        properties.setMaximumPoolSize(12);
+        properties.setCursorFetch(true);
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl("jdbc:mysql://localhost:3306/test");
+            JdbcTuningConfig.applyPoolSettings(dataSource, properties, new MockEnvironment());
+
+            assertThat(dataSource.getMaximumPoolSize()).isEqualTo(12);
+            assertThat(dataSource.getMinimumIdle()).isEqualTo(12);
+            assertThat(dataSource.getDataSourceProperties())
+                    .containsEntry("cachePrepStmts", true)
+                    .containsEntry("useServerPrepStmts", true)
+                    .containsEntry("rewriteBatchedStatements", true)
+                    .containsEntry("useCursorFetch", true);
+        }
+    }
+
+    @Test
+    void testApplyPoolSettingsSkipsDriverPropertiesForOtherDatabases() {
+        JdbcTuningProperties properties = new JdbcTuningProperties();
+        properties.setMaximumPoolSize(4);
+        properties.setMinimumIdle(1);
+
+        try (HikariDataSource dataSource = new HikariDataSource()) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:test");
+            JdbcTuningConfig.applyPoolSettings(dataSource, properties, new MockEnvironment());
+
+            assertThat(dataSource.getMaximumPoolSize()).isEqualTo(4);
+            assertThat(dataSource.getMinimumIdle()).isEqualTo(1);
+            assertThat(dataSource.getDataSourceProperties()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.yusuke.practicerepositorytest.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * JDBCチューニングの効果を計測する負荷テスト
+ * 
+ * 調整後のプールはJdbcTuningConfigが本番で適用するのと同じ設定（既定のJdbcTuningProperties）で作る。
+ * ./gradlew test --tests JdbcTuningLoadTest -Dbenchmark=true
+ */
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class JdbcTuningLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcTuningLoadTest.class);
+
+    private static final int INSERT_ROWS = 20_000;
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final int LOOKUP_THREADS = 8;
+    private static final int LOOKUPS_PER_THREAD = 2_000;
+
+    @Autowired
+    private UserDatasetFixture userDatasetFixture;
+
+    @Test
+    void testTunedDriverOptionsOutperformDefaults() throws Exception {
+        JdbcTuningProperties tuned = new JdbcTuningProperties();
+        tuned.setMaximumPoolSize(LOOKUP_THREADS);
+
+        Result baseline = runWorkload("baseline", dataSource -> dataSource.setMaximumPoolSize(LOOKUP_THREADS));
+        Result optimized = runWorkload("tuned",
+                dataSource -> JdbcTuningConfig.applyPoolSettings(dataSource, tuned, new MockEnvironment()));
+
+        log.info("{}", baseline);
+        log.info("{}", optimized);
+
+        // 複数行INSERTへの書き換えでバッチINSERTが高速になり、ステートメントの準備も再利用される
+        assertThat(optimized.insertMillis).isLessThan(baseline.insertMillis);
+        assertThat(optimized.statementPrepares).isLessThan(LOOKUP_THREADS * LOOKUPS_PER_THREAD);
+    }
+
+    private Result runWorkload(String label, Consumer<HikariDataSource> configurer) throws Exception {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(TestcontainersConfiguration.MYSQL.getJdbcUrl());
+        dataSource.setUsername(TestcontainersConfiguration.MYSQL.getUsername());
+        dataSource.setPassword(TestcontainersConfiguration.MYSQL.getPassword());
+        // プールは最初の接続取得時に開始されるため、JdbcTuningConfigと同じく開始前に設定する
+        configurer.accept(dataSource);
+
+        // 2回の計測を同じ条件（空のusersへのINSERT、連番のIDの検索）で行うため、計測ごとに空にする
+        userDatasetFixture.clear();
+        try (dataSource) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+            long insertStart = System.nanoTime();
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int offset = 0; offset < INSERT_ROWS; offset += INSERT_BATCH_SIZE) {
+                List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+                for (int i = offset; i < offset + INSERT_BATCH_SIZE; i++) {
+                    batch.add(new Object[] { "user" + i, label + i + "@example.com", 20 + i % 50, now, now });
+                }
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO users (name, email, age, created_at, updated_at) VALUES (?, ?, ?, ?, ?)", batch);
+            }
+            long insertMillis = (System.nanoTime() - insertStart) / 1_000_000;
+
+            long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+            long preparesBefore = statementPrepares(jdbcTemplate);
+
+            ExecutorService executor = Executors.newFixedThreadPool(LOOKUP_THREADS);
+            long lookupStart = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < LOOKUP_THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                        long id = minId + ThreadLocalRandom.current().nextInt(INSERT_ROWS);
+                        jdbcTemplate.queryForMap("SELECT * FROM users WHERE id = ?", id);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long lookupMillis = (System.nanoTime() - lookupStart) / 1_000_000;
+            executor.shutdown();
+
+            long prepares = statementPrepares(jdbcTemplate) - preparesBefore;
+            return new Result(label, insertMillis, lookupMillis, prepares);
+        }
+    }
+
+    // サーバー全体の累計のため、計測中に他の接続がない前提で差分を取る
+    private static long statementPrepares(JdbcTemplate jdbcTemplate) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SHOW GLOBAL STATUS LIKE 'Com_stmt_prepare'");
+        return Long.parseLong(String.valueOf(row.get("Value")));
+    }
+
+    private record Result(String label, long insertMillis, long lookupMillis, long statementPrepares) {
+
+        @Override
+        public String toString() {
+            double lookupsPerSecond = LOOKUP_THREADS * LOOKUPS_PER_THREAD * 1000.0 / Math.max(1, lookupMillis);
+            return String.format("%-8s insert %d rows: %d ms, lookups: %.0f ops/s, server prepares: %d",
+                    label, INSERT_ROWS, insertMillis, lookupsPerSecond, statementPrepares);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.yusuke.practicerepositorytest.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.change.UserWrittenEvent;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@Transactional
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteGate writeGate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.saveAll(List.of(
+                User.builder().name("田中太郎").email("tanaka@example.com").age(25).build(),
+                User.builder().name("田中次郎").email("tanaka2@example.com").age(35).build(),
+                User.builder().name("佐藤花子").email("sato@example.com").age(30).build()));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testPagedSearchKeepsPageMetadata() throws Exception {
+        // ページネーション付き検索はテストのトランザクションに参加しないため、テストデータをコミットして検索する
+        mockMvc.perform(get("/api/users/spec/search/paged").param("name", "田中").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("田中太郎"))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(2))
+                .andExpect(jsonPath("$.number").value(0));
+    }
+
+    @Test
+    void testAllUsersAreStreamedAsArray() throws Exception {
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testConcurrentFullBodyPutsDoNotOverwriteEachOther() throws Exception {
+        // 1つ目のPUTをコミット前（行ロックを持ったまま）で止め、2つ目のPUTを同じバージョンで競合させる
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            User tanaka = userRepository.findByEmail("tanaka@example.com");
+
+            // 名前だけを変えるPUTと年齢だけを変えるPUTは重ならないため、2つ目は読み直して名前を保持する
+            putConcurrently(executor, tanaka.getId(),
+                    "{\"name\":\"田中一郎\",\"email\":\"tanaka@example.com\",\"age\":25}",
+                    "{\"name\":\"田中太郎\",\"email\":\"tanaka@example.com\",\"age\":26}", 200);
+            User merged = userRepository.findByEmail("tanaka@example.com");
+            assertThat(merged).extracting(User::getName, User::getAge, User::getVersion)
+                    .containsExactly("田中一郎", 26, 2L);
+
+            // 同じ名前を変えるPUTは、先にコミットされた名前を上書きせずに409とする
+            putConcurrently(executor, tanaka.getId(),
+                    "{\"name\":\"田中二郎\",\"email\":\"tanaka@example.com\",\"age\":26}",
+                    "{\"name\":\"田中三郎\",\"email\":\"tanaka@example.com\",\"age\":26}", 409);
+            assertThat(userRepository.findByEmail("tanaka@example.com"))
+                    .extracting(User::getName, User::getVersion).containsExactly("田中二郎", 3L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // firstの更新がコミット前のまま、secondのUPDATEが行ロックを待つ状態にしてからfirstをコミットする
+    private void putConcurrently(ExecutorService executor, Long id, String first, String second,
+            int secondStatus) throws Exception {
+        CountDownLatch release = writeGate.hold();
+        Future<Integer> firstPut = executor.submit(() -> put(id, first));
+        assertThat(writeGate.awaitHeld()).isTrue();
+
+        Future<Integer> secondPut = executor.submit(() -> put(id, second));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lockWaitingUpdates() == 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertThat(firstPut.get(10, TimeUnit.SECONDS)).isEqualTo(200);
+        assertThat(secondPut.get(10, TimeUnit.SECONDS)).isEqualTo(secondStatus);
+    }
+
+    private int put(Long id, String body) throws Exception {
+        return mockMvc.perform(put("/api/users/{id}", id).contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn().getResponse().getStatus();
+    }
+
+    // 同じDBユーザーの接続はPROCESS権限なしでもPROCESSLISTで見える
+    private int lockWaitingUpdates() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.PROCESSLIST"
+                + " WHERE COMMAND = 'Query' AND LOWER(INFO) LIKE 'update users%'", Integer.class);
+    }
+
+    /**
+     * 最初に発行された書き込みのイベントで、解放されるまで書き込みのトランザクションを止める
+     */
+    @TestConfiguration
+    static class WriteGateConfiguration {
+
+        @Bean
+        WriteGate writeGate() {
+            return new WriteGate();
+        }
+    }
+
+    static class WriteGate {
+
+        private volatile CountDownLatch held = new CountDownLatch(0);
+        private volatile CountDownLatch release = new CountDownLatch(0);
+
+        CountDownLatch hold() {
+            held = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            return release;
+        }
+
+        boolean awaitHeld() throws InterruptedException {
+            return held.await(10, TimeUnit.SECONDS);
+        }
+
+        // UserServiceはイベントを書き込みのトランザクション内で発行するため、ここで止めると行ロックを持ったままになる
+        @EventListener
+        public void onUserWritten(UserWrittenEvent event) throws InterruptedException {
+            CountDownLatch current = held;
+            synchronized (this) {
+                if (current.getCount() == 0) {
+                    return;
+                }
+                current.countDown();
+            }
+            release.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
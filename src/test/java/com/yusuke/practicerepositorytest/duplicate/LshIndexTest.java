@@ -0,0 +1,137 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yusuke.practicerepositorytest.duplicate.LshIndex.Cluster;
+import com.yusuke.practicerepositorytest.duplicate.LshIndex.Match;
+import com.yusuke.practicerepositorytest.load.UserDataGenerator;
+
+class LshIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(LshIndexTest.class);
+
+    private final MinHasher minHasher = new MinHasher(128, 2, 3);
+
+    @Test
+    void testSimilarUsersAreClustered() {
+        LshIndex index = new LshIndex(32, 4, 1000);
+        index.put(1, 0, minHasher.signature("田中太郎", "tanaka.taro@example.com"));
+        index.put(2, 0, minHasher.signature("田中 太郎", "taro.tanaka@example.jp"));
+        index.put(3, 0, minHasher.signature("Taro Yamada", "taro.yamada@example.com"));
+        index.put(4, 0, minHasher.signature("TARO YAMADA", "t.yamada@example.org"));
+        index.put(5, 0, minHasher.signature("佐藤花子", "sato@example.com"));
+        index.put(6, 0, minHasher.signature("田中花子", "hanako@example.com"));
+
+        // 大きい順・一致率の高い順
+        assertThat(index.clusters(0.6)).extracting(Cluster::ids)
+                .containsExactly(List.of(1L, 2L), List.of(3L, 4L));
+        assertThat(index.candidates(1, 0.6)).extracting(Match::id).containsExactly(2L);
+        assertThat(index.candidates(5, 0.6)).isEmpty();
+    }
+
+    @Test
+    void testClustersAreTransitive() {
+        LshIndex index = new LshIndex(32, 4, 1000);
+        index.put(1, 0, minHasher.signature("山田太郎", "yamada.taro@example.com"));
+        index.put(2, 0, minHasher.signature("山田太郎", "yamada.taro2@example.com"));
+        index.put(3, 0, minHasher.signature("山田太郎", "yamadataro.2@example.net"));
+
+        assertThat(index.clusters(0.6)).singleElement()
+                .satisfies(cluster -> assertThat(cluster.ids()).containsExactly(1L, 2L, 3L));
+    }
+
+    @Test
+    void testLocalPartIsNormalized() {
+        assertThat(MinHasher.normalizeLocalPart("Tanaka.Taro+news@Example.com")).isEqualTo("tanakataro");
+        assertThat(MinHasher.normalizeLocalPart("tanaka_taro-1@example.com")).isEqualTo("tanakataro1");
+        // 区切り文字とタグだけが異なるメールアドレスは同じ特徴量になる
+        assertThat(minHasher.signature("田中太郎", "tanaka.taro+shop@example.com"))
+                .isEqualTo(minHasher.signature("田中太郎", "TanakaTaro@example.org"));
+        assertThat(minHasher.signature(" ", "@example.com")).isNull();
+    }
+
+    @Test
+    void testUpdatesAreVersioned() {
+        LshIndex index = new LshIndex(32, 4, 1000);
+        index.put(1, 1, minHasher.signature("田中太郎", "tanaka.taro@example.com"));
+        index.put(2, 1, minHasher.signature("田中太郎", "tanaka.taro2@example.com"));
+        index.put(2, 2, minHasher.signature("佐藤花子", "sato@example.com"));
+        // 遅れて届いた古いバージョンは無視する
+        index.put(2, 1, minHasher.signature("田中太郎", "tanaka.taro2@example.com"));
+
+        assertThat(index.candidates(1, 0.6)).isEmpty();
+
+        index.put(3, 1, minHasher.signature("田中太郎", "tanaka.taro3@example.com"));
+        index.remove(3, 2);
+        // 削除より古い書き込みでは復活しない
+        index.put(3, 1, minHasher.signature("田中太郎", "tanaka.taro3@example.com"));
+
+        assertThat(index.candidates(1, 0.6)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testOversizedBucketsAreSkipped() {
+        LshIndex index = new LshIndex(32, 4, 2);
+        int[] signature = minHasher.signature("田中太郎", "tanaka.taro@example.com");
+        for (long id = 1; id <= 3; id++) {
+            index.put(id, 0, signature);
+        }
+
+        // 全てのバンドで同じバケットに3人が入るため、どのバケットも比較しない
+        assertThat(index.clusters(0.6)).isEmpty();
+        assertThat(index.skippedBuckets()).isEqualTo(32);
+        assertThat(index.candidates(1, 0.6)).isEmpty();
+    }
+
+    @Test
+    void testSignatureEstimatesJaccardSimilarity() {
+        for (int i = 0; i < 200; i++) {
+            String name1 = UserDataGenerator.nameOf(i, 1L);
+            String email1 = UserDataGenerator.emailOf(i, 1L);
+            String name2 = UserDataGenerator.nameOf(i + 1, 1L);
+            String email2 = UserDataGenerator.emailOf(i + 1, 1L);
+
+            double estimated = MinHasher.similarity(minHasher.signature(name1, email1),
+                    minHasher.signature(name2, email2));
+            assertThat(estimated).isCloseTo(jaccard(minHasher.features(name1, email1),
+                    minHasher.features(name2, email2)), within(0.15));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkClusters() {
+        // ./gradlew test --tests LshIndexTest -Dbenchmark=true -Dduplicates.users=2000000
+        int userCount = Integer.getInteger("duplicates.users", 1_000_000);
+        LshIndex index = new LshIndex(32, 4, 1000);
+        long start = System.nanoTime();
+        IntStream.range(0, userCount).parallel().forEach(i -> index.put(i, 0,
+                minHasher.signature(UserDataGenerator.nameOf(i, 7L), UserDataGenerator.emailOf(i, 7L))));
+        log.info("users={} build={} ms", userCount, (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        List<Cluster> clusters = index.clusters(0.6);
+        log.info("clusters={} skipped-buckets={} {} ms", clusters.size(), index.skippedBuckets(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / union.size();
+    }
+}
@@ -0,0 +1,67 @@
+package com.yusuke.practicerepositorytest.duplicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.dto.DuplicateCandidate;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.service.UserService;
+
+// インデックスへの反映はコミット後に行われるため、トランザクションを使わない
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@TestPropertySource(properties = "app.duplicates.enabled=true")
+class UserDuplicateDetectorTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDuplicateDetector duplicateDetector;
+
+    @Test
+    void testDuplicatesAreFoundAndUpdatedIncrementally() {
+        // サービスを経由せずに登録したユーザーは、構築または差分同期で取り込まれる
+        List<User> users = userRepository.saveAll(List.of(
+                User.builder().name("田中太郎").email("tanaka.taro@example.com").age(25).build(),
+                User.builder().name("田中 太郎").email("taro.tanaka@example.jp").age(25).build(),
+                User.builder().name("佐藤花子").email("sato@example.com").age(30).build()));
+        duplicateDetector.build();
+
+        assertThat(userService.findDuplicateClusters(10).orElseThrow()).singleElement()
+                .satisfies(cluster -> {
+                    assertThat(cluster.getUsers()).extracting(User::getEmail)
+                            .containsExactly("tanaka.taro@example.com", "taro.tanaka@example.jp");
+                    assertThat(cluster.getSimilarity()).isGreaterThanOrEqualTo(0.6);
+                });
+        assertThat(userService.findDuplicatesOf(users.get(0).getId()).orElseThrow())
+                .extracting(candidate -> candidate.getUser().getId())
+                .containsExactly(users.get(1).getId());
+
+        // このノードの更新は差分同期を待たずに反映される
+        User hanako = userService.saveUser(User.builder().name("佐藤 花子").email("sato+shop@example.org").age(30)
+                .build());
+        userService.deleteUser(users.get(1).getId());
+
+        assertThat(userService.findDuplicateClusters(10).orElseThrow()).singleElement()
+                .satisfies(cluster -> assertThat(cluster.getUsers()).extracting(User::getId)
+                        .containsExactly(users.get(2).getId(), hanako.getId()));
+        assertThat(userService.findDuplicatesOf(users.get(0).getId()).orElseThrow())
+                .extracting(DuplicateCandidate::getUser)
+                .isEmpty();
+    }
+}
@@ -0,0 +1,34 @@
+package com.yusuke.practicerepositorytest.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class UserTextNormalizerTest {
+
+    @Test
+    void testNormalizeName() {
+        // 全角英数字・半角カナの幅をそろえ、カタカナをひらがなに、英字を小文字にする
+        assertThat(UserTextNormalizer.normalizeName("ＹＡＭＡＤＡ Taro")).isEqualTo("yamada taro");
+        assertThat(UserTextNormalizer.normalizeName("ﾔﾏﾀﾞ")).isEqualTo("やまだ");
+        assertThat(UserTextNormalizer.normalizeName("ヤマダ・ハルト")).isEqualTo("やまだ・はると");
+        assertThat(UserTextNormalizer.normalizeName("山田　太郎")).isEqualTo("山田 太郎");
+        // 空白は前後を除き、連続するものは1つにまとめる
+        assertThat(UserTextNormalizer.normalizeName("  佐藤   花子 ")).isEqualTo("佐藤 花子");
+        assertThat(UserTextNormalizer.normalizeName(null)).isNull();
+    }
+
+    @Test
+    void testEmailDerivedValues() {
+        assertThat(UserTextNormalizer.emailDomain("Tanaka@Mail.Example.COM")).isEqualTo("mail.example.com");
+        assertThat(UserTextNormalizer.emailDomain("invalid")).isNull();
+        assertThat(UserTextNormalizer.reverseEmail("Sato@Example.com")).isEqualTo("moc.elpmaxe@otas");
+    }
+
+    @Test
+    void testValuesAreTruncatedToColumnLength() {
+        String longName = "ア".repeat(UserTextNormalizer.MAX_LENGTH + 10);
+
+        assertThat(UserTextNormalizer.normalizeName(longName)).hasSize(UserTextNormalizer.MAX_LENGTH);
+    }
+}
@@ -0,0 +1,35 @@
+package com.yusuke.practicerepositorytest.fixture;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストの前に、生成したユーザーデータだけがusersにある状態にする
+ * 
+ * 初回だけデータを生成し、以降はスナップショットから復元する（前のテストで変更されていない場合は何もしない）。
+ * クラスに付けた場合はすべてのテストメソッドに適用され、メソッドに付けたものが優先される。
+ * クラスに付けた場合はクラスのテストがすべて終わると、メソッドにだけ付けた場合はそのテストの後にusersを空にする。
+ * 付けていないテストは空の状態から始まる（コミットしたテストの後はSeededUsersTestExecutionListenerが空にする）。
+ * count = 0は明示的に空の状態から始める（スナップショットは置き換えない）。
+ * 
+ * @see UserDatasetFixture
+ * @see SeededUsersTestExecutionListener
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SeededUsers {
+
+    /**
+     * 生成するユーザー数
+     */
+    int count() default 10_000;
+
+    /**
+     * 生成に使うシード（同じシードでは同じデータになる）
+     */
+    long seed() default 42L;
+}
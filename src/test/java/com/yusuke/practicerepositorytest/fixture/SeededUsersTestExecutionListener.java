@@ -0,0 +1,89 @@
+package com.yusuke.practicerepositorytest.fixture;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import org.springframework.test.context.transaction.TestTransaction;
+
+/**
+ * @SeededUsersを付けたテストの前にユーザーデータを用意する
+ * 
+ * META-INF/spring.factoriesで登録しているため、Springのテストすべてに適用される。
+ * テストのトランザクションより前に用意するため、TransactionalTestExecutionListener（4000）より先に実行する。
+ * UserDatasetFixtureのBeanがないコンテキストでは何もしない。
+ * コンテナはすべてのテストで共有するため、ロールバックされなかったテストの後は状態を戻す。
+ * クラスに@SeededUsersを付けたテストでは変更された可能性があるとして記録し、次に用意するときに復元させる
+ * （クラスのテストがすべて終わるとusersを空にする）。それ以外のテストではすぐにusersとusers_archiveを空にするため、
+ * 各テストは後片付けをしなくてよく、@SeededUsersのないテストは空の状態から始まる。
+ */
+public class SeededUsersTestExecutionListener extends AbstractTestExecutionListener {
+
+    private static final String COMMITTED = SeededUsersTestExecutionListener.class.getName() + ".COMMITTED";
+
+    @Override
+    public int getOrder() {
+        return 3500;
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        SeededUsers seededUsers = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestMethod(),
+                SeededUsers.class);
+        if (seededUsers == null) {
+            seededUsers = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestClass(), SeededUsers.class);
+        }
+        if (seededUsers == null) {
+            return;
+        }
+        UserDatasetFixture fixture = fixture(testContext);
+        if (fixture != null) {
+            fixture.prepare(seededUsers.count(), seededUsers.seed());
+        }
+    }
+
+    @Override
+    public void afterTestExecution(TestContext testContext) {
+        // TransactionalTestExecutionListenerがトランザクションを終える前に、ロールバックされるかを確認する
+        boolean committed = !TestTransaction.isActive() || !TestTransaction.isFlaggedForRollback();
+        testContext.setAttribute(COMMITTED, committed);
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        // TransactionalTestExecutionListenerより後に呼ばれるため、テストのトランザクションは終わっている
+        boolean committed = Boolean.TRUE.equals(testContext.removeAttribute(COMMITTED));
+        boolean classSeeded = AnnotatedElementUtils.hasAnnotation(testContext.getTestClass(), SeededUsers.class);
+        if (classSeeded) {
+            if (committed) {
+                UserDatasetFixture.markModified();
+            }
+            return;
+        }
+        // メソッドにだけ@SeededUsersを付けたテストは、用意したデータをクラスの後まで残さない
+        boolean methodSeeded = AnnotatedElementUtils.hasAnnotation(testContext.getTestMethod(), SeededUsers.class);
+        if (committed || methodSeeded) {
+            UserDatasetFixture fixture = fixture(testContext);
+            if (fixture != null) {
+                fixture.clear();
+            }
+        }
+    }
+
+    @Override
+    public void afterTestClass(TestContext testContext) {
+        if (!AnnotatedElementUtils.hasAnnotation(testContext.getTestClass(), SeededUsers.class)) {
+            return;
+        }
+        UserDatasetFixture fixture = fixture(testContext);
+        if (fixture != null) {
+            fixture.clear();
+        }
+    }
+
+    private static UserDatasetFixture fixture(TestContext testContext) {
+        if (!testContext.hasApplicationContext()) {
+            return null;
+        }
+        return testContext.getApplicationContext().getBeanProvider(UserDatasetFixture.class).getIfAvailable();
+    }
+}
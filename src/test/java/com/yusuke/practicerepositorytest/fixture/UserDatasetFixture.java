@@ -0,0 +1,137 @@
+package com.yusuke.practicerepositorytest.fixture;
+
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.yusuke.practicerepositorytest.load.UserDataGenerator;
+
+/**
+ * 生成した大量のユーザーデータをスナップショットとして保持し、テストごとに高速に復元する
+ *
+ * 初回はUserDataGeneratorで生成し、usersの内容をスナップショット用のスキーマ（users_fixture）のテーブルへコピーする。
+ * スナップショットはFlywayが管理するスキーマの外に置き、マイグレーション・検証の対象にしない。
+ * 以降はコミットしたテストの後（SeededUsersTestExecutionListenerが記録する）、または行数・最大ID・最大更新日時が
+ * 生成直後と異なる場合に、スナップショットからINSERT ... SELECTで復元する（DB内のコピーのため、生成し直すより速い）。
+ * 行数などだけでは古い更新日時への変更などを検出できないため、@Transactionalでロールバックされたテストの後だけ復元を省く。
+ * テスト用のコンテナはJVMで1つのため、スナップショットもJVMで1つ（最後に用意した件数・シードのもの）だけ持つ。
+ * 件数0は空のusers・users_archiveを用意する（スナップショットは置き換えない）。
+ * SQLはMySQLとH2の両方で動く構文だけを使う。
+ *
+ * @see SeededUsers
+ */
+@Component
+public class UserDatasetFixture {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDatasetFixture.class);
+
+    // MySQLではテスト用のユーザーに権限を与えたスキーマ（TestcontainersConfigurationの初期化スクリプトで作成）
+    static final String SNAPSHOT_SCHEMA = "users_fixture";
+    static final String SNAPSHOT_TABLE = SNAPSHOT_SCHEMA + ".users";
+
+    // JVMで共有する（Springのコンテキストごとに作られるBeanには持たない）
+    private static Snapshot snapshot;
+    private static int restores;
+    private static boolean modified;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserDataGenerator userDataGenerator;
+
+    /**
+     * 指定した件数・シードのデータだけがusersにある状態にする
+     */
+    public void prepare(int count, long seed) {
+        synchronized (UserDatasetFixture.class) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            if (count == 0) {
+                if (!fingerprint(jdbcTemplate).isEmpty()) {
+                    clear(jdbcTemplate);
+                }
+                return;
+            }
+            if (snapshot == null || snapshot.count != count || snapshot.seed != seed) {
+                long start = System.nanoTime();
+                clear(jdbcTemplate);
+                userDataGenerator.generate(count, seed);
+                jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + SNAPSHOT_SCHEMA);
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + SNAPSHOT_TABLE);
+                jdbcTemplate.execute("CREATE TABLE " + SNAPSHOT_TABLE + " AS SELECT * FROM users");
+                snapshot = new Snapshot(count, seed, fingerprint(jdbcTemplate));
+                modified = false;
+                log.info("[fixture] generated {} users (seed={}) in {} ms", count, seed,
+                        (System.nanoTime() - start) / 1_000_000);
+                return;
+            }
+            if (!modified && fingerprint(jdbcTemplate).equals(snapshot.fingerprint)) {
+                return;
+            }
+            long start = System.nanoTime();
+            clear(jdbcTemplate);
+            jdbcTemplate.update("INSERT INTO users SELECT * FROM " + SNAPSHOT_TABLE);
+            restores++;
+            modified = false;
+            log.info("[fixture] restored {} users from {} in {} ms", count, SNAPSHOT_TABLE,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * usersとusers_archiveを空にする（スナップショットは残し、次に用意するときは復元する）
+     */
+    public void clear() {
+        synchronized (UserDatasetFixture.class) {
+            clear(new JdbcTemplate(dataSource));
+        }
+    }
+
+    /**
+     * テストがコミットした（データが変更されている可能性がある）ことを記録し、次に用意するときは必ず復元する
+     */
+    static void markModified() {
+        synchronized (UserDatasetFixture.class) {
+            modified = true;
+        }
+    }
+
+    /**
+     * スナップショットから復元した回数
+     */
+    public static int restores() {
+        synchronized (UserDatasetFixture.class) {
+            return restores;
+        }
+    }
+
+    private static void clear(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("TRUNCATE TABLE users");
+        jdbcTemplate.execute("TRUNCATE TABLE users_archive");
+    }
+
+    // アプリケーション経由の登録・更新・論理削除・アーカイブはいずれかの値を変える（@LastModifiedDateにより更新日時は進む）
+    // 日時はドライバーによって返す型（Timestamp/LocalDateTime）が異なるため、getTimestampで読む
+    private static Fingerprint fingerprint(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) AS row_count, MAX(id) AS max_id,"
+                + " MAX(updated_at) AS max_updated_at, (SELECT COUNT(*) FROM users_archive) AS archived FROM users",
+                (rs, rowNum) -> new Fingerprint(rs.getLong("row_count"), rs.getLong("max_id"),
+                        rs.getTimestamp("max_updated_at"), rs.getLong("archived")));
+    }
+
+    private record Snapshot(int count, long seed, Fingerprint fingerprint) {
+    }
+
+    private record Fingerprint(long rows, long maxId, Timestamp maxUpdatedAt, long archived) {
+
+        boolean isEmpty() {
+            return rows == 0 && archived == 0;
+        }
+    }
+}
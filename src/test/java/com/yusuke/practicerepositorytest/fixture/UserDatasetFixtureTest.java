@@ -0,0 +1,83 @@
+package com.yusuke.practicerepositorytest.fixture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+
+// 前のテストの変更が次のテストの前に復元されることを確認するため、実行順を固定する
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@SeededUsers(count = 2_000)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class UserDatasetFixtureTest {
+
+    private static int restoresBefore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @Order(1)
+    @Transactional
+    void testSeededUsersArePrepared() {
+        assertThat(countUsers()).isEqualTo(2_000);
+        restoresBefore = UserDatasetFixture.restores();
+    }
+
+    @Test
+    @Order(2)
+    @Transactional
+    void testRolledBackChangesAreNotRestored() {
+        assertThat(UserDatasetFixture.restores()).isEqualTo(restoresBefore);
+        jdbcTemplate.update("DELETE FROM users");
+        assertThat(countUsers()).isZero();
+    }
+
+    @Test
+    @Order(3)
+    void testCommittedChangesAreRestoredBeforeNextTest() {
+        // ロールバックされたため、復元せずに元のデータが残っている
+        assertThat(UserDatasetFixture.restores()).isEqualTo(restoresBefore);
+        assertThat(countUsers()).isEqualTo(2_000);
+
+        // 行数・最大ID・最大更新日時を変えない変更（更新日時を過去に戻す）でも、コミットしたため次のテストの前に復元される
+        Long id = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        jdbcTemplate.update("UPDATE users SET name = ?, updated_at = ? WHERE id = ?", "変更済み",
+                Timestamp.valueOf(LocalDateTime.of(2000, 1, 1, 0, 0)), id);
+    }
+
+    @Test
+    @Order(4)
+    void testRestoredUsersMatchSnapshot() {
+        assertThat(UserDatasetFixture.restores()).isEqualTo(restoresBefore + 1);
+        assertThat(countUsers()).isEqualTo(2_000);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE name = ?", Integer.class, "変更済み"))
+                .isZero();
+    }
+
+    @Test
+    @Order(5)
+    @SeededUsers(count = 500, seed = 7L)
+    void testMethodAnnotationOverridesClass() {
+        assertThat(countUsers()).isEqualTo(500);
+    }
+
+    private int countUsers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.yusuke.practicerepositorytest.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class BloomFilterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BloomFilterTest.class);
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(EmailExistenceFilter.hash("user" + i + "@example.com"));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain(EmailExistenceFilter.hash("user" + i + "@example.com"))).isTrue();
+        }
+        // 大文字・小文字は区別しない
+        assertThat(filter.mightContain(EmailExistenceFilter.hash("USER1@Example.com"))).isTrue();
+    }
+
+    @Test
+    void testReAddingDoesNotCountAsInsertion() {
+        BloomFilter filter = BloomFilter.create(1_000, 0.01);
+
+        assertThat(filter.put(EmailExistenceFilter.hash("user@example.com"))).isTrue();
+        // 差分同期で同じ行を読み直しても件数は増えない
+        assertThat(filter.put(EmailExistenceFilter.hash("user@example.com"))).isFalse();
+        assertThat(filter.insertions()).isEqualTo(1);
+    }
+
+    @Test
+    void testMeasuredFalsePositiveRate() {
+        int inserted = 100_000;
+        BloomFilter filter = BloomFilter.create(inserted, 0.01);
+        for (int i = 0; i < inserted; i++) {
+            filter.put(EmailExistenceFilter.hash("user" + i + "@example.com"));
+        }
+
+        int trials = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) {
+            if (filter.mightContain(EmailExistenceFilter.hash("new" + i + "@example.com"))) {
+                falsePositives++;
+            }
+        }
+
+        double measured = (double) falsePositives / trials;
+        log.info("bits={} hashes={} expected fpp={} measured fpp={}", filter.bitCount(), filter.hashCount(),
+                String.format("%.4f", filter.expectedFalsePositiveRate()), String.format("%.4f", measured));
+        assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+        assertThat(measured).isLessThan(0.015);
+    }
+
+    @Test
+    void testInvalidParameters() {
+        assertThatThrownBy(() -> BloomFilter.create(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> BloomFilter.create(100, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,228 @@
+package com.yusuke.practicerepositorytest.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.entity.User;
+
+class OffHeapUserStoreTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapUserStoreTest.class);
+
+    // テストではセグメントを小さくして、複数のMappedByteBufferにまたがる配置を確認する
+    private static final int SMALL_SEGMENT_SHIFT = 12;
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 1, 9, 0, 0, 123_456_000);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPutAndFind() throws Exception {
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("users.idx"), 64, SMALL_SEGMENT_SHIFT)) {
+            for (long id = 1; id <= 40; id++) {
+                assertThat(store.put(user(id, 0, "田中太郎" + id, "tanaka" + id + "@example.com"))).isTrue();
+            }
+
+            User user = store.findById(7L).orElseThrow();
+            assertThat(user.getName()).isEqualTo("田中太郎7");
+            assertThat(user.getEmail()).isEqualTo("tanaka7@example.com");
+            assertThat(user.getAge()).isEqualTo(27);
+            assertThat(user.getCreatedAt()).isEqualTo(CREATED_AT);
+            assertThat(store.findByEmail("tanaka40@example.com")).map(User::getId).contains(40L);
+            assertThat(store.findById(41L)).isEmpty();
+            assertThat(store.findByEmail("unknown@example.com")).isEmpty();
+        }
+    }
+
+    @Test
+    void testEmailChangeAndStaleVersion() throws Exception {
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("users.idx"), 64, SMALL_SEGMENT_SHIFT)) {
+            store.put(user(1L, 0, "田中太郎", "old@example.com"));
+            store.put(user(1L, 1, "田中太郎", "new@example.com"));
+
+            assertThat(store.findByEmail("old@example.com")).isEmpty();
+            assertThat(store.findByEmail("new@example.com")).map(User::getVersion).contains(1L);
+
+            // 古いバージョンの書き込みは無視される
+            store.put(user(1L, 0, "田中太郎", "old@example.com"));
+            assertThat(store.findById(1L)).map(User::getEmail).contains("new@example.com");
+            assertThat(store.findByEmail("old@example.com")).isEmpty();
+        }
+    }
+
+    @Test
+    void testDeletedUserIsNotResurrected() throws Exception {
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("users.idx"), 64, SMALL_SEGMENT_SHIFT)) {
+            store.put(user(1L, 0, "田中太郎", "tanaka@example.com"));
+            store.delete(1L, 1);
+
+            // 削除前に読み込まれた内容が遅れて書き込まれても復活しない
+            store.put(user(1L, 0, "田中太郎", "tanaka@example.com"));
+
+            assertThat(store.findById(1L)).isEmpty();
+            assertThat(store.findByEmail("tanaka@example.com")).isEmpty();
+            assertThat(store.versionOf(1L)).isEqualTo(-1L);
+        }
+    }
+
+    @Test
+    void testOverflowIsNotServed() throws Exception {
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("users.idx"), 64, SMALL_SEGMENT_SHIFT)) {
+            store.put(user(1L, 0, "田中太郎", "tanaka@example.com"));
+
+            // 名前が長すぎる場合は保持せず、古い内容も返さない
+            assertThat(store.put(user(1L, 1, "あ".repeat(100), "tanaka@example.com"))).isFalse();
+            assertThat(store.findById(1L)).isEmpty();
+            assertThat(store.findByEmail("tanaka@example.com")).isEmpty();
+        }
+    }
+
+    @Test
+    void testCapacityLimit() throws Exception {
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("users.idx"), 16, SMALL_SEGMENT_SHIFT)) {
+            // 容量16の75%まで保持する
+            for (long id = 1; id <= 12; id++) {
+                assertThat(store.put(user(id, 0, "user" + id, "user" + id + "@example.com"))).isTrue();
+            }
+            assertThat(store.put(user(13L, 0, "user13", "user13@example.com"))).isFalse();
+            assertThat(store.findById(12L)).isPresent();
+        }
+    }
+
+    @Test
+    void testReopenKeepsRecordsAndWatermark() throws Exception {
+        Path path = tempDir.resolve("users.idx");
+        ChangeWatermark watermark = new ChangeWatermark(LocalDateTime.of(2025, 6, 1, 12, 0, 0, 500_000_000), 42L);
+        try (OffHeapUserStore store = OffHeapUserStore.open(path, 64, SMALL_SEGMENT_SHIFT)) {
+            assertThat(store.isReopened()).isFalse();
+            store.put(user(42L, 3, "佐藤花子", "sato@example.com"));
+            store.setWatermark(watermark);
+        }
+
+        try (OffHeapUserStore store = OffHeapUserStore.open(path, 64, SMALL_SEGMENT_SHIFT)) {
+            assertThat(store.isReopened()).isTrue();
+            assertThat(store.watermark()).isEqualTo(watermark);
+            assertThat(store.findByEmail("sato@example.com")).map(User::getVersion).contains(3L);
+        }
+
+        // 容量が変わった場合は作り直す
+        try (OffHeapUserStore store = OffHeapUserStore.open(path, 128, SMALL_SEGMENT_SHIFT)) {
+            assertThat(store.isReopened()).isFalse();
+            assertThat(store.findById(42L)).isEmpty();
+            assertThat(store.watermark()).isEqualTo(ChangeWatermark.initial());
+        }
+    }
+
+    @Test
+    void testUncleanFileIsRebuilt() throws Exception {
+        Path path = tempDir.resolve("users.idx");
+        OffHeapUserStore crashed = OffHeapUserStore.open(path, 64, SMALL_SEGMENT_SHIFT);
+        crashed.put(user(1L, 0, "田中太郎", "tanaka@example.com"));
+
+        // 閉じられていないファイルは不完全な可能性があるため再利用しない
+        try (OffHeapUserStore store = OffHeapUserStore.open(path, 64, SMALL_SEGMENT_SHIFT)) {
+            assertThat(store.isReopened()).isFalse();
+            assertThat(store.recordCount()).isZero();
+        }
+        crashed.close();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkHeapAndGcAgainstOnHeapMap() throws Exception {
+        // ./gradlew test --tests OffHeapUserStoreTest -Dbenchmark=true -Doffheap.records=5000000
+        int records = Integer.getInteger("offheap.records", 2_000_000);
+        int lookups = 10_000_000;
+
+        long baseline = usedHeapAfterGc();
+        Map<Long, User> onHeap = new HashMap<>();
+        for (long id = 1; id <= records; id++) {
+            onHeap.put(id, user(id, 0, "ユーザー" + id, "user" + id + "@example.com"));
+        }
+        long onHeapBytes = usedHeapAfterGc() - baseline;
+        long[] onHeapGc = gcCountAndMillis();
+        long start = System.nanoTime();
+        long hits = 0;
+        for (int i = 0; i < lookups; i++) {
+            hits += onHeap.get(ThreadLocalRandom.current().nextLong(1, records + 1)).getAge();
+        }
+        long onHeapNanos = System.nanoTime() - start;
+        long[] onHeapGcAfter = gcCountAndMillis();
+        // 既存の世代に多数のオブジェクトが残った状態でのフルGCの時間
+        long onHeapFullGcMillis = timeFullGc();
+        onHeap = null;
+
+        baseline = usedHeapAfterGc();
+        try (OffHeapUserStore store = OffHeapUserStore.open(tempDir.resolve("bench.idx"), records * 2L)) {
+            for (long id = 1; id <= records; id++) {
+                store.put(user(id, 0, "ユーザー" + id, "user" + id + "@example.com"));
+            }
+            long offHeapBytes = usedHeapAfterGc() - baseline;
+            long[] offHeapGc = gcCountAndMillis();
+            start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                hits += store.versionOf(ThreadLocalRandom.current().nextLong(1, records + 1));
+            }
+            long offHeapNanos = System.nanoTime() - start;
+            long[] offHeapGcAfter = gcCountAndMillis();
+            long offHeapFullGcMillis = timeFullGc();
+
+            log.info("records={} lookups={} (checksum {})", records, lookups, hits);
+            log.info("on-heap map : heap {} MB, lookups {} ms, GC {} times / {} ms, full GC {} ms",
+                    onHeapBytes >> 20, onHeapNanos / 1_000_000,
+                    onHeapGcAfter[0] - onHeapGc[0], onHeapGcAfter[1] - onHeapGc[1], onHeapFullGcMillis);
+            log.info("off-heap    : heap {} MB, lookups {} ms, GC {} times / {} ms, full GC {} ms",
+                    offHeapBytes >> 20, offHeapNanos / 1_000_000,
+                    offHeapGcAfter[0] - offHeapGc[0], offHeapGcAfter[1] - offHeapGc[1], offHeapFullGcMillis);
+        }
+    }
+
+    private static User user(long id, long version, String name, String email) {
+        return User.builder()
+                .id(id)
+                .version(version)
+                .name(name)
+                .email(email)
+                .age((int) (20 + id % 50))
+                .createdAt(CREATED_AT)
+                .updatedAt(CREATED_AT.plusSeconds(version))
+                .build();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long timeFullGc() {
+        long start = System.nanoTime();
+        System.gc();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long[] gcCountAndMillis() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[] { count, millis };
+    }
+}
@@ -0,0 +1,104 @@
+package com.yusuke.practicerepositorytest.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.yusuke.practicerepositorytest.dto.UserSuggestion;
+import com.yusuke.practicerepositorytest.dto.UserSuggestion.MatchedOn;
+import com.yusuke.practicerepositorytest.load.UserDataGenerator;
+
+class PrefixIndexTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PrefixIndexTest.class);
+
+    @Test
+    void testKanaAndWidthInsensitivePrefix() {
+        PrefixIndex index = new PrefixIndex(1000);
+        index.put(1, 0, "タナカ タロウ", "tanaka@example.com");
+        index.put(2, 0, "田中花子", "hanako@example.com");
+        index.put(3, 0, "ﾀﾅﾍﾞ ｹﾝｼﾞ", "tanabe@example.jp");
+
+        // カタカナ・半角カナ・ひらがなのどれで入力しても一致する
+        assertThat(ids(index.suggest("たな", 10))).containsExactly(1L, 3L);
+        assertThat(ids(index.suggest("ﾀﾅｶ", 10))).containsExactly(1L);
+        assertThat(ids(index.suggest("田中", 10))).containsExactly(2L);
+        // 2語目以降の先頭にも一致する
+        assertThat(index.suggest("けんじ", 10)).extracting(UserSuggestion::getMatchedOn)
+                .containsExactly(MatchedOn.NAME_WORD);
+        // メールアドレスは大文字・小文字を区別しない
+        assertThat(index.suggest("HANAKO@", 10)).extracting(UserSuggestion::getId, UserSuggestion::getMatchedOn)
+                .containsExactly(tuple(2L, MatchedOn.EMAIL));
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void testRanking() {
+        PrefixIndex index = new PrefixIndex(1000);
+        index.put(1, 0, "Sato Kenichi", "kenichi@example.com");
+        index.put(2, 0, "Satoshi", "satoshi@example.com");
+        index.put(3, 0, "Sato", "s@example.com");
+        index.put(4, 0, "Yuki Sato", "yuki@example.com");
+        index.put(5, 0, "Mori", "sato.mori@example.com");
+
+        // 完全一致、名前の先頭（短い順）、名前の2語目以降、メールアドレスの順
+        assertThat(ids(index.suggest("sato", 10))).containsExactly(3L, 2L, 1L, 4L, 5L);
+        assertThat(ids(index.suggest("sato", 2))).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void testUpdatesAreVersioned() {
+        PrefixIndex index = new PrefixIndex(1000);
+        index.put(1, 1, "山田太郎", "yamada@example.com");
+        index.put(1, 2, "鈴木太郎", "suzuki@example.com");
+        // 遅れて届いた古いバージョンは無視する
+        index.put(1, 1, "山田太郎", "yamada@example.com");
+
+        assertThat(index.suggest("山田", 10)).isEmpty();
+        assertThat(index.suggest("鈴木", 10)).extracting(UserSuggestion::getEmail)
+                .containsExactly("suzuki@example.com");
+        assertThat(index.suggest("yamada", 10)).isEmpty();
+
+        index.remove(1, 3);
+        index.put(1, 2, "鈴木太郎", "suzuki@example.com");
+        assertThat(index.suggest("鈴木", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkSuggestLatency() {
+        // ./gradlew test --tests PrefixIndexTest -Dbenchmark=true -Dsuggest.users=2000000
+        int userCount = Integer.getInteger("suggest.users", 1_000_000);
+        PrefixIndex index = new PrefixIndex(1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < userCount; i++) {
+            index.put(i, 0, UserDataGenerator.nameOf(i, 7L), UserDataGenerator.emailOf(i, 7L));
+        }
+        log.info("users={} build={} ms", userCount, (System.nanoTime() - start) / 1_000_000);
+
+        // キー入力ごとの呼び出しを想定し、1文字ずつ伸ばした入力で計測する
+        String[] typed = { "s", "sa", "sat", "sato", "た", "たな", "田", "田中", "tanaka.1", "smith" };
+        int iterations = 10_000;
+        for (String prefix : typed) {
+            index.suggest(prefix, 10);
+        }
+        for (String prefix : typed) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                index.suggest(prefix, 10);
+            }
+            log.info("prefix={} {} us", prefix, String.format("%.1f", (System.nanoTime() - begin) / 1e3 / iterations));
+        }
+    }
+
+    private static List<Long> ids(List<UserSuggestion> suggestions) {
+        return suggestions.stream().map(UserSuggestion::getId).toList();
+    }
+}
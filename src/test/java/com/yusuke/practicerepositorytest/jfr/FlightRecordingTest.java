@@ -0,0 +1,145 @@
+package com.yusuke.practicerepositorytest.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.web.UserHttpMessageConverter;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class FlightRecordingTest {
+
+    @TempDir
+    Path directory;
+
+    private FlightRecordingManager manager;
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    void testStagesAreRecordedWithEndpointAndRows() throws Exception {
+        manager = new FlightRecordingManager(properties());
+        manager.start(null);
+        assertThat(manager.isRecording()).isTrue();
+
+        simulateRequest();
+        Path file = manager.stop();
+
+        assertThat(manager.isRecording()).isFalse();
+        assertThat(file).exists().hasParent(directory);
+        Map<String, RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith("com.yusuke.users."))
+                .collect(Collectors.toMap(event -> event.getEventType().getName(), event -> event, (a, b) -> a));
+        assertThat(events).containsOnlyKeys("com.yusuke.users.Request", "com.yusuke.users.Specification",
+                "com.yusuke.users.SqlRender", "com.yusuke.users.Serialization");
+
+        RecordedEvent request = events.get("com.yusuke.users.Request");
+        assertThat(request.getString("endpoint")).isEqualTo("GET /api/users/spec/search");
+        assertThat(request.getString("parameterNames")).isEqualTo("name");
+        assertThat(request.getInt("status")).isEqualTo(200);
+        assertThat(request.getLong("rows")).isEqualTo(2);
+
+        RecordedEvent specification = events.get("com.yusuke.users.Specification");
+        assertThat(specification.getString("specification")).isEqualTo("nameLike");
+        // 検索条件の値は記録しない
+        assertThat(specification.getString("parameterTypes")).isEqualTo("[String]");
+
+        RecordedEvent render = events.get("com.yusuke.users.SqlRender");
+        assertThat(render.getString("endpoint")).isEqualTo("GET /api/users/spec/search");
+        assertThat(render.getString("sql")).startsWith("select");
+
+        RecordedEvent serialization = events.get("com.yusuke.users.Serialization");
+        assertThat(serialization.getString("format")).isEqualTo("json");
+        assertThat(serialization.getLong("rows")).isEqualTo(2);
+    }
+
+    @Test
+    void testNothingIsPendingWhenNotRecording() throws Exception {
+        ProfiledSpecification.of("nameLike", (root, query, criteriaBuilder) -> null, "Ali")
+                .toPredicate(null, null, null);
+
+        assertThat(JfrContext.takePendingRender()).isNull();
+    }
+
+    @Test
+    void testDumpKeepsRecording() throws Exception {
+        manager = new FlightRecordingManager(properties());
+        assertThatThrownBy(manager::dump).isInstanceOf(IllegalStateException.class);
+
+        manager.start("profile");
+        Path first = manager.dump();
+        Path second = manager.dump();
+
+        assertThat(manager.isRecording()).isTrue();
+        assertThat(Files.size(first)).isPositive();
+        assertThat(second).isNotEqualTo(first);
+        assertThat(manager.status()).containsEntry("recording", true).containsEntry("name", "users-api");
+    }
+
+    @Test
+    void testStartAcceptsOnlyNamedJdkSettings() throws Exception {
+        manager = new FlightRecordingManager(properties());
+        Path jfc = Files.writeString(directory.resolve("custom.jfc"), "<configuration version=\"2.0\"/>");
+
+        assertThatThrownBy(() -> manager.start(jfc.toString())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> manager.start("../default")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(manager.isRecording()).isFalse();
+    }
+
+    @Test
+    void testParameterNamesOmitValues() {
+        assertThat(JfrRequestInterceptor.parameterNames("email=tanaka%40example.com&name=%E7%94%B0&name=x&flag"))
+                .isEqualTo("email,name,flag");
+        assertThat(JfrRequestInterceptor.parameterNames(null)).isEmpty();
+    }
+
+    // インターセプター、Specification、SQLの確定、書き出しを1つのスレッドで順に通す
+    private void simulateRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/spec/search");
+        request.setQueryString("name=Ali");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/users/spec/search");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        JfrRequestInterceptor interceptor = new JfrRequestInterceptor();
+        interceptor.preHandle(request, response, new Object());
+
+        ProfiledSpecification.<User>of("nameLike", (root, query, criteriaBuilder) -> null, "Ali")
+                .toPredicate(null, null, null);
+        new JfrStatementInspector().inspect("select u1_0.id from users u1_0 where u1_0.name_normalized like ?");
+
+        List<User> users = List.of(User.builder().id(1L).name("Alice").build(),
+                User.builder().id(2L).name("Alien").build());
+        new UserHttpMessageConverter(new ObjectMapper())
+                .writeTo(users, MediaType.APPLICATION_JSON, new ByteArrayOutputStream());
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+    }
+
+    private FlightRecorderProperties properties() {
+        FlightRecorderProperties properties = new FlightRecorderProperties();
+        properties.setDirectory(directory.toString());
+        return properties;
+    }
+}
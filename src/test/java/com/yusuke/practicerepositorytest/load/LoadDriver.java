@@ -0,0 +1,232 @@
+package com.yusuke.practicerepositorytest.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * UserControllerのエンドポイントを設定した配分で呼び出し、スループットとレイテンシーを計測する
+ */
+public class LoadDriver {
+
+    /**
+     * 負荷をかけるエンドポイント
+     */
+    public enum Endpoint {
+        BY_ID("by-id", p -> "/api/users/" + (p.getFirstId() + random().nextInt(p.getUserCount()))),
+        BY_EMAIL("by-email", p -> "/api/users/email/"
+                + encode(UserDataGenerator.emailOf(random().nextInt(p.getUserCount()), p.getSeed()))),
+        SEARCH_NAME("search-name", p -> "/api/users/search/name?name="
+                + encode(namePart(p))),
+        SEARCH_AGE("search-age", p -> "/api/users/search/age?age=" + (18 + random().nextInt(60))),
+        SPEC_SEARCH("spec-search", p -> "/api/users/spec/search?name=" + encode(namePart(p))
+                + "&minAge=" + (20 + random().nextInt(20)) + "&maxAge=" + (40 + random().nextInt(20))),
+        PAGED("paged", p -> "/api/users/spec/search/paged?name=" + encode(namePart(p))
+                + "&page=" + random().nextInt(5) + "&size=20&sortBy=id"),
+        CHANGES("changes", p -> "/api/users/changes?limit=100");
+
+        private final String key;
+        private final Function<LoadProfile, String> pathGenerator;
+
+        Endpoint(String key, Function<LoadProfile, String> pathGenerator) {
+            this.key = key;
+            this.pathGenerator = pathGenerator;
+        }
+
+        static Endpoint of(String key) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.key.equals(key)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Unknown endpoint: " + key);
+        }
+
+        private static String namePart(LoadProfile profile) {
+            // 生成済みの名前の先頭2文字（姓の一部）で検索する
+            String name = UserDataGenerator.nameOf(random().nextInt(profile.getUserCount()), profile.getSeed());
+            return name.substring(0, Math.min(2, name.length()));
+        }
+
+        private static ThreadLocalRandom random() {
+            return ThreadLocalRandom.current();
+        }
+
+        private static String encode(String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final LoadProfile profile;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+    public LoadDriver(LoadProfile profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * ウォームアップ後に計測し、結果を返す
+     */
+    public Report run() throws Exception {
+        runFor(profile.getWarmUp().toNanos(), null);
+        Report report = new Report();
+        long start = System.nanoTime();
+        runFor(profile.getDuration().toNanos(), report);
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void runFor(long durationNanos, Report report) throws Exception {
+        Endpoint[] schedule = buildSchedule();
+        long deadline = System.nanoTime() + durationNanos;
+
+        ExecutorService executor = Executors.newFixedThreadPool(profile.getConcurrency());
+        try {
+            List<Future<Map<Endpoint, Recorder>>> futures = new ArrayList<>();
+            for (int i = 0; i < profile.getConcurrency(); i++) {
+                futures.add(executor.submit(() -> {
+                    Map<Endpoint, Recorder> recorders = new LinkedHashMap<>();
+                    while (System.nanoTime() < deadline) {
+                        Endpoint endpoint = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+                        recorders.computeIfAbsent(endpoint, e -> new Recorder()).record(call(endpoint));
+                    }
+                    return recorders;
+                }));
+            }
+            for (Future<Map<Endpoint, Recorder>> future : futures) {
+                Map<Endpoint, Recorder> recorders = future.get();
+                if (report != null) {
+                    recorders.forEach(report::merge);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // 重みに比例した回数だけエンドポイントを並べ、一様乱数で選ぶ
+    private Endpoint[] buildSchedule() {
+        List<Endpoint> schedule = new ArrayList<>();
+        profile.getMix().forEach((key, weight) -> {
+            Endpoint endpoint = Endpoint.of(key);
+            for (int i = 0; i < weight; i++) {
+                schedule.add(endpoint);
+            }
+        });
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("Load mix has no endpoints with positive weight");
+        }
+        return schedule.toArray(new Endpoint[0]);
+    }
+
+    // レイテンシー（ナノ秒）を返す。エラーは負の値
+    private long call(Endpoint endpoint) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(profile.getBaseUrl()
+                + endpoint.pathGenerator.apply(profile)))
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - start;
+            // 404は存在しないIDを引いた場合の正常な応答として扱う
+            boolean success = response.statusCode() < 400 || response.statusCode() == 404;
+            return success ? latency : -latency;
+        } catch (Exception e) {
+            return -(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * スレッドごとのレイテンシー記録
+     */
+    static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int errors;
+
+        void record(long latency) {
+            if (latency < 0) {
+                errors++;
+                latency = -latency;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        void merge(Recorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+
+    /**
+     * 計測結果
+     */
+    public static class Report {
+
+        private final Map<Endpoint, Recorder> recorders = new LinkedHashMap<>();
+        private long elapsedNanos;
+
+        void merge(Endpoint endpoint, Recorder recorder) {
+            recorders.computeIfAbsent(endpoint, e -> new Recorder()).merge(recorder);
+        }
+
+        public long totalRequests() {
+            return recorders.values().stream().mapToLong(r -> r.count).sum();
+        }
+
+        public long totalErrors() {
+            return recorders.values().stream().mapToLong(r -> r.errors).sum();
+        }
+
+        public double throughput() {
+            return totalRequests() / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(String.format("total: %d requests, %d errors, %.1f req/s%n",
+                    totalRequests(), totalErrors(), throughput()));
+            builder.append(String.format("%-12s %8s %8s %9s %9s %9s %9s%n",
+                    "endpoint", "count", "errors", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)"));
+            recorders.forEach((endpoint, recorder) -> builder.append(String.format(
+                    "%-12s %8d %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.key, recorder.count, recorder.errors,
+                    recorder.percentile(50) / 1e6, recorder.percentile(90) / 1e6,
+                    recorder.percentile(99) / 1e6, recorder.percentile(100) / 1e6)));
+            return builder.toString();
+        }
+    }
+}
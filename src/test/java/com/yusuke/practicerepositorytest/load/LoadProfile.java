@@ -0,0 +1,77 @@
+package com.yusuke.practicerepositorytest.load;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 負荷ドライバーの設定
+ * 
+ * mixは "エンドポイント名=重み" のカンマ区切り（例: by-id=60,by-email=20,spec-search=10,paged=10）。
+ * 使用できるエンドポイント名はLoadDriver.Endpointを参照。
+ */
+@Value
+@Builder(toBuilder = true)
+public class LoadProfile {
+
+    public static final String DEFAULT_MIX = "by-id=50,by-email=20,search-name=10,spec-search=10,paged=10";
+
+    String baseUrl;
+
+    // 投入済みのユーザー件数とシード（存在するID・メールアドレスを指定するために使う）
+    int userCount;
+    long seed;
+
+    // 投入したユーザーの先頭のID
+    @Builder.Default
+    long firstId = 1L;
+
+    @Builder.Default
+    int concurrency = 16;
+
+    @Builder.Default
+    Duration warmUp = Duration.ofSeconds(5);
+
+    @Builder.Default
+    Duration duration = Duration.ofSeconds(30);
+
+    @Builder.Default
+    Map<String, Integer> mix = parseMix(DEFAULT_MIX);
+
+    /**
+     * システムプロパティ（load.*）から設定を組み立てる
+     */
+    public static LoadProfile fromSystemProperties(String baseUrl, int userCount, long seed) {
+        return LoadProfile.builder()
+                .baseUrl(baseUrl)
+                .userCount(userCount)
+                .seed(seed)
+                .concurrency(Integer.getInteger("load.concurrency", 16))
+                .warmUp(Duration.ofSeconds(Long.getLong("load.warmUpSeconds", 5L)))
+                .duration(Duration.ofSeconds(Long.getLong("load.durationSeconds", 30L)))
+                .mix(parseMix(System.getProperty("load.mix", DEFAULT_MIX)))
+                .build();
+    }
+
+    /**
+     * エンドポイントの配分を解析する
+     */
+    public static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid load mix entry: " + entry);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + entry);
+            }
+            weights.put(pair[0].trim(), weight);
+        }
+        return weights;
+    }
+}
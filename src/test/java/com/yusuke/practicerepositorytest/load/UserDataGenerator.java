@@ -0,0 +1,186 @@
+package com.yusuke.practicerepositorytest.load;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.yusuke.practicerepositorytest.entity.UserTextNormalizer;
+
+/**
+ * 大量の疑似ユーザーデータをバッチJDBCで投入する
+ * 
+ * 日本語名とローマ字名、一意なメールアドレス、年齢分布、過去数年に分散した作成日時を持つデータを生成する。
+ * 同じシードと件数からは常に同じデータが生成される。
+ * MySQLではrewriteBatchedStatements=trueの接続を使うと複数行INSERTにまとめられ高速になる。
+ */
+@Component
+public class UserDataGenerator {
+
+    private static final String INSERT_SQL = "INSERT INTO users (name, email, age, created_at, updated_at, version,"
+            + " name_normalized, email_domain, email_reversed) VALUES (?, ?, ?, ?, ?, 0, ?, ?, ?)";
+
+    private static final String[] JAPANESE_FAMILY_NAMES = {
+            "佐藤", "鈴木", "高橋", "田中", "伊藤", "渡辺", "山本", "中村", "小林", "加藤",
+            "吉田", "山田", "佐々木", "山口", "松本", "井上", "木村", "林", "斎藤", "清水" };
+    private static final String[] JAPANESE_GIVEN_NAMES = {
+            "太郎", "次郎", "三郎", "花子", "陽菜", "結衣", "翔太", "大輔", "美咲", "健一",
+            "さくら", "ゆうき", "あおい", "ハルト", "ユイ", "蓮", "葵", "湊", "凛", "陽翔" };
+    private static final String[] LATIN_FAMILY_NAMES = {
+            "Smith", "Johnson", "Garcia", "Brown", "Miller", "Davis", "Martinez", "Wilson", "Anderson", "Taylor",
+            "Tanaka", "Sato", "Suzuki", "Yamada", "Kobayashi" };
+    private static final String[] LATIN_GIVEN_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Emma",
+            "Taro", "Hanako", "Kenji", "Yuki", "Sakura" };
+    private static final String[] ROMAJI_FAMILY_NAMES = {
+            "sato", "suzuki", "takahashi", "tanaka", "ito", "watanabe", "yamamoto", "nakamura", "kobayashi", "kato",
+            "yoshida", "yamada", "sasaki", "yamaguchi", "matsumoto", "inoue", "kimura", "hayashi", "saito", "shimizu" };
+    private static final String[] EMAIL_DOMAINS = {
+            "example.com", "example.co.jp", "example.org", "mail.example.net", "corp.example.jp" };
+
+    // 作成日時を分散させる期間
+    private static final int CREATED_AT_SPREAD_DAYS = 5 * 365;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 指定件数のユーザーを投入する
+     * 
+     * @param count       投入する件数
+     * @param seed        乱数のシード
+     * @param batchSize   1バッチあたりの件数
+     * @param parallelism 並列に投入する接続数
+     * @return 投入にかかった時間（ミリ秒）
+     */
+    public long generate(int count, long seed, int batchSize, int parallelism) {
+        LocalDateTime now = LocalDateTime.now();
+        int chunk = (count + parallelism - 1) / parallelism;
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < count; from += chunk) {
+                int rangeFrom = from;
+                int rangeTo = Math.min(count, from + chunk);
+                futures.add(executor.submit(() -> {
+                    insertRange(rangeFrom, rangeTo, seed, batchSize, now);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("テストデータの生成に失敗しました", e);
+        } finally {
+            executor.shutdown();
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * 既定の設定（バッチ1000件、CPUコア数の並列度）で投入する
+     */
+    public long generate(int count, long seed) {
+        return generate(count, seed, 1000, Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * 連番から生成されるメールアドレス（負荷ドライバーが存在するユーザーを指定するために使う）
+     */
+    public static String emailOf(int index, long seed) {
+        SplittableRandom random = randomFor(index, seed);
+        // nameOfと同じ順序で乱数を消費する
+        boolean japanese = random.nextInt(100) < 70;
+        int family = random.nextInt(japanese ? JAPANESE_FAMILY_NAMES.length : LATIN_FAMILY_NAMES.length);
+        random.nextInt(japanese ? JAPANESE_GIVEN_NAMES.length : LATIN_GIVEN_NAMES.length);
+        String local = japanese ? ROMAJI_FAMILY_NAMES[family] : LATIN_FAMILY_NAMES[family].toLowerCase();
+        String domain = EMAIL_DOMAINS[random.nextInt(EMAIL_DOMAINS.length)];
+        return local + "." + index + "@" + domain;
+    }
+
+    /**
+     * 連番から生成される名前
+     */
+    public static String nameOf(int index, long seed) {
+        SplittableRandom random = randomFor(index, seed);
+        boolean japanese = random.nextInt(100) < 70;
+        if (japanese) {
+            return JAPANESE_FAMILY_NAMES[random.nextInt(JAPANESE_FAMILY_NAMES.length)]
+                    + JAPANESE_GIVEN_NAMES[random.nextInt(JAPANESE_GIVEN_NAMES.length)];
+        }
+        String family = LATIN_FAMILY_NAMES[random.nextInt(LATIN_FAMILY_NAMES.length)];
+        return LATIN_GIVEN_NAMES[random.nextInt(LATIN_GIVEN_NAMES.length)] + " " + family;
+    }
+
+    private void insertRange(int from, int to, long seed, int batchSize, LocalDateTime now) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+                int pending = 0;
+                for (int i = from; i < to; i++) {
+                    SplittableRandom random = randomFor(i, seed ^ 0x5DEECE66DL);
+                    LocalDateTime createdAt = now.minusDays(random.nextInt(CREATED_AT_SPREAD_DAYS))
+                            .minusSeconds(random.nextInt(86_400));
+                    // 約3割のユーザーは作成後に更新されている
+                    LocalDateTime updatedAt = createdAt;
+                    if (random.nextInt(10) < 3) {
+                        long ageInDays = Duration.between(createdAt, now).toDays();
+                        updatedAt = createdAt.plusDays(random.nextLong(ageInDays + 1));
+                    }
+
+                    String name = nameOf(i, seed);
+                    String email = emailOf(i, seed);
+                    statement.setString(1, name);
+                    statement.setString(2, email);
+                    statement.setInt(3, age(random));
+                    statement.setTimestamp(4, Timestamp.valueOf(createdAt));
+                    statement.setTimestamp(5, Timestamp.valueOf(updatedAt.isAfter(now) ? now : updatedAt));
+                    // 検索用の派生カラム（エンティティの@PrePersistと同じ値）
+                    statement.setString(6, UserTextNormalizer.normalizeName(name));
+                    statement.setString(7, UserTextNormalizer.emailDomain(email));
+                    statement.setString(8, UserTextNormalizer.reverseEmail(email));
+                    statement.addBatch();
+
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                    connection.commit();
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // 平均38歳・標準偏差14の正規分布を18〜90歳に収める
+    private static int age(SplittableRandom random) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return (int) Math.max(18, Math.min(90, Math.round(38 + 14 * gaussian)));
+    }
+
+    private static SplittableRandom randomFor(int index, long seed) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+    }
+}
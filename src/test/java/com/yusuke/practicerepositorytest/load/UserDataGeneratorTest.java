@@ -0,0 +1,33 @@
+package com.yusuke.practicerepositorytest.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class UserDataGeneratorTest {
+
+    @Test
+    void testGeneratedEmailsAreUniqueAndDeterministic() {
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            emails.add(UserDataGenerator.emailOf(i, 42L));
+        }
+
+        assertThat(emails).hasSize(10_000);
+        assertThat(UserDataGenerator.emailOf(123, 42L)).isEqualTo(UserDataGenerator.emailOf(123, 42L));
+        assertThat(UserDataGenerator.nameOf(123, 42L)).isEqualTo(UserDataGenerator.nameOf(123, 42L));
+    }
+
+    @Test
+    void testParseMix() {
+        assertThat(LoadProfile.parseMix("by-id=80, paged=20"))
+                .containsEntry("by-id", 80)
+                .containsEntry("paged", 20);
+        assertThatThrownBy(() -> LoadProfile.parseMix("by-id"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
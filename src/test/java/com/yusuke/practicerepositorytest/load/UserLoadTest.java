@@ -0,0 +1,73 @@
+package com.yusuke.practicerepositorytest.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+
+/**
+ * 本番規模のデータに対してUserControllerへ負荷をかける
+ * 
+ * ./gradlew test --tests UserLoadTest -Dbenchmark=true -Dload.users=1000000 -Dload.mix=by-id=80,paged=20
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "spring.datasource.hikari.data-source-properties.rewriteBatchedStatements=true",
+        // 単一のクライアントから負荷をかけるため、レートリミットは無効にする
+        "app.traffic.enabled=false"
+})
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class UserLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserLoadTest.class);
+
+    private static final long SEED = 20240401L;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserDatasetFixture userDatasetFixture;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testLoadAgainstGeneratedUsers() throws Exception {
+        int userCount = Integer.getInteger("load.users", 100_000);
+
+        long start = System.currentTimeMillis();
+        userDatasetFixture.prepare(userCount, SEED);
+        log.info("prepared {} users in {} ms", userCount, System.currentTimeMillis() - start);
+
+        Long firstId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        assertThat(firstId).isNotNull();
+
+        LoadProfile profile = LoadProfile.fromSystemProperties("http://localhost:" + port, userCount, SEED)
+                .toBuilder()
+                .firstId(firstId)
+                .build();
+        LoadDriver.Report report = new LoadDriver(profile).run();
+        log.info("{}", report);
+
+        assertThat(report.totalRequests()).isPositive();
+        assertThat(report.totalErrors()).isZero();
+    }
+}
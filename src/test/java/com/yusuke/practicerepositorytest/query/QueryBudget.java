@@ -0,0 +1,49 @@
+package com.yusuke.practicerepositorytest.query;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * テストで発行してよいSQLの上限（クエリ予算）
+ * 
+ * テストメソッド本体（@BeforeEach/@AfterEachを除く）で発行されたSQLを数え、上限を超えた場合はテストを失敗させる。
+ * exactをtrueにすると、指定した項目は上限ではなく実際の件数と一致しなければならない
+ * （フラッシュされずに発行されなかったUPDATEなどで予算を満たしてしまうことを防ぐ）。
+ * クラスに付けた場合はすべてのテストメソッドに適用され、メソッドに付けたものが優先される。
+ * 
+ * @see QueryBudgetTestExecutionListener
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+
+    // 上限なし
+    int UNLIMITED = -1;
+
+    /**
+     * すべての文の合計
+     */
+    int total() default UNLIMITED;
+
+    int select() default UNLIMITED;
+
+    int insert() default UNLIMITED;
+
+    int update() default UNLIMITED;
+
+    int delete() default UNLIMITED;
+
+    /**
+     * 同じSELECT文（パラメータ違いを含む）を実行してよい回数（N+1の検出に使う）
+     */
+    int maxRepeatedSelects() default UNLIMITED;
+
+    /**
+     * 指定した件数（maxRepeatedSelectsを除く）を上限ではなく期待する件数として扱う
+     */
+    boolean exact() default false;
+}
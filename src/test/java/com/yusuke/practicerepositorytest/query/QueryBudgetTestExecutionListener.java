@@ -0,0 +1,99 @@
+package com.yusuke.practicerepositorytest.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+/**
+ * テストごとに発行されたSQLの件数と実行時間を出力し、@QueryBudgetの上限を検証する
+ * 
+ * META-INF/spring.factoriesで登録しているため、Springのテストすべてに適用される。
+ * QueryCounterのBeanがないコンテキスト（QueryCountingConfigurationを読み込まないテスト）では何もしない。
+ */
+public class QueryBudgetTestExecutionListener extends AbstractTestExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetTestExecutionListener.class);
+
+    // 予算がなくてもレポートで警告する同じSELECTの実行回数
+    private static final int REPEATED_SELECT_WARNING = 10;
+
+    @Override
+    public void beforeTestExecution(TestContext testContext) {
+        QueryCounter counter = counter(testContext);
+        if (counter != null) {
+            counter.reset();
+        }
+    }
+
+    @Override
+    public void afterTestExecution(TestContext testContext) {
+        QueryCounter counter = counter(testContext);
+        if (counter == null) {
+            return;
+        }
+        QueryCount count = counter.snapshot();
+        String testName = testContext.getTestClass().getSimpleName() + "." + testContext.getTestMethod().getName();
+        log.info("[query-count] {} {}", testName, count);
+
+        Map<String, Long> repeated = counter.repeatedSelects(REPEATED_SELECT_WARNING);
+        repeated.forEach((sql, executions) -> log.warn("[query-count] {} executed the same select {} times: {}",
+                testName, executions, sql));
+
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestMethod(), QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestClass(), QueryBudget.class);
+        }
+        if (budget == null) {
+            return;
+        }
+        List<String> violations = violations(budget, count, counter);
+        if (!violations.isEmpty()) {
+            throw new AssertionError("Query budget exceeded in " + testName + ": " + String.join(", ", violations)
+                    + " (" + count + ")");
+        }
+    }
+
+    /**
+     * 予算を超えた項目の一覧
+     */
+    static List<String> violations(QueryBudget budget, QueryCount count, QueryCounter counter) {
+        List<String> violations = new ArrayList<>();
+        boolean exact = budget.exact();
+        check(violations, "total", budget.total(), count.getTotal(), exact);
+        check(violations, "select", budget.select(), count.getSelect(), exact);
+        check(violations, "insert", budget.insert(), count.getInsert(), exact);
+        check(violations, "update", budget.update(), count.getUpdate(), exact);
+        check(violations, "delete", budget.delete(), count.getDelete(), exact);
+        if (budget.maxRepeatedSelects() != QueryBudget.UNLIMITED) {
+            counter.repeatedSelects(budget.maxRepeatedSelects() + 1).forEach((sql, executions) -> violations
+                    .add("select executed " + executions + " times (max " + budget.maxRepeatedSelects()
+                            + ", possible N+1): " + sql));
+        }
+        return violations;
+    }
+
+    private static void check(List<String> violations, String type, int limit, long actual, boolean exact) {
+        if (limit == QueryBudget.UNLIMITED) {
+            return;
+        }
+        if (exact && actual != limit) {
+            violations.add(type + "=" + actual + " (expected " + limit + ")");
+        } else if (actual > limit) {
+            violations.add(type + "=" + actual + " (max " + limit + ")");
+        }
+    }
+
+    private static QueryCounter counter(TestContext testContext) {
+        // コンテキストの読み込みに失敗したテストで再度読み込もうとしない
+        if (!testContext.hasApplicationContext()) {
+            return null;
+        }
+        return testContext.getApplicationContext().getBeanProvider(QueryCounter.class).getIfAvailable();
+    }
+}
@@ -0,0 +1,35 @@
+package com.yusuke.practicerepositorytest.query;
+
+import lombok.Value;
+
+/**
+ * 発行されたSQLの件数と実行時間
+ */
+@Value
+public class QueryCount {
+
+    long select;
+    long insert;
+    long update;
+    long delete;
+    long other;
+    long elapsedMillis;
+
+    public long getTotal() {
+        return select + insert + update + delete + other;
+    }
+
+    /**
+     * 指定時点からの差分
+     */
+    public QueryCount minus(QueryCount before) {
+        return new QueryCount(select - before.select, insert - before.insert, update - before.update,
+                delete - before.delete, other - before.other, elapsedMillis - before.elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("select=%d insert=%d update=%d delete=%d other=%d total=%d time=%dms",
+                select, insert, update, delete, other, getTotal(), elapsedMillis);
+    }
+}
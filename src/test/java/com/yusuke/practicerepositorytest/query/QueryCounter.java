@@ -0,0 +1,140 @@
+package com.yusuke.practicerepositorytest.query;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * DataSourceプロキシで実行されたSQLを種類ごとに数える
+ * 
+ * 並列ページングのように別スレッドで実行されるSQLも数える。
+ * ただし@Scheduledによるバックグラウンドの同期はテストと無関係に動くため対象外とする。
+ * バッチ実行は1回の実行として数える。
+ */
+public class QueryCounter implements QueryExecutionListener {
+
+    private static final String SCHEDULER_THREAD_PREFIX = "scheduling-";
+
+    private final LongAdder select = new LongAdder();
+    private final LongAdder insert = new LongAdder();
+    private final LongAdder update = new LongAdder();
+    private final LongAdder delete = new LongAdder();
+    private final LongAdder other = new LongAdder();
+    private final LongAdder elapsedMillis = new LongAdder();
+    private final Map<String, LongAdder> selectsBySql = new ConcurrentHashMap<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (Thread.currentThread().getName().startsWith(SCHEDULER_THREAD_PREFIX)) {
+            return;
+        }
+        elapsedMillis.add(execInfo.getElapsedTime());
+        for (QueryInfo queryInfo : queryInfoList) {
+            String sql = queryInfo.getQuery();
+            switch (firstKeyword(sql)) {
+                case "select", "with" -> {
+                    select.increment();
+                    selectsBySql.computeIfAbsent(sql.strip(), key -> new LongAdder()).increment();
+                }
+                case "insert" -> insert.increment();
+                case "update" -> update.increment();
+                case "delete" -> delete.increment();
+                default -> other.increment();
+            }
+        }
+    }
+
+    /**
+     * 件数をリセットする
+     */
+    public void reset() {
+        select.reset();
+        insert.reset();
+        update.reset();
+        delete.reset();
+        other.reset();
+        elapsedMillis.reset();
+        selectsBySql.clear();
+    }
+
+    /**
+     * リセットしてからの件数
+     */
+    public QueryCount snapshot() {
+        return new QueryCount(select.sum(), insert.sum(), update.sum(), delete.sum(), other.sum(),
+                elapsedMillis.sum());
+    }
+
+    /**
+     * 処理の実行中に発行されたSQLの件数
+     */
+    public QueryCount count(Runnable action) {
+        QueryCount before = snapshot();
+        action.run();
+        return snapshot().minus(before);
+    }
+
+    /**
+     * 処理の実行中に発行されたSQLの件数を検証しながら結果を返す
+     * 
+     * @param maxStatements 発行してよい文の数
+     */
+    public <T> T expectAtMost(int maxStatements, Supplier<T> action) {
+        QueryCount before = snapshot();
+        T result = action.get();
+        QueryCount count = snapshot().minus(before);
+        if (count.getTotal() > maxStatements) {
+            throw new AssertionError("Expected at most " + maxStatements + " statements but was " + count);
+        }
+        return result;
+    }
+
+    /**
+     * リセットしてから指定回数以上実行された同じSELECT文（実行回数の多い順）
+     */
+    public Map<String, Long> repeatedSelects(int minExecutions) {
+        Map<String, Long> repeated = new LinkedHashMap<>();
+        selectsBySql.entrySet().stream()
+                .filter(entry -> entry.getValue().sum() >= minExecutions)
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue().sum()));
+        return repeated;
+    }
+
+    // 先頭のコメント・空白・括弧を読み飛ばした最初のキーワード（小文字）
+    static String firstKeyword(String sql) {
+        int i = 0;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c) || c == '(') {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else {
+                break;
+            }
+        }
+        int start = i;
+        while (i < length && Character.isLetter(sql.charAt(i))) {
+            i++;
+        }
+        return sql.substring(start, i).toLowerCase(Locale.ROOT);
+    }
+}
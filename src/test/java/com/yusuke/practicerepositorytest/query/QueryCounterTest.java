@@ -0,0 +1,117 @@
+package com.yusuke.practicerepositorytest.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@Transactional
+class QueryCounterTest {
+
+    @Autowired
+    private QueryCounter queryCounter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.saveAll(List.of(
+                User.builder().name("田中太郎").email("tanaka@example.com").age(25).build(),
+                User.builder().name("佐藤花子").email("sato@example.com").age(30).build(),
+                User.builder().name("田中次郎").email("tanaka2@example.com").age(35).build()));
+    }
+
+    @Test
+    @QueryBudget(select = 1, insert = 1)
+    void testCountsStatementsByType() {
+        QueryCount count = queryCounter.count(() -> {
+            userRepository.findByEmail("tanaka@example.com");
+            userRepository.save(User.builder().name("山田三郎").email("yamada@example.com").age(40).build());
+        });
+
+        assertThat(count.getSelect()).isEqualTo(1);
+        assertThat(count.getInsert()).isEqualTo(1);
+        assertThat(count.getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void testDetectsRepeatedSelects() {
+        // 1件ずつの検索（N+1の典型）は同じSELECT文の繰り返しとして検出される
+        for (String email : List.of("tanaka@example.com", "sato@example.com", "tanaka2@example.com")) {
+            userRepository.findByEmail(email);
+        }
+
+        assertThat(queryCounter.repeatedSelects(3)).hasSize(1).containsValue(3L);
+        assertThat(queryCounter.repeatedSelects(4)).isEmpty();
+    }
+
+    @Test
+    void testBudgetViolations() throws NoSuchMethodException {
+        queryCounter.reset();
+        for (int i = 0; i < 3; i++) {
+            userRepository.findByEmail("tanaka@example.com");
+        }
+        QueryBudget budget = getClass().getDeclaredMethod("budgetOfTwoSelects").getAnnotation(QueryBudget.class);
+
+        List<String> violations = QueryBudgetTestExecutionListener.violations(budget, queryCounter.snapshot(),
+                queryCounter);
+
+        assertThat(violations).hasSize(2);
+        assertThat(violations.get(0)).startsWith("select=3");
+        assertThat(violations.get(1)).contains("possible N+1");
+    }
+
+    @Test
+    void testExactBudgetRejectsMissingStatements() throws NoSuchMethodException {
+        queryCounter.reset();
+        userRepository.findByEmail("tanaka@example.com");
+        QueryBudget budget = getClass().getDeclaredMethod("exactBudgetOfSelectAndUpdate")
+                .getAnnotation(QueryBudget.class);
+
+        // 上限の範囲内でも、期待したUPDATEが発行されていなければ違反になる
+        List<String> violations = QueryBudgetTestExecutionListener.violations(budget, queryCounter.snapshot(),
+                queryCounter);
+
+        assertThat(violations).containsExactly("update=0 (expected 1)");
+    }
+
+    @Test
+    void testExpectAtMost() {
+        assertThat(queryCounter.expectAtMost(1, () -> userRepository.count())).isEqualTo(3);
+        assertThatThrownBy(() -> queryCounter.expectAtMost(1, () -> {
+            userRepository.count();
+            return userRepository.count();
+        })).isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void testFirstKeyword() {
+        assertThat(QueryCounter.firstKeyword("  /* comment */ SELECT 1")).isEqualTo("select");
+        assertThat(QueryCounter.firstKeyword("-- note\n(select 1) union (select 2)")).isEqualTo("select");
+        assertThat(QueryCounter.firstKeyword("update users set age=?")).isEqualTo("update");
+    }
+
+    @QueryBudget(select = 2, maxRepeatedSelects = 2)
+    private void budgetOfTwoSelects() {
+    }
+
+    @QueryBudget(select = 1, update = 1, exact = true)
+    private void exactBudgetOfSelectAndUpdate() {
+    }
+}
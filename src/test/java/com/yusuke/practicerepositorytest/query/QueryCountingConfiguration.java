@@ -0,0 +1,41 @@
+package com.yusuke.practicerepositorytest.query;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * DataSourceをSQLを数えるプロキシで包む
+ * 
+ * 接続プールの設定（初期化前に適用される）を済ませた後で包むため、初期化後に差し替える。
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class QueryCountingConfiguration {
+
+    @Bean
+    public QueryCounter queryCounter() {
+        return new QueryCounter();
+    }
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor(ObjectProvider<QueryCounter> queryCounter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(queryCounter.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -34,9 +34,7 @@ public class UserRepositorySqlTest {
 
     @Before
     public void setUp() {
-        // テーブル作成SQLを実行
-        testSqlExecutor.executeSqlFile("create_table.sql");
-
+        // テーブルはFlywayのマイグレーションで作成済み
         // テストデータ挿入SQLを実行
         testSqlExecutor.executeSqlFile("insert_test_data.sql");
     }
@@ -20,7 +20,6 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.yusuke.practicerepositorytest.TestSqlExecutor;
 import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
 import com.yusuke.practicerepositorytest.entity.User;
 
@@ -34,24 +33,20 @@ public class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private TestSqlExecutor testSqlExecutor;
-
     private User testUser1;
     private User testUser2;
     private User testUser3;
 
     @Before
     public void setUp() {
-        // テーブル作成SQLを実行
-        testSqlExecutor.executeSqlFile("create_table.sql");
-
+        // テーブルはFlywayのマイグレーションで作成済み
         // テストデータの準備
         testUser1 = User.builder()
                 .name("田中太郎")
                 .email("tanaka@example.com")
                 .age(25)
                 .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
                 .build();
 
         testUser2 = User.builder()
@@ -59,6 +54,7 @@ public class UserRepositoryTest {
                 .email("sato@example.com")
                 .age(30)
                 .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
                 .build();
 
         testUser3 = User.builder()
@@ -66,6 +62,7 @@ public class UserRepositoryTest {
                 .email("tanaka2@example.com")
                 .age(28)
                 .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
                 .build();
     }
 
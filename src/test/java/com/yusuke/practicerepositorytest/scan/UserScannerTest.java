@@ -0,0 +1,118 @@
+package com.yusuke.practicerepositorytest.scan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.fixture.SeededUsers;
+import com.yusuke.practicerepositorytest.service.UserService;
+
+// スキャンは別スレッドの別トランザクションで読み込むため、コミット済みの生成データを使う
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@SeededUsers(count = UserScannerTest.USER_COUNT)
+class UserScannerTest {
+
+    static final int USER_COUNT = 10_000;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private Set<Long> allIds;
+
+    @BeforeEach
+    void setUp() {
+        allIds = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM users", Long.class));
+    }
+
+    @Test
+    void testScanVisitsEveryUserOnce() {
+        List<Long> visited = new CopyOnWriteArrayList<>();
+        List<UserScanProgress> progress = new CopyOnWriteArrayList<>();
+        UserScanOptions options = UserScanOptions.builder()
+                .chunkSize(70)
+                .rangeSize(200L)
+                .parallelism(4)
+                .progressListener(progress::add)
+                .build();
+
+        UserScanResult result = userService.scanAllUsers(options,
+                chunk -> chunk.forEach(user -> visited.add(user.getId())));
+
+        assertThat(result.getProcessedUsers()).isEqualTo(USER_COUNT);
+        assertThat(visited).hasSize(USER_COUNT).containsExactlyInAnyOrderElementsOf(allIds);
+        assertThat(progress).anySatisfy(p -> assertThat(p.getCompletedRanges()).isEqualTo(result.getTotalRanges()));
+    }
+
+    @Test
+    void testScanOnForkJoinPool() {
+        Set<Long> visited = ConcurrentHashMap.newKeySet();
+        UserScanOptions options = UserScanOptions.builder()
+                .chunkSize(50)
+                .rangeSize(64L)
+                .executor(ForkJoinPool.commonPool())
+                .build();
+
+        userService.scanAllUsers(options, chunk -> chunk.forEach(user -> visited.add(user.getId())));
+
+        assertThat(visited).isEqualTo(allIds);
+    }
+
+    @Test
+    void testResumeFromCheckpoint() throws Exception {
+        FileUserScanCheckpoint checkpoint = new FileUserScanCheckpoint(tempDir.resolve("scan.checkpoint"));
+        UserScanOptions options = UserScanOptions.builder()
+                .chunkSize(10)
+                .rangeSize(50L)
+                .parallelism(1)
+                .checkpoint(checkpoint)
+                .build();
+
+        // 途中のチャンクで失敗させる
+        Set<Long> firstRun = ConcurrentHashMap.newKeySet();
+        assertThatThrownBy(() -> userService.scanAllUsers(options, chunk -> {
+            if (firstRun.size() >= 120) {
+                throw new IllegalStateException("batch job crashed");
+            }
+            chunk.forEach(user -> firstRun.add(user.getId()));
+        })).isInstanceOf(IllegalStateException.class);
+
+        // 同じチェックポイントで再実行すると、処理済みのチャンクを除いた続きから処理する
+        Set<Long> secondRun = ConcurrentHashMap.newKeySet();
+        UserScanResult result = userService.scanAllUsers(options,
+                chunk -> chunk.forEach(user -> secondRun.add(user.getId())));
+
+        assertThat(firstRun.size()).isGreaterThanOrEqualTo(120);
+        assertThat(secondRun).doesNotContainAnyElementsOf(firstRun);
+        assertThat(result.getProcessedUsers()).isEqualTo(USER_COUNT - firstRun.size());
+        assertThat(result.getSkippedRanges()).isPositive();
+
+        Set<Long> union = new HashSet<>(firstRun);
+        union.addAll(secondRun);
+        assertThat(union).isEqualTo(allIds);
+    }
+}
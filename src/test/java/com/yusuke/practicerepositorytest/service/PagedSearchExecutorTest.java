@@ -0,0 +1,155 @@
+package com.yusuke.practicerepositorytest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.archive.UserArchiver;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.specification.UserSpecification;
+
+// count(*)は別トランザクションで実行されるため、テストデータはコミットしておく
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+class PagedSearchExecutorTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PagedSearchExecutorTest.class);
+
+    @Autowired
+    private PagedSearchExecutor pagedSearchExecutor;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserArchiver userArchiver;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserDatasetFixture userDatasetFixture;
+
+    @Test
+    void testParallelPageMatchesSequential() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            users.add(User.builder().name("田中" + i).email("paged" + i + "@example.com").age(20 + i).build());
+        }
+        userRepository.saveAll(users);
+
+        Specification<User> spec = UserSpecification.searchUsers("田中", null, 25, null);
+        for (int page = 0; page < 4; page++) {
+            PageRequest pageable = PageRequest.of(page, 7, Sort.by("age"));
+            Page<User> sequential = pagedSearchExecutor.findPageSequential(spec, pageable);
+            Page<User> parallel = pagedSearchExecutor.findPageParallel(spec, pageable);
+
+            assertThat(parallel.getTotalElements()).isEqualTo(sequential.getTotalElements()).isEqualTo(20);
+            assertThat(parallel.getContent()).extracting(User::getId)
+                    .containsExactlyElementsOf(sequential.getContent().stream().map(User::getId).toList());
+        }
+    }
+
+    @Test
+    void testPagesMergeHotAndArchivedUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(User.builder().name("田中" + i).email("merged" + i + "@example.com").age(20 + i).build());
+        }
+        userRepository.saveAll(users);
+        // 年齢が偶数のユーザーをアーカイブへ移し、並び順で2つのテーブルの行が交互に現れるようにする
+        LocalDateTime old = LocalDateTime.now().minusDays(30);
+        jdbcTemplate.update("UPDATE users SET created_at = ?, updated_at = ? WHERE MOD(age, 2) = 0", old, old);
+        assertThat(userArchiver.archiveUsersBefore(LocalDateTime.now().minusDays(1))).isEqualTo(10);
+
+        Specification<User> spec = UserSpecification.searchUsers("田中", null, 25, null);
+        List<Integer> expected = IntStream.rangeClosed(25, 39).map(age -> 64 - age).boxed().toList();
+        for (PagingProperties.Mode mode : PagingProperties.Mode.values()) {
+            List<Integer> ages = new ArrayList<>();
+            for (int page = 0; page < 3; page++) {
+                PageRequest pageable = PageRequest.of(page, 7, Sort.by(Sort.Direction.DESC, "age"));
+                Page<User> result = mode == PagingProperties.Mode.PARALLEL
+                        ? pagedSearchExecutor.findPageParallel(spec, pageable)
+                        : pagedSearchExecutor.findPageSequential(spec, pageable);
+                assertThat(result.getTotalElements()).isEqualTo(15);
+                result.getContent().forEach(user -> ages.add(user.getAge()));
+            }
+            assertThat(ages).as(mode.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void testConsistencyCheck() {
+        // 途中のページ: 総件数は少なくとも内容の末尾まである
+        assertThat(PagedSearchExecutor.isConsistent(10, 10, 10, 35)).isTrue();
+        assertThat(PagedSearchExecutor.isConsistent(10, 10, 10, 15)).isFalse();
+        // 最後のページ: 総件数は内容の末尾と一致する
+        assertThat(PagedSearchExecutor.isConsistent(30, 10, 5, 35)).isTrue();
+        assertThat(PagedSearchExecutor.isConsistent(30, 10, 5, 36)).isFalse();
+        // 範囲外のページ
+        assertThat(PagedSearchExecutor.isConsistent(40, 10, 0, 35)).isTrue();
+        assertThat(PagedSearchExecutor.isConsistent(40, 10, 0, 45)).isFalse();
+
+        // 内容から確定する総件数を優先する
+        assertThat(PagedSearchExecutor.resolveTotal(30, 10, 5, 40)).isEqualTo(35);
+        assertThat(PagedSearchExecutor.resolveTotal(10, 10, 10, 15)).isEqualTo(20);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkParallelAgainstSequential() {
+        // ./gradlew test --tests PagedSearchExecutorTest -Dbenchmark=true -Dpaging.users=500000
+        int userCount = Integer.getInteger("paging.users", 300_000);
+        int iterations = 50;
+        userDatasetFixture.prepare(userCount, 7L);
+
+        // 部分一致の条件で内容・count(*)ともに索引を使えないクエリにする
+        Specification<User> spec = UserSpecification.searchUsers("田", "example", 30, 60);
+        PageRequest pageable = PageRequest.of(3, 20, Sort.by("name"));
+        for (int i = 0; i < 5; i++) {
+            pagedSearchExecutor.findPageSequential(spec, pageable);
+            pagedSearchExecutor.findPageParallel(spec, pageable);
+        }
+
+        long contentNanos = time(iterations, () -> userRepository.findPageContent(spec, pageable));
+        long countNanos = time(iterations, () -> userRepository.count(spec));
+        long sequentialNanos = time(iterations, () -> pagedSearchExecutor.findPageSequential(spec, pageable));
+        long parallelNanos = time(iterations, () -> pagedSearchExecutor.findPageParallel(spec, pageable));
+
+        log.info("users={} content={} ms count={} ms sequential={} ms parallel={} ms", userCount,
+                millis(contentNanos), millis(countNanos), millis(sequentialNanos), millis(parallelNanos));
+    }
+
+    private static long time(int iterations, Runnable query) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
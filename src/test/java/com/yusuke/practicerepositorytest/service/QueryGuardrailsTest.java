@@ -0,0 +1,53 @@
+package com.yusuke.practicerepositorytest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class QueryGuardrailsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private QueryGuardrails guardrails;
+
+    @BeforeEach
+    void setUp() {
+        QueryGuardrailProperties properties = new QueryGuardrailProperties();
+        properties.setMaxRows(100);
+        properties.setMaxPageSize(20);
+        meterRegistry = new SimpleMeterRegistry();
+        guardrails = new QueryGuardrails(properties, meterRegistry);
+    }
+
+    @Test
+    void testClampPageSize() {
+        assertThat(guardrails.clampPageSize(10, "paged")).isEqualTo(10);
+        assertThat(guardrails.clampPageSize(0, "paged")).isEqualTo(1);
+        assertThat(guardrails.clampPageSize(1000, "paged")).isEqualTo(20);
+
+        // 上限で丸めた場合のみ記録される
+        assertThat(count("page-size")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testClampRows() {
+        assertThat(guardrails.clampRows(50, "all")).isEqualTo(50);
+        assertThat(guardrails.clampRows(5000, "all")).isEqualTo(100);
+        assertThat(count("row-cap")).isEqualTo(1.0);
+    }
+
+    @Test
+    void testSortAllowlist() {
+        assertThat(guardrails.isSortAllowed("name", "paged")).isTrue();
+        assertThat(guardrails.isSortAllowed("deletedAt", "paged")).isFalse();
+        assertThat(guardrails.isSortAllowed("name.foo", "paged")).isFalse();
+        assertThat(count("sort-rejected")).isEqualTo(2.0);
+    }
+
+    private double count(String type) {
+        return meterRegistry.counter(QueryGuardrails.METRIC_NAME, "type", type,
+                "endpoint", type.equals("row-cap") ? "all" : "paged").count();
+    }
+}
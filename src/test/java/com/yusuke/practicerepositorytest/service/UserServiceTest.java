@@ -2,7 +2,10 @@ package com.yusuke.practicerepositorytest.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,12 +15,20 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.dto.ChangeWatermark;
+import com.yusuke.practicerepositorytest.dto.UserChanges;
+import com.yusuke.practicerepositorytest.dto.UserImportResult;
 import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.query.QueryBudget;
 import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.specification.UserSpecification;
 
 @SpringBootTest
 @Import({ TestcontainersConfiguration.class })
@@ -31,6 +42,9 @@ class UserServiceTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         // テストデータを作成
@@ -56,8 +70,9 @@ class UserServiceTest {
     }
 
     @Test
+    @QueryBudget(total = 2)
     void testFindUsersByNameLike() {
-        // 名前で部分一致検索
+        // 名前で部分一致検索（ホットテーブルとアーカイブを1回ずつ検索する）
         List<User> users = userService.findUsersByNameLike("田中");
 
         assertThat(users).hasSize(2);
@@ -94,8 +109,11 @@ class UserServiceTest {
     }
 
     @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    // 内容とcount(*)をホットテーブルとアーカイブでそれぞれ実行する
+    @QueryBudget(select = 4)
     void testSearchUsersWithPagination() {
-        // ページネーション付き検索
+        // ページネーション付き検索はテストのトランザクションに参加しないため、テストデータをコミットして検索する
         PageRequest pageable = PageRequest.of(0, 2, Sort.by("name"));
         Page<User> userPage = userService.searchUsersWithPagination("田中", null, null, null, pageable);
 
@@ -139,4 +157,177 @@ class UserServiceTest {
 
         assertThat(users).hasSize(3);
     }
+
+    @Test
+    @QueryBudget(total = 0)
+    void testEmptyAgeRangeDoesNotQuery() {
+        // 最小年齢が最大年齢より大きい範囲はクエリを発行せずに空の結果を返す
+        assertThat(userService.searchUsers("田中", null, 40, 30)).isEmpty();
+        assertThat(userService.searchUsers(null, null, 40, 30, 10).getContent()).isEmpty();
+        assertThat(userService.searchUsersWithPagination(null, null, 40, 30, PageRequest.of(0, 10)).getTotalElements())
+                .isZero();
+        assertThat(userService.findUsersByAgeBetween(40, 30)).isEmpty();
+    }
+
+    @Test
+    void testCompleteEmailAddressIsSubstringMatch() {
+        // 完全なメールアドレスも大文字小文字を区別しない部分一致で検索する（完全一致にはしない）
+        userRepository.save(User.builder().name("田中一郎").email("bigtanaka@example.com").age(50).build());
+        assertThat(userService.findUsersByEmailLike("TANAKA@example.com")).extracting(User::getEmail)
+                .containsExactlyInAnyOrder("tanaka@example.com", "bigtanaka@example.com");
+        assertThat(userService.searchUsers(null, "tanaka@example.com", 30, null)).extracting(User::getEmail)
+                .containsExactly("bigtanaka@example.com");
+        // ドメインだけの検索は部分一致のまま
+        assertThat(userService.findUsersByEmailLike("@example.com")).hasSize(4);
+    }
+
+    @Test
+    void testSearchUsersCappedAtMaxRows() {
+        // 上限を超える結果は打ち切られ、打ち切りの有無が返される
+        CappedList<User> capped = userService.searchUsers(null, null, null, null, 2);
+
+        assertThat(capped.getContent()).hasSize(2);
+        assertThat(capped.isTruncated()).isTrue();
+
+        CappedList<User> all = userService.searchUsers(null, null, null, null, 3);
+
+        assertThat(all.getContent()).hasSize(3);
+        assertThat(all.isTruncated()).isFalse();
+    }
+
+    @Test
+    void testIterateUsersByKeysetPage() {
+        // 次のページのafterIdを辿って全件を重複なく取得する
+        Optional<Long> nextAfterId = userService.findNextAfterId(0L, 2);
+        List<User> firstPage = new ArrayList<>();
+        userService.iterateUsers(0L, 2, 1).forEach(firstPage::add);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(nextAfterId).contains(firstPage.get(1).getId());
+
+        List<User> secondPage = new ArrayList<>();
+        userService.iterateUsers(nextAfterId.get(), 2, 1).forEach(secondPage::add);
+
+        assertThat(secondPage).hasSize(1);
+        assertThat(userService.findNextAfterId(nextAfterId.get(), 2)).isEmpty();
+    }
+
+    @Test
+    void testEmailExists() {
+        // サービス経由で登録したメールアドレスはBloomフィルターにも登録される
+        userService.saveUser(User.builder().name("鈴木一郎").email("suzuki@example.com").age(40).build());
+
+        assertThat(userService.emailExists("suzuki@example.com")).isTrue();
+        assertThat(userService.emailExists("nobody@example.com")).isFalse();
+    }
+
+    @Test
+    void testEmailExistsSeesRegistrationsNotYetInFilter() {
+        // 他ノードでの登録（フィルターに取り込まれる前）を模擬するため、アプリケーションを通さずにSQLで登録する
+        jdbcTemplate.update("INSERT INTO users (name, email, age, created_at, updated_at, version)"
+                + " VALUES ('高橋五郎', 'takahashi@example.com', 33, ?, ?, 0)", LocalDateTime.now(), LocalDateTime.now());
+
+        assertThat(userService.emailExists("takahashi@example.com")).isTrue();
+    }
+
+    @Test
+    @QueryBudget(total = 0)
+    void testDuplicateDetectionUnavailableWhenDisabled() {
+        // 重複の検出は既定で無効で、DBに問い合わせずに利用できないことを返す
+        assertThat(userService.findDuplicateClusters(10)).isEmpty();
+        assertThat(userService.findDuplicatesOf(1L)).isEmpty();
+    }
+
+    @Test
+    void testImportUsersSkipsDuplicates() {
+        userService.saveUser(User.builder().name("鈴木一郎").email("suzuki@example.com").age(40).build());
+
+        List<User> users = List.of(
+                User.builder().name("山田太郎").email("yamada@example.com").age(22).build(),
+                User.builder().name("鈴木一郎").email("suzuki@example.com").age(40).build(),
+                User.builder().name("山田太郎").email("yamada@example.com").age(22).build());
+
+        UserImportResult result = userService.importUsers(users);
+
+        assertThat(result.getImported()).extracting(User::getEmail).containsExactly("yamada@example.com");
+        assertThat(result.getDuplicateEmails()).containsExactlyInAnyOrder("suzuki@example.com", "yamada@example.com");
+        assertThat(userService.emailExists("yamada@example.com")).isTrue();
+    }
+
+    @Test
+    // 追いついたときだけ、読み直しの境界をDBの時計で求める
+    @QueryBudget(select = 3, maxRepeatedSelects = 2)
+    void testFindUserChangesSince() {
+        // ウォーターマークを引き継いで差分をページングする
+        UserChanges first = userService.findUserChangesSince(ChangeWatermark.initial(), 2);
+
+        assertThat(first.getChanges()).hasSize(2);
+        assertThat(first.isHasMore()).isTrue();
+
+        UserChanges second = userService.findUserChangesSince(ChangeWatermark.parse(first.getNextWatermark()), 2);
+
+        assertThat(second.getChanges()).hasSize(1);
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getChanges()).doesNotContainAnyElementsOf(first.getChanges());
+    }
+
+    @Test
+    void testCaughtUpWatermarkRereadsLateCommits() {
+        UserChanges caughtUp = userService.findUserChangesSince(ChangeWatermark.initial(), 10);
+        assertThat(caughtUp.isHasMore()).isFalse();
+        User last = caughtUp.getChanges().get(caughtUp.getChanges().size() - 1);
+
+        // 最後の変更より古い更新日時で後からコミットされた行
+        User late = userRepository.save(User.builder().name("山本三郎").email("yamamoto@example.com").age(45).build());
+        jdbcTemplate.update("UPDATE users SET updated_at = ? WHERE id = ?", last.getUpdatedAt().minusSeconds(1),
+                late.getId());
+
+        UserChanges next = userService.findUserChangesSince(ChangeWatermark.parse(caughtUp.getNextWatermark()), 10);
+
+        // 戻した範囲の行は再び返される
+        assertThat(next.getChanges()).extracting(User::getId)
+                .contains(late.getId(), last.getId());
+    }
+
+    @Test
+    void testCaughtUpWatermarkDoesNotRereadSettledChanges() {
+        // 読み直しの境界より前の変更だけなら、追いついたウォーターマークは最後の変更のまま
+        jdbcTemplate.update("UPDATE users SET updated_at = ?", LocalDateTime.now().minusDays(1));
+
+        UserChanges caughtUp = userService.findUserChangesSince(ChangeWatermark.initial(), 10);
+        User last = caughtUp.getChanges().get(caughtUp.getChanges().size() - 1);
+        assertThat(caughtUp.getNextWatermark())
+                .isEqualTo(new ChangeWatermark(last.getUpdatedAt(), last.getId()).toString());
+
+        UserChanges idle = userService.findUserChangesSince(ChangeWatermark.parse(caughtUp.getNextWatermark()), 10);
+        assertThat(idle.getChanges()).isEmpty();
+    }
+
+    @Test
+    @QueryBudget(select = 1, update = 1, insert = 0, exact = true)
+    void testUpdateUserIssuesSingleUpdate() {
+        // 更新は対象の読み込みと1回のUPDATEで完了する（永続化コンテキストにあれば読み込みも発生しない）
+        User sato = userRepository.findAll(UserSpecification.emailEquals("sato@example.com")).get(0);
+        User changes = User.builder().name("佐藤花子").email("sato@example.com").age(31).build();
+
+        User updated = userService.updateUser(sato.getId(), changes);
+        // テストのトランザクションはロールバックされるため、計測の範囲内でフラッシュしてUPDATEを発行させる
+        userRepository.flush();
+
+        assertThat(updated.getAge()).isEqualTo(31);
+    }
+
+    @Test
+    void testDeleteUserLeavesTombstone() {
+        // 削除したユーザーは差分同期でトゥームストーンとして返される
+        User sato = userService.findUserByEmail("sato@example.com").orElseThrow();
+
+        userService.deleteUser(sato.getId());
+
+        UserChanges changes = userService.findUserChangesSince(ChangeWatermark.initial(), 10);
+        assertThat(changes.getChanges())
+                .filteredOn(user -> user.getId().equals(sato.getId()))
+                .singleElement()
+                .satisfies(user -> assertThat(user.getDeletedAt()).isNotNull());
+    }
 }
\ No newline at end of file
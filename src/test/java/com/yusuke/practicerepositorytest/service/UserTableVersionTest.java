@@ -0,0 +1,84 @@
+package com.yusuke.practicerepositorytest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+
+// 他ノードでの書き込みを模擬するため、アプリケーションを通さずにSQLで書き込む
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+@Transactional
+class UserTableVersionTest {
+
+    private static final Timestamp YESTERDAY = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+
+    @Autowired
+    private UserTableVersion tableVersion;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        insertUser("tanaka@example.com", YESTERDAY);
+    }
+
+    @Test
+    void testVersionIsStableWithoutWrites() {
+        assertThat(tableVersion.current()).isEqualTo(tableVersion.current());
+    }
+
+    @Test
+    void testVersionChangesOnWritesOutsideThisNode() {
+        String before = tableVersion.current();
+        insertUser("sato@example.com", YESTERDAY);
+        String afterInsert = tableVersion.current();
+
+        jdbcTemplate.update("INSERT INTO users_archive (id, name, email, age, created_at, updated_at, version,"
+                + " archived_at) VALUES (?, '鈴木一郎', 'suzuki@example.com', 40, ?, ?, 0, ?)",
+                1_000_000L, YESTERDAY, YESTERDAY, YESTERDAY);
+        String afterArchive = tableVersion.current();
+
+        assertThat(afterInsert).isNotEqualTo(before);
+        assertThat(afterArchive).isNotEqualTo(afterInsert);
+    }
+
+    @Test
+    void testRecentWritesKeepVersionStable() {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("UPDATE users SET updated_at = ?, version = version + 1 WHERE email = ?",
+                Timestamp.valueOf(now), "tanaka@example.com");
+        String afterUpdate = tableVersion.current();
+
+        // overlap以内の書き込みがあっても、書き込みがなければ同じバージョンを返す（304・キャッシュを使える）
+        assertThat(tableVersion.current()).isEqualTo(afterUpdate);
+
+        // 最終更新日時より古い更新日時の行が後からコミットされても、バージョンが変わる
+        insertUser("sato@example.com", Timestamp.valueOf(now.minusSeconds(10)));
+        String afterLateCommit = tableVersion.current();
+        assertThat(afterLateCommit).isNotEqualTo(afterUpdate);
+
+        // 最大IDを変えない同じ行の再更新も反映される
+        jdbcTemplate.update("UPDATE users SET updated_at = ?, version = version + 1 WHERE email = ?",
+                Timestamp.valueOf(now.minusSeconds(5)), "sato@example.com");
+        assertThat(tableVersion.current()).isNotEqualTo(afterLateCommit);
+    }
+
+    private void insertUser(String email, Timestamp updatedAt) {
+        jdbcTemplate.update("INSERT INTO users (name, email, age, created_at, updated_at, version)"
+                + " VALUES ('田中太郎', ?, 25, ?, ?, 0)", email, updatedAt, updatedAt);
+    }
+}
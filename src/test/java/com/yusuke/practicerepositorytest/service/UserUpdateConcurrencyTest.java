@@ -0,0 +1,170 @@
+package com.yusuke.practicerepositorytest.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.entity.User;
+
+// 複数スレッドの更新はそれぞれ別トランザクションで実行されるため、テストデータはコミットしておく
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+class UserUpdateConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserUpdateConcurrencyTest.class);
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Autowired
+    private UserService userService;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userService.saveUser(User.builder().name("田中太郎").email("tanaka@example.com").age(20).build())
+                .getId();
+    }
+
+    @Test
+    void testIfMatchUpdatesLoseNoWrites() throws Exception {
+        // 読み込んだバージョンを指定して年齢を1ずつ増やし、412なら読み直して再送する（クライアントの読み込み-変更-書き込み）
+        AtomicInteger conflicts = new AtomicInteger();
+        long elapsedNanos = runConcurrently(() -> {
+            while (true) {
+                User current = userService.findUserById(userId).orElseThrow();
+                User changes = User.builder().name(current.getName()).email(current.getEmail())
+                        .age(current.getAge() + 1).build();
+                try {
+                    userService.updateUser(userId, changes, current.getVersion());
+                    return;
+                } catch (UserVersionConflictException e) {
+                    assertThat(e.isPreconditionFailed()).isTrue();
+                    conflicts.incrementAndGet();
+                }
+            }
+        });
+
+        int updates = THREADS * UPDATES_PER_THREAD;
+        User user = userService.findUserById(userId).orElseThrow();
+        assertThat(user.getAge()).isEqualTo(20 + updates);
+        assertThat(user.getVersion()).isEqualTo(updates);
+        report("if-match", updates, conflicts.get(), elapsedNanos);
+    }
+
+    @Test
+    void testRetryIsCountedOncePerSuccessfulUpdate() throws Exception {
+        // If-Matchなしの更新は、他の更新と変える項目が重ならなければ読み直して再試行し、重なれば409とする
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger thread = new AtomicInteger();
+        ThreadLocal<Integer> threadIndex = ThreadLocal.withInitial(thread::getAndIncrement);
+        long elapsedNanos = runConcurrently(() -> {
+            int index = threadIndex.get();
+            // PUTと同じく、読み込んだ内容のうち1項目だけを変えた全項目を送る
+            User current = userService.findUserById(userId).orElseThrow();
+            User changes = User.builder().name(index % 2 == 0 ? "名前" + index : current.getName())
+                    .email(current.getEmail())
+                    .age(index % 2 == 0 ? current.getAge() : 30 + index)
+                    .build();
+            try {
+                userService.updateUser(userId, changes);
+                succeeded.incrementAndGet();
+            } catch (UserVersionConflictException e) {
+                assertThat(e.isPreconditionFailed()).isFalse();
+                rejected.incrementAndGet();
+            }
+        });
+
+        User user = userService.findUserById(userId).orElseThrow();
+        // 成功した更新はそれぞれちょうど1回だけ反映されている
+        assertThat(succeeded.get() + rejected.get()).isEqualTo(THREADS * UPDATES_PER_THREAD);
+        assertThat(user.getVersion()).isEqualTo(succeeded.get());
+        assertThat(user.getEmail()).isEqualTo("tanaka@example.com");
+        report("retry", succeeded.get(), rejected.get(), elapsedNanos);
+    }
+
+    @Test
+    void testRetryKeepsOnlyFieldsChangedByOthers() {
+        User base = User.builder().id(1L).name("田中太郎").email("tanaka@example.com").age(20).version(0L).build();
+        User current = User.builder().id(1L).name("田中一郎").email("tanaka@example.com").age(20).version(1L).build();
+
+        // 他の更新が変えた名前と重ならない年齢の変更は、最新の名前を保持して適用する
+        User ageChange = User.builder().name("田中太郎").email("tanaka@example.com").age(21).build();
+        assertThat(OptimisticUserUpdater.overlaps(base, current, ageChange)).isFalse();
+        assertThat(OptimisticUserUpdater.replace(base, current, ageChange))
+                .extracting(User::getName, User::getAge).containsExactly("田中一郎", 21);
+
+        // 同じ名前を変える更新は重なるため再試行しない
+        User nameChange = User.builder().name("田中次郎").email("tanaka@example.com").age(20).build();
+        assertThat(OptimisticUserUpdater.overlaps(base, current, nameChange)).isTrue();
+
+        // 競合がなければ省略した項目も含めてすべて置き換える
+        User partial = User.builder().name("田中太郎").build();
+        assertThat(OptimisticUserUpdater.replace(base, base, partial))
+                .extracting(User::getEmail, User::getAge).containsExactly(null, null);
+    }
+
+    @Test
+    void testStaleIfMatchIsRejected() {
+        User user = userService.findUserById(userId).orElseThrow();
+        userService.updateUser(userId, User.builder().name(user.getName()).email(user.getEmail()).age(21).build());
+
+        User stale = User.builder().name(user.getName()).email(user.getEmail()).age(99).build();
+        assertThatThrownBy(() -> userService.updateUser(userId, stale, user.getVersion()))
+                .isInstanceOfSatisfying(UserVersionConflictException.class,
+                        e -> assertThat(e.isPreconditionFailed()).isTrue());
+        assertThat(userService.findUserById(userId)).get().extracting(User::getAge).isEqualTo(21);
+    }
+
+    // 全スレッドを同時に開始し、各スレッドでUPDATES_PER_THREAD回実行した時間を返す
+    private long runConcurrently(Runnable update) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        update.run();
+                    }
+                    return null;
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - begin;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void report(String mode, int updates, int conflicts, long elapsedNanos) {
+        log.info("{}: threads={} updates={} conflicts={} elapsed={} ms throughput={} updates/s",
+                mode, THREADS, updates, conflicts, String.format("%.1f", elapsedNanos / 1e6),
+                String.format("%.0f", updates / (elapsedNanos / 1e9)));
+    }
+}
@@ -0,0 +1,107 @@
+package com.yusuke.practicerepositorytest.specification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.yusuke.practicerepositorytest.entity.User;
+
+class UserCriteriaTest {
+
+    @Test
+    void testEmptyRangesMatchNothing() {
+        LocalDateTime now = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+        assertThat(UserCriteria.ageBetween(40, 30).matchesNothing()).isTrue();
+        assertThat(UserCriteria.ageBetween(30, 30).matchesNothing()).isFalse();
+        assertThat(UserCriteria.ageGreaterThan(Integer.MAX_VALUE).matchesNothing()).isTrue();
+        assertThat(UserCriteria.createdBetween(now, now).matchesNothing()).isTrue();
+        assertThat(UserCriteria.createdBetween(now, now.plusSeconds(1)).matchesNothing()).isFalse();
+
+        // 組み合わせた結果として空になる範囲
+        assertThat(UserCriteria.ageBetween(30, null).and(UserCriteria.ageBetween(null, 20)).orElseThrow()
+                .matchesNothing()).isTrue();
+        assertThat(UserCriteria.ageGreaterThan(29).and(UserCriteria.ageBetween(null, 29)).orElseThrow()
+                .matchesNothing()).isTrue();
+    }
+
+    @Test
+    void testOverlappingAgeBoundsAreMerged() {
+        UserCriteria merged = UserCriteria.ageBetween(20, 60)
+                .and(UserCriteria.ageBetween(30, null)).orElseThrow()
+                .and(UserCriteria.ageBetween(null, 50)).orElseThrow();
+
+        assertThat(merged).isEqualTo(UserCriteria.ageBetween(30, 50));
+        assertThat(UserCriteria.ageGreaterThan(29)).isEqualTo(UserCriteria.ageBetween(30, null));
+    }
+
+    @Test
+    void testTautologiesAreDropped() {
+        // 全角空白は String#trim では取り除かれず、正規化後に空になる
+        assertThat(UserCriteria.nameContains("　").matchesAll()).isTrue();
+        assertThat(UserCriteria.nameContains(" ").matchesAll()).isTrue();
+        assertThat(UserCriteria.nameContains("%%").matchesAll()).isTrue();
+        assertThat(UserCriteria.nameStartsWith("").matchesAll()).isTrue();
+        assertThat(UserCriteria.emailContains("%").matchesAll()).isTrue();
+        assertThat(UserCriteria.emailContains("　").matchesAll()).isTrue();
+        assertThat(UserCriteria.ageBetween(null, null).matchesAll()).isTrue();
+
+        UserCriteria merged = UserCriteria.nameContains("").and(UserCriteria.ageBetween(30, null)).orElseThrow();
+        assertThat(merged).isEqualTo(UserCriteria.ageBetween(30, null));
+    }
+
+    @Test
+    void testImpliedTermsAreDropped() {
+        // 「たなか」の部分一致は「たなか太郎」の部分一致・前方一致から導かれる
+        assertThat(UserCriteria.nameContains("田中").and(UserCriteria.nameContains("田中太郎")).orElseThrow())
+                .isEqualTo(UserCriteria.nameContains("田中太郎"));
+        assertThat(UserCriteria.nameContains("太郎").and(UserCriteria.nameStartsWith("田中太郎")).orElseThrow())
+                .isEqualTo(UserCriteria.nameStartsWith("田中太郎"));
+        assertThat(UserCriteria.nameStartsWith("田").and(UserCriteria.nameStartsWith("田中")).orElseThrow())
+                .isEqualTo(UserCriteria.nameStartsWith("田中"));
+
+        // 両立しない前方一致
+        assertThat(UserCriteria.nameStartsWith("田中").and(UserCriteria.nameStartsWith("佐藤")).orElseThrow()
+                .matchesNothing()).isTrue();
+        // ワイルドカードを含む前方一致どうしは1つにまとめない
+        assertThat(UserCriteria.nameStartsWith("田_").and(UserCriteria.nameStartsWith("田中"))).isEmpty();
+    }
+
+    @Test
+    void testExactEmailEvaluatesOtherEmailCriteria() {
+        // 完全なメールアドレスの部分一致は、より長いメールアドレスにも一致するため完全一致にしない
+        assertThat(UserCriteria.emailContains("Tanaka@Example.com"))
+                .isNotEqualTo(UserCriteria.emailEquals("tanaka@example.com"));
+
+        // 完全一致が決まれば、他のメールアドレスの条件はその場で評価される
+        UserCriteria exact = UserCriteria.emailEquals("tanaka@example.com");
+        assertThat(exact.and(UserCriteria.emailContains("tanaka")).orElseThrow()).isEqualTo(exact);
+        assertThat(exact.and(UserCriteria.emailDomainEquals("example.com")).orElseThrow()).isEqualTo(exact);
+        assertThat(exact.and(UserCriteria.emailEndsWith(".com")).orElseThrow()).isEqualTo(exact);
+        assertThat(exact.and(UserCriteria.emailContains("sato")).orElseThrow().matchesNothing()).isTrue();
+        assertThat(exact.and(UserCriteria.emailDomainEquals("example.org")).orElseThrow().matchesNothing()).isTrue();
+        assertThat(exact.and(UserCriteria.emailEquals("sato@example.com")).orElseThrow().matchesNothing()).isTrue();
+    }
+
+    @Test
+    void testComposedSpecificationsAreSimplified() {
+        Specification<User> contradiction = UserSpecification.nameLike("田中")
+                .and(UserSpecification.ageGreaterThanOrEqualTo(40))
+                .and(UserSpecification.ageLessThanOrEqualTo(30));
+        assertThat(UserSpecification.matchesNothing(contradiction)).isTrue();
+
+        Specification<User> where = Specification.where(UserSpecification.ageGreaterThan(25))
+                .and(UserSpecification.ageEquals(20));
+        assertThat(UserSpecification.matchesNothing(where)).isTrue();
+
+        assertThat(UserSpecification.matchesNothing(UserSpecification.searchUsers(null, null, 50, 40))).isTrue();
+        assertThat(UserSpecification.matchesNothing(UserSpecification.searchUsers("田中", null, 20, 40))).isFalse();
+
+        // 他のSpecificationとの組み合わせは判定しない
+        Specification<User> custom = (root, query, criteriaBuilder) -> null;
+        assertThat(UserSpecification.matchesNothing(custom.and(UserSpecification.ageBetween(40, 30)))).isFalse();
+    }
+}
@@ -0,0 +1,153 @@
+package com.yusuke.practicerepositorytest.specification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.yusuke.practicerepositorytest.TestcontainersConfiguration;
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.fixture.UserDatasetFixture;
+import com.yusuke.practicerepositorytest.repository.UserRepository;
+import com.yusuke.practicerepositorytest.service.UserService;
+
+// ベンチマークは別接続で投入したデータを使うため、テストデータはコミットしておく
+@SpringBootTest
+@Import({ TestcontainersConfiguration.class })
+@ActiveProfiles("test")
+class UserSpecificationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSpecificationTest.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDatasetFixture userDatasetFixture;
+
+    @Test
+    void testDerivedColumnsAreMaintainedOnWrite() {
+        User user = userService.saveUser(User.builder().name("ﾀﾅｶ　タロウ").email("Tanaka@Example.COM").age(25).build());
+
+        assertThat(user.getNameNormalized()).isEqualTo("たなか たろう");
+        assertThat(user.getEmailDomain()).isEqualTo("example.com");
+        assertThat(user.getEmailReversed()).isEqualTo("moc.elpmaxe@akanat");
+
+        // 更新時にも再計算される
+        user.setName("Ｓａｔｏ");
+        user.setEmail("sato@example.org");
+        User updated = userService.updateUser(user.getId(), user);
+        assertThat(updated.getNameNormalized()).isEqualTo("sato");
+        assertThat(updated.getEmailDomain()).isEqualTo("example.org");
+        assertThat(updated.getEmailReversed()).isEqualTo("gro.elpmaxe@otas");
+    }
+
+    @Test
+    void testNameSearchIgnoresWidthAndKana() {
+        userService.saveUser(User.builder().name("タナカ太郎").email("tanaka@example.com").age(25).build());
+        userService.saveUser(User.builder().name("ｔａｎａｋａ ｈａｎａｋｏ").email("hanako@example.com").age(30).build());
+        userService.saveUser(User.builder().name("佐藤花子").email("sato@example.com").age(35).build());
+
+        assertThat(userRepository.findAll(UserSpecification.nameLike("たなか"))).extracting(User::getName)
+                .containsExactly("タナカ太郎");
+        assertThat(userRepository.findAll(UserSpecification.nameLike("ﾀﾅｶ"))).hasSize(1);
+        assertThat(userRepository.findAll(UserSpecification.nameLike("TANAKA"))).extracting(User::getName)
+                .containsExactly("ｔａｎａｋａ ｈａｎａｋｏ");
+        assertThat(userRepository.findAll(UserSpecification.nameStartsWith("タナ"))).hasSize(1);
+        assertThat(userRepository.findAll(UserSpecification.nameStartsWith("太郎"))).isEmpty();
+    }
+
+    @Test
+    void testEmailSearchUsesDerivedColumns() {
+        userService.saveUser(User.builder().name("田中太郎").email("tanaka@example.com").age(25).build());
+        userService.saveUser(User.builder().name("田中次郎").email("tanaka2@example.co.jp").age(30).build());
+        userService.saveUser(User.builder().name("佐藤花子").email("sato@mail.example.com").age(35).build());
+
+        // @で始まる検索語はドメインの前方一致に書き換えられる
+        assertThat(emails(UserSpecification.emailLike("@example.co"))).containsExactlyInAnyOrder(
+                "tanaka@example.com", "tanaka2@example.co.jp");
+        // @をまたぐ検索語はドメインの前方一致とローカル部の部分一致の組み合わせになる
+        assertThat(emails(UserSpecification.emailLike("ka@EXAMPLE"))).containsExactly("tanaka@example.com");
+        // @を含まない検索語は従来どおりの部分一致
+        assertThat(emails(UserSpecification.emailLike("example.com"))).hasSize(2);
+
+        assertThat(emails(UserSpecification.emailDomainEquals("Example.com"))).containsExactly("tanaka@example.com");
+        assertThat(emails(UserSpecification.emailEndsWith("example.com"))).containsExactlyInAnyOrder(
+                "tanaka@example.com", "sato@mail.example.com");
+        assertThat(emails(UserSpecification.searchUsers("田中", "@example.co.jp", null, null)))
+                .containsExactly("tanaka2@example.co.jp");
+    }
+
+    @Test
+    void testCompleteEmailAddressIsSubstringMatch() {
+        userService.saveUser(User.builder().name("田中太郎").email("tanaka@example.com").age(25).build());
+        userService.saveUser(User.builder().name("田中大").email("bigtanaka@example.com").age(30).build());
+        userService.saveUser(User.builder().name("田中豪").email("tanaka@example.com.au").age(35).build());
+
+        assertThat(emails(UserSpecification.emailLike("Tanaka@Example.com"))).containsExactlyInAnyOrder(
+                "tanaka@example.com", "bigtanaka@example.com", "tanaka@example.com.au");
+        assertThat(emails(UserSpecification.emailEquals("Tanaka@Example.com"))).containsExactly("tanaka@example.com");
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkDerivedColumnsAgainstFunctionPredicates() {
+        // ./gradlew test --tests UserSpecificationTest -Dbenchmark=true -Dderived.users=5000000
+        int userCount = Integer.getInteger("derived.users", 2_000_000);
+        int iterations = 20;
+        userDatasetFixture.prepare(userCount, 11L);
+
+        // 書き換え前の形（カラムを関数で包んだ部分一致）
+        Specification<User> legacyDomain = (root, query, cb) -> cb.like(cb.lower(root.get("email")), "%@example.org%");
+        Specification<User> legacySuffix = (root, query, cb) -> cb.like(cb.lower(root.get("email")), "%.example.net");
+        Specification<User> legacyName = (root, query, cb) -> cb.like(cb.lower(root.get("name")), "smith%");
+
+        Specification<User> domain = UserSpecification.emailLike("@example.org");
+        Specification<User> suffix = UserSpecification.emailEndsWith(".example.net");
+        Specification<User> name = UserSpecification.nameStartsWith("smith");
+
+        // 書き換え後も同じ行に一致する
+        assertThat(userRepository.count(domain)).isEqualTo(userRepository.count(legacyDomain));
+        assertThat(userRepository.count(suffix)).isEqualTo(userRepository.count(legacySuffix));
+
+        log.info("users={} domain: legacy={} ms derived={} ms", userCount,
+                millis(time(iterations, () -> userRepository.count(legacyDomain))),
+                millis(time(iterations, () -> userRepository.count(domain))));
+        log.info("users={} suffix: legacy={} ms derived={} ms", userCount,
+                millis(time(iterations, () -> userRepository.count(legacySuffix))),
+                millis(time(iterations, () -> userRepository.count(suffix))));
+        log.info("users={} name prefix: legacy={} ms derived={} ms", userCount,
+                millis(time(iterations, () -> userRepository.count(legacyName))),
+                millis(time(iterations, () -> userRepository.count(name))));
+    }
+
+    private List<String> emails(Specification<User> spec) {
+        return userRepository.findAll(spec).stream().map(User::getEmail).toList();
+    }
+
+    private static long time(int iterations, Runnable query) {
+        // ウォームアップ
+        query.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            query.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+}
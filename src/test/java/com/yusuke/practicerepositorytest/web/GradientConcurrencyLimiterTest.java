@@ -0,0 +1,67 @@
+package com.yusuke.practicerepositorytest.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class GradientConcurrencyLimiterTest {
+
+    @Test
+    void testRejectsBeyondLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(2, 1, 10);
+
+        assertThat(limiter.tryAcquire()).isEqualTo(1);
+        assertThat(limiter.tryAcquire()).isEqualTo(2);
+        assertThat(limiter.tryAcquire()).isEqualTo(-1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyDegrades() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 2, 100);
+        long fast = TimeUnit.MILLISECONDS.toNanos(5);
+        long slow = TimeUnit.MILLISECONDS.toNanos(100);
+
+        // 基準となるレイテンシーを学習させる
+        for (int i = 0; i < 200; i++) {
+            limiter.release(fast, 20, false);
+        }
+        int before = limiter.getLimit();
+
+        for (int i = 0; i < 50; i++) {
+            limiter.release(slow, limiter.getLimit(), false);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(before);
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void testLimitGrowsWhenLatencyIsStable() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(10, 2, 100);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(5), limiter.getLimit(), false);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void testTokenBucketRefillsOverTime() {
+        AtomicLong now = new AtomicLong();
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(1, 2, now::get);
+
+        assertThat(rateLimiter.tryAcquire("client")).isZero();
+        assertThat(rateLimiter.tryAcquire("client")).isZero();
+        assertThat(rateLimiter.tryAcquire("client")).isEqualTo(1);
+        // 他のクライアントのバケットには影響しない
+        assertThat(rateLimiter.tryAcquire("other")).isZero();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(rateLimiter.tryAcquire("client")).isZero();
+    }
+}
@@ -0,0 +1,123 @@
+package com.yusuke.practicerepositorytest.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.yusuke.practicerepositorytest.entity.User;
+import com.yusuke.practicerepositorytest.service.UserTableVersion;
+
+class HttpCacheSupportTest {
+
+    private final AtomicReference<String> currentVersion = new AtomicReference<>("v1");
+    private final HttpCacheProperties properties = new HttpCacheProperties();
+    // DBの代わりに固定のバージョンを返す
+    private final HttpCacheSupport httpCache = new HttpCacheSupport(new UserTableVersion(null, null) {
+        @Override
+        public String current() {
+            return currentVersion.get();
+        }
+    }, properties);
+
+    @Test
+    void testCollectionReturnsNotModifiedWithoutLoading() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/users");
+        ServletWebRequest request = new ServletWebRequest(servletRequest);
+        AtomicInteger loads = new AtomicInteger();
+
+        ResponseEntity<List<User>> first = httpCache.collection(request, "all-users", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, first.getHeaders().getETag());
+        ResponseEntity<List<User>> second = httpCache.collection(request, "all-users", () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void testCollectionETagFollowsTableVersion() {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("GET", "/api/users"));
+        String before = httpCache.collectionETag(request);
+
+        currentVersion.set("v2");
+
+        assertThat(httpCache.collectionETag(request)).isNotEqualTo(before);
+    }
+
+    @Test
+    void testConditionalComparesLoadedVersion() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/users/1");
+        ServletWebRequest request = new ServletWebRequest(servletRequest);
+        User v1 = User.builder().id(1L).version(1L).build();
+        User v2 = User.builder().id(1L).version(2L).build();
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, httpCache.userETag(v1, request));
+
+        assertThat(httpCache.conditional(request, httpCache.userETag(v1, request), "user-by-id", v1)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(httpCache.conditional(request, httpCache.userETag(v2, request), "user-by-id", v2)
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void testETagDependsOnRepresentation() {
+        MockHttpServletRequest cborRequest = new MockHttpServletRequest("GET", "/api/users/1");
+        cborRequest.addHeader(HttpHeaders.ACCEPT, "application/cbor");
+        User user = User.builder().id(1L).version(0L).build();
+
+        String json = httpCache.userETag(user, new ServletWebRequest(new MockHttpServletRequest()));
+        String cbor = httpCache.userETag(user, new ServletWebRequest(cborRequest));
+
+        assertThat(json).isNotEqualTo(cbor);
+    }
+
+    @Test
+    void testWeakIfNoneMatchAndCacheControl() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("GET", "/api/users/1");
+        servletRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "W/\"u1.0\", \"other\"");
+        properties.getMaxAge().put("user-by-id", Duration.ofSeconds(30));
+
+        assertThat(httpCache.isNotModified(new ServletWebRequest(servletRequest), "\"u1.0\"")).isTrue();
+        assertThat(httpCache.cacheControl("user-by-id").getHeaderValue()).isEqualTo("max-age=30, private");
+        assertThat(httpCache.cacheControl("spec-search").getHeaderValue()).isEqualTo("no-cache, private");
+    }
+
+    @Test
+    void testIfMatchVersion() {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("PUT", "/api/users/7");
+        ServletWebRequest request = new ServletWebRequest(servletRequest);
+        assertThat(httpCache.ifMatchVersion(7L, request)).isNull();
+
+        // レスポンスのETagをそのまま指定できる
+        String etag = httpCache.userETag(User.builder().id(7L).version(3L).build(), request);
+        servletRequest.addHeader(HttpHeaders.IF_MATCH, etag);
+        assertThat(httpCache.ifMatchVersion(7L, request)).isEqualTo(3L);
+
+        // CBOR表現のETag、他のユーザーのETag、弱いETag
+        assertThat(ifMatch(7L, "\"u7.4-cbor\"")).isEqualTo(4L);
+        assertThat(ifMatch(7L, "\"u8.4\"")).isEqualTo(-1L);
+        assertThat(ifMatch(7L, "W/\"u7.4\"")).isEqualTo(-1L);
+        assertThat(ifMatch(7L, "*")).isNull();
+    }
+
+    private Long ifMatch(Long id, String header) {
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest("PUT", "/api/users/" + id);
+        servletRequest.addHeader(HttpHeaders.IF_MATCH, header);
+        return httpCache.ifMatchVersion(id, new ServletWebRequest(servletRequest));
+    }
+}
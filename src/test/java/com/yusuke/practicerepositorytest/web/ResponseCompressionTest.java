@@ -0,0 +1,203 @@
+package com.yusuke.practicerepositorytest.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yusuke.practicerepositorytest.dto.CappedList;
+import com.yusuke.practicerepositorytest.entity.User;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class ResponseCompressionTest {
+
+    private final CompressionProperties properties = new CompressionProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CompressionMetrics metrics = new CompressionMetrics(meterRegistry);
+
+    @Test
+    void testNegotiate() {
+        assertThat(ContentEncoding.negotiate(null)).isEqualTo(ContentEncoding.IDENTITY);
+        assertThat(ContentEncoding.negotiate("gzip, deflate, br")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("gzip;q=0.5, deflate")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("br")).isEqualTo(ContentEncoding.IDENTITY);
+        assertThat(ContentEncoding.negotiate("*")).isEqualTo(ContentEncoding.GZIP);
+        assertThat(ContentEncoding.negotiate("*, gzip;q=0")).isEqualTo(ContentEncoding.DEFLATE);
+        assertThat(ContentEncoding.negotiate("gzip;q=0, deflate;q=0")).isEqualTo(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    void testFilterCompressesLargeJsonResponses() throws Exception {
+        ResponseCompressionFilter filter = new ResponseCompressionFilter(properties, metrics);
+        String json = largeJson();
+
+        MockHttpServletResponse gzip = filter(filter, "gzip", 200, json);
+        assertThat(gzip.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzip.getHeader(HttpHeaders.ETAG)).isEqualTo("W/\"t1\"");
+        assertThat(gzip.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(gzip.getContentAsByteArray().length).isLessThan(json.length() / 2);
+        assertThat(gunzip(gzip.getContentAsByteArray())).isEqualTo(json);
+
+        MockHttpServletResponse deflate = filter(filter, "deflate", 200, json);
+        assertThat(deflate.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("deflate");
+        assertThat(inflate(deflate.getContentAsByteArray())).isEqualTo(json);
+
+        assertThat(meterRegistry.get("http.compression.bytes").tag("encoding", "gzip").tag("stage", "raw")
+                .counter().count()).isEqualTo(json.length());
+        assertThat(meterRegistry.get("http.compression.cpu").tag("encoding", "gzip").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testFilterSkipsSmallAndErrorResponses() throws Exception {
+        ResponseCompressionFilter filter = new ResponseCompressionFilter(properties, metrics);
+
+        MockHttpServletResponse small = filter(filter, "gzip", 200, "[]");
+        assertThat(small.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(small.getHeader(HttpHeaders.ETAG)).isEqualTo("\"t1\"");
+        assertThat(small.getContentAsString()).isEqualTo("[]");
+
+        MockHttpServletResponse error = filter(filter, "gzip", 404, largeJson());
+        assertThat(error.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+
+        MockHttpServletResponse identity = filter(filter, null, 200, largeJson());
+        assertThat(identity.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(identity.getContentAsString()).isEqualTo(largeJson());
+    }
+
+    @Test
+    void testCacheSkipsSearchSerializationAndCompression() throws Exception {
+        CompressedResponseCache cache = new CompressedResponseCache(properties, metrics,
+                new UserHttpMessageConverter(new ObjectMapper()));
+        AtomicInteger loads = new AtomicInteger();
+        List<User> users = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            users.add(User.builder().id(i).name("田中太郎" + i).email("tanaka" + i + "@example.com").age(30)
+                    .version(0L).build());
+        }
+
+        CompressedPayload first = cache.get(request("name=田中&minAge=20"), "spec-search", "\"t1\"",
+                MediaType.APPLICATION_JSON, () -> {
+                    loads.incrementAndGet();
+                    return CappedList.of(users, 1000);
+                });
+        assertThat(first.getEncoding()).isEqualTo(ContentEncoding.GZIP);
+        assertThat(gunzip(first.getBody())).startsWith("[{").contains("tanaka100@example.com");
+
+        // パラメーターの順序が異なっても同じエントリを使う
+        CompressedPayload second = cache.get(request("minAge=20&name=田中"), "spec-search", "\"t1\"",
+                MediaType.APPLICATION_JSON, () -> {
+                    loads.incrementAndGet();
+                    return CappedList.of(users, 1000);
+                });
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        // テーブルのバージョンが変わると検索し直す
+        cache.get(request("name=田中&minAge=20"), "spec-search", "\"t2\"", MediaType.APPLICATION_JSON, () -> {
+            loads.incrementAndGet();
+            return CappedList.of(users, 1000);
+        });
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("http.compression.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCacheExpiresEntries() {
+        AtomicLong nanos = new AtomicLong();
+        CompressedResponseCache cache = new CompressedResponseCache(properties, metrics,
+                new UserHttpMessageConverter(new ObjectMapper()), nanos::get);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<CappedList<User>> loader = () -> {
+            loads.incrementAndGet();
+            return CappedList.of(List.of(User.builder().id(1L).name("田中太郎").email("tanaka@example.com")
+                    .age(30).version(0L).build()), 1000);
+        };
+
+        cache.get(request("name=田中"), "spec-search", "\"t1\"", MediaType.APPLICATION_JSON, loader);
+        nanos.addAndGet(properties.getCacheTtl().toNanos() - 1);
+        cache.get(request("name=田中"), "spec-search", "\"t1\"", MediaType.APPLICATION_JSON, loader);
+        assertThat(loads).hasValue(1);
+
+        // TTLが過ぎたエントリは同じバージョンでも検索し直す
+        nanos.incrementAndGet();
+        cache.get(request("name=田中"), "spec-search", "\"t1\"", MediaType.APPLICATION_JSON, loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static ServletWebRequest request(String query) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/spec/search");
+        request.setQueryString(query);
+        for (String pair : query.split("&")) {
+            String[] nameValue = pair.split("=");
+            request.addParameter(nameValue[0], nameValue[1]);
+        }
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        return new ServletWebRequest(request);
+    }
+
+    private static MockHttpServletResponse filter(ResponseCompressionFilter filter, String acceptEncoding, int status,
+            String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setStatus(status);
+                resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                resp.setHeader(HttpHeaders.ETAG, "\"t1\"");
+                // チャンク単位で書き出す一覧と同じく、複数回に分けて書く
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                for (int offset = 0; offset < bytes.length; offset += 100) {
+                    resp.getOutputStream().write(bytes, offset, Math.min(100, bytes.length - offset));
+                }
+                resp.getOutputStream().flush();
+            }
+        }));
+        return response;
+    }
+
+    private static String largeJson() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 200; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"user").append(i)
+                    .append("\",\"email\":\"user").append(i).append("@example.com\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String inflate(byte[] bytes) throws IOException {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
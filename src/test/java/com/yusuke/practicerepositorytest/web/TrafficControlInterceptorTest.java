@@ -0,0 +1,140 @@
+package com.yusuke.practicerepositorytest.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.yusuke.practicerepositorytest.web.TrafficControlInterceptor.TrafficClass;
+
+class TrafficControlInterceptorTest {
+
+    @Test
+    void testClassify() {
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/1"))).isEqualTo(TrafficClass.LOOKUP);
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/email/a@example.com")))
+                .isEqualTo(TrafficClass.LOOKUP);
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/spec/search"))).isEqualTo(TrafficClass.SEARCH);
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/search/name"))).isEqualTo(TrafficClass.SEARCH);
+        assertThat(TrafficControlInterceptor.classify(new MockHttpServletRequest("POST", "/api/users")))
+                .isEqualTo(TrafficClass.LOOKUP);
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/email/a@example.com/exists")))
+                .isEqualTo(TrafficClass.LOOKUP);
+        assertThat(TrafficControlInterceptor.classify(new MockHttpServletRequest("POST", "/api/users/import")))
+                .isEqualTo(TrafficClass.SEARCH);
+        // 入力補完はメモリ上のインデックスから返すため、キー入力ごとの呼び出しをLOOKUPの枠で受ける
+        assertThat(TrafficControlInterceptor.classify(get("/api/users/suggest"))).isEqualTo(TrafficClass.LOOKUP);
+    }
+
+    @Test
+    void testSearchRateLimitDoesNotAffectLookups() {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        properties.getSearch().setBurst(1);
+        properties.getSearch().setRatePerSecond(1);
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+
+        assertThat(handle(interceptor, get("/api/users/spec/search")).getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = handle(interceptor, get("/api/users/spec/search"));
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        assertThat(handle(interceptor, get("/api/users/1")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testRateLimitIsPerClient() {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        properties.getSearch().setBurst(1);
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+
+        assertThat(handle(interceptor, get("/api/users/spec/search", "192.0.2.1")).getStatus()).isEqualTo(200);
+        assertThat(handle(interceptor, get("/api/users/spec/search", "192.0.2.1")).getStatus()).isEqualTo(429);
+        assertThat(handle(interceptor, get("/api/users/spec/search", "192.0.2.2")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void testClientSuppliedHeadersDoNotChangeIdentity() {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+
+        MockHttpServletRequest request = get("/api/users/spec/search", "192.0.2.1");
+        request.addHeader("X-Client-Id", "someone-else");
+        request.addHeader("X-Forwarded-For", "198.51.100.7");
+
+        // 信頼するプロキシ以外からの転送ヘッダーは無視する
+        assertThat(interceptor.clientId(request)).isEqualTo("addr:192.0.2.1");
+
+        request.setUserPrincipal(() -> "alice");
+        assertThat(interceptor.clientId(request)).isEqualTo("user:alice");
+    }
+
+    @Test
+    void testForwardedForIsTrustedOnlyFromConfiguredProxies() {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        properties.getTrustedProxies().addAll(Set.of("10.0.0.10", "10.0.0.11"));
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+
+        // クライアントが先頭に偽のアドレスを付けても、信頼するプロキシが追加した直前のアドレスを使う
+        MockHttpServletRequest request = get("/api/users/spec/search", "10.0.0.10");
+        request.addHeader("X-Forwarded-For", "203.0.113.9, 198.51.100.7, 10.0.0.11");
+        assertThat(interceptor.clientId(request)).isEqualTo("addr:198.51.100.7");
+
+        MockHttpServletRequest direct = get("/api/users/spec/search", "10.0.0.10");
+        assertThat(interceptor.clientId(direct)).isEqualTo("addr:10.0.0.10");
+    }
+
+    @Test
+    void testConcurrencyRejectionDoesNotConsumeRateTokens() throws Exception {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        properties.setLookup(new TrafficControlProperties.Bulkhead(1, 1, 1, 1, 1));
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+
+        MockHttpServletRequest inFlight = get("/api/users/1", "192.0.2.1");
+        MockHttpServletResponse inFlightResponse = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(inFlight, inFlightResponse, new Object())).isTrue();
+
+        // 同時実行数の上限で拒否されたクライアントはトークンを失わない
+        assertThat(handle(interceptor, get("/api/users/1", "192.0.2.2")).getStatus()).isEqualTo(429);
+        interceptor.afterCompletion(inFlight, inFlightResponse, new Object(), null);
+        assertThat(handle(interceptor, get("/api/users/1", "192.0.2.2")).getStatus()).isEqualTo(200);
+        assertThat(interceptor.concurrencyLimiter(TrafficClass.LOOKUP).getInFlight()).isZero();
+    }
+
+    @Test
+    void testConcurrencyPermitIsReleasedAfterCompletion() throws Exception {
+        TrafficControlProperties properties = new TrafficControlProperties();
+        TrafficControlInterceptor interceptor = new TrafficControlInterceptor(properties);
+        MockHttpServletRequest request = get("/api/users/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, new Object())).isTrue();
+        assertThat(interceptor.concurrencyLimiter(TrafficClass.LOOKUP).getInFlight()).isEqualTo(1);
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertThat(interceptor.concurrencyLimiter(TrafficClass.LOOKUP).getInFlight()).isZero();
+    }
+
+    private static MockHttpServletRequest get(String path) {
+        return new MockHttpServletRequest("GET", path);
+    }
+
+    private static MockHttpServletRequest get(String path, String remoteAddr) {
+        MockHttpServletRequest request = get(path);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static MockHttpServletResponse handle(TrafficControlInterceptor interceptor,
+            MockHttpServletRequest request) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        if (interceptor.preHandle(request, response, new Object())) {
+            interceptor.afterCompletion(request, response, new Object(), null);
+        }
+        return response;
+    }
+}
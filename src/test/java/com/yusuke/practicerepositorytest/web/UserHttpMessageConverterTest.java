@@ -0,0 +1,168 @@
+package com.yusuke.practicerepositorytest.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.yusuke.practicerepositorytest.entity.User;
+
+class UserHttpMessageConverterTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserHttpMessageConverterTest.class);
+
+    private static final Type USER_LIST = new ParameterizedTypeReference<List<User>>() {
+    }.getType();
+
+    // Spring Bootのデフォルト設定と同じObjectMapper
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private final UserHttpMessageConverter converter = new UserHttpMessageConverter(objectMapper);
+
+    @Test
+    void testCanWriteOnlyUserTypes() {
+        Type stringList = new ParameterizedTypeReference<List<String>>() {
+        }.getType();
+
+        assertThat(converter.canWrite(User.class, User.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(USER_LIST, List.class, MediaType.APPLICATION_CBOR)).isTrue();
+        assertThat(converter.canWrite(stringList, List.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canRead(User.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void testPagesAreLeftToJackson() {
+        // 配列として書き出すと総件数やページ番号が失われる
+        Type userPage = new ParameterizedTypeReference<Page<User>>() {
+        }.getType();
+        Type userIterable = new ParameterizedTypeReference<Iterable<User>>() {
+        }.getType();
+
+        assertThat(converter.canWrite(userPage, PageImpl.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(userIterable, PageImpl.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(userIterable, Iterable.class, MediaType.APPLICATION_JSON)).isTrue();
+    }
+
+    @Test
+    void testJsonOutputMatchesObjectMapper() throws Exception {
+        List<User> users = createUsers(3);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(users, USER_LIST, MediaType.APPLICATION_JSON, output);
+
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(users));
+        assertThat(objectMapper.readTree(output.getBodyAsString(StandardCharsets.UTF_8))).isEqualTo(expected);
+    }
+
+    @Test
+    void testCborOutputMatchesJsonContent() throws Exception {
+        List<User> users = createUsers(3);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(users, USER_LIST, MediaType.APPLICATION_CBOR, output);
+
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsString(users));
+        assertThat(cborMapper.readTree(output.getBodyAsBytes())).isEqualTo(expected);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkAgainstObjectMapper() throws Exception {
+        // ./gradlew test --tests UserHttpMessageConverterTest -Dbenchmark=true
+        List<User> users = createUsers(10_000);
+        int iterations = 200;
+
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+            converter.write(users, USER_LIST, MediaType.APPLICATION_JSON, nullOutputMessage());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            objectMapper.writeValue(OutputStream.nullOutputStream(), users);
+        }
+        long jacksonNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            converter.write(users, USER_LIST, MediaType.APPLICATION_JSON, nullOutputMessage());
+        }
+        long jsonWriterNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            converter.write(users, USER_LIST, MediaType.APPLICATION_CBOR, nullOutputMessage());
+        }
+        long cborWriterNanos = System.nanoTime() - start;
+
+        MockHttpOutputMessage json = new MockHttpOutputMessage();
+        converter.write(users, USER_LIST, MediaType.APPLICATION_JSON, json);
+        MockHttpOutputMessage cbor = new MockHttpOutputMessage();
+        converter.write(users, USER_LIST, MediaType.APPLICATION_CBOR, cbor);
+
+        log.info("ObjectMapper: {} ms/op", String.format("%.2f", jacksonNanos / 1e6 / iterations));
+        log.info("UserJsonWriter(JSON): {} ms/op, {} bytes",
+                String.format("%.2f", jsonWriterNanos / 1e6 / iterations), json.getBodyAsBytes().length);
+        log.info("UserJsonWriter(CBOR): {} ms/op, {} bytes",
+                String.format("%.2f", cborWriterNanos / 1e6 / iterations), cbor.getBodyAsBytes().length);
+    }
+
+    private static List<User> createUsers(int count) {
+        LocalDateTime base = LocalDateTime.of(2024, 4, 1, 9, 30, 15, 123_456_000);
+        List<User> users = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            users.add(User.builder()
+                    .id((long) i)
+                    .name("田中太郎" + i)
+                    .email("tanaka" + i + "@example.com")
+                    .age(20 + i % 50)
+                    .createdAt(base.plusMinutes(i))
+                    .updatedAt(base.plusMinutes(i))
+                    .deletedAt(i % 10 == 0 ? base.plusDays(1) : null)
+                    .version((long) i % 3)
+                    .build());
+        }
+        return users;
+    }
+
+    private static HttpOutputMessage nullOutputMessage() {
+        HttpHeaders headers = new HttpHeaders();
+        return new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return OutputStream.nullOutputStream();
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+}
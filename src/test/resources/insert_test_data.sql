@@ -1,7 +1,8 @@
 -- テストデータの挿入
-INSERT INTO users (name, email, age, created_at) VALUES
-('田中太郎', 'tanaka@example.com', 25, NOW()),
-('佐藤花子', 'sato@example.com', 30, NOW()),
-('田中次郎', 'tanaka2@example.com', 28, NOW()),
-('山田三郎', 'yamada@example.com', 35, NOW()),
-('鈴木四郎', 'suzuki@example.com', 22, NOW()); 
\ No newline at end of file
+-- name_normalized/email_domain/email_reversedは検索用の派生カラム（エンティティ経由ではないため明示的に設定する）
+INSERT INTO users (name, email, age, created_at, updated_at, name_normalized, email_domain, email_reversed) VALUES
+('田中太郎', 'tanaka@example.com', 25, NOW(), NOW(), '田中太郎', 'example.com', 'moc.elpmaxe@akanat'),
+('佐藤花子', 'sato@example.com', 30, NOW(), NOW(), '佐藤花子', 'example.com', 'moc.elpmaxe@otas'),
+('田中次郎', 'tanaka2@example.com', 28, NOW(), NOW(), '田中次郎', 'example.com', 'moc.elpmaxe@2akanat'),
+('山田三郎', 'yamada@example.com', 35, NOW(), NOW(), '山田三郎', 'example.com', 'moc.elpmaxe@adamay'),
+('鈴木四郎', 'suzuki@example.com', 22, NOW(), NOW(), '鈴木四郎', 'example.com', 'moc.elpmaxe@ikuzus');
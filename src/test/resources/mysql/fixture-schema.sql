@@ -0,0 +1,4 @@
+-- テストデータのスナップショット（UserDatasetFixture）を置くスキーマ
+-- Flywayが管理するスキーマ（testdb）の外に置き、テスト用のユーザーに権限を与える
+CREATE DATABASE IF NOT EXISTS users_fixture;
+GRANT ALL PRIVILEGES ON users_fixture.* TO 'test'@'%';